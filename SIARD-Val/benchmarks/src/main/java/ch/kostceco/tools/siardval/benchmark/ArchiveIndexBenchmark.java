@@ -0,0 +1,92 @@
+/*== SIARD-Val ==================================================================================
+The SIARD-Val application is used for validate SIARD-Files. 
+Copyright (C) 2012 Claire Rthlisberger (KOST-CECO), Martin Kaiser (KOST-CECO), XYZ (xyz)
+-----------------------------------------------------------------------------------------------
+SIARD-Val is a development of the KOST-CECO. All rights rest with the KOST-CECO. 
+This application is free software: you can redistribute it and/or modify it under the 
+terms of the GNU General Public License as published by the Free Software Foundation, 
+either version 3 of the License, or (at your option) any later version. 
+This application is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; 
+without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. 
+See the follow GNU General Public License for more details.
+You should have received a copy of the GNU General Public License along with this program; 
+if not, write to the Free Software Foundation, Inc., 51 Franklin Street, Fifth Floor, 
+Boston, MA 02110-1301 USA or see <http://www.gnu.org/licenses/>.
+==============================================================================================*/
+
+package ch.kostceco.tools.siardval.benchmark;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+
+import ch.enterag.utils.zip.FileEntry;
+import ch.enterag.utils.zip.Zip64File;
+import ch.kostceco.tools.siardval.archive.SiardArchiveEntry;
+import ch.kostceco.tools.siardval.archive.SiardArchiveIndex;
+
+/**
+ * Lesen des zentralen Verzeichnisses und der Eintrge einer SIARD-Datei.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class ArchiveIndexBenchmark {
+
+    /**
+     * Nur das zentrale Verzeichnis ber <code>Zip64File</code>.
+     */
+    @Benchmark
+    public int listCentralDirectory(ArchiveState state) throws IOException {
+        Zip64File zipFile = new Zip64File(state.siardDatei, true);
+        try {
+            List<FileEntry> entries = zipFile.getListFileEntries();
+            return entries.size();
+        } finally {
+            zipFile.close();
+        }
+    }
+
+    /**
+     * Aufbau des Index mit Verzeichnisbaum, wie ihn jede Validierung einmal
+     * ausfhrt.
+     */
+    @Benchmark
+    public int buildArchiveIndex(ArchiveState state) throws IOException {
+        SiardArchiveIndex index = new SiardArchiveIndex(state.siardDatei);
+        try {
+            return index.getEntryCount();
+        } finally {
+            index.close();
+        }
+    }
+
+    /**
+     * Liest alle Eintrge vollstndig, wie Modul C sie mit extractarchive
+     * entpackt.
+     */
+    @Benchmark
+    public long readAllEntries(ArchiveState state) throws IOException {
+        byte[] buffer = new byte[8192];
+        long total = 0;
+        for (SiardArchiveEntry entry : state.index.getEntries()) {
+            if (entry.isDirectory()) {
+                continue;
+            }
+            InputStream in = state.index.openEntryInputStream(entry.getName());
+            try {
+                for (int n = in.read(buffer); n >= 0; n = in.read(buffer)) {
+                    total += n;
+                }
+            } finally {
+                in.close();
+            }
+        }
+        return total;
+    }
+}
@@ -0,0 +1,72 @@
+/*== SIARD-Val ==================================================================================
+The SIARD-Val application is used for validate SIARD-Files. 
+Copyright (C) 2012 Claire Rthlisberger (KOST-CECO), Martin Kaiser (KOST-CECO), XYZ (xyz)
+-----------------------------------------------------------------------------------------------
+SIARD-Val is a development of the KOST-CECO. All rights rest with the KOST-CECO. 
+This application is free software: you can redistribute it and/or modify it under the 
+terms of the GNU General Public License as published by the Free Software Foundation, 
+either version 3 of the License, or (at your option) any later version. 
+This application is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; 
+without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. 
+See the follow GNU General Public License for more details.
+You should have received a copy of the GNU General Public License along with this program; 
+if not, write to the Free Software Foundation, Inc., 51 Franklin Street, Fifth Floor, 
+Boston, MA 02110-1301 USA or see <http://www.gnu.org/licenses/>.
+==============================================================================================*/
+
+package ch.kostceco.tools.siardval.benchmark;
+
+import java.io.File;
+import java.io.IOException;
+
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.springframework.context.support.ClassPathXmlApplicationContext;
+
+import ch.kostceco.tools.siardval.archive.SiardArchiveIndex;
+import ch.kostceco.tools.siardval.service.ArchiveService;
+
+/**
+ * Gemeinsamer Zustand der Benchmarks: eine synthetische SIARD-Datei mit
+ * tables Tabellen zu je rows Zeilen und der Spring-Kontext von SIARD-Val.
+ * Die Benchmarks mssen im Verzeichnis SIARD-Val gestartet werden, da die
+ * Konfiguration aus configuration/SIARDVal.conf.xml gelesen wird.
+ */
+@State(Scope.Benchmark)
+public class ArchiveState {
+
+    @Param({ "1", "10", "100" })
+    public int tables;
+
+    @Param({ "100", "10000" })
+    public int rows;
+
+    public File siardDatei;
+    public ClassPathXmlApplicationContext context;
+    public ArchiveService archiveService;
+    public SiardArchiveIndex index;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        siardDatei = File.createTempFile("benchmark-" + tables + "x" + rows + "-", ".siard");
+        SiardGenerator generator = new SiardGenerator();
+        generator.setTables(tables);
+        generator.setRows(rows);
+        generator.write(siardDatei);
+        context = new ClassPathXmlApplicationContext("classpath:config/applicationContext.xml");
+        archiveService = (ArchiveService) context.getBean("archiveService");
+        // wie in einer Validierung teilen sich alle Module denselben Index
+        index = archiveService.getArchiveIndex(siardDatei);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        archiveService.release(siardDatei);
+        context.close();
+        siardDatei.delete();
+    }
+}
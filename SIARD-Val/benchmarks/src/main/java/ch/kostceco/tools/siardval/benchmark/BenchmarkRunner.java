@@ -0,0 +1,45 @@
+/*== SIARD-Val ==================================================================================
+The SIARD-Val application is used for validate SIARD-Files. 
+Copyright (C) 2012 Claire Rthlisberger (KOST-CECO), Martin Kaiser (KOST-CECO), XYZ (xyz)
+-----------------------------------------------------------------------------------------------
+SIARD-Val is a development of the KOST-CECO. All rights rest with the KOST-CECO. 
+This application is free software: you can redistribute it and/or modify it under the 
+terms of the GNU General Public License as published by the Free Software Foundation, 
+either version 3 of the License, or (at your option) any later version. 
+This application is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; 
+without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. 
+See the follow GNU General Public License for more details.
+You should have received a copy of the GNU General Public License along with this program; 
+if not, write to the Free Software Foundation, Inc., 51 Franklin Street, Fifth Floor, 
+Boston, MA 02110-1301 USA or see <http://www.gnu.org/licenses/>.
+==============================================================================================*/
+
+package ch.kostceco.tools.siardval.benchmark;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Startet die Benchmarks mit den JMH-Parametern der Kommandozeile und
+ * schaltet immer den GC-Profiler ein, damit neben dem Durchsatz auch die
+ * Allokation pro Operation (gc.alloc.rate.norm) ausgegeben wird.
+ *
+ * Aufruf im Verzeichnis SIARD-Val, z.B.
+ * <code>java -jar benchmarks/target/benchmarks.jar ModuleBenchmark -p tables=10</code>
+ */
+public final class BenchmarkRunner {
+
+    private BenchmarkRunner() {
+    }
+
+    public static void main(String[] args) throws RunnerException, CommandLineOptionException {
+        CommandLineOptions commandLine = new CommandLineOptions(args);
+        Options options = new OptionsBuilder().parent(commandLine).addProfiler(GCProfiler.class).build();
+        new Runner(options).run();
+    }
+}
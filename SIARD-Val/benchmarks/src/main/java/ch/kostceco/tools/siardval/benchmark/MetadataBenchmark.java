@@ -0,0 +1,64 @@
+/*== SIARD-Val ==================================================================================
+The SIARD-Val application is used for validate SIARD-Files. 
+Copyright (C) 2012 Claire Rthlisberger (KOST-CECO), Martin Kaiser (KOST-CECO), XYZ (xyz)
+-----------------------------------------------------------------------------------------------
+SIARD-Val is a development of the KOST-CECO. All rights rest with the KOST-CECO. 
+This application is free software: you can redistribute it and/or modify it under the 
+terms of the GNU General Public License as published by the Free Software Foundation, 
+either version 3 of the License, or (at your option) any later version. 
+This application is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; 
+without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. 
+See the follow GNU General Public License for more details.
+You should have received a copy of the GNU General Public License along with this program; 
+if not, write to the Free Software Foundation, Inc., 51 Franklin Street, Fifth Floor, 
+Boston, MA 02110-1301 USA or see <http://www.gnu.org/licenses/>.
+==============================================================================================*/
+
+package ch.kostceco.tools.siardval.benchmark;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.concurrent.TimeUnit;
+
+import javax.xml.stream.XMLStreamException;
+
+import org.jdom2.Document;
+import org.jdom2.JDOMException;
+import org.jdom2.input.SAXBuilder;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+
+import ch.kostceco.tools.siardval.archive.SiardArchiveIndex;
+import ch.kostceco.tools.siardval.archive.SiardMetadata;
+
+/**
+ * Parsen von metadata.xml: einmal mit dem JDOM <code>SAXBuilder</code>, wie
+ * es die Module frher je einzeln ausfhrten, einmal in das gemeinsame
+ * {@link SiardMetadata}.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class MetadataBenchmark {
+
+    @Benchmark
+    public Document parseMetadata(ArchiveState state) throws IOException, JDOMException {
+        InputStream in = state.index.openEntryInputStream(SiardArchiveIndex.HEADER + "metadata.xml");
+        try {
+            return new SAXBuilder().build(in);
+        } finally {
+            in.close();
+        }
+    }
+
+    @Benchmark
+    public SiardMetadata parseSiardMetadata(ArchiveState state) throws IOException, XMLStreamException {
+        InputStream in = state.index.openEntryInputStream(SiardArchiveIndex.HEADER + SiardMetadata.ENTRY);
+        try {
+            return SiardMetadata.parse(in);
+        } finally {
+            in.close();
+        }
+    }
+}
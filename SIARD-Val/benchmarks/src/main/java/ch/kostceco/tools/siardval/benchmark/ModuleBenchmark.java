@@ -0,0 +1,85 @@
+/*== SIARD-Val ==================================================================================
+The SIARD-Val application is used for validate SIARD-Files. 
+Copyright (C) 2012 Claire Rthlisberger (KOST-CECO), Martin Kaiser (KOST-CECO), XYZ (xyz)
+-----------------------------------------------------------------------------------------------
+SIARD-Val is a development of the KOST-CECO. All rights rest with the KOST-CECO. 
+This application is free software: you can redistribute it and/or modify it under the 
+terms of the GNU General Public License as published by the Free Software Foundation, 
+either version 3 of the License, or (at your option) any later version. 
+This application is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; 
+without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. 
+See the follow GNU General Public License for more details.
+You should have received a copy of the GNU General Public License along with this program; 
+if not, write to the Free Software Foundation, Inc., 51 Franklin Street, Fifth Floor, 
+Boston, MA 02110-1301 USA or see <http://www.gnu.org/licenses/>.
+==============================================================================================*/
+
+package ch.kostceco.tools.siardval.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import ch.kostceco.tools.siardval.exception.SIARDValException;
+import ch.kostceco.tools.siardval.service.WorkDirService;
+import ch.kostceco.tools.siardval.validation.module.ValidationCheaderModule;
+import ch.kostceco.tools.siardval.validation.module.ValidationEcolumnModule;
+
+/**
+ * Vollstndige Validierungsschritte auf der synthetischen SIARD-Datei:
+ * Modul C (metadata.xml gegen metadata.xsd) und Modul E (Vergleich jeder
+ * Spalte aus metadata.xml mit der XSD ihrer Tabelle).
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class ModuleBenchmark {
+
+    /*
+     * Die Module halten Zustand und sind prototype-Beans, deshalb erhlt
+     * jeder Thread eigene Instanzen. Wie im Batch-Modus hat jeder Thread
+     * seine eigene Validierung und damit sein Arbeitsverzeichnis.
+     */
+    @State(Scope.Thread)
+    public static class Modules {
+
+        ValidationCheaderModule validationCheaderModule;
+        ValidationEcolumnModule validationEcolumnModule;
+        WorkDirService workDirService;
+        WorkDirService.Run run;
+
+        @Setup(Level.Trial)
+        public void setUp(ArchiveState state) {
+            validationCheaderModule = (ValidationCheaderModule) state.context.getBean("validationCheaderModule");
+            validationEcolumnModule = (ValidationEcolumnModule) state.context.getBean("validationEcolumnModule");
+            workDirService = (WorkDirService) state.context.getBean("workDirService");
+            run = workDirService.acquire(state.siardDatei);
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDown() {
+            workDirService.release(run);
+        }
+    }
+
+    @Benchmark
+    public boolean validateHeader(ArchiveState state, Modules modules) throws SIARDValException {
+        boolean valid = modules.validationCheaderModule.validate(state.siardDatei);
+        modules.validationCheaderModule.getMessageService().clear();
+        return valid;
+    }
+
+    @Benchmark
+    public boolean validateColumns(ArchiveState state, Modules modules) throws SIARDValException {
+        boolean valid = modules.validationEcolumnModule.validate(state.siardDatei);
+        modules.validationEcolumnModule.getMessageService().clear();
+        return valid;
+    }
+}
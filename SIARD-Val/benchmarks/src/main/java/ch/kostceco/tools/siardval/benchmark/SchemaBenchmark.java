@@ -0,0 +1,104 @@
+/*== SIARD-Val ==================================================================================
+The SIARD-Val application is used for validate SIARD-Files. 
+Copyright (C) 2012 Claire Rthlisberger (KOST-CECO), Martin Kaiser (KOST-CECO), XYZ (xyz)
+-----------------------------------------------------------------------------------------------
+SIARD-Val is a development of the KOST-CECO. All rights rest with the KOST-CECO. 
+This application is free software: you can redistribute it and/or modify it under the 
+terms of the GNU General Public License as published by the Free Software Foundation, 
+either version 3 of the License, or (at your option) any later version. 
+This application is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; 
+without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. 
+See the follow GNU General Public License for more details.
+You should have received a copy of the GNU General Public License along with this program; 
+if not, write to the Free Software Foundation, Inc., 51 Franklin Street, Fifth Floor, 
+Boston, MA 02110-1301 USA or see <http://www.gnu.org/licenses/>.
+==============================================================================================*/
+
+package ch.kostceco.tools.siardval.benchmark;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.concurrent.TimeUnit;
+
+import javax.xml.XMLConstants;
+import javax.xml.transform.stream.StreamSource;
+import javax.xml.validation.Schema;
+import javax.xml.validation.SchemaFactory;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.xml.sax.SAXException;
+
+import ch.kostceco.tools.siardval.archive.SiardArchiveIndex;
+import ch.kostceco.tools.siardval.service.SchemaCacheService;
+
+/**
+ * Kompilieren der XML-Schemas, wie es Modul H fr jede Tabelle und Modul C
+ * fr metadata.xsd ausfhrt, einmal direkt mit
+ * <code>SchemaFactory.newSchema</code> und einmal ber den Schema-Cache.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class SchemaBenchmark {
+
+    @State(Scope.Benchmark)
+    public static class Xsd {
+
+        byte[] metadataXsd;
+        byte[] tableXsd;
+        String tableSystemId;
+        SchemaCacheService schemaCacheService;
+
+        @Setup(Level.Trial)
+        public void setUp(ArchiveState state) throws IOException {
+            metadataXsd = read(state.index.openEntryInputStream(SiardArchiveIndex.HEADER + "metadata.xsd"));
+            String table = SiardArchiveIndex.CONTENT + "schema0/table0/table0.xsd";
+            tableXsd = read(state.index.openEntryInputStream(table));
+            tableSystemId = state.index.getSystemId(table);
+            schemaCacheService = (SchemaCacheService) state.context.getBean("schemaCacheService");
+        }
+    }
+
+    @Benchmark
+    public Schema newMetadataSchema(Xsd xsd) throws SAXException {
+        return compile(xsd.metadataXsd, null);
+    }
+
+    @Benchmark
+    public Schema newTableSchema(Xsd xsd) throws SAXException {
+        return compile(xsd.tableXsd, xsd.tableSystemId);
+    }
+
+    @Benchmark
+    public Schema cachedTableSchema(Xsd xsd) throws SAXException, IOException {
+        return xsd.schemaCacheService.getSchema(
+                new StreamSource(new ByteArrayInputStream(xsd.tableXsd), xsd.tableSystemId), null);
+    }
+
+    private static Schema compile(byte[] content, String systemId) throws SAXException {
+        SchemaFactory factory = SchemaFactory.newInstance(XMLConstants.W3C_XML_SCHEMA_NS_URI);
+        return factory.newSchema(new StreamSource(new ByteArrayInputStream(content), systemId));
+    }
+
+    private static byte[] read(InputStream in) throws IOException {
+        try {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            byte[] buffer = new byte[8192];
+            int n;
+            while ((n = in.read(buffer)) != -1) {
+                out.write(buffer, 0, n);
+            }
+            return out.toByteArray();
+        } finally {
+            in.close();
+        }
+    }
+}
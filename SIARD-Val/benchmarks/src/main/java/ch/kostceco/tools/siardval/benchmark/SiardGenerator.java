@@ -0,0 +1,644 @@
+/*== SIARD-Val ==================================================================================
+The SIARD-Val application is used for validate SIARD-Files. 
+Copyright (C) 2012 Claire Rthlisberger (KOST-CECO), Martin Kaiser (KOST-CECO), XYZ (xyz)
+-----------------------------------------------------------------------------------------------
+SIARD-Val is a development of the KOST-CECO. All rights rest with the KOST-CECO. 
+This application is free software: you can redistribute it and/or modify it under the 
+terms of the GNU General Public License as published by the Free Software Foundation, 
+either version 3 of the License, or (at your option) any later version. 
+This application is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; 
+without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. 
+See the follow GNU General Public License for more details.
+You should have received a copy of the GNU General Public License along with this program; 
+if not, write to the Free Software Foundation, Inc., 51 Franklin Street, Fifth Floor, 
+Boston, MA 02110-1301 USA or see <http://www.gnu.org/licenses/>.
+==============================================================================================*/
+
+package ch.kostceco.tools.siardval.benchmark;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Properties;
+import java.util.Random;
+import java.util.Set;
+
+import ch.kostceco.tools.siardval.benchmark.StoredZipWriter.Content;
+
+/**
+ * Erzeugt synthetische SIARD-Dateien (SIARD 1.0) fr Skalierungs- und
+ * Benchmark-Tests: beliebig viele Schemas, Tabellen, Spalten und Zeilen, mit
+ * den Spaltentypen aus der Typ-Abbildung in validation.properties, optional
+ * mit LOB-Dateien und ungleich grossen Tabellen. Mit fault wird gezielt je
+ * ein Fehler eingebaut, den eines der Module A bis K erkennen muss.
+ * <p>
+ * Die Eintrge werden gestreamt geschrieben, der Speicherbedarf hngt nicht
+ * von der Grsse der Datei ab (siehe StoredZipWriter). Dieselben Optionen
+ * ergeben immer dieselbe Datei. Aufruf im Verzeichnis SIARD-Val:
+ * <pre>
+ * java -cp benchmarks/target/benchmarks.jar ch.kostceco.tools.siardval.benchmark.SiardGenerator
+ *      [-schemas n] [-tables n] [-columns n] [-rows n] [-skew f] [-lobsize n]
+ *      [-seed n] [-digest MD5|SHA1|none] [-fault A,B,...] [-xsd metadata.xsd] datei.siard
+ * </pre>
+ */
+public final class SiardGenerator {
+
+    /**
+     * Einbaubare Fehler, benannt nach dem Modul, das sie erkennt. Betroffen
+     * ist jeweils die erste Tabelle, sofern nichts anderes angegeben ist.
+     */
+    public enum Fault {
+        /** header/metadata.xsd wird gepackt (DEFLATED) abgelegt. */
+        A,
+        /** Zustzliche Datei auf der obersten Ebene. */
+        B,
+        /** metadata.xml ohne das Pflichtelement dbname. */
+        C,
+        /** Das XML-Schema der letzten Tabelle fehlt. */
+        D,
+        /** Die Spalte c1 ist im XML-Schema als xs:decimal deklariert. */
+        E,
+        /** rows in metadata.xml ist um eins zu gross. */
+        F,
+        /** Die Prfsumme in messageDigest ist verflscht. */
+        G,
+        /** Eine Zeile enthlt ein nicht deklariertes Element c0. */
+        H,
+        /** Die Datei erhlt die Endung .zip statt .siard. */
+        I,
+        /** Ein in metadata.xml nicht beschriebener Tabellenordner tableX im letzten Schema. */
+        J,
+        /** Die letzte Zeile wiederholt den Primrschlssel der ersten. */
+        K
+    }
+
+    private static final String METADATA_NS = "http://www.bar.admin.ch/xmlns/siard/1.0/metadata.xsd";
+    private static final String TABLE_NS = "http://www.admin.ch/xmlns/siard/1.0/";
+    private static final String SIARD_EXTENSION = ".siard";
+
+    /* etwa jede zwanzigste Zelle einer nullable Spalte bleibt leer */
+    private static final int NULL_RATE = 20;
+
+    private int schemas = 1;
+    private int tables = 1;
+    private int columns = 5;
+    private long rows = 1000;
+    private double skew;
+    private int lobSize;
+    private long seed = 1;
+    private String digest = "MD5";
+    private Set<Fault> faults = EnumSet.noneOf(Fault.class);
+    private File metadataXsd = new File("configuration/metadata.xsd");
+
+    /* Spaltentypen: SQL-Typ und Typ im XML-Schema */
+    private String[] sqlTypes;
+    private String[] xsdTypes;
+
+    public void setSchemas(int schemas) {
+        this.schemas = schemas;
+    }
+
+    /**
+     * @param tables Anzahl Tabellen pro Schema
+     */
+    public void setTables(int tables) {
+        this.tables = tables;
+    }
+
+    /**
+     * @param columns Anzahl Spalten pro Tabelle, die erste ist immer der
+     *            Primrschlssel
+     */
+    public void setColumns(int columns) {
+        this.columns = columns;
+    }
+
+    /**
+     * @param rows mittlere Anzahl Zeilen pro Tabelle
+     */
+    public void setRows(long rows) {
+        this.rows = rows;
+    }
+
+    /**
+     * @param skew Exponent der Zipf-Verteilung der Zeilen auf die Tabellen;
+     *            0 ergibt gleich grosse Tabellen
+     */
+    public void setSkew(double skew) {
+        this.skew = skew;
+    }
+
+    /**
+     * @param lobSize hchste Grsse einer LOB-Datei in Bytes; 0 erzeugt keine
+     *            LOB-Spalten
+     */
+    public void setLobSize(int lobSize) {
+        this.lobSize = lobSize;
+    }
+
+    public void setSeed(long seed) {
+        this.seed = seed;
+    }
+
+    /**
+     * @param digest MD5, SHA1 oder none
+     */
+    public void setDigest(String digest) {
+        this.digest = digest;
+    }
+
+    public void setFaults(Set<Fault> faults) {
+        this.faults = EnumSet.noneOf(Fault.class);
+        this.faults.addAll(faults);
+    }
+
+    /**
+     * @param metadataXsd metadata.xsd, die in den header-Ordner kopiert wird
+     */
+    public void setMetadataXsd(File metadataXsd) {
+        this.metadataXsd = metadataXsd;
+    }
+
+    /**
+     * Schreibt die SIARD-Datei.
+     * @return die geschriebene Datei; mit dem Fehler I hat sie die Endung .zip
+     */
+    public File write(File siardDatei) throws IOException {
+        loadTypes();
+        File file = siardDatei;
+        if (faults.contains(Fault.I)) {
+            String name = file.getName();
+            if (name.endsWith(SIARD_EXTENSION)) {
+                name = name.substring(0, name.length() - SIARD_EXTENSION.length());
+            }
+            file = new File(file.getAbsoluteFile().getParentFile(), name + ".zip");
+        }
+        List<Table> allTables = createTables();
+        MessageDigest messageDigest = createDigest();
+        StoredZipWriter zip = new StoredZipWriter(file, messageDigest);
+        try {
+            Content xsd = copy(metadataXsd);
+            if (faults.contains(Fault.A)) {
+                zip.putDeflated("header/metadata.xsd", xsd);
+            } else {
+                zip.put("header/metadata.xsd", xsd);
+            }
+            // Modul G prft den Bereich vom ersten bis zum letzten Eintrag
+            // unter content/, diese Eintrge mssen zusammenhngen
+            zip.digest(true);
+            for (Table table : allTables) {
+                String folder = "content/" + table.schemaFolder + "/" + table.folder + "/";
+                if (!(faults.contains(Fault.D) && table == allTables.get(allTables.size() - 1))) {
+                    zip.put(folder + table.folder + ".xsd", tableXsd(table));
+                }
+                zip.put(folder + table.folder + ".xml", tableXml(table));
+                writeLobs(zip, table, folder);
+            }
+            if (faults.contains(Fault.J)) {
+                String schemaFolder = allTables.get(allTables.size() - 1).schemaFolder;
+                zip.put("content/" + schemaFolder + "/tableX/tableX.xml", text("<table/>"));
+            }
+            zip.digest(false);
+            String digestValue = "";
+            if (messageDigest != null) {
+                digestValue = ("SHA1".equals(digest) ? "SHA-1" : "MD5") + toHex(messageDigest.digest());
+            }
+            if (faults.contains(Fault.G)) {
+                digestValue = digestValue.length() == 0 ? "MD5" + toHex(new byte[16]) : alter(digestValue);
+            }
+            zip.put("header/metadata.xml", text(metadata(allTables, digestValue)));
+            if (faults.contains(Fault.B)) {
+                zip.put("surplus.txt", text("surplus"));
+            }
+        } finally {
+            zip.close();
+        }
+        return file;
+    }
+
+    private MessageDigest createDigest() throws IOException {
+        try {
+            if ("MD5".equalsIgnoreCase(digest)) {
+                digest = "MD5";
+                return MessageDigest.getInstance("MD5");
+            }
+            if ("SHA1".equalsIgnoreCase(digest) || "SHA-1".equalsIgnoreCase(digest)) {
+                digest = "SHA1";
+                return MessageDigest.getInstance("SHA-1");
+            }
+        } catch (NoSuchAlgorithmException e) {
+            throw new IOException(e.getMessage());
+        }
+        if (!"none".equalsIgnoreCase(digest)) {
+            throw new IllegalArgumentException("Unbekannte Prfsumme: " + digest);
+        }
+        return null;
+    }
+
+    /*
+     * Die Spaltentypen sind die Schlssel der Typ-Abbildung in
+     * validation.properties (Grossbuchstaben und Leerzeichen), die LOB-Typen
+     * nur mit lobsize.
+     */
+    private void loadTypes() throws IOException {
+        Properties properties = new Properties();
+        InputStream in = SiardGenerator.class.getResourceAsStream("/validation.properties");
+        if (in == null) {
+            throw new IOException("validation.properties nicht gefunden");
+        }
+        try {
+            properties.load(in);
+        } finally {
+            in.close();
+        }
+        List<String> keys = new ArrayList<String>();
+        for (String key : properties.stringPropertyNames()) {
+            String value = properties.getProperty(key).trim();
+            if (!key.matches("[A-Z][A-Z ]*")) {
+                continue;
+            }
+            if (value.startsWith("xs:") || (lobSize > 0 && value.endsWith("Type"))) {
+                keys.add(key);
+            }
+        }
+        Collections.sort(keys);
+        sqlTypes = new String[keys.size()];
+        xsdTypes = new String[keys.size()];
+        for (int i = 0; i < keys.size(); i++) {
+            sqlTypes[i] = keys.get(i);
+            xsdTypes[i] = properties.getProperty(keys.get(i)).trim();
+        }
+    }
+
+    /*
+     * Verteilt schemas * tables * rows Zeilen nach Zipf auf die Tabellen,
+     * jede Tabelle erhlt mindestens eine Zeile.
+     */
+    private List<Table> createTables() {
+        int count = schemas * tables;
+        double[] weights = new double[count];
+        double sum = 0;
+        for (int k = 0; k < count; k++) {
+            weights[k] = 1.0 / Math.pow(k + 1, skew);
+            sum += weights[k];
+        }
+        List<Table> result = new ArrayList<Table>(count);
+        for (int s = 0; s < schemas; s++) {
+            for (int t = 0; t < tables; t++) {
+                int k = s * tables + t;
+                Table table = new Table();
+                table.schemaFolder = "schema" + s;
+                table.folder = "table" + t;
+                table.first = k == 0;
+                table.seed = mix(seed, k, 0);
+                table.rows = Math.max(1, Math.round(rows * count * weights[k] / sum));
+                if (table.first && faults.contains(Fault.K)) {
+                    table.rows = Math.max(2, table.rows);
+                }
+                table.sqlTypes = new String[columns];
+                table.xsdTypes = new String[columns];
+                table.sqlTypes[0] = "INTEGER";
+                table.xsdTypes[0] = "xs:integer";
+                for (int c = 1; c < columns; c++) {
+                    // je Tabelle versetzt, damit alle Typen vorkommen
+                    int type = (c - 1 + k) % sqlTypes.length;
+                    table.sqlTypes[c] = sqlTypes[type];
+                    table.xsdTypes[c] = xsdTypes[type];
+                }
+                result.add(table);
+            }
+        }
+        return result;
+    }
+
+    private String metadata(List<Table> allTables, String digestValue) {
+        StringBuilder xml = new StringBuilder();
+        xml.append("<?xml version=\"1.0\" encoding=\"utf-8\"?>\n");
+        xml.append("<siardArchive xmlns=\"").append(METADATA_NS).append("\" version=\"1.0\">\n");
+        if (!faults.contains(Fault.C)) {
+            xml.append("<dbname>generator</dbname>");
+        }
+        xml.append("<dataOwner>SIARD-Val</dataOwner>");
+        xml.append("<dataOriginTimespan>2012</dataOriginTimespan><archivalDate>2012-01-01</archivalDate>");
+        xml.append("<messageDigest>").append(digestValue).append("</messageDigest>\n<schemas>");
+        String schemaFolder = null;
+        for (Table table : allTables) {
+            if (!table.schemaFolder.equals(schemaFolder)) {
+                if (schemaFolder != null) {
+                    xml.append("</tables></schema>");
+                }
+                schemaFolder = table.schemaFolder;
+                xml.append("\n<schema><name>").append(schemaFolder).append("</name><folder>").append(schemaFolder);
+                xml.append("</folder><tables>");
+            }
+            xml.append("\n<table><name>").append(table.folder).append("</name><folder>").append(table.folder);
+            xml.append("</folder><columns>");
+            for (int c = 0; c < columns; c++) {
+                xml.append("<column><name>c").append(c + 1).append("</name>");
+                if (isLob(table.xsdTypes[c])) {
+                    xml.append("<folder>lob").append(c + 1).append("</folder>");
+                }
+                xml.append("<type>").append(table.sqlTypes[c]).append("</type><nullable>");
+                xml.append(c == 0 ? "false" : "true").append("</nullable></column>");
+            }
+            long metadataRows = table.first && faults.contains(Fault.F) ? table.rows + 1 : table.rows;
+            xml.append("</columns><primaryKey><name>pk_").append(table.folder).append("</name><column>c1</column>");
+            xml.append("</primaryKey><rows>").append(metadataRows).append("</rows></table>");
+        }
+        xml.append("</tables></schema>\n</schemas><users><user><name>u</name></user></users></siardArchive>\n");
+        return xml.toString();
+    }
+
+    private Content tableXsd(final Table table) {
+        StringBuilder xsd = new StringBuilder();
+        String tns = namespace(table);
+        xsd.append("<?xml version=\"1.0\" encoding=\"utf-8\"?>\n");
+        xsd.append("<xs:schema xmlns:xs=\"http://www.w3.org/2001/XMLSchema\" xmlns=\"").append(tns);
+        xsd.append("\" attributeFormDefault=\"unqualified\" elementFormDefault=\"qualified\" targetNamespace=\"");
+        xsd.append(tns).append("\">\n<xs:element name=\"table\"><xs:complexType><xs:sequence>");
+        xsd.append("<xs:element minOccurs=\"0\" maxOccurs=\"unbounded\" name=\"row\" type=\"rowType\"/>");
+        // Modul E liest den ersten complexType auf oberster Ebene
+        xsd.append("</xs:sequence></xs:complexType></xs:element>\n<xs:complexType name=\"rowType\"><xs:sequence>\n");
+        for (int c = 0; c < columns; c++) {
+            String type = c == 0 && table.first && faults.contains(Fault.E) ? "xs:decimal" : table.xsdTypes[c];
+            xsd.append("<xs:element ").append(c == 0 ? "" : "minOccurs=\"0\" ").append("name=\"c").append(c + 1);
+            xsd.append("\" type=\"").append(type).append("\"/>\n");
+        }
+        xsd.append("</xs:sequence></xs:complexType>\n");
+        for (String lobType : new String[] { "clobType", "blobType" }) {
+            xsd.append("<xs:complexType name=\"").append(lobType).append("\"><xs:simpleContent><xs:extension base=\"");
+            xsd.append("clobType".equals(lobType) ? "xs:string" : "xs:hexBinary");
+            xsd.append("\"><xs:attribute name=\"file\" type=\"xs:string\"/>");
+            xsd.append("<xs:attribute name=\"length\" type=\"xs:integer\"/>");
+            xsd.append("</xs:extension></xs:simpleContent></xs:complexType>\n");
+        }
+        xsd.append("</xs:schema>\n");
+        return text(xsd.toString());
+    }
+
+    private Content tableXml(final Table table) {
+        return new Content() {
+            @Override
+            public void writeTo(OutputStream out) throws IOException {
+                String tns = namespace(table);
+                Writer writer = new BufferedWriter(new OutputStreamWriter(out, "UTF-8"), 1 << 16);
+                writer.write("<?xml version=\"1.0\" encoding=\"utf-8\"?>\n<table xmlns=\"" + tns
+                        + "\" xmlns:xsi=\"http://www.w3.org/2001/XMLSchema-instance\" xsi:schemaLocation=\"" + tns
+                        + " " + table.folder + ".xsd\">\n");
+                Random random = new Random(table.seed);
+                StringBuilder row = new StringBuilder(512);
+                for (long r = 1; r <= table.rows; r++) {
+                    row.setLength(0);
+                    row.append("<row>");
+                    if (r == 1 && table.first && faults.contains(Fault.H)) {
+                        row.append("<c0>x</c0>");
+                    }
+                    long key = r == table.rows && table.first && faults.contains(Fault.K) ? 1 : r;
+                    row.append("<c1>").append(key).append("</c1>");
+                    for (int c = 1; c < columns; c++) {
+                        if (isNull(table, c, r)) {
+                            continue;
+                        }
+                        String type = table.xsdTypes[c];
+                        row.append("<c").append(c + 1);
+                        if (isLob(type)) {
+                            row.append(" file=\"").append(lobFile(table, c, r)).append("\" length=\"");
+                            row.append(lobLength(table, c, r)).append("\"/>");
+                        } else {
+                            row.append('>');
+                            value(row, type, random);
+                            row.append("</c").append(c + 1).append('>');
+                        }
+                    }
+                    row.append("</row>\n");
+                    writer.append(row);
+                }
+                writer.write("</table>\n");
+                // nicht schliessen, sonst wird auch der ZipOutputStream geschlossen
+                writer.flush();
+            }
+        };
+    }
+
+    private void writeLobs(StoredZipWriter zip, final Table table, String folder) throws IOException {
+        for (int c = 1; c < columns; c++) {
+            if (!isLob(table.xsdTypes[c])) {
+                continue;
+            }
+            final boolean binary = "blobType".equals(table.xsdTypes[c]);
+            for (long r = 1; r <= table.rows; r++) {
+                if (isNull(table, c, r)) {
+                    continue;
+                }
+                final long length = lobLength(table, c, r);
+                final long lobSeed = mix(table.seed, c, -r);
+                zip.put(folder + lobFile(table, c, r), new Content() {
+                    @Override
+                    public void writeTo(OutputStream out) throws IOException {
+                        Random random = new Random(lobSeed);
+                        byte[] buffer = new byte[8192];
+                        for (long written = 0; written < length; ) {
+                            int n = (int) Math.min(buffer.length, length - written);
+                            if (binary) {
+                                random.nextBytes(buffer);
+                            } else {
+                                for (int i = 0; i < n; i++) {
+                                    buffer[i] = (byte) (i % 64 == 63 ? '\n' : 'a' + random.nextInt(26));
+                                }
+                            }
+                            out.write(buffer, 0, n);
+                            written += n;
+                        }
+                    }
+                });
+            }
+        }
+    }
+
+    private boolean isNull(Table table, int column, long row) {
+        return column > 0 && ((mix(table.seed, column, row) >>> 1) % NULL_RATE) == 0;
+    }
+
+    private static boolean isLob(String xsdType) {
+        return !xsdType.startsWith("xs:");
+    }
+
+    private static String lobFile(Table table, int column, long row) {
+        String extension = "blobType".equals(table.xsdTypes[column]) ? ".bin" : ".txt";
+        return "lob" + (column + 1) + "/record" + row + extension;
+    }
+
+    private long lobLength(Table table, int column, long row) {
+        return 1 + (mix(table.seed, -column, row) >>> 1) % lobSize;
+    }
+
+    private static String namespace(Table table) {
+        return TABLE_NS + table.schemaFolder + "/" + table.folder + ".xsd";
+    }
+
+    private static void value(StringBuilder cell, String type, Random random) {
+        if ("xs:integer".equals(type)) {
+            cell.append(random.nextInt(65536) - 32768);
+        } else if ("xs:decimal".equals(type)) {
+            int cents = random.nextInt(100);
+            cell.append(random.nextInt(1000000)).append(cents < 10 ? ".0" : ".").append(cents);
+        } else if ("xs:double".equals(type)) {
+            cell.append(random.nextDouble() * 1000);
+        } else if ("xs:boolean".equals(type)) {
+            cell.append(random.nextBoolean());
+        } else if ("xs:date".equals(type)) {
+            date(cell, random);
+        } else if ("xs:dateTime".equals(type)) {
+            date(cell, random);
+            cell.append(String.format(Locale.ENGLISH, "T%02d:%02d:%02d", random.nextInt(24), random.nextInt(60),
+                    random.nextInt(60)));
+        } else {
+            int length = 8 + random.nextInt(17);
+            cell.append("Text ");
+            for (int i = 0; i < length; i++) {
+                cell.append((char) ('a' + random.nextInt(26)));
+            }
+        }
+    }
+
+    private static void date(StringBuilder cell, Random random) {
+        cell.append(String.format(Locale.ENGLISH, "2012-%02d-%02d", 1 + random.nextInt(12), 1 + random.nextInt(28)));
+    }
+
+    /*
+     * SplitMix64: unabhngige, reproduzierbare Zufallszahl pro Zelle, damit
+     * leere Zellen und LOB-Grssen beim zweiten Schreiben gleich ausfallen.
+     */
+    private static long mix(long a, long b, long c) {
+        long z = a * 0x9E3779B97F4A7C15L + b * 0xBF58476D1CE4E5B9L + c * 0x94D049BB133111EBL;
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+
+    private static String alter(String digestValue) {
+        char last = digestValue.charAt(digestValue.length() - 1);
+        return digestValue.substring(0, digestValue.length() - 1) + (last == '0' ? '1' : '0');
+    }
+
+    private static String toHex(byte[] bytes) {
+        StringBuilder hex = new StringBuilder(bytes.length * 2);
+        for (byte b : bytes) {
+            hex.append(Character.forDigit((b >> 4) & 0xf, 16)).append(Character.forDigit(b & 0xf, 16));
+        }
+        return hex.toString();
+    }
+
+    private static Content text(String text) {
+        try {
+            final byte[] bytes = text.getBytes("UTF-8");
+            return new Content() {
+                @Override
+                public void writeTo(OutputStream out) throws IOException {
+                    out.write(bytes);
+                }
+            };
+        } catch (java.io.UnsupportedEncodingException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static Content copy(final File file) {
+        return new Content() {
+            @Override
+            public void writeTo(OutputStream out) throws IOException {
+                InputStream in = new FileInputStream(file);
+                try {
+                    byte[] buffer = new byte[8192];
+                    int n;
+                    while ((n = in.read(buffer)) != -1) {
+                        out.write(buffer, 0, n);
+                    }
+                } finally {
+                    in.close();
+                }
+            }
+        };
+    }
+
+    private static class Table {
+        String schemaFolder;
+        String folder;
+        boolean first;
+        long seed;
+        long rows;
+        String[] sqlTypes;
+        String[] xsdTypes;
+    }
+
+    public static void main(String[] args) throws IOException {
+        SiardGenerator generator = new SiardGenerator();
+        File siardDatei = null;
+        try {
+            for (int i = 0; i < args.length; i++) {
+                String arg = args[i];
+                if (!arg.startsWith("-")) {
+                    siardDatei = new File(arg);
+                    continue;
+                }
+                if (i + 1 >= args.length) {
+                    throw new IllegalArgumentException(arg);
+                }
+                String value = args[++i];
+                if ("-schemas".equals(arg)) {
+                    generator.setSchemas(Integer.parseInt(value));
+                } else if ("-tables".equals(arg)) {
+                    generator.setTables(Integer.parseInt(value));
+                } else if ("-columns".equals(arg)) {
+                    generator.setColumns(Integer.parseInt(value));
+                } else if ("-rows".equals(arg)) {
+                    generator.setRows(Long.parseLong(value));
+                } else if ("-skew".equals(arg)) {
+                    generator.setSkew(Double.parseDouble(value));
+                } else if ("-lobsize".equals(arg)) {
+                    generator.setLobSize(Integer.parseInt(value));
+                } else if ("-seed".equals(arg)) {
+                    generator.setSeed(Long.parseLong(value));
+                } else if ("-digest".equals(arg)) {
+                    generator.setDigest(value);
+                } else if ("-fault".equals(arg)) {
+                    Set<Fault> faults = EnumSet.noneOf(Fault.class);
+                    for (String fault : value.split(",")) {
+                        faults.add(Fault.valueOf(fault.trim().toUpperCase(Locale.ENGLISH)));
+                    }
+                    generator.setFaults(faults);
+                } else if ("-xsd".equals(arg)) {
+                    generator.setMetadataXsd(new File(value));
+                } else {
+                    throw new IllegalArgumentException(arg);
+                }
+            }
+            if (siardDatei == null || generator.schemas < 1 || generator.tables < 1 || generator.columns < 1
+                    || generator.rows < 1 || generator.lobSize < 0) {
+                throw new IllegalArgumentException();
+            }
+        } catch (IllegalArgumentException e) {
+            System.err.println("Ungltiger Aufruf " + (e.getMessage() == null ? "" : e.getMessage()));
+            System.err.println("SiardGenerator [-schemas n] [-tables n] [-columns n] [-rows n] [-skew f]"
+                    + " [-lobsize n] [-seed n] [-digest MD5|SHA1|none] [-fault A,B,...] [-xsd metadata.xsd]"
+                    + " datei.siard");
+            System.exit(1);
+        }
+        long start = System.currentTimeMillis();
+        File file = generator.write(siardDatei);
+        System.out.println(file.getPath() + ": " + file.length() + " Bytes in "
+                + (System.currentTimeMillis() - start) + " ms");
+    }
+}
@@ -0,0 +1,133 @@
+/*== SIARD-Val ==================================================================================
+The SIARD-Val application is used for validate SIARD-Files. 
+Copyright (C) 2012 Claire Rthlisberger (KOST-CECO), Martin Kaiser (KOST-CECO), XYZ (xyz)
+-----------------------------------------------------------------------------------------------
+SIARD-Val is a development of the KOST-CECO. All rights rest with the KOST-CECO. 
+This application is free software: you can redistribute it and/or modify it under the 
+terms of the GNU General Public License as published by the Free Software Foundation, 
+either version 3 of the License, or (at your option) any later version. 
+This application is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; 
+without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. 
+See the follow GNU General Public License for more details.
+You should have received a copy of the GNU General Public License along with this program; 
+if not, write to the Free Software Foundation, Inc., 51 Franklin Street, Fifth Floor, 
+Boston, MA 02110-1301 USA or see <http://www.gnu.org/licenses/>.
+==============================================================================================*/
+
+package ch.kostceco.tools.siardval.benchmark;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.security.DigestOutputStream;
+import java.security.MessageDigest;
+import java.util.Calendar;
+import java.util.GregorianCalendar;
+import java.util.zip.CRC32;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * Schreibt ungepackte (STORED) ZIP-Eintrge, ohne ihren Inhalt im Speicher
+ * zu halten. Ein STORED-Eintrag braucht Grsse und CRC schon im lokalen
+ * Header; der Inhalt wird deshalb zweimal erzeugt, zuerst nur fr Grsse
+ * und CRC, dann fr die Datei. Der Speicherbedarf wchst nur mit dem
+ * zentralen Verzeichnis, also mit der Anzahl Eintrge. Eintrge ber 4 GB
+ * schreibt ZipOutputStream als ZIP64.
+ */
+final class StoredZipWriter {
+
+    /**
+     * Inhalt eines Eintrags. writeTo wird fr jeden Eintrag zweimal
+     * aufgerufen und muss beide Male dieselben Bytes schreiben.
+     */
+    interface Content {
+        void writeTo(OutputStream out) throws IOException;
+    }
+
+    /* feste Zeit, damit dieselben Optionen dieselbe Datei ergeben */
+    private static final long TIME = new GregorianCalendar(2012, Calendar.JANUARY, 1).getTimeInMillis();
+
+    private final DigestOutputStream digestStream;
+    private final ZipOutputStream zip;
+
+    /**
+     * @param digest Digest ber die Bytes zwischen digest(true) und
+     *            digest(false) oder null
+     */
+    StoredZipWriter(File file, MessageDigest digest) throws IOException {
+        OutputStream out = new BufferedOutputStream(new FileOutputStream(file), 1 << 16);
+        if (digest != null) {
+            digestStream = new DigestOutputStream(out, digest);
+            digestStream.on(false);
+            out = digestStream;
+        } else {
+            digestStream = null;
+        }
+        zip = new ZipOutputStream(out);
+    }
+
+    /**
+     * Schaltet den Digest ein oder aus. ZipOutputStream schreibt lokale
+     * Header und Daten ungepuffert weiter, der Digest umfasst also genau die
+     * Eintrge, die dazwischen geschrieben werden, mit ihren Headern.
+     */
+    void digest(boolean on) {
+        if (digestStream != null) {
+            digestStream.on(on);
+        }
+    }
+
+    void put(String name, Content content) throws IOException {
+        CrcSink sink = new CrcSink();
+        content.writeTo(sink);
+        ZipEntry entry = new ZipEntry(name);
+        entry.setTime(TIME);
+        entry.setMethod(ZipEntry.STORED);
+        entry.setSize(sink.count);
+        entry.setCompressedSize(sink.count);
+        entry.setCrc(sink.crc.getValue());
+        zip.putNextEntry(entry);
+        content.writeTo(zip);
+        zip.closeEntry();
+    }
+
+    /**
+     * Gepackter Eintrag; in SIARD-Dateien nicht erlaubt (Modul A).
+     */
+    void putDeflated(String name, Content content) throws IOException {
+        ZipEntry entry = new ZipEntry(name);
+        entry.setTime(TIME);
+        entry.setMethod(ZipEntry.DEFLATED);
+        zip.putNextEntry(entry);
+        content.writeTo(zip);
+        zip.closeEntry();
+    }
+
+    void close() throws IOException {
+        zip.close();
+    }
+
+    /*
+     * Zhlt die Bytes und berechnet den CRC, ohne sie abzulegen.
+     */
+    private static class CrcSink extends OutputStream {
+
+        private final CRC32 crc = new CRC32();
+        private long count;
+
+        @Override
+        public void write(int b) {
+            crc.update(b);
+            count++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+            crc.update(b, off, len);
+            count += len;
+        }
+    }
+}
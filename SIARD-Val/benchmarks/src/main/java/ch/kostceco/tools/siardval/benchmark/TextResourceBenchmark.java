@@ -0,0 +1,52 @@
+/*== SIARD-Val ==================================================================================
+The SIARD-Val application is used for validate SIARD-Files. 
+Copyright (C) 2012 Claire Rthlisberger (KOST-CECO), Martin Kaiser (KOST-CECO), XYZ (xyz)
+-----------------------------------------------------------------------------------------------
+SIARD-Val is a development of the KOST-CECO. All rights rest with the KOST-CECO. 
+This application is free software: you can redistribute it and/or modify it under the 
+terms of the GNU General Public License as published by the Free Software Foundation, 
+either version 3 of the License, or (at your option) any later version. 
+This application is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; 
+without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. 
+See the follow GNU General Public License for more details.
+You should have received a copy of the GNU General Public License along with this program; 
+if not, write to the Free Software Foundation, Inc., 51 Franklin Street, Fifth Floor, 
+Boston, MA 02110-1301 USA or see <http://www.gnu.org/licenses/>.
+==============================================================================================*/
+
+package ch.kostceco.tools.siardval.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+
+import ch.kostceco.tools.siardval.logging.MessageConstants;
+import ch.kostceco.tools.siardval.service.impl.TextResourceServiceImpl;
+
+/**
+ * Aufbereitung der Meldungen ber <code>TextResourceServiceImpl.getText</code>
+ * (ResourceBundle und MessageFormat), die fr jede Zeile im Log aufgerufen
+ * wird.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class TextResourceBenchmark implements MessageConstants {
+
+    private final TextResourceServiceImpl textResourceService = new TextResourceServiceImpl();
+
+    @Benchmark
+    public String getTextWithoutArguments() {
+        return textResourceService.getText(MESSAGE_MODULE_C);
+    }
+
+    @Benchmark
+    public String getTextWithArguments() {
+        return textResourceService.getText(MESSAGE_MODULE_INVALID_2ARGS, "[K]", "schema0/table1");
+    }
+}
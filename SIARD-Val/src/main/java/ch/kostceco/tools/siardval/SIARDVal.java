@@ -17,17 +17,25 @@ Boston, MA 02110-1301 USA or see <http://www.gnu.org/licenses/>.
 package ch.kostceco.tools.siardval;
 
 import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
 
+import org.apache.log4j.LogManager;
 import org.springframework.context.ApplicationContext;
 import org.springframework.context.support.ClassPathXmlApplicationContext;
 
+import ch.kostceco.tools.siardval.controller.BatchController;
 import ch.kostceco.tools.siardval.controller.Controller;
+import ch.kostceco.tools.siardval.controller.ServiceController;
 import ch.kostceco.tools.siardval.logging.LogConfigurator;
 import ch.kostceco.tools.siardval.logging.Logger;
 import ch.kostceco.tools.siardval.logging.MessageConstants;
+import ch.kostceco.tools.siardval.metrics.FlightRecording;
+import ch.kostceco.tools.siardval.service.ArchiveService;
 import ch.kostceco.tools.siardval.service.ConfigurationService;
 import ch.kostceco.tools.siardval.service.TextResourceService;
-import ch.kostceco.tools.siardval.util.Util;
+import ch.kostceco.tools.siardval.service.WorkDirService;
 
 
 /**
@@ -38,8 +46,15 @@ public class SIARDVal implements MessageConstants {
 
     private static final Logger LOGGER = new Logger(SIARDVal.class);
     
+    private static final String BATCH = "-batch";
+    private static final String SERVICE = "-service";
+    private static final String FORCE = "-force";
+    private static final String JFR = "-jfr";
+    
     private TextResourceService textResourceService;
     private ConfigurationService configurationService;
+    private ArchiveService archiveService;
+    private WorkDirService workDirService;
     
 
     public TextResourceService getTextResourceService() {
@@ -57,12 +72,47 @@ public class SIARDVal implements MessageConstants {
         this.configurationService = configurationService;
     }
 
+    public ArchiveService getArchiveService() {
+        return archiveService;
+    }
+
+    public void setArchiveService(ArchiveService archiveService) {
+        this.archiveService = archiveService;
+    }
+
+    public WorkDirService getWorkDirService() {
+        return workDirService;
+    }
+
+    public void setWorkDirService(WorkDirService workDirService) {
+        this.workDirService = workDirService;
+    }
+
 
     /**
      * Die Minimaleingabe besteht aus
      * Parameter 1:     Pfad zum SIARD-File
      * Parameter 2:     Pfad zum Logging-Verzeichnis
      * 
+     * Im Batch-Modus werden mehrere SIARD-Dateien in einer JVM validiert:
+     * Parameter 1:     -batch
+     * Parameter 2:     Pfad zum Logging-Verzeichnis
+     * Parameter 3 ff:  SIARD-Dateien, Verzeichnisse, Muster oder @Listen-Datei
+     * 
+     * Im Service-Modus werden Validierungsauftrge ber HTTP angenommen:
+     * Parameter 1:     -service
+     * Parameter 2:     Pfad zum Logging-Verzeichnis
+     * 
+     * Mit -force vor allen brigen Parametern wird der Ergebnis-Cache
+     * bergangen und die SIARD-Datei erneut validiert. Der Ergebnis-Cache ist
+     * ausgeschaltet, solange in der Konfiguration kein Verzeichnis unter
+     * pathtoresultcache angegeben ist.
+     * 
+     * Mit -jfr vor allen brigen Parametern wird eine Aufzeichnung des Java
+     * Flight Recorders gestartet und neben dem Log gespeichert
+     * (SIARD-Datei.jfr, SIARDVal-batch.jfr bzw. SIARDVal-service.jfr beim
+     * Beenden des Service).
+     * 
      * @param args
      */
     public static void main(String[] args) {
@@ -71,11 +121,36 @@ public class SIARDVal implements MessageConstants {
                
         SIARDVal SIARDVal = (SIARDVal) context.getBean("SIARDVal");
 
+        boolean force = false;
+        boolean jfr = false;
+        while (args.length > 0 && (args[0].equals(FORCE) || args[0].equals(JFR))) {
+            force |= args[0].equals(FORCE);
+            jfr |= args[0].equals(JFR);
+            args = Arrays.copyOfRange(args, 1, args.length);
+        }
 
         // Ist die Anzahl Parameter (2) korrekt?
         if (args.length < 2) {
     		LOGGER.logInfo(SIARDVal.getTextResourceService().getText(ERROR_PARAMETER_USAGE));
-            System.exit(1);
+            exit(1);
+        }
+        
+        if (args[0].equals(BATCH)) {
+            exit(SIARDVal.executeBatch(context, args, force, jfr));
+        }
+        if (args[0].equals(SERVICE)) {
+            if (! SIARDVal.executeService(context, args, jfr)) {
+                exit(1);
+            }
+            // der HTTP-Server luft weiter, bis die JVM beendet wird; die
+            // Logs werden dann noch vollstndig geschrieben
+            Runtime.getRuntime().addShutdownHook(new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    LogManager.shutdown();
+                }
+            }, "siardval-log-shutdown"));
+            return;
         }
         
         File siardDatei = new File(args[0]);
@@ -87,7 +162,7 @@ public class SIARDVal implements MessageConstants {
         if (javaRuntimeVersion.compareTo ("1.6.0") < 0) {
             LOGGER.logInfo(SIARDVal.getTextResourceService().getText(ERROR_WRONG_JRE));
             LOGGER.logInfo(SIARDVal.getTextResourceService().getText(MESSAGE_VALIDATION_INTERRUPTED));
-            System.exit(1);
+            exit(1);
         } 
         
         // Ueberprfung des 2. Parameters (Log-Verzeichnis)
@@ -96,14 +171,14 @@ public class SIARDVal implements MessageConstants {
         if (! directoryOfLogfile.isDirectory()) {
             LOGGER.logInfo(SIARDVal.getTextResourceService().getText(ERROR_LOGDIRECTORY_NODIRECTORY));
             LOGGER.logInfo(SIARDVal.getTextResourceService().getText(MESSAGE_VALIDATION_INTERRUPTED));
-            System.exit(1);
+            exit(1);
         }
         
         // Im Logverzeichnis besteht kein Schreibrecht
         if (! directoryOfLogfile.canWrite()) {
             LOGGER.logInfo(SIARDVal.getTextResourceService().getText(ERROR_LOGDIRECTORY_NOTWRITABLE));
             LOGGER.logInfo(SIARDVal.getTextResourceService().getText(MESSAGE_VALIDATION_INTERRUPTED));
-            System.exit(1);
+            exit(1);
         }
         
 
@@ -111,16 +186,14 @@ public class SIARDVal implements MessageConstants {
         if (! siardDatei.exists()) {
             LOGGER.logInfo(SIARDVal.getTextResourceService().getText(ERROR_SIARDFILE_FILENOTEXISTING));
             LOGGER.logInfo(SIARDVal.getTextResourceService().getText(MESSAGE_VALIDATION_INTERRUPTED));
-            System.exit(1);
+            exit(1);
         }
         
         
-        String originalSiardName = siardDatei.getAbsolutePath();
-        
         // Ueberprfung der anzahl Parameter (3. und mehr)
         if (args.length > 2 ) {
             LOGGER.logInfo(SIARDVal.getTextResourceService().getText(ERROR_PARAMETER_USAGE));
-            System.exit(1);
+            exit(1);
         }
         
         
@@ -129,61 +202,121 @@ public class SIARDVal implements MessageConstants {
         String logFileName = logConfigurator.configure(directoryOfLogfile.getAbsolutePath(), siardDatei.getName());
         LOGGER.logError(SIARDVal.getTextResourceService().getText(MESSAGE_SIARDVALIDATION, siardDatei.getName()));
 
-        Controller controller = (Controller) context.getBean("controller");        
-        boolean okMandatory = controller.executeMandatory(siardDatei);
-        boolean ok = false;
-        
-        // die Validierungen A-D sind obligatorisch, wenn sie bestanden wurden, knnen die restlichen
-        // Validierungen, welche nicht zum Abbruch der Applikation fhren, ausgefhrt werden.
-        if (okMandatory) {
-        
-            ok = controller.executeOptional(siardDatei);
-            
-            // Ausfhren der optionalen Schritte            
-            
+        FlightRecording recording = null;
+        if (jfr) {
+            recording = SIARDVal.startRecording(directoryOfLogfile, siardDatei.getName() + FlightRecording.EXTENSION);
         }
-                
-        
-        ok = (ok && okMandatory);
-        
-        LOGGER.logInfo("");
+
+        Controller controller = (Controller) context.getBean("controller");        
+        WorkDirService.Run run = SIARDVal.getWorkDirService().acquire(siardDatei);
+        boolean ok = controller.validate(siardDatei, logFileName, force);
+        SIARDVal.stopRecording(recording);
+
+        // SIARD-Datei schliessen, der Index wird nicht mehr bentigt
+        SIARDVal.getArchiveService().release(siardDatei);
+
+        // Arbeitsverzeichnis freigeben; der Exit-Code wartet nicht auf das
+        // Lschen, was brig bleibt, rumt der nchste Lauf auf
+        SIARDVal.getWorkDirService().release(run);
+
         if (ok) {
-            LOGGER.logInfo(SIARDVal.getTextResourceService().getText(MESSAGE_TOTAL_VALID, siardDatei.getAbsolutePath()));
+            exit(0);            
         } else {
-            LOGGER.logInfo(SIARDVal.getTextResourceService().getText(MESSAGE_TOTAL_INVALID, siardDatei.getAbsolutePath()));
+            exit(2);            
         }
-        LOGGER.logInfo("");
+    }
 
-        LOGGER.logInfo("");
-        LOGGER.logInfo(SIARDVal.getTextResourceService().getText(MESSAGE_FOOTER_SIARD, originalSiardName));
-        LOGGER.logInfo(SIARDVal.getTextResourceService().getText(MESSAGE_FOOTER_LOG, logFileName));
-        LOGGER.logInfo("");
-        
-        if (okMandatory) {
-            LOGGER.logInfo(SIARDVal.getTextResourceService().getText(MESSAGE_VALIDATION_FINISHED));
-        } else {
-            LOGGER.logInfo(SIARDVal.getTextResourceService().getText(MESSAGE_VALIDATION_INTERRUPTED));
+    /**
+     * Batch-Modus: validiert alle angegebenen SIARD-Dateien und gibt den
+     * Exit-Code zurck (0 alle valid, 1 Parameterfehler, 2 sonst).
+     */
+    private int executeBatch(ApplicationContext context, String[] args, boolean force, boolean jfr) {
+        if (args.length < 3) {
+            LOGGER.logInfo(getTextResourceService().getText(ERROR_PARAMETER_USAGE));
+            return 1;
+        }
+        File directoryOfLogfile = new File(args[1]);
+        if (! checkLogDirectory(directoryOfLogfile)) {
+            return 1;
         }
 
-        // Lschen des Arbeitsverzeichnisses, falls eines angelegt wurde
-        
-        String pathToWorkDir = SIARDVal.getConfigurationService().getPathToWorkDir();
-        File workDir = new File(pathToWorkDir);
-        if (workDir.exists()) {
-            Util.deleteDir(workDir);
+        BatchController batchController = (BatchController) context.getBean("batchController");
+        List<File> siardDateien = batchController.collect(Arrays.copyOfRange(args, 2, args.length));
+        if (siardDateien.isEmpty()) {
+            LOGGER.logInfo(getTextResourceService().getText(ERROR_BATCH_NOINPUT));
+            LOGGER.logInfo(getTextResourceService().getText(MESSAGE_VALIDATION_INTERRUPTED));
+            return 1;
         }
-        if (ok) {
-            System.exit(0);            
-            // Lschen des Arbeitsverzeichnisses, falls eines angelegt wurde
-            if (workDir.exists()) {
-                Util.deleteDir(workDir);
-            }
-        } else {
-            System.exit(2);            
-            // Lschen des Arbeitsverzeichnisses, falls eines angelegt wurde
-            if (workDir.exists()) {
-                Util.deleteDir(workDir);
-            }
+        FlightRecording recording = null;
+        if (jfr) {
+            recording = startRecording(directoryOfLogfile, "SIARDVal-batch" + FlightRecording.EXTENSION);
+        }
+        boolean ok = batchController.execute(siardDateien, directoryOfLogfile, force);
+        stopRecording(recording);
+        return ok ? 0 : 2;
+    }
+
+    /**
+     * Schreibt die gepufferten Meldungen in die Logs und beendet die JVM.
+     */
+    private static void exit(int status) {
+        LogManager.shutdown();
+        System.exit(status);
+    }
+
+    /**
+     * Service-Modus: startet den Validierungs-Service.
+     * @return false, falls der Service nicht gestartet werden konnte
+     */
+    private boolean executeService(ApplicationContext context, String[] args, boolean jfr) {
+        if (args.length > 2) {
+            LOGGER.logInfo(getTextResourceService().getText(ERROR_PARAMETER_USAGE));
+            return false;
+        }
+        File directoryOfLogfile = new File(args[1]);
+        if (! checkLogDirectory(directoryOfLogfile)) {
+            return false;
+        }
+        ServiceController serviceController = (ServiceController) context.getBean("serviceController");
+        try {
+            serviceController.start(directoryOfLogfile);
+        } catch (IOException e) {
+            LOGGER.logInfo(getTextResourceService().getText(ERROR_SERVICE_START, e.getMessage()));
+            return false;
+        }
+        if (jfr) {
+            // die Aufzeichnung wird beim Beenden der JVM geschrieben
+            startRecording(directoryOfLogfile, "SIARDVal-service" + FlightRecording.EXTENSION);
+        }
+        return true;
+    }
+
+    private FlightRecording startRecording(File directoryOfLogfile, String name) {
+        FlightRecording recording = FlightRecording.start(new File(directoryOfLogfile, name));
+        if (recording == null) {
+            LOGGER.logInfo(getTextResourceService().getText(ERROR_JFR_UNAVAILABLE));
+        }
+        return recording;
+    }
+
+    private void stopRecording(FlightRecording recording) {
+        if (recording != null && recording.stop()) {
+            LOGGER.logInfo(getTextResourceService().getText(MESSAGE_JFR_RECORDING,
+                    recording.getDestination().getAbsolutePath()));
+        }
+    }
+
+    private boolean checkLogDirectory(File directoryOfLogfile) {
+        if (! directoryOfLogfile.isDirectory()) {
+            LOGGER.logInfo(getTextResourceService().getText(ERROR_LOGDIRECTORY_NODIRECTORY));
+            LOGGER.logInfo(getTextResourceService().getText(MESSAGE_VALIDATION_INTERRUPTED));
+            return false;
+        }
+        if (! directoryOfLogfile.canWrite()) {
+            LOGGER.logInfo(getTextResourceService().getText(ERROR_LOGDIRECTORY_NOTWRITABLE));
+            LOGGER.logInfo(getTextResourceService().getText(MESSAGE_VALIDATION_INTERRUPTED));
+            return false;
         }
+        return true;
     }
 }
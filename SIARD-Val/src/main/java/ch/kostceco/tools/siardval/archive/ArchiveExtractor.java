@@ -0,0 +1,261 @@
+/*== SIARD-Val ==================================================================================
+The SIARD-Val application is used for validate SIARD-Files. 
+Copyright (C) 2012 Claire Rthlisberger (KOST-CECO), Martin Kaiser (KOST-CECO), XYZ (xyz)
+-----------------------------------------------------------------------------------------------
+SIARD-Val is a development of the KOST-CECO. All rights rest with the KOST-CECO. 
+This application is free software: you can redistribute it and/or modify it under the 
+terms of the GNU General Public License as published by the Free Software Foundation, 
+either version 3 of the License, or (at your option) any later version. 
+This application is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; 
+without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. 
+See the follow GNU General Public License for more details.
+You should have received a copy of the GNU General Public License along with this program; 
+if not, write to the Free Software Foundation, Inc., 51 Franklin Street, Fifth Floor, 
+Boston, MA 02110-1301 USA or see <http://www.gnu.org/licenses/>.
+==============================================================================================*/
+
+package ch.kostceco.tools.siardval.archive;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedSet;
+import java.util.TreeSet;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.zip.ZipException;
+
+import ch.kostceco.tools.siardval.metrics.Metrics;
+import ch.kostceco.tools.siardval.util.Cancellation;
+
+/**
+ * Entpackt ausgewhlte Eintrge einer SIARD-Datei in ein Verzeichnis.
+ *
+ * <p>
+ * Die Verzeichnisse werden vorab aus dem zentralen Verzeichnis angelegt,
+ * jedes genau einmal. Anschliessend schreiben mehrere Threads die Dateien
+ * mit einem Puffer pro Thread: unkomprimierte Eintrge werden positionell
+ * aus der gemappten SIARD-Datei gelesen, komprimierte ber
+ * <code>Zip64File</code>. Beide Streams prfen die CRC32 jedes Eintrags, ein
+ * beschdigter Eintrag bricht das Entpacken mit einer ZipException ab.
+ *
+ * <p>
+ * Die gelesenen Bytes und Eintrge werden der laufenden Messung des
+ * aufrufenden Threads gemeldet.
+ *
+ * <p>
+ * Die Threads werden nie unterbrochen, ein unterbrochener Lesezugriff
+ * schlsse die SIARD-Datei; bei einem Abbruch ({@link Cancellation}) oder
+ * Fehler beenden sie sich nach dem laufenden Eintrag.
+ */
+public class ArchiveExtractor {
+
+	/**
+	 * Auswahl der Eintrge, die ein Modul entpackt braucht.
+	 */
+	public interface EntryFilter {
+
+		/**
+		 * @return true, falls der Eintrag (nie ein Verzeichnis) entpackt wird
+		 */
+		boolean accept(SiardArchiveEntry entry);
+	}
+
+	/** alle Dateien der SIARD-Datei */
+	public static final EntryFilter ALL = new EntryFilter() {
+		@Override
+		public boolean accept(SiardArchiveEntry entry) {
+			return true;
+		}
+	};
+
+	/* so viele Eintrge holt sich ein Thread auf einmal */
+	private static final int CHUNK_SIZE = 64;
+
+	private static final int BUFFER_SIZE = 64 * 1024;
+
+	private final SiardArchiveIndex index;
+	private final File targetDir;
+	private final int threads;
+
+	/**
+	 * @param index
+	 *            die zu entpackende SIARD-Datei
+	 * @param targetDir
+	 *            Zielverzeichnis, wird bei Bedarf angelegt
+	 * @param threads
+	 *            Anzahl Threads, 0 fr automatisch
+	 */
+	public ArchiveExtractor(SiardArchiveIndex index, File targetDir, int threads) {
+		this.index = index;
+		this.targetDir = targetDir;
+		this.threads = threads;
+	}
+
+	/**
+	 * Entpackt alle Dateien, die der Filter auswhlt.
+	 *
+	 * @return die entpackten Dateien nach Eintragsname, in der Reihenfolge
+	 *         des zentralen Verzeichnisses
+	 * @throws IOException
+	 *             der erste Fehler beim Entpacken; die brigen Threads
+	 *             brechen danach ab
+	 * @throws InterruptedException
+	 *             falls der Validierungsschritt abgebrochen wurde
+	 */
+	public Map<String, File> extract(EntryFilter filter) throws IOException, InterruptedException {
+		List<SiardArchiveEntry> selected = new ArrayList<SiardArchiveEntry>();
+		SortedSet<String> directories = new TreeSet<String>();
+		// der aufgelste Pfad jedes Eintrags muss unter dem Zielverzeichnis
+		// liegen; das erfasst auch "..", Backslashes und Laufwerksbuchstaben
+		String root = targetDir.getCanonicalPath() + File.separator;
+		for (SiardArchiveEntry entry : index.getEntries()) {
+			if (entry.isDirectory() || !filter.accept(entry)) {
+				continue;
+			}
+			String name = entry.getName();
+			if (!new File(targetDir, name).getCanonicalPath().startsWith(root)) {
+				throw new ZipException("entry outside target directory: " + name);
+			}
+			selected.add(entry);
+			int slash = name.lastIndexOf('/');
+			if (slash > 0) {
+				directories.add(name.substring(0, slash));
+			}
+		}
+		createDirectories(directories);
+
+		SiardArchiveEntry[] entries = selected.toArray(new SiardArchiveEntry[selected.size()]);
+		File[] files = new File[entries.length];
+		Map<String, File> extracted = new LinkedHashMap<String, File>(entries.length * 2);
+		for (int i = 0; i < entries.length; i++) {
+			files[i] = new File(targetDir, entries[i].getName());
+			extracted.put(entries[i].getName(), files[i]);
+		}
+
+		// auch ein einzelner Thread luft separat, damit die Streams der
+		// komprimierten Eintrge nicht zustzlich in der Messung zhlen
+		Extraction extraction = new Extraction(entries, files, Cancellation.get());
+		Thread[] workers = new Thread[getThreadCount(entries.length)];
+		for (int i = 0; i < workers.length; i++) {
+			workers[i] = new Thread(extraction, "siardval-extract-" + (i + 1));
+			workers[i].setDaemon(true);
+			workers[i].start();
+		}
+		try {
+			for (Thread worker : workers) {
+				worker.join();
+			}
+		} catch (InterruptedException e) {
+			extraction.stopped.set(true);
+			throw e;
+		}
+		Metrics.addBytes(extraction.bytes.get());
+		Metrics.addEntries(extraction.done.get());
+		if (extraction.failure.get() != null) {
+			throw extraction.failure.get();
+		}
+		if (extraction.isStopped()) {
+			throw new InterruptedException();
+		}
+		return extracted;
+	}
+
+	/*
+	 * bergeordnete Verzeichnisse sortieren vor ihren Unterverzeichnissen;
+	 * mkdirs legt deshalb pro Verzeichnis hchstens eines an.
+	 */
+	private void createDirectories(SortedSet<String> directories) throws IOException {
+		mkdir(targetDir);
+		for (String directory : directories) {
+			mkdir(new File(targetDir, directory));
+		}
+	}
+
+	private static void mkdir(File directory) throws IOException {
+		if (!directory.mkdirs() && !directory.isDirectory()) {
+			throw new IOException("directory not created: " + directory.getPath());
+		}
+	}
+
+	/**
+	 * Konfigurierte Anzahl Threads oder, bei 0, die Anzahl Prozessoren,
+	 * begrenzt durch die Anzahl Pakete von Eintrgen.
+	 */
+	private int getThreadCount(int entries) {
+		int chunks = (entries + CHUNK_SIZE - 1) / CHUNK_SIZE;
+		int count = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+		return Math.max(1, Math.min(count, chunks));
+	}
+
+	/*
+	 * Die Threads holen sich Pakete von Eintrgen aus der gemeinsamen Liste,
+	 * bis sie leer ist oder ein Fehler aufgetreten ist.
+	 */
+	private class Extraction implements Runnable {
+
+		private final SiardArchiveEntry[] entries;
+		private final File[] files;
+		private final AtomicInteger next = new AtomicInteger();
+		private final AtomicInteger done = new AtomicInteger();
+		private final AtomicLong bytes = new AtomicLong();
+		private final AtomicReference<IOException> failure = new AtomicReference<IOException>();
+		private final AtomicBoolean cancelled;
+		private final AtomicBoolean stopped = new AtomicBoolean();
+
+		Extraction(SiardArchiveEntry[] entries, File[] files, AtomicBoolean cancelled) {
+			this.entries = entries;
+			this.files = files;
+			this.cancelled = cancelled;
+		}
+
+		boolean isStopped() {
+			return stopped.get() || Cancellation.isCancelled(cancelled);
+		}
+
+		@Override
+		public void run() {
+			byte[] buffer = new byte[BUFFER_SIZE];
+			while (failure.get() == null && !isStopped()) {
+				int start = next.getAndAdd(CHUNK_SIZE);
+				if (start >= entries.length) {
+					return;
+				}
+				int end = Math.min(start + CHUNK_SIZE, entries.length);
+				try {
+					for (int i = start; i < end; i++) {
+						copy(entries[i], files[i], buffer);
+						bytes.addAndGet(entries[i].getSize());
+						done.incrementAndGet();
+					}
+				} catch (IOException e) {
+					failure.compareAndSet(null, e);
+				}
+			}
+		}
+	}
+
+	private void copy(SiardArchiveEntry entry, File file, byte[] buffer) throws IOException {
+		FileOutputStream out = new FileOutputStream(file);
+		try {
+			// bis zum Ende lesen, erst dort wird die CRC32 geprft
+			InputStream in = index.openEntryInputStream(entry.getName());
+			try {
+				for (int read = in.read(buffer); read >= 0; read = in.read(buffer)) {
+					out.write(buffer, 0, read);
+				}
+			} finally {
+				in.close();
+			}
+		} finally {
+			out.close();
+		}
+	}
+}
@@ -0,0 +1,184 @@
+/*== SIARD-Val ==================================================================================
+The SIARD-Val application is used for validate SIARD-Files. 
+Copyright (C) 2012 Claire Rthlisberger (KOST-CECO), Martin Kaiser (KOST-CECO), XYZ (xyz)
+-----------------------------------------------------------------------------------------------
+SIARD-Val is a development of the KOST-CECO. All rights rest with the KOST-CECO. 
+This application is free software: you can redistribute it and/or modify it under the 
+terms of the GNU General Public License as published by the Free Software Foundation, 
+either version 3 of the License, or (at your option) any later version. 
+This application is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; 
+without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. 
+See the follow GNU General Public License for more details.
+You should have received a copy of the GNU General Public License along with this program; 
+if not, write to the Free Software Foundation, Inc., 51 Franklin Street, Fifth Floor, 
+Boston, MA 02110-1301 USA or see <http://www.gnu.org/licenses/>.
+==============================================================================================*/
+
+package ch.kostceco.tools.siardval.archive;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
+import java.net.URI;
+import java.net.URISyntaxException;
+
+import javax.xml.transform.stream.StreamSource;
+
+import org.w3c.dom.ls.LSInput;
+import org.w3c.dom.ls.LSResourceResolver;
+
+/**
+ * Lst xs:include und xs:import direkt aus der SIARD-Datei auf, damit
+ * metadata.xsd und die Tabellen-XSDs ohne Entpacken validiert werden knnen.
+ *
+ * <p>
+ * Die Eintrge werden ber die System-ID von
+ * {@link SiardArchiveIndex#getSystemId(String)} angesprochen. Verweise, die
+ * nicht in die SIARD-Datei zeigen, berlsst der Resolver dem Parser.
+ */
+public class ArchiveResourceResolver implements LSResourceResolver {
+
+	private final SiardArchiveIndex index;
+
+	public ArchiveResourceResolver(SiardArchiveIndex index) {
+		this.index = index;
+	}
+
+	/**
+	 * Erstellt eine Source fr einen Eintrag der SIARD-Datei. Der Stream wird
+	 * vom Parser nach dem Lesen geschlossen.
+	 */
+	public StreamSource getSource(String name) throws IOException {
+		return new StreamSource(index.openEntryInputStream(name), index.getSystemId(name));
+	}
+
+	@Override
+	public LSInput resolveResource(String type, String namespaceURI, String publicId, String systemId,
+			String baseURI) {
+		if (systemId == null) {
+			return null;
+		}
+		String resolved;
+		try {
+			URI uri = new URI(systemId);
+			if (baseURI != null && !uri.isAbsolute()) {
+				uri = new URI(baseURI).resolve(uri);
+			}
+			resolved = uri.toString();
+		} catch (URISyntaxException e) {
+			return null;
+		}
+		String name = index.getEntryName(resolved);
+		if (name == null || !index.isFile(name)) {
+			// Standardauflsung durch den Parser
+			return null;
+		}
+		return new ArchiveInput(name, publicId, resolved, baseURI);
+	}
+
+	/*
+	 * LSInput auf einen Eintrag; der Stream wird erst geffnet, wenn der
+	 * Parser ihn anfordert.
+	 */
+	private class ArchiveInput implements LSInput {
+
+		private final String name;
+		private String publicId;
+		private String systemId;
+		private String baseURI;
+		private String encoding;
+		private InputStream byteStream;
+
+		ArchiveInput(String name, String publicId, String systemId, String baseURI) {
+			this.name = name;
+			this.publicId = publicId;
+			this.systemId = systemId;
+			this.baseURI = baseURI;
+		}
+
+		@Override
+		public InputStream getByteStream() {
+			if (byteStream == null) {
+				try {
+					byteStream = index.openEntryInputStream(name);
+				} catch (IOException e) {
+					// der Parser versucht es anschliessend ber die System-ID
+					return null;
+				}
+			}
+			return byteStream;
+		}
+
+		@Override
+		public void setByteStream(InputStream byteStream) {
+			this.byteStream = byteStream;
+		}
+
+		@Override
+		public Reader getCharacterStream() {
+			return null;
+		}
+
+		@Override
+		public void setCharacterStream(Reader characterStream) {
+		}
+
+		@Override
+		public String getStringData() {
+			return null;
+		}
+
+		@Override
+		public void setStringData(String stringData) {
+		}
+
+		@Override
+		public String getSystemId() {
+			return systemId;
+		}
+
+		@Override
+		public void setSystemId(String systemId) {
+			this.systemId = systemId;
+		}
+
+		@Override
+		public String getPublicId() {
+			return publicId;
+		}
+
+		@Override
+		public void setPublicId(String publicId) {
+			this.publicId = publicId;
+		}
+
+		@Override
+		public String getBaseURI() {
+			return baseURI;
+		}
+
+		@Override
+		public void setBaseURI(String baseURI) {
+			this.baseURI = baseURI;
+		}
+
+		@Override
+		public String getEncoding() {
+			return encoding;
+		}
+
+		@Override
+		public void setEncoding(String encoding) {
+			this.encoding = encoding;
+		}
+
+		@Override
+		public boolean getCertifiedText() {
+			return false;
+		}
+
+		@Override
+		public void setCertifiedText(boolean certifiedText) {
+		}
+	}
+}
@@ -0,0 +1,564 @@
+/*== SIARD-Val ==================================================================================
+The SIARD-Val application is used for validate SIARD-Files. 
+Copyright (C) 2012 Claire Rthlisberger (KOST-CECO), Martin Kaiser (KOST-CECO), XYZ (xyz)
+-----------------------------------------------------------------------------------------------
+SIARD-Val is a development of the KOST-CECO. All rights rest with the KOST-CECO. 
+This application is free software: you can redistribute it and/or modify it under the 
+terms of the GNU General Public License as published by the Free Software Foundation, 
+either version 3 of the License, or (at your option) any later version. 
+This application is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; 
+without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. 
+See the follow GNU General Public License for more details.
+You should have received a copy of the GNU General Public License along with this program; 
+if not, write to the Free Software Foundation, Inc., 51 Franklin Street, Fifth Floor, 
+Boston, MA 02110-1301 USA or see <http://www.gnu.org/licenses/>.
+==============================================================================================*/
+
+package ch.kostceco.tools.siardval.archive;
+
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.zip.CRC32;
+import java.util.zip.ZipException;
+
+/**
+ * Liest unkomprimierte (STORED) Eintrge einer SIARD-Datei ohne Umweg ber
+ * <code>EntryInputStream</code>. Weil Modul A verlangt, dass alle Eintrge
+ * unkomprimiert sind, ist jeder Eintrag ein zusammenhngender Bytebereich der
+ * SIARD-Datei und kann direkt aus einem <code>MappedByteBuffer</code> gelesen
+ * werden.
+ *
+ * <p>
+ * Die Datei wird in Regionen von hchstens {@link #REGION_SIZE} Bytes
+ * gemappt, damit auch SIARD-Dateien ber 2 GB gelesen werden knnen. Ein
+ * Eintrag darf ber mehrere Regionen gehen. Ist Mapping nicht mglich (z.B.
+ * kein Adressraum mehr in einer 32-Bit JVM), wird positionell ber den
+ * <code>FileChannel</code> in Direct-Buffer aus einem {@link DirectBufferPool}
+ * gelesen.
+ *
+ * <p>
+ * Alle Methoden sind thread-safe; jeder Stream arbeitet auf einer eigenen
+ * Kopie (<code>duplicate()</code>) der gemappten Region.
+ *
+ * <p>
+ * Die Streams der Eintrge prfen wie <code>EntryInputStream</code> die
+ * CRC32; die Buffer liefern die Daten ungeprft.
+ */
+public class MappedEntryReader {
+
+	/** Grsse einer gemappten Region (1 GB) */
+	public static final long REGION_SIZE = 1L << 30;
+
+	private static final int LOCAL_HEADER_SIGNATURE = 0x04034b50;
+	private static final int LOCAL_HEADER_SIZE = 30;
+	private static final int DATA_DESCRIPTOR_SIGNATURE = 0x08074b50;
+	private static final int FLAG_DATA_DESCRIPTOR = 0x0008;
+	private static final long ZIP64_LIMIT = 0xffffffffL;
+	private static final int ZIP64_EXTRA = 0x0001;
+	private static final int METHOD_STORED = 0;
+
+	private final RandomAccessFile file;
+	private final FileChannel channel;
+	private final long fileSize;
+	private final MappedByteBuffer[] regions;
+	private final DirectBufferPool bufferPool;
+	private final Map<String, Long> dataOffsets = new ConcurrentHashMap<String, Long>();
+	private volatile boolean mappingFailed = false;
+
+	public MappedEntryReader(File siardDatei) throws IOException {
+		this(siardDatei, new DirectBufferPool());
+	}
+
+	public MappedEntryReader(File siardDatei, DirectBufferPool bufferPool) throws IOException {
+		this.file = new RandomAccessFile(siardDatei, "r");
+		this.channel = file.getChannel();
+		this.fileSize = channel.size();
+		this.regions = new MappedByteBuffer[(int) ((fileSize + REGION_SIZE - 1) / REGION_SIZE)];
+		this.bufferPool = bufferPool;
+	}
+
+	/**
+	 * @return true, falls der Eintrag mit diesem Reader gelesen werden kann
+	 *         (unkomprimiert und kein Verzeichnis)
+	 */
+	public static boolean isSupported(SiardArchiveEntry entry) {
+		return entry.getMethod() == METHOD_STORED && !entry.isDirectory()
+				&& entry.getSize() == entry.getCompressedSize();
+	}
+
+	/**
+	 * ffnet einen Stream auf die Daten eines unkomprimierten Eintrags. Am
+	 * Ende des Eintrags wird die CRC32 geprft.
+	 *
+	 * @throws ZipException
+	 *             falls der Eintrag komprimiert ist oder der lokale Header
+	 *             nicht gelesen werden kann; beim Lesen, falls die CRC32
+	 *             nicht stimmt
+	 */
+	public InputStream openInputStream(SiardArchiveEntry entry) throws IOException {
+		long start = getDataOffset(entry);
+		if (!mappingFailed) {
+			return new CrcInputStream(new MappedInputStream(start, entry.getSize()), entry);
+		}
+		return new CrcInputStream(new ChannelInputStream(start, entry.getSize()), entry);
+	}
+
+	/**
+	 * Liefert die Daten eines unkomprimierten Eintrags als read-only
+	 * <code>ByteBuffer</code>, ohne sie zu kopieren.
+	 *
+	 * @return der Buffer oder null, falls der Eintrag nicht gemappt werden
+	 *         kann (Mapping nicht mglich oder Eintrag grsser als 2 GB). In
+	 *         diesem Fall ist {@link #openInputStream(SiardArchiveEntry)} zu
+	 *         verwenden.
+	 */
+	public ByteBuffer getByteBuffer(SiardArchiveEntry entry) throws IOException {
+		long start = getDataOffset(entry);
+		long size = entry.getSize();
+		if (mappingFailed || size > Integer.MAX_VALUE) {
+			return null;
+		}
+		if (size == 0) {
+			return ByteBuffer.allocate(0).asReadOnlyBuffer();
+		}
+		int index = (int) (start / REGION_SIZE);
+		long regionStart = index * REGION_SIZE;
+		if (start + size <= regionStart + REGION_SIZE) {
+			MappedByteBuffer region = getRegion(index);
+			if (region != null) {
+				ByteBuffer view = region.duplicate();
+				view.position((int) (start - regionStart));
+				view.limit((int) (start - regionStart + size));
+				return view.slice();
+			}
+			return null;
+		}
+		// der Eintrag liegt ber einer Regionsgrenze und wird separat gemappt
+		try {
+			return channel.map(FileChannel.MapMode.READ_ONLY, start, size).asReadOnlyBuffer();
+		} catch (IOException e) {
+			mappingFailed = true;
+			return null;
+		}
+	}
+
+	/**
+	 * ffnet einen Stream auf einen beliebigen Bereich der SIARD-Datei, z.B.
+	 * um mehrere aufeinanderfolgende Eintrge in einem Durchgang zu lesen.
+	 */
+	public InputStream openRangeInputStream(long start, long length) throws IOException {
+		if (start < 0 || length < 0 || start + length > fileSize) {
+			throw new EOFException("range exceeds file size: " + start + "+" + length);
+		}
+		if (!mappingFailed) {
+			return new MappedInputStream(start, length);
+		}
+		return new ChannelInputStream(start, length);
+	}
+
+	/**
+	 * Liefert die Position direkt nach dem Eintrag in der SIARD-Datei: lokaler
+	 * Header, komprimierte Daten und gegebenenfalls Data Descriptor. Gilt fr
+	 * alle Kompressionsmethoden.
+	 */
+	public long getEntryEnd(SiardArchiveEntry entry) throws IOException {
+		ByteBuffer header = readLocalHeader(entry);
+		int flags = header.getShort(6) & 0xffff;
+		long end = entry.getOffset() + LOCAL_HEADER_SIZE + (header.getShort(26) & 0xffff)
+				+ (header.getShort(28) & 0xffff) + entry.getCompressedSize();
+		if ((flags & FLAG_DATA_DESCRIPTOR) != 0) {
+			ByteBuffer signature = ByteBuffer.allocate(4).order(ByteOrder.LITTLE_ENDIAN);
+			if (end + 4 <= fileSize) {
+				readFully(signature, end);
+			}
+			if (signature.getInt(0) == DATA_DESCRIPTOR_SIGNATURE) {
+				end += 4;
+			}
+			// CRC und die beiden Grssen, bei ZIP64 mit 8 Bytes. Massgebend
+			// ist das ZIP64 Extra Field im lokalen Header (APPNOTE 4.3.9);
+			// java.util.zip schreibt ab 4 GB auch ohne Extra Field ZIP64.
+			boolean zip64 = hasZip64Extra(entry, header) || entry.getSize() >= ZIP64_LIMIT
+					|| entry.getCompressedSize() >= ZIP64_LIMIT;
+			end += zip64 ? 20 : 12;
+		}
+		if (end > fileSize) {
+			throw new ZipException("entry exceeds file size: " + entry.getName());
+		}
+		return end;
+	}
+
+	public long getFileSize() {
+		return fileSize;
+	}
+
+	/**
+	 * Schliesst die SIARD-Datei. Die gemappten Regionen werden vom Garbage
+	 * Collector freigegeben.
+	 */
+	public void close() throws IOException {
+		synchronized (regions) {
+			for (int i = 0; i < regions.length; i++) {
+				regions[i] = null;
+			}
+		}
+		file.close();
+	}
+
+	/*
+	 * Die Daten beginnen nach dem lokalen Header, dessen Lnge vom Namen und
+	 * vom Extra-Feld abhngt. Das zentrale Verzeichnis kennt nur den Offset
+	 * des lokalen Headers.
+	 */
+	private long getDataOffset(SiardArchiveEntry entry) throws IOException {
+		if (!isSupported(entry)) {
+			throw new ZipException("entry is not stored: " + entry.getName());
+		}
+		Long cached = dataOffsets.get(entry.getName());
+		if (cached != null) {
+			return cached.longValue();
+		}
+		ByteBuffer header = readLocalHeader(entry);
+		int nameLength = header.getShort(26) & 0xffff;
+		int extraLength = header.getShort(28) & 0xffff;
+		long dataOffset = entry.getOffset() + LOCAL_HEADER_SIZE + nameLength + extraLength;
+		if (dataOffset + entry.getSize() > fileSize) {
+			throw new ZipException("entry exceeds file size: " + entry.getName());
+		}
+		dataOffsets.put(entry.getName(), Long.valueOf(dataOffset));
+		return dataOffset;
+	}
+
+	private ByteBuffer readLocalHeader(SiardArchiveEntry entry) throws IOException {
+		ByteBuffer header = ByteBuffer.allocate(LOCAL_HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+		readFully(header, entry.getOffset());
+		if (header.getInt(0) != LOCAL_HEADER_SIGNATURE) {
+			throw new ZipException("invalid local header: " + entry.getName());
+		}
+		return header;
+	}
+
+	/*
+	 * Sucht im Extra Field des lokalen Headers den Eintrag 0x0001.
+	 */
+	private boolean hasZip64Extra(SiardArchiveEntry entry, ByteBuffer header) throws IOException {
+		int nameLength = header.getShort(26) & 0xffff;
+		int extraLength = header.getShort(28) & 0xffff;
+		if (extraLength == 0) {
+			return false;
+		}
+		ByteBuffer extra = ByteBuffer.allocate(extraLength).order(ByteOrder.LITTLE_ENDIAN);
+		readFully(extra, entry.getOffset() + LOCAL_HEADER_SIZE + nameLength);
+		for (int position = 0; position + 4 <= extraLength; position += 4 + (extra.getShort(position + 2) & 0xffff)) {
+			if ((extra.getShort(position) & 0xffff) == ZIP64_EXTRA) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private void readFully(ByteBuffer buffer, long position) throws IOException {
+		while (buffer.hasRemaining()) {
+			int read = channel.read(buffer, position);
+			if (read < 0) {
+				throw new EOFException();
+			}
+			position += read;
+		}
+	}
+
+	/*
+	 * Mappt die Region beim ersten Zugriff. Schlgt das Mapping fehl, wird
+	 * fr alle weiteren Streams auf positionelles Lesen umgestellt.
+	 */
+	private MappedByteBuffer getRegion(int index) {
+		synchronized (regions) {
+			if (regions[index] == null && !mappingFailed) {
+				long start = index * REGION_SIZE;
+				long size = Math.min(REGION_SIZE, fileSize - start);
+				try {
+					regions[index] = channel.map(FileChannel.MapMode.READ_ONLY, start, size);
+				} catch (IOException e) {
+					mappingFailed = true;
+				}
+			}
+			return regions[index];
+		}
+	}
+
+	/*
+	 * Berechnet die CRC32 der gelesenen Daten und vergleicht sie beim
+	 * Erreichen des Endes mit dem zentralen Verzeichnis. bersprungene Bytes
+	 * werden gelesen, damit die Prfsumme vollstndig bleibt.
+	 */
+	private static class CrcInputStream extends InputStream {
+
+		private final InputStream in;
+		private final SiardArchiveEntry entry;
+		private final CRC32 crc = new CRC32();
+		private boolean checked;
+
+		CrcInputStream(InputStream in, SiardArchiveEntry entry) {
+			this.in = in;
+			this.entry = entry;
+		}
+
+		@Override
+		public int read() throws IOException {
+			int b = in.read();
+			if (b < 0) {
+				check();
+			} else {
+				crc.update(b);
+			}
+			return b;
+		}
+
+		@Override
+		public int read(byte[] b, int off, int len) throws IOException {
+			int n = in.read(b, off, len);
+			if (n < 0) {
+				check();
+			} else {
+				crc.update(b, off, n);
+			}
+			return n;
+		}
+
+		@Override
+		public long skip(long n) throws IOException {
+			if (n <= 0) {
+				return 0;
+			}
+			byte[] scratch = new byte[(int) Math.min(n, 8192)];
+			long skipped = 0;
+			while (skipped < n) {
+				int read = read(scratch, 0, (int) Math.min(scratch.length, n - skipped));
+				if (read < 0) {
+					break;
+				}
+				skipped += read;
+			}
+			return skipped;
+		}
+
+		@Override
+		public int available() throws IOException {
+			return in.available();
+		}
+
+		@Override
+		public void close() throws IOException {
+			in.close();
+		}
+
+		private void check() throws ZipException {
+			if (!checked) {
+				checked = true;
+				if (crc.getValue() != entry.getCrc()) {
+					throw new ZipException("invalid entry CRC: " + entry.getName());
+				}
+			}
+		}
+	}
+
+	/*
+	 * Stream ber die gemappten Regionen; wechselt bei Bedarf in die nchste
+	 * Region oder, falls das Mapping fehlschlgt, auf positionelles Lesen.
+	 */
+	private class MappedInputStream extends InputStream {
+
+		private long position;
+		private long remaining;
+		private ByteBuffer current;
+		private ChannelInputStream fallback;
+
+		MappedInputStream(long start, long length) {
+			this.position = start;
+			this.remaining = length;
+		}
+
+		private boolean ensureBuffer() {
+			if (current != null && current.hasRemaining()) {
+				return true;
+			}
+			if (remaining <= 0 || fallback != null) {
+				return false;
+			}
+			int index = (int) (position / REGION_SIZE);
+			MappedByteBuffer region = getRegion(index);
+			if (region == null) {
+				fallback = new ChannelInputStream(position, remaining);
+				return false;
+			}
+			long regionStart = index * REGION_SIZE;
+			int offset = (int) (position - regionStart);
+			int length = (int) Math.min(remaining, region.capacity() - offset);
+			ByteBuffer view = region.duplicate();
+			view.position(offset);
+			view.limit(offset + length);
+			current = view;
+			position += length;
+			remaining -= length;
+			return true;
+		}
+
+		@Override
+		public int read() throws IOException {
+			if (ensureBuffer()) {
+				return current.get() & 0xff;
+			}
+			return fallback != null ? fallback.read() : -1;
+		}
+
+		@Override
+		public int read(byte[] b, int off, int len) throws IOException {
+			if (len == 0) {
+				return 0;
+			}
+			if (ensureBuffer()) {
+				int n = Math.min(len, current.remaining());
+				current.get(b, off, n);
+				return n;
+			}
+			return fallback != null ? fallback.read(b, off, len) : -1;
+		}
+
+		@Override
+		public long skip(long n) throws IOException {
+			if (n <= 0) {
+				return 0;
+			}
+			long skipped = 0;
+			if (current != null) {
+				int inBuffer = (int) Math.min(n, current.remaining());
+				current.position(current.position() + inBuffer);
+				skipped = inBuffer;
+			}
+			if (fallback != null) {
+				return skipped + fallback.skip(n - skipped);
+			}
+			long more = Math.min(n - skipped, remaining);
+			position += more;
+			remaining -= more;
+			return skipped + more;
+		}
+
+		@Override
+		public int available() throws IOException {
+			if (fallback != null) {
+				return fallback.available();
+			}
+			long available = remaining + (current != null ? current.remaining() : 0);
+			return (int) Math.min(available, Integer.MAX_VALUE);
+		}
+
+		@Override
+		public void close() throws IOException {
+			current = null;
+			remaining = 0;
+			if (fallback != null) {
+				fallback.close();
+			}
+		}
+	}
+
+	/*
+	 * Positionelles Lesen ber den FileChannel in einen Direct-Buffer aus dem
+	 * Pool. FileChannel.read(ByteBuffer, long) verndert die Dateiposition
+	 * nicht, mehrere Streams knnen also parallel lesen.
+	 */
+	private class ChannelInputStream extends InputStream {
+
+		private long position;
+		private long remaining;
+		private ByteBuffer buffer;
+
+		ChannelInputStream(long start, long length) {
+			this.position = start;
+			this.remaining = length;
+		}
+
+		private boolean fill() throws IOException {
+			if (buffer != null && buffer.hasRemaining()) {
+				return true;
+			}
+			if (remaining <= 0) {
+				return false;
+			}
+			if (buffer == null) {
+				buffer = bufferPool.acquire();
+			}
+			buffer.clear();
+			if (remaining < buffer.capacity()) {
+				buffer.limit((int) remaining);
+			}
+			int read = channel.read(buffer, position);
+			if (read < 0) {
+				throw new EOFException();
+			}
+			position += read;
+			remaining -= read;
+			buffer.flip();
+			return buffer.hasRemaining();
+		}
+
+		@Override
+		public int read() throws IOException {
+			return fill() ? buffer.get() & 0xff : -1;
+		}
+
+		@Override
+		public int read(byte[] b, int off, int len) throws IOException {
+			if (len == 0) {
+				return 0;
+			}
+			if (!fill()) {
+				return -1;
+			}
+			int n = Math.min(len, buffer.remaining());
+			buffer.get(b, off, n);
+			return n;
+		}
+
+		@Override
+		public long skip(long n) throws IOException {
+			if (n <= 0) {
+				return 0;
+			}
+			long skipped = 0;
+			if (buffer != null) {
+				int inBuffer = (int) Math.min(n, buffer.remaining());
+				buffer.position(buffer.position() + inBuffer);
+				skipped = inBuffer;
+			}
+			long more = Math.min(n - skipped, remaining);
+			position += more;
+			remaining -= more;
+			return skipped + more;
+		}
+
+		@Override
+		public int available() throws IOException {
+			long available = remaining + (buffer != null ? buffer.remaining() : 0);
+			return (int) Math.min(available, Integer.MAX_VALUE);
+		}
+
+		@Override
+		public void close() throws IOException {
+			remaining = 0;
+			if (buffer != null) {
+				bufferPool.release(buffer);
+				buffer = null;
+			}
+		}
+	}
+}
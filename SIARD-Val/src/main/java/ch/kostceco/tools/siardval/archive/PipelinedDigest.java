@@ -0,0 +1,184 @@
+/*== SIARD-Val ==================================================================================
+The SIARD-Val application is used for validate SIARD-Files. 
+Copyright (C) 2012 Claire Rthlisberger (KOST-CECO), Martin Kaiser (KOST-CECO), XYZ (xyz)
+-----------------------------------------------------------------------------------------------
+SIARD-Val is a development of the KOST-CECO. All rights rest with the KOST-CECO. 
+This application is free software: you can redistribute it and/or modify it under the 
+terms of the GNU General Public License as published by the Free Software Foundation, 
+either version 3 of the License, or (at your option) any later version. 
+This application is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; 
+without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. 
+See the follow GNU General Public License for more details.
+You should have received a copy of the GNU General Public License along with this program; 
+if not, write to the Free Software Foundation, Inc., 51 Franklin Street, Fifth Floor, 
+Boston, MA 02110-1301 USA or see <http://www.gnu.org/licenses/>.
+==============================================================================================*/
+
+package ch.kostceco.tools.siardval.archive;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.security.MessageDigest;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+import ch.kostceco.tools.siardval.util.Cancellation;
+
+/**
+ * Berechnet einen Digest ber einen Stream, wobei Lesen und Hashen
+ * berlappen: ein eigener Thread liest Blcke, der aufrufende Thread hasht
+ * sie. Die Blcke werden wiederverwendet, der Speicherbedarf ist fest.
+ *
+ * <p>
+ * Der Lese-Thread wird nie unterbrochen, ein unterbrochenes Lesen ber den
+ * FileChannel schlsse die SIARD-Datei fr alle Module. Wird der
+ * Validierungsschritt abgebrochen ({@link Cancellation}), endet er nach dem
+ * laufenden Block.
+ */
+public class PipelinedDigest {
+
+	public static final int DEFAULT_BLOCK_SIZE = 1024 * 1024;
+
+	public static final int DEFAULT_QUEUE_LENGTH = 4;
+
+	private final int blockSize;
+	private final int queueLength;
+
+	public PipelinedDigest() {
+		this(DEFAULT_BLOCK_SIZE, DEFAULT_QUEUE_LENGTH);
+	}
+
+	/**
+	 * @param blockSize
+	 *            Grsse eines Blocks in Bytes
+	 * @param queueLength
+	 *            Anzahl gelesener Blcke, die auf das Hashen warten knnen
+	 */
+	public PipelinedDigest(int blockSize, int queueLength) {
+		this.blockSize = blockSize;
+		this.queueLength = queueLength;
+	}
+
+	/**
+	 * Liest den Stream bis zum Ende und aktualisiert den Digest. Der Stream
+	 * wird nicht geschlossen.
+	 *
+	 * @return Anzahl gelesener Bytes
+	 * @throws IOException
+	 *             falls das Lesen fehlschlgt
+	 * @throws InterruptedException
+	 *             falls der Validierungsschritt abgebrochen oder der
+	 *             aufrufende Thread unterbrochen wird; der Lese-Thread wird
+	 *             dann ebenfalls beendet
+	 */
+	public long update(InputStream in, MessageDigest digest) throws IOException, InterruptedException {
+		BlockingQueue<Block> filled = new ArrayBlockingQueue<Block>(queueLength);
+		BlockingQueue<byte[]> free = new ArrayBlockingQueue<byte[]>(queueLength + 1);
+		for (int i = 0; i <= queueLength; i++) {
+			free.add(new byte[blockSize]);
+		}
+		BlockReader reader = new BlockReader(in, free, filled);
+		Thread thread = new Thread(reader, "siardval-digest-reader");
+		thread.setDaemon(true);
+		thread.start();
+		long total = 0;
+		try {
+			for (Block block = filled.take(); block.length >= 0; block = filled.take()) {
+				if (Cancellation.isCancelled()) {
+					throw new InterruptedException();
+				}
+				digest.update(block.data, 0, block.length);
+				total += block.length;
+				free.put(block.data);
+			}
+		} finally {
+			// der Lese-Thread wartet hchstens auf einen freien Block oder
+			// auf Platz fr einen gelesenen
+			reader.stopped = true;
+			while (thread.isAlive()) {
+				filled.clear();
+				free.offer(new byte[0]);
+				thread.join(10);
+			}
+		}
+		Throwable failure = reader.failure;
+		if (failure instanceof IOException) {
+			throw (IOException) failure;
+		} else if (failure instanceof RuntimeException) {
+			throw (RuntimeException) failure;
+		} else if (failure instanceof Error) {
+			throw (Error) failure;
+		} else if (failure != null) {
+			throw new IOException(failure);
+		}
+		return total;
+	}
+
+	private static class Block {
+
+		private final byte[] data;
+		private final int length;
+
+		Block(byte[] data, int length) {
+			this.data = data;
+			this.length = length;
+		}
+	}
+
+	private static class BlockReader implements Runnable {
+
+		private final InputStream in;
+		private final BlockingQueue<byte[]> free;
+		private final BlockingQueue<Block> filled;
+		private Throwable failure;
+		private volatile boolean stopped;
+
+		BlockReader(InputStream in, BlockingQueue<byte[]> free, BlockingQueue<Block> filled) {
+			this.in = in;
+			this.free = free;
+			this.filled = filled;
+		}
+
+		@Override
+		public void run() {
+			try {
+				while (true) {
+					byte[] data = free.take();
+					if (stopped) {
+						// der Digest wird nicht mehr bentigt
+						return;
+					}
+					int length = 0;
+					while (length < data.length) {
+						int read = in.read(data, length, data.length - length);
+						if (read < 0) {
+							break;
+						}
+						length += read;
+					}
+					if (length > 0) {
+						filled.put(new Block(data, length));
+					}
+					if (length < data.length) {
+						break;
+					}
+				}
+			} catch (InterruptedException e) {
+				// der Digest wird nicht mehr bentigt
+				return;
+			} catch (Throwable e) {
+				// auch unerwartete Fehler an update() weitergeben, sonst
+				// wartete es vergeblich auf das Ende
+				failure = e;
+			} finally {
+				if (!stopped) {
+					try {
+						filled.put(new Block(null, -1));
+					} catch (InterruptedException e) {
+						// der Digest wird nicht mehr bentigt
+					}
+				}
+			}
+		}
+	}
+}
@@ -0,0 +1,86 @@
+/*== SIARD-Val ==================================================================================
+The SIARD-Val application is used for validate SIARD-Files. 
+Copyright (C) 2012 Claire Rthlisberger (KOST-CECO), Martin Kaiser (KOST-CECO), XYZ (xyz)
+-----------------------------------------------------------------------------------------------
+SIARD-Val is a development of the KOST-CECO. All rights rest with the KOST-CECO. 
+This application is free software: you can redistribute it and/or modify it under the 
+terms of the GNU General Public License as published by the Free Software Foundation, 
+either version 3 of the License, or (at your option) any later version. 
+This application is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; 
+without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. 
+See the follow GNU General Public License for more details.
+You should have received a copy of the GNU General Public License along with this program; 
+if not, write to the Free Software Foundation, Inc., 51 Franklin Street, Fifth Floor, 
+Boston, MA 02110-1301 USA or see <http://www.gnu.org/licenses/>.
+==============================================================================================*/
+
+package ch.kostceco.tools.siardval.archive;
+
+import ch.enterag.utils.zip.FileEntry;
+
+/**
+ * Unvernderlicher Eintrag des zentralen Verzeichnisses einer SIARD-Datei.
+ * Hlt nur die Werte, welche die Validierungs-Module bentigen, damit der
+ * <code>FileEntry</code> von Zip64File nicht ber den Index hinaus
+ * referenziert wird.
+ */
+public class SiardArchiveEntry {
+
+	private final String name;
+	private final long offset;
+	private final long size;
+	private final long compressedSize;
+	private final int method;
+	private final long crc;
+
+	public SiardArchiveEntry(FileEntry fileEntry) {
+		this.name = fileEntry.getName();
+		this.offset = fileEntry.getOffset();
+		this.size = fileEntry.getSize();
+		this.compressedSize = fileEntry.getCompressedSize();
+		this.method = fileEntry.getMethod();
+		this.crc = fileEntry.getCrc();
+	}
+
+	/**
+	 * @return Name des Eintrags, z.B. <code>content/schema0/table0/table0.xml</code>
+	 */
+	public String getName() {
+		return name;
+	}
+
+	/**
+	 * @return Position des lokalen Headers in der SIARD-Datei
+	 */
+	public long getOffset() {
+		return offset;
+	}
+
+	public long getSize() {
+		return size;
+	}
+
+	public long getCompressedSize() {
+		return compressedSize;
+	}
+
+	/**
+	 * @return Komprimierungsmethode, <code>FileEntry.iMETHOD_STORED</code> = 0 fr unkomprimiert
+	 */
+	public int getMethod() {
+		return method;
+	}
+
+	public long getCrc() {
+		return crc;
+	}
+
+	public boolean isDirectory() {
+		return name.endsWith("/");
+	}
+
+	@Override
+	public String toString() {
+		return name;
+	}
+}
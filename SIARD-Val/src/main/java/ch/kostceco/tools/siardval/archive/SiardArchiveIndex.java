@@ -0,0 +1,336 @@
+/*== SIARD-Val ==================================================================================
+The SIARD-Val application is used for validate SIARD-Files. 
+Copyright (C) 2012 Claire Rthlisberger (KOST-CECO), Martin Kaiser (KOST-CECO), XYZ (xyz)
+-----------------------------------------------------------------------------------------------
+SIARD-Val is a development of the KOST-CECO. All rights rest with the KOST-CECO. 
+This application is free software: you can redistribute it and/or modify it under the 
+terms of the GNU General Public License as published by the Free Software Foundation, 
+either version 3 of the License, or (at your option) any later version. 
+This application is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; 
+without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. 
+See the follow GNU General Public License for more details.
+You should have received a copy of the GNU General Public License along with this program; 
+if not, write to the Free Software Foundation, Inc., 51 Franklin Street, Fifth Floor, 
+Boston, MA 02110-1301 USA or see <http://www.gnu.org/licenses/>.
+==============================================================================================*/
+
+package ch.kostceco.tools.siardval.archive;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedSet;
+import java.util.TreeSet;
+
+import ch.enterag.utils.zip.EntryInputStream;
+import ch.enterag.utils.zip.FileEntry;
+import ch.enterag.utils.zip.Zip64File;
+import ch.kostceco.tools.siardval.metrics.Metrics;
+
+/**
+ * In-Memory Index einer SIARD-Datei. Das zentrale Verzeichnis wird genau
+ * einmal pro Validierung gelesen; alle Module fragen anschliessend diesen
+ * Index ab, anstatt die Datei selber erneut mit <code>Zip64File</code> zu
+ * ffnen.
+ *
+ * <p>
+ * Neben den Eintrgen (Name, Offset, Grsse, Methode und CRC) wird ein
+ * Verzeichnisbaum gefhrt. Verzeichnisse werden dabei auch dann erfasst,
+ * wenn das ZIP fr sie keinen eigenen Eintrag enthlt, z.B.
+ * <code>content/schema0/</code> fr <code>content/schema0/table0/table0.xml</code>.
+ * Verzeichnisnamen enden immer mit '/', die Wurzel ist "".
+ */
+public class SiardArchiveIndex {
+
+	public static final String ROOT = "";
+	public static final String HEADER = "header/";
+	public static final String CONTENT = "content/";
+
+	private final File siardDatei;
+	private final String systemIdBase;
+	private final Zip64File zipFile;
+	private final MappedEntryReader mappedReader;
+	private final List<SiardArchiveEntry> entries;
+	private final Map<String, SiardArchiveEntry> entriesByName;
+	private final Map<String, SortedSet<String>> directories;
+
+	/**
+	 * ffnet die SIARD-Datei nur lesend und liest das zentrale Verzeichnis.
+	 *
+	 * @param siardDatei
+	 *            die zu indexierende SIARD-Datei
+	 * @throws IOException
+	 *             falls die Datei kein lesbares ZIP(64) ist
+	 */
+	public SiardArchiveIndex(File siardDatei) throws IOException {
+		this.siardDatei = siardDatei;
+		this.systemIdBase = siardDatei.getAbsoluteFile().toURI().toString() + "/";
+		// nur lesend ffnen, Zip64File(File) wrde die Datei zum Schreiben ffnen
+		this.zipFile = new Zip64File(siardDatei, true);
+		List<FileEntry> fileEntryList = zipFile.getListFileEntries();
+		List<SiardArchiveEntry> list = new ArrayList<SiardArchiveEntry>(fileEntryList.size());
+		Map<String, SiardArchiveEntry> byName = new HashMap<String, SiardArchiveEntry>(fileEntryList.size() * 2);
+		Map<String, SortedSet<String>> tree = new HashMap<String, SortedSet<String>>();
+		tree.put(ROOT, new TreeSet<String>());
+		for (FileEntry fileEntry : fileEntryList) {
+			SiardArchiveEntry entry = new SiardArchiveEntry(fileEntry);
+			list.add(entry);
+			byName.put(entry.getName(), entry);
+			register(tree, entry.getName());
+		}
+		this.entries = Collections.unmodifiableList(list);
+		this.entriesByName = byName;
+		this.directories = tree;
+		try {
+			this.mappedReader = new MappedEntryReader(siardDatei);
+		} catch (IOException e) {
+			zipFile.close();
+			throw e;
+		}
+	}
+
+	/*
+	 * Hngt den Namen und alle seine Elternverzeichnisse in den Baum ein.
+	 */
+	private static void register(Map<String, SortedSet<String>> tree, String name) {
+		int start = 0;
+		String parent = ROOT;
+		while (start < name.length()) {
+			int slash = name.indexOf('/', start);
+			String child = (slash < 0) ? name.substring(start) : name.substring(start, slash + 1);
+			tree.get(parent).add(child);
+			if (slash < 0) {
+				break;
+			}
+			String directory = name.substring(0, slash + 1);
+			if (!tree.containsKey(directory)) {
+				tree.put(directory, new TreeSet<String>());
+			}
+			parent = directory;
+			start = slash + 1;
+		}
+	}
+
+	public File getSiardDatei() {
+		return siardDatei;
+	}
+
+	/**
+	 * @return alle Eintrge in der Reihenfolge des zentralen Verzeichnisses
+	 */
+	public List<SiardArchiveEntry> getEntries() {
+		return entries;
+	}
+
+	public int getEntryCount() {
+		return entries.size();
+	}
+
+	/**
+	 * @return der Eintrag oder null, falls er nicht in der SIARD-Datei ist
+	 */
+	public SiardArchiveEntry getEntry(String name) {
+		return entriesByName.get(name);
+	}
+
+	/**
+	 * @return true, falls <code>name</code> eine Datei in der SIARD-Datei ist
+	 */
+	public boolean isFile(String name) {
+		SiardArchiveEntry entry = entriesByName.get(name);
+		return entry != null && !entry.isDirectory();
+	}
+
+	/**
+	 * @return true, falls <code>path</code> ein (ggf. implizites) Verzeichnis
+	 *         ist. Der abschliessende '/' ist optional.
+	 */
+	public boolean isDirectory(String path) {
+		return directories.containsKey(toDirectory(path));
+	}
+
+	/**
+	 * @return true, falls <code>path</code> als Datei oder Verzeichnis existiert
+	 */
+	public boolean exists(String path) {
+		return entriesByName.containsKey(path) || isDirectory(path);
+	}
+
+	/**
+	 * Liefert die direkten Kinder eines Verzeichnisses, sortiert nach Namen.
+	 * Unterverzeichnisse enden mit '/'.
+	 *
+	 * @param path
+	 *            Verzeichnis, z.B. <code>content/</code> oder "" fr die Wurzel
+	 * @return die Kinder oder eine leere Menge, falls das Verzeichnis nicht existiert
+	 */
+	public SortedSet<String> getChildren(String path) {
+		SortedSet<String> children = directories.get(toDirectory(path));
+		if (children == null) {
+			return Collections.unmodifiableSortedSet(new TreeSet<String>());
+		}
+		return Collections.unmodifiableSortedSet(children);
+	}
+
+	/**
+	 * Liefert eine System-ID fr einen Eintrag, z.B.
+	 * <code>file:/daten/test.siard/header/metadata.xsd</code>. Relative
+	 * Verweise (xs:include, xs:import) lassen sich dagegen wie gewohnt
+	 * auflsen und mit <code>getEntryName</code> wieder einem Eintrag
+	 * zuordnen.
+	 */
+	public String getSystemId(String name) {
+		try {
+			return systemIdBase + new URI(null, null, name, null).getRawPath();
+		} catch (URISyntaxException e) {
+			return systemIdBase + name;
+		}
+	}
+
+	/**
+	 * @return der Name des Eintrags zur System-ID oder null, falls die
+	 *         System-ID nicht auf diese SIARD-Datei zeigt
+	 */
+	public String getEntryName(String systemId) {
+		if (systemId == null || !systemId.startsWith(systemIdBase)) {
+			return null;
+		}
+		String rawPath = systemId.substring(systemIdBase.length());
+		try {
+			return new URI(rawPath).getPath();
+		} catch (URISyntaxException e) {
+			return rawPath;
+		}
+	}
+
+	private static String toDirectory(String path) {
+		if (path.length() == 0 || path.endsWith("/")) {
+			return path;
+		}
+		return path + "/";
+	}
+
+	/**
+	 * ffnet einen Eintrag zum Lesen. Unkomprimierte Eintrge werden ber den
+	 * {@link MappedEntryReader} direkt aus der gemappten Datei gelesen.
+	 * Komprimierte Eintrge werden ber <code>Zip64File</code> gelesen; diese
+	 * Zugriffe werden synchronisiert, weil sich alle Streams eines
+	 * <code>Zip64File</code> denselben Dateizeiger teilen.
+	 *
+	 * @throws FileNotFoundException
+	 *             falls der Eintrag nicht existiert
+	 */
+	public InputStream openEntryInputStream(String name) throws IOException {
+		SiardArchiveEntry entry = entriesByName.get(name);
+		if (entry != null && MappedEntryReader.isSupported(entry)) {
+			return Metrics.count(mappedReader.openInputStream(entry), 1);
+		}
+		synchronized (zipFile) {
+			return Metrics.count(new SynchronizedEntryInputStream(zipFile.openEntryInputStream(name)), 1);
+		}
+	}
+
+	/**
+	 * Liefert die Daten eines unkomprimierten Eintrags ohne Kopie als
+	 * read-only <code>ByteBuffer</code>.
+	 *
+	 * @return der Buffer oder null, falls der Eintrag nicht existiert,
+	 *         komprimiert ist oder nicht gemappt werden kann
+	 */
+	public ByteBuffer getEntryBuffer(String name) throws IOException {
+		SiardArchiveEntry entry = entriesByName.get(name);
+		if (entry == null || !MappedEntryReader.isSupported(entry)) {
+			return null;
+		}
+		return mappedReader.getByteBuffer(entry);
+	}
+
+	/**
+	 * ffnet einen Stream auf einen Bereich der SIARD-Datei, unabhngig von
+	 * den Eintragsgrenzen.
+	 */
+	public InputStream openRangeInputStream(long start, long length) throws IOException {
+		return Metrics.count(mappedReader.openRangeInputStream(start, length), 0);
+	}
+
+	/**
+	 * @return die Position direkt nach dem Eintrag (Header, Daten und Data
+	 *         Descriptor) in der SIARD-Datei
+	 * @throws FileNotFoundException
+	 *             falls der Eintrag nicht existiert
+	 */
+	public long getEntryEnd(String name) throws IOException {
+		SiardArchiveEntry entry = entriesByName.get(name);
+		if (entry == null) {
+			throw new FileNotFoundException(name);
+		}
+		return mappedReader.getEntryEnd(entry);
+	}
+
+	/**
+	 * Schliesst die SIARD-Datei. Danach knnen keine Eintrge mehr gelesen
+	 * werden.
+	 */
+	public void close() throws IOException {
+		try {
+			mappedReader.close();
+		} finally {
+			synchronized (zipFile) {
+				zipFile.close();
+			}
+		}
+	}
+
+	private class SynchronizedEntryInputStream extends InputStream {
+
+		private final EntryInputStream eis;
+
+		SynchronizedEntryInputStream(EntryInputStream eis) {
+			this.eis = eis;
+		}
+
+		@Override
+		public int read() throws IOException {
+			synchronized (zipFile) {
+				return eis.read();
+			}
+		}
+
+		@Override
+		public int read(byte[] b, int off, int len) throws IOException {
+			synchronized (zipFile) {
+				return eis.read(b, off, len);
+			}
+		}
+
+		@Override
+		public long skip(long n) throws IOException {
+			synchronized (zipFile) {
+				return eis.skip(n);
+			}
+		}
+
+		@Override
+		public int available() throws IOException {
+			synchronized (zipFile) {
+				return eis.available();
+			}
+		}
+
+		@Override
+		public void close() throws IOException {
+			synchronized (zipFile) {
+				eis.close();
+			}
+		}
+	}
+}
@@ -0,0 +1,769 @@
+/*== SIARD-Val ==================================================================================
+The SIARD-Val application is used for validate SIARD-Files. 
+Copyright (C) 2012 Claire Rthlisberger (KOST-CECO), Martin Kaiser (KOST-CECO), XYZ (xyz)
+-----------------------------------------------------------------------------------------------
+SIARD-Val is a development of the KOST-CECO. All rights rest with the KOST-CECO. 
+This application is free software: you can redistribute it and/or modify it under the 
+terms of the GNU General Public License as published by the Free Software Foundation, 
+either version 3 of the License, or (at your option) any later version. 
+This application is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; 
+without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. 
+See the follow GNU General Public License for more details.
+You should have received a copy of the GNU General Public License along with this program; 
+if not, write to the Free Software Foundation, Inc., 51 Franklin Street, Fifth Floor, 
+Boston, MA 02110-1301 USA or see <http://www.gnu.org/licenses/>.
+==============================================================================================*/
+
+package ch.kostceco.tools.siardval.archive;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+/**
+ * Die Angaben aus header/metadata.xml, die die Validierungsmodule brauchen:
+ * Schemas, Tabellen, Spalten (Name, Typ, nullable), Anzahl Zeilen,
+ * Primr-, Kandidaten- und Fremdschlssel sowie die Ordnernamen.
+ * <p>
+ * metadata.xml wird einmal pro Validierung mit StAX gelesen (siehe
+ * {@link ch.kostceco.tools.siardval.service.ArchiveService#getMetadata}).
+ * Das Modell ist unvernderlich und wird von allen Modulen, auch parallel,
+ * gelesen. Die Angaben liegen in Arrays, adressiert ber fortlaufende
+ * Nummern: die Tabellen eines Schemas sind die Nummern von
+ * {@link #getFirstTable(int)} bis vor {@link #getTableEnd(int)}, ebenso die
+ * Spalten und Schlssel einer Tabelle. Wiederholte Werte wie Spaltentypen
+ * werden nur einmal gehalten.
+ * <p>
+ * Texte stehen so, wie sie in metadata.xml stehen, also nicht getrimmt;
+ * fehlt ein Element, ist der Wert null.
+ */
+public final class SiardMetadata {
+
+	/** Eintrag von metadata.xml in der SIARD-Datei */
+	public static final String ENTRY = SiardArchiveIndex.HEADER + "metadata.xml";
+
+	private final String namespaceURI;
+	private final String messageDigest;
+
+	private final String[] schemaNames;
+	private final String[] schemaFolders;
+	private final boolean[] schemaTables;
+	private final int[] firstTables;
+
+	private final String[] tableNames;
+	private final String[] tableFolders;
+	private final long[] tableRows;
+	private final boolean[] tableColumns;
+	private final int[] firstColumns;
+	private final int[] firstKeys;
+	private final int[] firstForeignKeys;
+
+	private final String[] columnNames;
+	private final String[] columnTypes;
+	private final String[] columnNullables;
+
+	private final String[] keyNames;
+	private final boolean[] primaryKeys;
+	private final int[] firstKeyColumns;
+	private final String[] keyColumns;
+
+	private final String[] foreignKeyNames;
+	private final String[] referencedSchemas;
+	private final String[] referencedTables;
+	private final int[] firstReferences;
+	private final String[] referenceColumns;
+	private final String[] referencedColumns;
+
+	private final Map<String, Integer> schemasByFolder;
+	private final Map<String, Integer> tablesByFolder;
+
+	private SiardMetadata(Builder builder) {
+		this.namespaceURI = builder.namespaceURI;
+		this.messageDigest = builder.messageDigest;
+		this.schemaNames = toArray(builder.schemaNames);
+		this.schemaFolders = toArray(builder.schemaFolders);
+		this.schemaTables = builder.schemaTables.toArray();
+		this.firstTables = builder.firstTables.toArray();
+		this.tableNames = toArray(builder.tableNames);
+		this.tableFolders = toArray(builder.tableFolders);
+		this.tableRows = builder.tableRows.toArray();
+		this.tableColumns = builder.tableColumns.toArray();
+		this.firstColumns = builder.firstColumns.toArray();
+		this.firstKeys = builder.firstKeys.toArray();
+		this.firstForeignKeys = builder.firstForeignKeys.toArray();
+		this.columnNames = toArray(builder.columnNames);
+		this.columnTypes = toArray(builder.columnTypes);
+		this.columnNullables = toArray(builder.columnNullables);
+		this.keyNames = toArray(builder.keyNames);
+		this.primaryKeys = builder.primaryKeys.toArray();
+		this.firstKeyColumns = builder.firstKeyColumns.toArray();
+		this.keyColumns = toArray(builder.keyColumns);
+		this.foreignKeyNames = toArray(builder.foreignKeyNames);
+		this.referencedSchemas = toArray(builder.referencedSchemas);
+		this.referencedTables = toArray(builder.referencedTables);
+		this.firstReferences = builder.firstReferences.toArray();
+		this.referenceColumns = toArray(builder.referenceColumns);
+		this.referencedColumns = toArray(builder.referencedColumns);
+
+		// bei doppelten Ordnernamen gilt wie bei einer XPath-Abfrage der erste
+		schemasByFolder = new HashMap<String, Integer>(schemaNames.length * 2);
+		for (int schema = schemaNames.length - 1; schema >= 0; schema--) {
+			if (schemaFolders[schema] != null) {
+				schemasByFolder.put(schemaFolders[schema], Integer.valueOf(schema));
+			}
+		}
+		tablesByFolder = new HashMap<String, Integer>(tableNames.length * 2);
+		for (int schema = schemaNames.length - 1; schema >= 0; schema--) {
+			for (int table = getTableEnd(schema) - 1; table >= getFirstTable(schema); table--) {
+				if (schemaFolders[schema] != null && tableFolders[table] != null) {
+					tablesByFolder.put(schemaFolders[schema] + "/" + tableFolders[table], Integer.valueOf(table));
+				}
+			}
+		}
+	}
+
+	/**
+	 * Liest metadata.xml; der Stream wird nicht geschlossen.
+	 *
+	 * @throws XMLStreamException
+	 *             falls metadata.xml nicht wohlgeformt ist
+	 */
+	public static SiardMetadata parse(InputStream in) throws IOException, XMLStreamException {
+		XMLInputFactory factory = XMLInputFactory.newInstance();
+		factory.setProperty(XMLInputFactory.IS_NAMESPACE_AWARE, Boolean.TRUE);
+		factory.setProperty(XMLInputFactory.IS_COALESCING, Boolean.FALSE);
+		factory.setProperty(XMLInputFactory.SUPPORT_DTD, Boolean.FALSE);
+		XMLStreamReader reader = factory.createXMLStreamReader(in);
+		Builder builder = new Builder();
+		try {
+			builder.read(reader);
+		} finally {
+			reader.close();
+		}
+		return new SiardMetadata(builder);
+	}
+
+	/**
+	 * @return Namespace des Wurzelelements
+	 */
+	public String getNamespaceURI() {
+		return namespaceURI;
+	}
+
+	/**
+	 * @return Inhalt von messageDigest oder null
+	 */
+	public String getMessageDigest() {
+		return messageDigest;
+	}
+
+	public int getSchemaCount() {
+		return schemaNames.length;
+	}
+
+	public String getSchemaName(int schema) {
+		return schemaNames[schema];
+	}
+
+	public String getSchemaFolder(int schema) {
+		return schemaFolders[schema];
+	}
+
+	/**
+	 * @return false, falls das Schema kein Element tables hat
+	 */
+	public boolean hasTables(int schema) {
+		return schemaTables[schema];
+	}
+
+	public int getFirstTable(int schema) {
+		return firstTables[schema];
+	}
+
+	public int getTableEnd(int schema) {
+		return firstTables[schema + 1];
+	}
+
+	/**
+	 * @return Nummer des Schemas mit dem Ordner oder -1
+	 */
+	public int getSchema(String folder) {
+		Integer schema = schemasByFolder.get(folder);
+		return schema == null ? -1 : schema.intValue();
+	}
+
+	public int getTableCount() {
+		return tableNames.length;
+	}
+
+	public String getTableName(int table) {
+		return tableNames[table];
+	}
+
+	public String getTableFolder(int table) {
+		return tableFolders[table];
+	}
+
+	/**
+	 * @return Anzahl Zeilen gemss metadata.xml, -1 falls nicht oder nicht
+	 *         als Zahl angegeben
+	 */
+	public long getTableRows(int table) {
+		return tableRows[table];
+	}
+
+	/**
+	 * @return false, falls die Tabelle kein Element columns hat
+	 */
+	public boolean hasColumns(int table) {
+		return tableColumns[table];
+	}
+
+	/**
+	 * @return Nummer der Tabelle in schemaFolder mit dem Ordner tableFolder
+	 *         oder -1
+	 */
+	public int getTable(String schemaFolder, String tableFolder) {
+		Integer table = tablesByFolder.get(schemaFolder + "/" + tableFolder);
+		return table == null ? -1 : table.intValue();
+	}
+
+	public int getFirstColumn(int table) {
+		return firstColumns[table];
+	}
+
+	public int getColumnEnd(int table) {
+		return firstColumns[table + 1];
+	}
+
+	public String getColumnName(int column) {
+		return columnNames[column];
+	}
+
+	public String getColumnType(int column) {
+		return columnTypes[column];
+	}
+
+	/**
+	 * @return Inhalt von nullable, z.B. "true"
+	 */
+	public String getColumnNullable(int column) {
+		return columnNullables[column];
+	}
+
+	/**
+	 * Primrschlssel und Kandidatenschlssel der Tabelle, in der
+	 * Reihenfolge von metadata.xml.
+	 */
+	public int getFirstKey(int table) {
+		return firstKeys[table];
+	}
+
+	public int getKeyEnd(int table) {
+		return firstKeys[table + 1];
+	}
+
+	public String getKeyName(int key) {
+		return keyNames[key];
+	}
+
+	public boolean isPrimaryKey(int key) {
+		return primaryKeys[key];
+	}
+
+	public int getFirstKeyColumn(int key) {
+		return firstKeyColumns[key];
+	}
+
+	public int getKeyColumnEnd(int key) {
+		return firstKeyColumns[key + 1];
+	}
+
+	public String getKeyColumn(int keyColumn) {
+		return keyColumns[keyColumn];
+	}
+
+	public int getFirstForeignKey(int table) {
+		return firstForeignKeys[table];
+	}
+
+	public int getForeignKeyEnd(int table) {
+		return firstForeignKeys[table + 1];
+	}
+
+	public String getForeignKeyName(int foreignKey) {
+		return foreignKeyNames[foreignKey];
+	}
+
+	public String getReferencedSchema(int foreignKey) {
+		return referencedSchemas[foreignKey];
+	}
+
+	public String getReferencedTable(int foreignKey) {
+		return referencedTables[foreignKey];
+	}
+
+	public int getFirstReference(int foreignKey) {
+		return firstReferences[foreignKey];
+	}
+
+	public int getReferenceEnd(int foreignKey) {
+		return firstReferences[foreignKey + 1];
+	}
+
+	/**
+	 * @return Inhalt von column der Referenz
+	 */
+	public String getReferenceColumn(int reference) {
+		return referenceColumns[reference];
+	}
+
+	/**
+	 * @return Inhalt von referenced der Referenz
+	 */
+	public String getReferencedColumn(int reference) {
+		return referencedColumns[reference];
+	}
+
+	private static String[] toArray(List<String> list) {
+		return list.toArray(new String[list.size()]);
+	}
+
+	/*
+	 * Sammelt die Angaben beim Lesen. Jedes gelesene Element hat einen
+	 * Zustand, der sich aus dem Zustand des Elternelements und dem Namen
+	 * ergibt; Elemente ohne Bedeutung fr das Modell werden samt Inhalt
+	 * bersprungen.
+	 */
+	private static final class Builder {
+
+		private static final int ROOT = 0;
+		private static final int MESSAGE_DIGEST = 1;
+		private static final int SCHEMAS = 2;
+		private static final int SCHEMA = 3;
+		private static final int SCHEMA_NAME = 4;
+		private static final int SCHEMA_FOLDER = 5;
+		private static final int TABLES = 6;
+		private static final int TABLE = 7;
+		private static final int TABLE_NAME = 8;
+		private static final int TABLE_FOLDER = 9;
+		private static final int TABLE_ROWS = 10;
+		private static final int COLUMNS = 11;
+		private static final int COLUMN = 12;
+		private static final int COLUMN_NAME = 13;
+		private static final int COLUMN_TYPE = 14;
+		private static final int COLUMN_NULLABLE = 15;
+		private static final int CANDIDATE_KEYS = 16;
+		private static final int KEY = 17;
+		private static final int KEY_NAME = 18;
+		private static final int KEY_COLUMN = 19;
+		private static final int FOREIGN_KEYS = 20;
+		private static final int FOREIGN_KEY = 21;
+		private static final int FOREIGN_KEY_NAME = 22;
+		private static final int REFERENCED_SCHEMA = 23;
+		private static final int REFERENCED_TABLE = 24;
+		private static final int REFERENCE = 25;
+		private static final int REFERENCE_COLUMN = 26;
+		private static final int REFERENCED_COLUMN = 27;
+		private static final int IGNORED = -1;
+
+		private String namespaceURI;
+		private String messageDigest;
+
+		private final List<String> schemaNames = new ArrayList<String>();
+		private final List<String> schemaFolders = new ArrayList<String>();
+		private final BooleanList schemaTables = new BooleanList();
+		private final IntList firstTables = new IntList();
+
+		private final List<String> tableNames = new ArrayList<String>();
+		private final List<String> tableFolders = new ArrayList<String>();
+		private final LongList tableRows = new LongList();
+		private final BooleanList tableColumns = new BooleanList();
+		private final IntList firstColumns = new IntList();
+		private final IntList firstKeys = new IntList();
+		private final IntList firstForeignKeys = new IntList();
+
+		private final List<String> columnNames = new ArrayList<String>();
+		private final List<String> columnTypes = new ArrayList<String>();
+		private final List<String> columnNullables = new ArrayList<String>();
+
+		private final List<String> keyNames = new ArrayList<String>();
+		private final BooleanList primaryKeys = new BooleanList();
+		private final IntList firstKeyColumns = new IntList();
+		private final List<String> keyColumns = new ArrayList<String>();
+
+		private final List<String> foreignKeyNames = new ArrayList<String>();
+		private final List<String> referencedSchemas = new ArrayList<String>();
+		private final List<String> referencedTables = new ArrayList<String>();
+		private final IntList firstReferences = new IntList();
+		private final List<String> referenceColumns = new ArrayList<String>();
+		private final List<String> referencedColumns = new ArrayList<String>();
+
+		/* wiederholte Werte, z.B. Spaltentypen, werden nur einmal gehalten */
+		private final Map<String, String> values = new HashMap<String, String>();
+
+		void read(XMLStreamReader reader) throws XMLStreamException {
+			int[] states = new int[16];
+			int depth = 0;
+			StringBuilder text = new StringBuilder();
+			while (reader.hasNext()) {
+				int event = reader.next();
+				if (event == XMLStreamConstants.START_ELEMENT) {
+					int state;
+					if (depth == 0) {
+						namespaceURI = reader.getNamespaceURI();
+						state = ROOT;
+					} else if (states[depth - 1] == IGNORED || !equals(namespaceURI, reader.getNamespaceURI())) {
+						state = IGNORED;
+					} else {
+						state = start(states[depth - 1], reader.getLocalName());
+					}
+					if (depth == states.length) {
+						states = Arrays.copyOf(states, depth * 2);
+					}
+					states[depth++] = state;
+					text.setLength(0);
+				} else if (event == XMLStreamConstants.END_ELEMENT) {
+					end(states[--depth], text);
+				} else if (event == XMLStreamConstants.CHARACTERS || event == XMLStreamConstants.CDATA
+						|| event == XMLStreamConstants.SPACE) {
+					if (depth > 0 && isText(states[depth - 1])) {
+						text.append(reader.getTextCharacters(), reader.getTextStart(), reader.getTextLength());
+					}
+				}
+			}
+			// Endmarken, damit auch die letzten Bereiche ein Ende haben
+			firstTables.add(tableNames.size());
+			firstColumns.add(columnNames.size());
+			firstKeys.add(keyNames.size());
+			firstForeignKeys.add(foreignKeyNames.size());
+			firstKeyColumns.add(keyColumns.size());
+			firstReferences.add(referenceColumns.size());
+		}
+
+		private int start(int parent, String name) {
+			switch (parent) {
+			case ROOT:
+				if ("messageDigest".equals(name)) {
+					return MESSAGE_DIGEST;
+				}
+				return "schemas".equals(name) ? SCHEMAS : IGNORED;
+			case SCHEMAS:
+				if ("schema".equals(name)) {
+					schemaNames.add(null);
+					schemaFolders.add(null);
+					schemaTables.add(false);
+					firstTables.add(tableNames.size());
+					return SCHEMA;
+				}
+				return IGNORED;
+			case SCHEMA:
+				if ("name".equals(name)) {
+					return SCHEMA_NAME;
+				}
+				if ("folder".equals(name)) {
+					return SCHEMA_FOLDER;
+				}
+				if ("tables".equals(name)) {
+					schemaTables.set(schemaTables.size() - 1, true);
+					return TABLES;
+				}
+				return IGNORED;
+			case TABLES:
+				if ("table".equals(name)) {
+					tableNames.add(null);
+					tableFolders.add(null);
+					tableRows.add(-1);
+					tableColumns.add(false);
+					firstColumns.add(columnNames.size());
+					firstKeys.add(keyNames.size());
+					firstForeignKeys.add(foreignKeyNames.size());
+					return TABLE;
+				}
+				return IGNORED;
+			case TABLE:
+				if ("name".equals(name)) {
+					return TABLE_NAME;
+				}
+				if ("folder".equals(name)) {
+					return TABLE_FOLDER;
+				}
+				if ("rows".equals(name)) {
+					return TABLE_ROWS;
+				}
+				if ("columns".equals(name)) {
+					tableColumns.set(tableColumns.size() - 1, true);
+					return COLUMNS;
+				}
+				if ("primaryKey".equals(name)) {
+					startKey(true);
+					return KEY;
+				}
+				if ("candidateKeys".equals(name)) {
+					return CANDIDATE_KEYS;
+				}
+				return "foreignKeys".equals(name) ? FOREIGN_KEYS : IGNORED;
+			case COLUMNS:
+				if ("column".equals(name)) {
+					columnNames.add(null);
+					columnTypes.add(null);
+					columnNullables.add(null);
+					return COLUMN;
+				}
+				return IGNORED;
+			case COLUMN:
+				if ("name".equals(name)) {
+					return COLUMN_NAME;
+				}
+				if ("type".equals(name)) {
+					return COLUMN_TYPE;
+				}
+				return "nullable".equals(name) ? COLUMN_NULLABLE : IGNORED;
+			case CANDIDATE_KEYS:
+				if ("candidateKey".equals(name)) {
+					startKey(false);
+					return KEY;
+				}
+				return IGNORED;
+			case KEY:
+				if ("name".equals(name)) {
+					return KEY_NAME;
+				}
+				return "column".equals(name) ? KEY_COLUMN : IGNORED;
+			case FOREIGN_KEYS:
+				if ("foreignKey".equals(name)) {
+					foreignKeyNames.add(null);
+					referencedSchemas.add(null);
+					referencedTables.add(null);
+					firstReferences.add(referenceColumns.size());
+					return FOREIGN_KEY;
+				}
+				return IGNORED;
+			case FOREIGN_KEY:
+				if ("name".equals(name)) {
+					return FOREIGN_KEY_NAME;
+				}
+				if ("referencedSchema".equals(name)) {
+					return REFERENCED_SCHEMA;
+				}
+				if ("referencedTable".equals(name)) {
+					return REFERENCED_TABLE;
+				}
+				if ("reference".equals(name)) {
+					referenceColumns.add(null);
+					referencedColumns.add(null);
+					return REFERENCE;
+				}
+				return IGNORED;
+			case REFERENCE:
+				if ("column".equals(name)) {
+					return REFERENCE_COLUMN;
+				}
+				return "referenced".equals(name) ? REFERENCED_COLUMN : IGNORED;
+			default:
+				return IGNORED;
+			}
+		}
+
+		private void startKey(boolean primary) {
+			keyNames.add(null);
+			primaryKeys.add(primary);
+			firstKeyColumns.add(keyColumns.size());
+		}
+
+		private void end(int state, StringBuilder text) {
+			switch (state) {
+			case MESSAGE_DIGEST:
+				if (messageDigest == null) {
+					messageDigest = text.toString();
+				}
+				break;
+			case SCHEMA_NAME:
+				setFirst(schemaNames, text);
+				break;
+			case SCHEMA_FOLDER:
+				setFirst(schemaFolders, text);
+				break;
+			case TABLE_NAME:
+				setFirst(tableNames, text);
+				break;
+			case TABLE_FOLDER:
+				setFirst(tableFolders, text);
+				break;
+			case TABLE_ROWS:
+				if (tableRows.get(tableRows.size() - 1) < 0) {
+					tableRows.set(tableRows.size() - 1, parseRows(text.toString()));
+				}
+				break;
+			case COLUMN_NAME:
+				setFirst(columnNames, text);
+				break;
+			case COLUMN_TYPE:
+				setFirst(columnTypes, text);
+				break;
+			case COLUMN_NULLABLE:
+				setFirst(columnNullables, text);
+				break;
+			case KEY_NAME:
+				setFirst(keyNames, text);
+				break;
+			case KEY_COLUMN:
+				keyColumns.add(value(text));
+				break;
+			case FOREIGN_KEY_NAME:
+				setFirst(foreignKeyNames, text);
+				break;
+			case REFERENCED_SCHEMA:
+				setFirst(referencedSchemas, text);
+				break;
+			case REFERENCED_TABLE:
+				setFirst(referencedTables, text);
+				break;
+			case REFERENCE_COLUMN:
+				setFirst(referenceColumns, text);
+				break;
+			case REFERENCED_COLUMN:
+				setFirst(referencedColumns, text);
+				break;
+			default:
+				break;
+			}
+		}
+
+		/* wie getChild(): bei mehrfachen Elementen gilt das erste */
+		private void setFirst(List<String> list, StringBuilder text) {
+			int last = list.size() - 1;
+			if (list.get(last) == null) {
+				list.set(last, value(text));
+			}
+		}
+
+		private String value(StringBuilder text) {
+			String value = text.toString();
+			String known = values.get(value);
+			if (known == null) {
+				values.put(value, value);
+				return value;
+			}
+			return known;
+		}
+
+		private static boolean isText(int state) {
+			switch (state) {
+			case MESSAGE_DIGEST:
+			case SCHEMA_NAME:
+			case SCHEMA_FOLDER:
+			case TABLE_NAME:
+			case TABLE_FOLDER:
+			case TABLE_ROWS:
+			case COLUMN_NAME:
+			case COLUMN_TYPE:
+			case COLUMN_NULLABLE:
+			case KEY_NAME:
+			case KEY_COLUMN:
+			case FOREIGN_KEY_NAME:
+			case REFERENCED_SCHEMA:
+			case REFERENCED_TABLE:
+			case REFERENCE_COLUMN:
+			case REFERENCED_COLUMN:
+				return true;
+			default:
+				return false;
+			}
+		}
+
+		private static long parseRows(String rows) {
+			try {
+				return Long.parseLong(rows.trim());
+			} catch (NumberFormatException e) {
+				return -1;
+			}
+		}
+
+		private static boolean equals(String a, String b) {
+			return a == null ? b == null : a.equals(b);
+		}
+	}
+
+	/* wachsende Arrays primitiver Werte, nur fr den Builder */
+
+	private static final class IntList {
+
+		private int[] values = new int[64];
+		private int size;
+
+		void add(int value) {
+			if (size == values.length) {
+				values = Arrays.copyOf(values, size * 2);
+			}
+			values[size++] = value;
+		}
+
+		int[] toArray() {
+			return Arrays.copyOf(values, size);
+		}
+	}
+
+	private static final class LongList {
+
+		private long[] values = new long[64];
+		private int size;
+
+		void add(long value) {
+			if (size == values.length) {
+				values = Arrays.copyOf(values, size * 2);
+			}
+			values[size++] = value;
+		}
+
+		long get(int index) {
+			return values[index];
+		}
+
+		void set(int index, long value) {
+			values[index] = value;
+		}
+
+		int size() {
+			return size;
+		}
+
+		long[] toArray() {
+			return Arrays.copyOf(values, size);
+		}
+	}
+
+	private static final class BooleanList {
+
+		private boolean[] values = new boolean[64];
+		private int size;
+
+		void add(boolean value) {
+			if (size == values.length) {
+				values = Arrays.copyOf(values, size * 2);
+			}
+			values[size++] = value;
+		}
+
+		void set(int index, boolean value) {
+			values[index] = value;
+		}
+
+		int size() {
+			return size;
+		}
+
+		boolean[] toArray() {
+			return Arrays.copyOf(values, size);
+		}
+	}
+}
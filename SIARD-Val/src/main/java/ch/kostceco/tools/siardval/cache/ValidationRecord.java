@@ -0,0 +1,172 @@
+/*== SIARD-Val ==================================================================================
+The SIARD-Val application is used for validate SIARD-Files. 
+Copyright (C) 2012 Claire Rthlisberger (KOST-CECO), Martin Kaiser (KOST-CECO), XYZ (xyz)
+-----------------------------------------------------------------------------------------------
+SIARD-Val is a development of the KOST-CECO. All rights rest with the KOST-CECO. 
+This application is free software: you can redistribute it and/or modify it under the 
+terms of the GNU General Public License as published by the Free Software Foundation, 
+either version 3 of the License, or (at your option) any later version. 
+This application is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; 
+without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. 
+See the follow GNU General Public License for more details.
+You should have received a copy of the GNU General Public License along with this program; 
+if not, write to the Free Software Foundation, Inc., 51 Franklin Street, Fifth Floor, 
+Boston, MA 02110-1301 USA or see <http://www.gnu.org/licenses/>.
+==============================================================================================*/
+
+package ch.kostceco.tools.siardval.cache;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Ergebnis einer Validierung, wie es im Ergebnis-Cache abgelegt wird: pro
+ * ausgegebenem Validierungsschritt das Resultat und die Meldungen des
+ * Moduls, in Ausgabereihenfolge.
+ */
+public class ValidationRecord {
+
+    private static final int FORMAT = 1;
+
+    /**
+     * Resultat eines Validierungsschrittes.
+     */
+    public static class Step {
+
+        public static final int VALID = 0;
+        public static final int INVALID = 1;
+        /* das Modul hat eine SIARDValException geworfen */
+        public static final int INVALID_EXCEPTION = 2;
+
+        private final String id;
+        private final int result;
+        private final String exceptionMessage;
+        private final List<String[]> messages;
+
+        /**
+         * @param messages Meldungen des Moduls als Paare aus Level und Text
+         *            (siehe MessageService)
+         */
+        public Step(String id, int result, String exceptionMessage, List<String[]> messages) {
+            this.id = id;
+            this.result = result;
+            this.exceptionMessage = exceptionMessage;
+            this.messages = Collections.unmodifiableList(new ArrayList<String[]>(messages));
+        }
+
+        public String getId() {
+            return id;
+        }
+
+        public int getResult() {
+            return result;
+        }
+
+        public String getExceptionMessage() {
+            return exceptionMessage;
+        }
+
+        public List<String[]> getMessages() {
+            return messages;
+        }
+    }
+
+    private final Map<String, Step> steps = new LinkedHashMap<String, Step>();
+    private final long created;
+
+    public ValidationRecord() {
+        this(System.currentTimeMillis());
+    }
+
+    private ValidationRecord(long created) {
+        this.created = created;
+    }
+
+    /**
+     * @return Zeitpunkt der Validierung
+     */
+    public long getCreated() {
+        return created;
+    }
+
+    public synchronized void add(Step step) {
+        steps.put(step.getId(), step);
+    }
+
+    /**
+     * @return das Resultat des Schrittes oder null, falls er nicht
+     *         ausgegeben wurde
+     */
+    public synchronized Step getStep(String id) {
+        return steps.get(id);
+    }
+
+    public synchronized void write(DataOutputStream out) throws IOException {
+        out.writeInt(FORMAT);
+        out.writeLong(created);
+        out.writeInt(steps.size());
+        for (Step step : steps.values()) {
+            writeString(out, step.id);
+            out.writeInt(step.result);
+            writeString(out, step.exceptionMessage);
+            out.writeInt(step.messages.size());
+            for (String[] message : step.messages) {
+                writeString(out, message[0]);
+                writeString(out, message[1]);
+            }
+        }
+    }
+
+    /**
+     * @throws IOException auch falls die Daten in einem anderen Format
+     *             abgelegt wurden
+     */
+    public static ValidationRecord read(DataInputStream in) throws IOException {
+        if (in.readInt() != FORMAT) {
+            throw new IOException("unbekanntes Format");
+        }
+        ValidationRecord record = new ValidationRecord(in.readLong());
+        int count = in.readInt();
+        for (int i = 0; i < count; i++) {
+            String id = readString(in);
+            int result = in.readInt();
+            String exceptionMessage = readString(in);
+            int messageCount = in.readInt();
+            List<String[]> messages = new ArrayList<String[]>(messageCount);
+            for (int j = 0; j < messageCount; j++) {
+                messages.add(new String[] { readString(in), readString(in) });
+            }
+            record.add(new Step(id, result, exceptionMessage, messages));
+        }
+        return record;
+    }
+
+    /*
+     * writeUTF ist auf 64 KB beschrnkt, Meldungen knnen lnger sein.
+     */
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        if (value == null) {
+            out.writeInt(-1);
+            return;
+        }
+        byte[] bytes = value.getBytes("UTF-8");
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        int length = in.readInt();
+        if (length < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        return new String(bytes, "UTF-8");
+    }
+}
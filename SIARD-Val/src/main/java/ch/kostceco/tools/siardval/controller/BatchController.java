@@ -0,0 +1,399 @@
+/*== SIARD-Val ==================================================================================
+The SIARD-Val application is used for validate SIARD-Files. 
+Copyright (C) 2012 Claire Rthlisberger (KOST-CECO), Martin Kaiser (KOST-CECO), XYZ (xyz)
+-----------------------------------------------------------------------------------------------
+SIARD-Val is a development of the KOST-CECO. All rights rest with the KOST-CECO. 
+This application is free software: you can redistribute it and/or modify it under the 
+terms of the GNU General Public License as published by the Free Software Foundation, 
+either version 3 of the License, or (at your option) any later version. 
+This application is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; 
+without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. 
+See the follow GNU General Public License for more details.
+You should have received a copy of the GNU General Public License along with this program; 
+if not, write to the Free Software Foundation, Inc., 51 Franklin Street, Fifth Floor, 
+Boston, MA 02110-1301 USA or see <http://www.gnu.org/licenses/>.
+==============================================================================================*/
+
+package ch.kostceco.tools.siardval.controller;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Pattern;
+
+import org.springframework.beans.factory.ObjectFactory;
+
+import ch.kostceco.tools.siardval.logging.LogConfigurator;
+import ch.kostceco.tools.siardval.logging.Logger;
+import ch.kostceco.tools.siardval.logging.MessageConstants;
+import ch.kostceco.tools.siardval.service.ArchiveService;
+import ch.kostceco.tools.siardval.service.ConfigurationService;
+import ch.kostceco.tools.siardval.service.MetricsService;
+import ch.kostceco.tools.siardval.service.TextResourceService;
+import ch.kostceco.tools.siardval.service.WorkDirService;
+
+/**
+ * SIARDVal -->
+ *
+ * Validiert viele SIARD-Dateien in einer JVM. Die Dateien werden auf einem
+ * Pool von Workern validiert, die grssten zuerst, damit am Ende keine grosse
+ * Datei allein luft. Jede Datei erhlt einen eigenen {@link Controller} mit
+ * eigenen Modulen und ihr eigenes Log; die Services mit ihren Caches
+ * (Schemas, Konfiguration, Texte) werden geteilt.
+ * <p>
+ * Als Eingabe sind SIARD-Dateien, Verzeichnisse (rekursiv alle
+ * <code>.siard</code>-Dateien), Muster mit <code>*</code> und <code>?</code>
+ * im Dateinamen sowie Listen-Dateien (<code>@liste.txt</code>, eine Eingabe
+ * pro Zeile) mglich.
+ */
+public class BatchController implements MessageConstants {
+
+    private static final Logger LOGGER = new Logger(BatchController.class);
+
+    public static final String SUMMARY_NAME = "SIARDVal-batch.summary.log";
+
+    private static final String SIARD_EXTENSION = ".siard";
+
+    private static final int RESULT_VALID = 0;
+    private static final int RESULT_INVALID = 1;
+    private static final int RESULT_ERROR = 2;
+
+    private TextResourceService textResourceService;
+    private ConfigurationService configurationService;
+    private ArchiveService archiveService;
+    private WorkDirService workDirService;
+    private LogConfigurator logConfigurator;
+    private ObjectFactory<?> controllerFactory;
+    private MetricsService metricsService;
+
+    private final int[] counts = new int[3];
+    private PrintWriter summary;
+    private int total;
+    private int completed;
+    private boolean force;
+
+    public TextResourceService getTextResourceService() {
+        return textResourceService;
+    }
+    public void setTextResourceService(TextResourceService textResourceService) {
+        this.textResourceService = textResourceService;
+    }
+
+    public ConfigurationService getConfigurationService() {
+        return configurationService;
+    }
+    public void setConfigurationService(ConfigurationService configurationService) {
+        this.configurationService = configurationService;
+    }
+
+    public ArchiveService getArchiveService() {
+        return archiveService;
+    }
+    public void setArchiveService(ArchiveService archiveService) {
+        this.archiveService = archiveService;
+    }
+
+    public WorkDirService getWorkDirService() {
+        return workDirService;
+    }
+    public void setWorkDirService(WorkDirService workDirService) {
+        this.workDirService = workDirService;
+    }
+
+    public LogConfigurator getLogConfigurator() {
+        return logConfigurator;
+    }
+    public void setLogConfigurator(LogConfigurator logConfigurator) {
+        this.logConfigurator = logConfigurator;
+    }
+
+    public ObjectFactory<?> getControllerFactory() {
+        return controllerFactory;
+    }
+    /**
+     * @param controllerFactory
+     *            liefert fr jede SIARD-Datei einen neuen Controller (Bean
+     *            mit scope="prototype")
+     */
+    public void setControllerFactory(ObjectFactory<?> controllerFactory) {
+        this.controllerFactory = controllerFactory;
+    }
+
+    public MetricsService getMetricsService() {
+        return metricsService;
+    }
+    public void setMetricsService(MetricsService metricsService) {
+        this.metricsService = metricsService;
+    }
+
+    /**
+     * Sucht die SIARD-Dateien zu den Eingaben. Doppelte Angaben werden nur
+     * einmal validiert; nicht gefundene Eingaben werden gemeldet.
+     * @return die SIARD-Dateien, die grssten zuerst
+     */
+    public List<File> collect(String[] inputs) {
+        Map<String, File> files = new LinkedHashMap<String, File>();
+        for (String input : inputs) {
+            collect(input, files);
+        }
+        List<File> result = new ArrayList<File>(files.values());
+        Collections.sort(result, new Comparator<File>() {
+            @Override
+            public int compare(File f1, File f2) {
+                long l1 = f1.length();
+                long l2 = f2.length();
+                return l1 > l2 ? -1 : (l1 < l2 ? 1 : 0);
+            }
+        });
+        return result;
+    }
+
+    private void collect(String input, Map<String, File> files) {
+        if (input.startsWith("@")) {
+            File list = new File(input.substring(1));
+            try {
+                BufferedReader reader = new BufferedReader(new FileReader(list));
+                try {
+                    String line;
+                    while ((line = reader.readLine()) != null) {
+                        line = line.trim();
+                        if (line.length() > 0 && !line.startsWith("#") && !line.startsWith("@")) {
+                            collect(line, files);
+                        }
+                    }
+                } finally {
+                    reader.close();
+                }
+            } catch (IOException e) {
+                LOGGER.logInfo(getTextResourceService().getText(ERROR_BATCH_LISTFILE, list.getPath()));
+            }
+            return;
+        }
+        File file = new File(input);
+        String name = file.getName();
+        if (name.indexOf('*') >= 0 || name.indexOf('?') >= 0) {
+            File dir = file.getAbsoluteFile().getParentFile();
+            Pattern pattern = toPattern(name);
+            File[] children = dir == null ? null : dir.listFiles();
+            boolean found = false;
+            if (children != null) {
+                for (File child : children) {
+                    if (child.isFile() && pattern.matcher(child.getName()).matches()) {
+                        add(child, files);
+                        found = true;
+                    }
+                }
+            }
+            if (!found) {
+                LOGGER.logInfo(getTextResourceService().getText(ERROR_BATCH_NOTFOUND, input));
+            }
+        } else if (file.isDirectory()) {
+            addDirectory(file, files);
+        } else if (file.isFile()) {
+            add(file, files);
+        } else {
+            LOGGER.logInfo(getTextResourceService().getText(ERROR_BATCH_NOTFOUND, input));
+        }
+    }
+
+    private void addDirectory(File dir, Map<String, File> files) {
+        File[] children = dir.listFiles();
+        if (children == null) {
+            return;
+        }
+        for (File child : children) {
+            if (child.isDirectory()) {
+                addDirectory(child, files);
+            } else if (child.getName().toLowerCase().endsWith(SIARD_EXTENSION)) {
+                add(child, files);
+            }
+        }
+    }
+
+    private void add(File file, Map<String, File> files) {
+        String key;
+        try {
+            key = file.getCanonicalPath();
+        } catch (IOException e) {
+            key = file.getAbsolutePath();
+        }
+        if (!files.containsKey(key)) {
+            files.put(key, file.getAbsoluteFile());
+        }
+    }
+
+    /*
+     * Wandelt ein Muster mit * und ? in einen regulren Ausdruck um.
+     */
+    private static Pattern toPattern(String glob) {
+        StringBuilder regex = new StringBuilder();
+        StringBuilder literal = new StringBuilder();
+        for (int i = 0; i < glob.length(); i++) {
+            char c = glob.charAt(i);
+            if (c == '*' || c == '?') {
+                if (literal.length() > 0) {
+                    regex.append(Pattern.quote(literal.toString()));
+                    literal.setLength(0);
+                }
+                regex.append(c == '*' ? ".*" : ".");
+            } else {
+                literal.append(c);
+            }
+        }
+        if (literal.length() > 0) {
+            regex.append(Pattern.quote(literal.toString()));
+        }
+        return Pattern.compile(regex.toString(), Pattern.CASE_INSENSITIVE);
+    }
+
+    /**
+     * Validiert alle SIARD-Dateien und schreibt pro Datei ein Log sowie eine
+     * Zusammenfassung ins Log-Verzeichnis.
+     * @param siardDateien die SIARD-Dateien in der Reihenfolge der Validierung
+     * @param force auch SIARD-Dateien validieren, deren Ergebnis im
+     *            Ergebnis-Cache liegt
+     * @return true, falls alle SIARD-Dateien valid sind
+     */
+    public boolean execute(List<File> siardDateien, File directoryOfLogfile, boolean force) {
+        this.force = force;
+        int workers = getConfigurationService().getBatchWorkers();
+        if (workers <= 0) {
+            workers = Runtime.getRuntime().availableProcessors();
+        }
+        workers = Math.max(1, Math.min(workers, siardDateien.size()));
+        total = siardDateien.size();
+
+        File summaryFile = new File(directoryOfLogfile, SUMMARY_NAME);
+        try {
+            summary = new PrintWriter(new FileWriter(summaryFile));
+        } catch (IOException e) {
+            LOGGER.logInfo(getTextResourceService().getText(ERROR_BATCH_SUMMARY, summaryFile.getAbsolutePath()));
+            return false;
+        }
+        getLogConfigurator().separateConsole();
+        LOGGER.logInfo(getTextResourceService().getText(MESSAGE_BATCH_START,
+                String.valueOf(total), String.valueOf(workers)));
+
+        long start = System.currentTimeMillis();
+        ExecutorService executor = Executors.newFixedThreadPool(workers, new BatchThreadFactory());
+        Set<String> logNames = new HashSet<String>();
+        for (File siardDatei : siardDateien) {
+            // gleichnamige Dateien aus verschiedenen Verzeichnissen erhalten
+            // unterschiedliche Logs
+            String logName = siardDatei.getName();
+            for (int i = 2; !logNames.add(logName); i++) {
+                logName = siardDatei.getName() + "-" + i;
+            }
+            executor.execute(new ArchiveTask(siardDatei, directoryOfLogfile, logName));
+        }
+        executor.shutdown();
+        try {
+            while (!executor.awaitTermination(1, TimeUnit.MINUTES)) {
+                // warten, bis alle Dateien validiert sind
+            }
+        } catch (InterruptedException e) {
+            executor.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+
+        String totalLine = getTextResourceService().getText(MESSAGE_BATCH_TOTAL,
+                String.valueOf(counts[RESULT_VALID]), String.valueOf(counts[RESULT_INVALID]),
+                String.valueOf(counts[RESULT_ERROR]), seconds(System.currentTimeMillis() - start));
+        summary.println();
+        summary.println(totalLine);
+        summary.close();
+        if (getMetricsService() != null) {
+            getMetricsService().write(getMetricsService().getTotal(),
+                    new File(directoryOfLogfile, MetricsService.TOTAL_NAME));
+        }
+
+        LOGGER.logInfo("");
+        LOGGER.logInfo(totalLine);
+        LOGGER.logInfo(getTextResourceService().getText(MESSAGE_BATCH_SUMMARY, summaryFile.getAbsolutePath()));
+        LOGGER.logInfo("");
+        return counts[RESULT_VALID] == total;
+    }
+
+    private void validate(File siardDatei, File directoryOfLogfile, String logName) {
+        long start = System.currentTimeMillis();
+        String logFileName = getLogConfigurator().configure(directoryOfLogfile.getAbsolutePath(),
+                logName, logName);
+        WorkDirService.Run run = getWorkDirService().acquire(siardDatei);
+        int result;
+        try {
+            LOGGER.logError(getTextResourceService().getText(MESSAGE_SIARDVALIDATION, siardDatei.getName()));
+            Controller controller = (Controller) getControllerFactory().getObject();
+            result = controller.validate(siardDatei, logFileName, force) ? RESULT_VALID : RESULT_INVALID;
+        } catch (RuntimeException e) {
+            LOGGER.logInfo(getTextResourceService().getText(ERROR_UNKNOWN));
+            LOGGER.logError(e.getMessage(), e);
+            result = RESULT_ERROR;
+        } finally {
+            // SIARD-Datei schliessen, der Index wird nicht mehr bentigt
+            getArchiveService().release(siardDatei);
+            // jede Datei hat ihr eigenes Arbeitsverzeichnis, gelscht wird im Hintergrund
+            getWorkDirService().release(run);
+            getLogConfigurator().release(logName);
+        }
+        completed(siardDatei, logFileName, result, System.currentTimeMillis() - start);
+    }
+
+    private synchronized void completed(File siardDatei, String logFileName, int result, long millis) {
+        counts[result]++;
+        String status = getTextResourceService().getText(result == RESULT_VALID ? MESSAGE_BATCH_VALID
+                : (result == RESULT_INVALID ? MESSAGE_BATCH_INVALID : MESSAGE_BATCH_ERROR));
+        summary.println(status + "\t" + seconds(millis) + "\t" + siardDatei.getAbsolutePath() + "\t" + logFileName);
+        summary.flush();
+        LOGGER.logInfo(getTextResourceService().getText(MESSAGE_BATCH_ARCHIVE,
+                String.valueOf(++completed), String.valueOf(total),
+                siardDatei.getAbsolutePath(), status, seconds(millis)));
+    }
+
+    private static String seconds(long millis) {
+        return String.valueOf(millis / 100 / 10.0);
+    }
+
+    private class ArchiveTask implements Runnable {
+
+        private final File siardDatei;
+        private final File directoryOfLogfile;
+        private final String logName;
+
+        ArchiveTask(File siardDatei, File directoryOfLogfile, String logName) {
+            this.siardDatei = siardDatei;
+            this.directoryOfLogfile = directoryOfLogfile;
+            this.logName = logName;
+        }
+
+        @Override
+        public void run() {
+            validate(siardDatei, directoryOfLogfile, logName);
+        }
+    }
+
+    private static class BatchThreadFactory implements ThreadFactory {
+
+        private final AtomicInteger count = new AtomicInteger();
+
+        @Override
+        public Thread newThread(Runnable runnable) {
+            return new Thread(runnable, "siardval-batch-" + count.incrementAndGet());
+        }
+    }
+}
@@ -17,28 +17,34 @@ Boston, MA 02110-1301 USA or see <http://www.gnu.org/licenses/>.
 package ch.kostceco.tools.siardval.controller;
 
 import java.io.File;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
 
-import ch.kostceco.tools.siardval.exception.module.ValidationAzipException;
-import ch.kostceco.tools.siardval.exception.module.ValidationBprimaryStructureException;
-import ch.kostceco.tools.siardval.exception.module.ValidationCheaderException;
-import ch.kostceco.tools.siardval.exception.module.ValidationDstructureException;
-import ch.kostceco.tools.siardval.exception.module.ValidationEcolumnException;
-import ch.kostceco.tools.siardval.exception.module.ValidationHcontentException;
-import ch.kostceco.tools.siardval.exception.module.ValidationIrecognitionException;
-import ch.kostceco.tools.siardval.exception.module.ValidationJsurplusFilesException;
+import ch.kostceco.tools.siardval.cache.ValidationRecord;
+import ch.kostceco.tools.siardval.exception.SIARDValException;
 import ch.kostceco.tools.siardval.logging.Logger;
 import ch.kostceco.tools.siardval.logging.MessageConstants;
+import ch.kostceco.tools.siardval.metrics.ArchiveMetrics;
+import ch.kostceco.tools.siardval.metrics.Measurement;
+import ch.kostceco.tools.siardval.metrics.Metrics;
+import ch.kostceco.tools.siardval.report.FindingsWriter;
+import ch.kostceco.tools.siardval.service.MessageService;
+import ch.kostceco.tools.siardval.service.MetricsService;
+import ch.kostceco.tools.siardval.service.ResultCacheService;
 import ch.kostceco.tools.siardval.service.TextResourceService;
 import ch.kostceco.tools.siardval.validation.module.ValidationAzipModule;
 import ch.kostceco.tools.siardval.validation.module.ValidationBprimaryStructureModule;
 import ch.kostceco.tools.siardval.validation.module.ValidationCheaderModule;
 import ch.kostceco.tools.siardval.validation.module.ValidationDstructureModule;
 import ch.kostceco.tools.siardval.validation.module.ValidationEcolumnModule;
+import ch.kostceco.tools.siardval.validation.module.ValidationFrowModule;
+import ch.kostceco.tools.siardval.validation.module.ValidationGchecksumModule;
 import ch.kostceco.tools.siardval.validation.module.ValidationHcontentModule;
 import ch.kostceco.tools.siardval.validation.module.ValidationIrecognitionModule;
 import ch.kostceco.tools.siardval.validation.module.ValidationJsurplusFilesModule;
-//import ch.kostceco.tools.siardval.validation.module.ValidationJsurplusFilesModule;
-//import ch.kostceco.tools.siardval.validation.module.ValidationKconstraintModule;
+import ch.kostceco.tools.siardval.validation.module.ValidationKconstraintModule;
 
 /**
  * SIARDVal -->
@@ -47,25 +53,60 @@ import ch.kostceco.tools.siardval.validation.module.ValidationJsurplusFilesModul
  * der bentigten Reihenfolge auf.
  * 
  * Die Validierungs-Module werden mittels Spring-Dependency-Injection
- * eingebunden.
+ * eingebunden. Unabhngige Module laufen parallel im
+ * {@link ValidationScheduler}; die Ausgabe erfolgt weiterhin in der
+ * Reihenfolge der Validierungsschritte.
+ * 
+ * Ist ein {@link ResultCacheService} gesetzt, wird das Ergebnis einer bereits
+ * validierten, unvernderten SIARD-Datei aus dem Cache ausgegeben.
+ * 
+ * Ist ein {@link MetricsService} gesetzt, werden Zeit und Ressourcen pro
+ * Modul gemessen und neben dem Log als .metrics.prom abgelegt.
+ * 
+ * Die Meldungen der Module werden zustzlich laufend als JSON Lines neben
+ * das Log geschrieben (.findings.jsonl, siehe {@link FindingsWriter}).
  */
 
 public class Controller implements MessageConstants {
 
     private static final Logger LOGGER = new Logger(Controller.class);
+
+    private static final int STEP_VALID = 0;
+    private static final int STEP_INVALID = 1;
+    private static final int STEP_ABORTED = 2;
+
+    private static final String LOG_EXTENSION = ".validationlog.log";
+
     private TextResourceService textResourceService;
+    private ResultCacheService resultCacheService;
+    private MetricsService metricsService;
     
     private ValidationAzipModule validationAzipModule;
     private ValidationBprimaryStructureModule validationBprimaryStructureModule;
     private ValidationCheaderModule validationCheaderModule;
     private ValidationDstructureModule validationDstructureModule;
     private ValidationEcolumnModule validationEcolumnModule;
-//    private ValidationFrowModule validationFrowModule;
-//  private ValidationGchecksumModule validationGchecksumModule;
+    private ValidationFrowModule validationFrowModule;
+    private ValidationGchecksumModule validationGchecksumModule;
     private ValidationHcontentModule validationHcontentModule;
     private ValidationIrecognitionModule validationIrecognitionModule;
     private ValidationJsurplusFilesModule validationJsurplusFilesModule;
-//    private ValidationKconstraintModule validationKconstraintModule;
+    private ValidationKconstraintModule validationKconstraintModule;
+
+    private int threads;
+    private List<ValidationStep> steps;
+    private volatile ValidationScheduler scheduler;
+    /* Abbruch auf Anfrage, siehe cancelValidation */
+    private volatile boolean cancelRequested;
+    private boolean cancelReported;
+
+    /* Ergebnis aus dem Cache, das statt der Validierung ausgegeben wird */
+    private ValidationRecord replay;
+    /* Ergebnis der laufenden Validierung fr den Cache */
+    private ValidationRecord record;
+    private boolean cacheable;
+    /* Findings-Report der laufenden Validierung */
+    private FindingsWriter findings;
 
 
     public ValidationAzipModule getValidationAzipModule() {
@@ -102,19 +143,19 @@ public class Controller implements MessageConstants {
         this.validationEcolumnModule = validationEcolumnModule;
     }
 
-/*    public ValidationFrowModule getValidationFrowModule() {
+    public ValidationFrowModule getValidationFrowModule() {
         return validationFrowModule;
     }
     public void setValidationFrowModule(ValidationFrowModule validationFrowModule) {
         this.validationFrowModule = validationFrowModule;
-    }*/
+    }
 
-    /*    public ValidationGchecksumModule getValidationGchecksumModule() {
-    return validationGchecksumModule;
-}
-public void setValidationGchecksumModule(ValidationGchecksumModule validationGchecksumModule) {
-    this.validationGchecksumModule = validationGchecksumModule;
-}*/
+    public ValidationGchecksumModule getValidationGchecksumModule() {
+        return validationGchecksumModule;
+    }
+    public void setValidationGchecksumModule(ValidationGchecksumModule validationGchecksumModule) {
+        this.validationGchecksumModule = validationGchecksumModule;
+    }
 
     public ValidationHcontentModule getValidationHcontentModule() {
         return validationHcontentModule;
@@ -137,13 +178,25 @@ public void setValidationGchecksumModule(ValidationGchecksumModule validationGch
         this.validationJsurplusFilesModule = validationJsurplusFilesModule;
     }
 
-/*    public ValidationKconstraintModule getValidationKconstraintModule() {
+    public ValidationKconstraintModule getValidationKconstraintModule() {
         return validationKconstraintModule;
     }
     public void setValidationKconstraintModule(ValidationKconstraintModule validationKconstraintModule) {
         this.validationKconstraintModule = validationKconstraintModule;
-    }*/
+    }
+
 
+    public int getThreads() {
+        return threads;
+    }
+    /**
+     * @param threads
+     *            Anzahl paralleler Validierungsschritte, bei 0 die Anzahl
+     *            Prozessoren
+     */
+    public void setThreads(int threads) {
+        this.threads = threads;
+    }
 
     public TextResourceService getTextResourceService() {
         return textResourceService;
@@ -153,298 +206,361 @@ public void setValidationGchecksumModule(ValidationGchecksumModule validationGch
         this.textResourceService = textResourceService;
     }
 
+    public ResultCacheService getResultCacheService() {
+        return resultCacheService;
+    }
+
+    public void setResultCacheService(ResultCacheService resultCacheService) {
+        this.resultCacheService = resultCacheService;
+    }
+
+    public MetricsService getMetricsService() {
+        return metricsService;
+    }
+
+    public void setMetricsService(MetricsService metricsService) {
+        this.metricsService = metricsService;
+    }
+
     
-    public boolean executeMandatory(File siardDatei) {
-        boolean valid = true;
-        
-        // Validation Step A (Lesbarkeit)
+    /**
+     * Die Validierungsschritte in Ausgabereihenfolge. E bis H, J und K setzen
+     * einen validen Header (C) voraus; die brigen Schritte sind voneinander
+     * unabhngig und laufen parallel.
+     */
+    protected List<ValidationStep> getValidationSteps() {
+        List<ValidationStep> steps = new ArrayList<ValidationStep>();
+        // obligatorische Schritte: ein negatives Validierungsresultat fhrt
+        // zum Abbruch der weiteren Verarbeitung
+        steps.add(new ValidationStep("A", getValidationAzipModule(),
+                MESSAGE_MODULE_A, MESSAGE_STEPERGEBNIS_A, true));
+        steps.add(new ValidationStep("B", getValidationBprimaryStructureModule(),
+                MESSAGE_MODULE_B, MESSAGE_STEPERGEBNIS_B, true));
+        steps.add(new ValidationStep("C", getValidationCheaderModule(),
+                MESSAGE_MODULE_C, MESSAGE_STEPERGEBNIS_C, true));
+        // Validation Step D (Struktur-Validierung) ist deaktiviert
+        /*steps.add(new ValidationStep("D", getValidationDstructureModule(),
+                MESSAGE_MODULE_D, MESSAGE_STEPERGEBNIS_D, true, "C"));*/
+        // optionale Schritte
+        steps.add(new ValidationStep("E", getValidationEcolumnModule(),
+                MESSAGE_MODULE_E, MESSAGE_STEPERGEBNIS_E, false, "C"));
+        steps.add(new ValidationStep("F", getValidationFrowModule(),
+                MESSAGE_MODULE_F, MESSAGE_STEPERGEBNIS_F, false, "C"));
+        steps.add(new ValidationStep("G", getValidationGchecksumModule(),
+                MESSAGE_MODULE_G, MESSAGE_STEPERGEBNIS_G, false, "C"));
+        steps.add(new ValidationStep("H", getValidationHcontentModule(),
+                MESSAGE_MODULE_H, MESSAGE_STEPERGEBNIS_H, false, "C"));
+        steps.add(new ValidationStep("I", getValidationIrecognitionModule(),
+                MESSAGE_MODULE_I, MESSAGE_STEPERGEBNIS_I, false));
+        steps.add(new ValidationStep("J", getValidationJsurplusFilesModule(),
+                MESSAGE_MODULE_J, MESSAGE_STEPERGEBNIS_J, false, "C"));
+        steps.add(new ValidationStep("K", getValidationKconstraintModule(),
+                MESSAGE_MODULE_K, MESSAGE_STEPERGEBNIS_K, false, "C"));
+        return steps;
+    }
+
+    /**
+     * Validiert eine SIARD-Datei vollstndig und gibt das Gesamtergebnis
+     * aus. Die optionalen Schritte werden nur ausgewertet, wenn die
+     * obligatorischen bestanden wurden.
+     * @param logFileName Pfad der Log-Datei fr die Fusszeile
+     * @return true, falls die SIARD-Datei valid ist
+     */
+    public boolean validate(File siardDatei, String logFileName) {
+        return validate(siardDatei, logFileName, false);
+    }
+
+    /**
+     * Wie {@link #validate(File, String)}; mit force wird auch eine bereits
+     * im Ergebnis-Cache abgelegte SIARD-Datei erneut validiert.
+     */
+    public boolean validate(File siardDatei, String logFileName, boolean force) {
+        // Metriken und Findings-Report heissen wie das Log, das ist auch im
+        // Batch-Modus eindeutig
+        File logDirectory = new File(logFileName).getAbsoluteFile().getParentFile();
+        String name = new File(logFileName).getName();
+        if (name.endsWith(LOG_EXTENSION)) {
+            name = name.substring(0, name.length() - LOG_EXTENSION.length());
+        }
+        findings = FindingsWriter.open(new File(logDirectory, name + FindingsWriter.EXTENSION), siardDatei.getName());
         try {
-            if (this.getValidationAzipModule().validate(siardDatei)) {
-                LOGGER.logInfo(getTextResourceService().getText(MESSAGE_MODULE_VALID,
-                        getTextResourceService().getText(MESSAGE_MODULE_A)));
-                this.getValidationAzipModule().getMessageService().print();
-            } else {
-                LOGGER.logInfo(getTextResourceService().getText(MESSAGE_MODULE_INVALID,
-                        getTextResourceService().getText(MESSAGE_MODULE_A))
-                        + getTextResourceService().getText(MESSAGE_STEPERGEBNIS_A));
-                // Ein negatives Validierungsresultat in diesem Schritt fhrt
-                // zum Abbruch der weiteren Verarbeitung
-                this.getValidationAzipModule().getMessageService().print();
-                return false;
+            if (getMetricsService() == null) {
+                return validateArchive(siardDatei, logFileName, force);
+            }
+            ArchiveMetrics metrics = getMetricsService().begin(name);
+            Measurement total = Metrics.start(Metrics.TOTAL);
+            total.setOutcome(Measurement.ERROR);
+            try {
+                boolean valid = validateArchive(siardDatei, logFileName, force);
+                total.setOutcome(valid ? Measurement.VALID : Measurement.INVALID);
+                return valid;
+            } finally {
+                total.stop();
+                getMetricsService().end(metrics, new File(logDirectory, name + MetricsService.EXTENSION));
+            }
+        } finally {
+            if (findings != null) {
+                findings.close();
+                findings = null;
+            }
+            if (steps != null) {
+                for (ValidationStep step : steps) {
+                    step.getModule().getMessageService().setFindingsWriter(null, null);
+                }
             }
-        } catch (ValidationAzipException e) {
-            LOGGER.logInfo(getTextResourceService().getText(MESSAGE_MODULE_INVALID_2ARGS,
-                    getTextResourceService().getText(MESSAGE_MODULE_A), e.getMessage()));
-            this.getValidationAzipModule().getMessageService().print();
-            return false;
-        } catch (Exception e) {          
-            LOGGER.logInfo(getTextResourceService().getText(ERROR_UNKNOWN));
-            LOGGER.logError(e.getMessage());
-            return false;
         }
+    }
 
-        // Validation Step B (primre Verzeichnisstruktur)
-        try {
-            if (this.getValidationBprimaryStructureModule().validate(siardDatei)) {
-                LOGGER.logInfo(getTextResourceService().getText(MESSAGE_MODULE_VALID,
-                        getTextResourceService().getText(MESSAGE_MODULE_B)));
-                this.getValidationBprimaryStructureModule().getMessageService().print();
-            } else {
-                LOGGER.logInfo(getTextResourceService().getText(MESSAGE_MODULE_INVALID,
-                        getTextResourceService().getText(MESSAGE_MODULE_B))
-                        + getTextResourceService().getText(MESSAGE_STEPERGEBNIS_B));
-                // Ein negatives Validierungsresultat in diesem Schritt fhrt
-                // zum Abbruch der weiteren Verarbeitung
-                this.getValidationBprimaryStructureModule().getMessageService().print();
-                return false;
+    private boolean validateArchive(File siardDatei, String logFileName, boolean force) {
+        long start = System.nanoTime();
+        String key = null;
+        if (getResultCacheService() != null) {
+            key = getResultCacheService().getKey(siardDatei);
+            if (key != null && !force) {
+                replay = getResultCacheService().get(key);
             }
-        } catch (ValidationBprimaryStructureException e) {
-            LOGGER.logInfo(getTextResourceService().getText(MESSAGE_MODULE_INVALID_2ARGS,
-                    getTextResourceService().getText(MESSAGE_MODULE_B), e.getMessage()));
-            this.getValidationBprimaryStructureModule().getMessageService().print();
-            return false;
-        } catch (Exception e) {          
-            LOGGER.logInfo(getTextResourceService().getText(ERROR_UNKNOWN));
-            LOGGER.logError(e.getMessage());
-            return false;
+        }
+        if (replay != null) {
+            LOGGER.logInfo(getTextResourceService().getText(MESSAGE_RESULTCACHE_HIT,
+                    new SimpleDateFormat("dd.MM.yyyy HH:mm:ss").format(new Date(replay.getCreated()))));
+        } else if (key != null) {
+            record = new ValidationRecord();
+            cacheable = true;
         }
 
-        // Validation Step C (Header-Validierung)
-        try {
-            if (this.getValidationCheaderModule().validate(siardDatei)) {
-                LOGGER.logInfo(getTextResourceService().getText(MESSAGE_MODULE_VALID,
-                        getTextResourceService().getText(MESSAGE_MODULE_C)));
-                this.getValidationCheaderModule().getMessageService().print();
-            } else {
-                LOGGER.logInfo(getTextResourceService().getText(MESSAGE_MODULE_INVALID,
-                        getTextResourceService().getText(MESSAGE_MODULE_C))
-                        + getTextResourceService().getText(MESSAGE_STEPERGEBNIS_C));
-                this.getValidationCheaderModule().getMessageService().print();
-                // Ein negatives Validierungsresultat in diesem Schritt fhrt
-                // zum Abbruch der weiteren Verarbeitung
-                return false;
+        boolean okMandatory = executeMandatory(siardDatei);
+        boolean ok = false;
+        
+        // die Validierungen A-D sind obligatorisch, wenn sie bestanden wurden, knnen die restlichen
+        // Validierungen, welche nicht zum Abbruch der Applikation fhren, ausgefhrt werden.
+        if (okMandatory) {
+            ok = executeOptional(siardDatei);
+        }
+        ok = (ok && okMandatory);
+        
+        LOGGER.logInfo("");
+        if (ok) {
+            LOGGER.logInfo(getTextResourceService().getText(MESSAGE_TOTAL_VALID, siardDatei.getAbsolutePath()));
+        } else {
+            LOGGER.logInfo(getTextResourceService().getText(MESSAGE_TOTAL_INVALID, siardDatei.getAbsolutePath()));
+        }
+        LOGGER.logInfo("");
+
+        LOGGER.logInfo("");
+        LOGGER.logInfo(getTextResourceService().getText(MESSAGE_FOOTER_SIARD, siardDatei.getAbsolutePath()));
+        LOGGER.logInfo(getTextResourceService().getText(MESSAGE_FOOTER_LOG, logFileName));
+        LOGGER.logInfo("");
+        
+        if (okMandatory) {
+            LOGGER.logInfo(getTextResourceService().getText(MESSAGE_VALIDATION_FINISHED));
+        } else {
+            LOGGER.logInfo(getTextResourceService().getText(MESSAGE_VALIDATION_INTERRUPTED));
+        }
+
+        if (findings != null) {
+            List<String> ids = new ArrayList<String>();
+            for (ValidationStep step : steps) {
+                ids.add(step.getId());
             }
-        } catch (ValidationCheaderException e) {
-            LOGGER.logInfo(getTextResourceService().getText(MESSAGE_MODULE_INVALID_2ARGS,
-                    getTextResourceService().getText(MESSAGE_MODULE_C), e.getMessage()));
-            this.getValidationCheaderModule().getMessageService().print();
-            return false;
-        } catch (Exception e) {          
-            LOGGER.logInfo(getTextResourceService().getText(ERROR_UNKNOWN));
-            LOGGER.logError(e.getMessage());
-            return false;
+            findings.summary(ok, System.nanoTime() - start, ids, replay != null);
+        }
+        if (record != null && cacheable) {
+            getResultCacheService().put(key, record);
         }
+        replay = null;
+        record = null;
+        return ok;
+    }
 
-        // Validation Step D (Struktur-Validierung)
-        /*try {
-            if (this.getValidationDstructureModule().validate(siardDatei)) {
-                LOGGER.logInfo(getTextResourceService().getText(MESSAGE_MODULE_VALID,
-                        getTextResourceService().getText(MESSAGE_MODULE_D)));
-                this.getValidationDstructureModule().getMessageService().print();
-            } else {
-                LOGGER.logInfo(getTextResourceService().getText(MESSAGE_MODULE_INVALID,
-                        getTextResourceService().getText(MESSAGE_MODULE_D))
-                        + getTextResourceService().getText(MESSAGE_STEPERGEBNIS_D));
-                this.getValidationDstructureModule().getMessageService().print();
-                // Ein negatives Validierungsresultat in diesem Schritt fhrt
-                // zum Abbruch der weiteren Verarbeitung
+    /**
+     * Startet alle Validierungsschritte und gibt die Ergebnisse der
+     * obligatorischen Schritte aus. Ist ein obligatorischer Schritt invalid,
+     * werden die brigen Schritte abgebrochen.
+     */
+    public boolean executeMandatory(File siardDatei) {
+        start(siardDatei);
+        for (ValidationStep step : steps) {
+            if (step.isMandatory() && report(step) != STEP_VALID) {
+                cancel();
                 return false;
             }
-        } catch (ValidationDstructureException e) {
-            LOGGER.logInfo(getTextResourceService().getText(MESSAGE_MODULE_INVALID_2ARGS,
-                    getTextResourceService().getText(MESSAGE_MODULE_D), e.getMessage()));
-            this.getValidationDstructureModule().getMessageService().print();
-            return false;
-        } catch (Exception e) {          
-            LOGGER.logInfo(getTextResourceService().getText(ERROR_UNKNOWN));
-            LOGGER.logError(e.getMessage());
-            return false;
-        }*/
-
-        return valid;
+        }
+        return true;
     }
     
+    /**
+     * Gibt die Ergebnisse der optionalen Schritte aus; wurden die Schritte
+     * noch nicht mit executeMandatory gestartet, werden sie hier gestartet.
+     */
     public boolean executeOptional(File siardDatei) {
+        if (steps == null || (scheduler == null && replay == null)) {
+            start(siardDatei);
+        }
         boolean valid = true;
-        
-       // Validation Step E (Spalten-Validierung)
-        try {
-            if (this.getValidationEcolumnModule().validate(siardDatei)) {
-            	
-                LOGGER.logInfo(getTextResourceService().getText(MESSAGE_MODULE_VALID,
-                        getTextResourceService().getText(MESSAGE_MODULE_E)));
-                this.getValidationEcolumnModule().getMessageService().print();
-            } else {
-            	
-                LOGGER.logInfo(getTextResourceService().getText(MESSAGE_MODULE_INVALID,
-                        getTextResourceService().getText(MESSAGE_MODULE_E))
-                        + getTextResourceService().getText(MESSAGE_STEPERGEBNIS_E));
-                this.getValidationEcolumnModule().getMessageService().print();
-                valid = false;
+        for (ValidationStep step : steps) {
+            if (step.isMandatory()) {
+                continue;
             }
-        } catch (ValidationEcolumnException e) {
-        	
-            LOGGER.logInfo(getTextResourceService().getText(MESSAGE_MODULE_INVALID_2ARGS,
-                    getTextResourceService().getText(MESSAGE_MODULE_E), e.getMessage()));
-            this.getValidationEcolumnModule().getMessageService().print();
-            System.out.println("Debug: " + e.getMessage());
-            valid = false;
-        } catch (Exception e) {
-        	
-            LOGGER.logInfo(getTextResourceService().getText(ERROR_UNKNOWN));
-            LOGGER.logError(e.getMessage());
-            return false;
-        }
-
-
-/*        // Validation Step F (Zeilen-Validierung)
-        try {
-            if (this.getValidationFrowModule().validate(siardDatei)) {
-                LOGGER.logInfo(getTextResourceService().getText(MESSAGE_MODULE_VALID,
-                        getTextResourceService().getText(MESSAGE_MODULE_F)));
-                this.getValidationFrowModule().getMessageService().print();
-            } else {
-                LOGGER.logInfo(getTextResourceService().getText(MESSAGE_MODULE_INVALID,
-                        getTextResourceService().getText(MESSAGE_MODULE_F))
-                        + getTextResourceService().getText(MESSAGE_STEPERGEBNIS_F));
-                this.getValidationGrowModule().getMessageService().print();
-                valid = false;
+            int result = report(step);
+            if (result == STEP_ABORTED) {
+                cancel();
+                return false;
             }
-        } catch (ValidationFrowException e) {
-            LOGGER.logInfo(getTextResourceService().getText(MESSAGE_MODULE_INVALID_2ARGS,
-                    getTextResourceService().getText(MESSAGE_MODULE_F), e.getMessage()));
-            this.getValidationFrowModule().getMessageService().print();
-            valid = false;
-        } catch (Exception e) {          
-            LOGGER.logInfo(getTextResourceService().getText(ERROR_UNKNOWN));
-            LOGGER.logError(e.getMessage());
-            return false;
-        }*/
-
-/*        // Validation Step G (Prfsummen-Validierung)
-        try {
-            if (this.getValidationGchecksumModule().validate(siardDatei)) {
-                LOGGER.logInfo(getTextResourceService().getText(MESSAGE_MODULE_VALID,
-                        getTextResourceService().getText(MESSAGE_MODULE_G)));
-                this.getValidationGchecksumModule().getMessageService().print();
-            } else {
-                LOGGER.logInfo(getTextResourceService().getText(MESSAGE_MODULE_INVALID,
-                        getTextResourceService().getText(MESSAGE_MODULE_G))
-                        + getTextResourceService().getText(MESSAGE_STEPERGEBNIS_G));
-                this.getValidationGchecksumModule().getMessageService().print();
+            if (result == STEP_INVALID) {
                 valid = false;
             }
-        } catch (ValidationGchecksumException e) {
-            LOGGER.logInfo(getTextResourceService().getText(MESSAGE_MODULE_INVALID_2ARGS,
-                    getTextResourceService().getText(MESSAGE_MODULE_G), e.getMessage()));
-            this.getValidationGchecksumModule().getMessageService().print();
-            valid = false;
-        } catch (Exception e) {          
-            LOGGER.logInfo(getTextResourceService().getText(ERROR_UNKNOWN));
-            LOGGER.logError(e.getMessage());
-            return false;
         }
+        if (scheduler != null) {
+            scheduler.shutdown();
+            scheduler = null;
+        }
+        return valid;
+    }
 
-
-        // Validation Step H (Content-Validierung)
-        try {
-            if (this.getValidationHcontentModule().validate(siardDatei)) {
-                LOGGER.logInfo(getTextResourceService().getText(MESSAGE_MODULE_VALID,
-                        getTextResourceService().getText(MESSAGE_MODULE_H)));
-                this.getValidationHcontentModule().getMessageService().print();
-            } else {
-                LOGGER.logInfo(getTextResourceService().getText(MESSAGE_MODULE_INVALID,
-                        getTextResourceService().getText(MESSAGE_MODULE_H))
-                        + getTextResourceService().getText(MESSAGE_STEPERGEBNIS_H));
-                this.getValidationHcontentModule().getMessageService().print();
-                valid = false;
+    private void start(File siardDatei) {
+        steps = getValidationSteps();
+        for (ValidationStep step : steps) {
+            step.getModule().getMessageService().setFindingsWriter(findings, step.getId());
+        }
+        if (replay == null) {
+            ValidationScheduler started = new ValidationScheduler(steps, threads);
+            scheduler = started;
+            started.start(siardDatei);
+            // Abbruch vor dem Start der Schritte
+            if (cancelRequested) {
+                started.cancel();
             }
-        } catch (ValidationHcontentException e) {
-            LOGGER.logInfo(getTextResourceService().getText(MESSAGE_MODULE_INVALID_2ARGS,
-                    getTextResourceService().getText(MESSAGE_MODULE_H), e.getMessage()));
-            this.getValidationHcontentModule().getMessageService().print();
-            valid = false;
-        } catch (Exception e) {          
-            LOGGER.logInfo(getTextResourceService().getText(ERROR_UNKNOWN));
-            LOGGER.logError(e.getMessage());
-            return false;
         }
+    }
 
+    /**
+     * Bricht die laufende Validierung ab, z.B. auf Anfrage im Service-Modus.
+     * Kann aus einem anderen Thread aufgerufen werden. Die Schritte werden
+     * nicht unterbrochen, sondern beenden sich beim nchsten Abfragen ihres
+     * Abbruch-Flags; der wartende Schritt wird als abgebrochen ausgegeben.
+     */
+    public void cancelValidation() {
+        cancelRequested = true;
+        ValidationScheduler current = scheduler;
+        if (current != null) {
+            current.cancel();
+        }
+    }
 
-        // Validation Step I (SIARD-Erkennung)
-        try {
-            if (this.getValidationIrecognitionModule().validate(siardDatei)) {
-                LOGGER.logInfo(getTextResourceService().getText(MESSAGE_MODULE_VALID,
-                        getTextResourceService().getText(MESSAGE_MODULE_I)));
-                this.getValidationIrecognitionModule().getMessageService().print();
-            } else {
-                LOGGER.logInfo(getTextResourceService().getText(MESSAGE_MODULE_INVALID,
-                        getTextResourceService().getText(MESSAGE_MODULE_I))
-                        + getTextResourceService().getText(MESSAGE_STEPERGEBNIS_I));
-                this.getValidationIrecognitionModule().getMessageService().print();
-                valid = false;
-            }
-        } catch (ValidationIrecognitionException e) {
-            LOGGER.logInfo(getTextResourceService().getText(MESSAGE_MODULE_INVALID_2ARGS,
-                    getTextResourceService().getText(MESSAGE_MODULE_I), e.getMessage()));
-            this.getValidationIrecognitionModule().getMessageService().print();
-            valid = false;
-        } catch (Exception e) {          
-            LOGGER.logInfo(getTextResourceService().getText(ERROR_UNKNOWN));
-            LOGGER.logError(e.getMessage());
-            return false;
+    private void cancel() {
+        if (scheduler != null) {
+            scheduler.cancel();
+            scheduler = null;
         }
+    }
 
+    /*
+     * Ein auf Anfrage abgebrochener Schritt ist kein unbekannter Fehler; die
+     * Meldung erscheint einmal pro Validierung.
+     */
+    private void reportCancelled() {
+        if (cancelRequested && !cancelReported) {
+            cancelReported = true;
+            LOGGER.logInfo(getTextResourceService().getText(MESSAGE_VALIDATION_CANCELLED));
+        }
+    }
 
-        // Validation Step J (Zustzliche Primrdateien)
-        try {
-            if (this.getValidationJsurplusFilesModule().validate(siardDatei)) {
-                LOGGER.logInfo(getTextResourceService().getText(MESSAGE_MODULE_VALID,
-                        getTextResourceService().getText(MESSAGE_MODULE_J)));
-                this.getValidationJsurplusFilesModule().getMessageService().print();
+    /*
+     * Wartet auf das Ergebnis eines Schrittes und gibt es aus. Beim Abspielen
+     * eines Ergebnisses aus dem Cache stammen Resultat und Meldungen aus
+     * dem abgelegten Schritt.
+     */
+    private int report(ValidationStep step) {
+        MessageService messageService = step.getModule().getMessageService();
+        String module = getTextResourceService().getText(step.getModuleKey());
+        int resultType;
+        String exceptionMessage = null;
+        long nanos;
+        if (replay != null) {
+            ValidationRecord.Step recorded = replay.getStep(step.getId());
+            if (recorded == null) {
+                moduleStatus(step, FindingsWriter.ABORTED, 0);
+                return STEP_ABORTED;
+            }
+            resultType = recorded.getResult();
+            exceptionMessage = recorded.getExceptionMessage();
+            nanos = 0;
+            for (String[] message : recorded.getMessages()) {
+                add(messageService, message);
+            }
+        } else {
+            ValidationScheduler.StepResult result;
+            try {
+                result = scheduler.await(step);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                cancelRequested = true;
+                reportCancelled();
+                cacheable = false;
+                moduleStatus(step, FindingsWriter.ABORTED, 0);
+                return STEP_ABORTED;
+            }
+            nanos = result.getNanos();
+            if (result.isCancelled()) {
+                reportCancelled();
+                cacheable = false;
+                moduleStatus(step, FindingsWriter.ABORTED, nanos);
+                return STEP_ABORTED;
+            } else if (result.getException() instanceof SIARDValException) {
+                resultType = ValidationRecord.Step.INVALID_EXCEPTION;
+                exceptionMessage = result.getException().getMessage();
+            } else if (result.getException() != null) {
+                LOGGER.logInfo(getTextResourceService().getText(ERROR_UNKNOWN));
+                LOGGER.logError(result.getException().getMessage());
+                cacheable = false;
+                moduleStatus(step, FindingsWriter.ABORTED, nanos);
+                return STEP_ABORTED;
+            } else if (result.isValid()) {
+                resultType = ValidationRecord.Step.VALID;
             } else {
-                LOGGER.logInfo(getTextResourceService().getText(MESSAGE_MODULE_INVALID,
-                        getTextResourceService().getText(MESSAGE_MODULE_J))
-                        + getTextResourceService().getText(MESSAGE_STEPERGEBNIS_J));
-                this.getValidationJsurplusFilesModule().getMessageService().print();
-                valid = false;
+                resultType = ValidationRecord.Step.INVALID;
+            }
+            if (record != null) {
+                record.add(new ValidationRecord.Step(step.getId(), resultType, exceptionMessage,
+                        messageService.getMessages()));
             }
-        } catch (ValidationJsurplusFilesException e) {
+        }
+        moduleStatus(step, resultType == ValidationRecord.Step.VALID ? FindingsWriter.VALID
+                : FindingsWriter.INVALID, nanos);
+        if (resultType == ValidationRecord.Step.INVALID_EXCEPTION) {
             LOGGER.logInfo(getTextResourceService().getText(MESSAGE_MODULE_INVALID_2ARGS,
-                    getTextResourceService().getText(MESSAGE_MODULE_J), e.getMessage()));
-            this.getValidationJsurplusFilesModule().getMessageService().print();
-            valid = false;
-        } catch (Exception e) {          
-            LOGGER.logInfo(getTextResourceService().getText(ERROR_UNKNOWN));
-            LOGGER.logError(e.getMessage());
-            return false;
+                    module, exceptionMessage));
+            messageService.print();
+            return STEP_INVALID;
+        } else if (resultType == ValidationRecord.Step.VALID) {
+            LOGGER.logInfo(getTextResourceService().getText(MESSAGE_MODULE_VALID, module));
+            messageService.print();
+            return STEP_VALID;
+        } else {
+            LOGGER.logInfo(getTextResourceService().getText(MESSAGE_MODULE_INVALID, module)
+                    + getTextResourceService().getText(step.getResultKey()));
+            messageService.print();
+            return STEP_INVALID;
         }
+    }
 
+    private void moduleStatus(ValidationStep step, String status, long nanos) {
+        if (findings != null) {
+            findings.module(step.getId(), status, nanos);
+        }
+    }
 
-/*        // Validation Step K (Constraint-Validierung)
-        try {
-            if (this.getValidationKconstraintModule().validate(siardDatei)) {
-                LOGGER.logInfo(getTextResourceService().getText(MESSAGE_MODULE_VALID,
-                        getTextResourceService().getText(MESSAGE_MODULE_K)));
-                this.getValidationKconstraintModule().getMessageService().print();
-            } else {
-                LOGGER.logInfo(getTextResourceService().getText(MESSAGE_MODULE_INVALID,
-                        getTextResourceService().getText(MESSAGE_MODULE_K))
-                        + getTextResourceService().getText(MESSAGE_STEPERGEBNIS_K));
-                this.getValidationKconstraintModule().getMessageService().print();
-                valid = false;
-            }
-        } catch (ValidationKconstraintException e) {
-            LOGGER.logInfo(getTextResourceService().getText(MESSAGE_MODULE_INVALID_2ARGS,
-                    getTextResourceService().getText(MESSAGE_MODULE_K), e.getMessage()));
-            this.getValidationKconstraintModule().getMessageService().print();
-            valid = false;
-        } catch (Exception e) {          
-            LOGGER.logInfo(getTextResourceService().getText(ERROR_UNKNOWN));
-            LOGGER.logError(e.getMessage());
-            return false;
-        }*/
-
-        return valid;
+    private static void add(MessageService messageService, String[] message) {
+        if (MessageService.DEBUG.equals(message[0])) {
+            messageService.logDebug(message[1]);
+        } else if (MessageService.ERROR.equals(message[0])) {
+            messageService.logError(message[1]);
+        } else if (MessageService.FATAL.equals(message[0])) {
+            messageService.logFatal(message[1]);
+        } else if (MessageService.WARN.equals(message[0])) {
+            messageService.logWarning(message[1]);
+        } else {
+            messageService.logInfo(message[1]);
+        }
     }
 }
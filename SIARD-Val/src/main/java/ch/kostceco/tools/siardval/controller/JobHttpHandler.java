@@ -0,0 +1,256 @@
+/*== SIARD-Val ==================================================================================
+The SIARD-Val application is used for validate SIARD-Files. 
+Copyright (C) 2012 Claire Rthlisberger (KOST-CECO), Martin Kaiser (KOST-CECO), XYZ (xyz)
+-----------------------------------------------------------------------------------------------
+SIARD-Val is a development of the KOST-CECO. All rights rest with the KOST-CECO. 
+This application is free software: you can redistribute it and/or modify it under the 
+terms of the GNU General Public License as published by the Free Software Foundation, 
+either version 3 of the License, or (at your option) any later version. 
+This application is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; 
+without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. 
+See the follow GNU General Public License for more details.
+You should have received a copy of the GNU General Public License along with this program; 
+if not, write to the Free Software Foundation, Inc., 51 Franklin Street, Fifth Floor, 
+Boston, MA 02110-1301 USA or see <http://www.gnu.org/licenses/>.
+==============================================================================================*/
+
+package ch.kostceco.tools.siardval.controller;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.URLDecoder;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+
+/**
+ * HTTP-Schnittstelle des {@link ServiceController}:
+ * <ul>
+ * <li><code>POST /jobs?path=...</code> reiht eine SIARD-Datei ein (der Pfad
+ * kann auch als Body gesendet werden, mit <code>force=true</code> wird das
+ * Ergebnis-Cache bergangen, <code>lang=fr</code> whlt die Sprache der
+ * Meldungen). Antwort 202 mit dem neuen Auftrag, 200 mit dem laufenden
+ * Auftrag fr dieselbe Datei und Sprache, 503 bei voller Warteschlange.</li>
+ * <li><code>GET /jobs</code> listet die Auftrge, <code>GET /jobs/{id}</code>
+ * gibt den Status eines Auftrags zurck.</li>
+ * <li><code>GET /jobs/{id}/stream</code> liefert die Meldungen der
+ * Validierung als Text, laufend bis zum Ende des Auftrags; die letzte Zeile
+ * enthlt das Ergebnis. Bereits verworfene Meldungen werden durch einen
+ * Hinweis auf das Log ersetzt.</li>
+ * <li><code>DELETE /jobs/{id}</code> bricht einen Auftrag ab.</li>
+ * </ul>
+ * Status und Listen werden als JSON zurckgegeben.
+ */
+public class JobHttpHandler implements HttpHandler {
+
+    public static final String CONTEXT = "/jobs";
+
+    private static final String STREAM = "/stream";
+
+    private static final String UTF8 = "UTF-8";
+
+    /* Wartezeit auf neue Meldungen, bevor erneut geprft wird */
+    private static final long STREAM_WAIT = 1000;
+
+    private final ServiceController serviceController;
+
+    public JobHttpHandler(ServiceController serviceController) {
+        this.serviceController = serviceController;
+    }
+
+    @Override
+    public void handle(HttpExchange exchange) throws IOException {
+        try {
+            String method = exchange.getRequestMethod();
+            String path = exchange.getRequestURI().getPath().substring(CONTEXT.length());
+            if (path.endsWith("/") && path.length() > 1) {
+                path = path.substring(0, path.length() - 1);
+            }
+            if (path.length() == 0 || path.equals("/")) {
+                if (method.equals("POST")) {
+                    submit(exchange);
+                } else if (method.equals("GET")) {
+                    list(exchange);
+                } else {
+                    send(exchange, 405, null);
+                }
+                return;
+            }
+            boolean stream = path.endsWith(STREAM);
+            String id = path.substring(1, stream ? path.length() - STREAM.length() : path.length());
+            ValidationJob job = serviceController.getJob(id);
+            if (job == null) {
+                send(exchange, 404, null);
+            } else if (stream && method.equals("GET")) {
+                stream(exchange, job);
+            } else if (stream) {
+                send(exchange, 405, null);
+            } else if (method.equals("GET")) {
+                send(exchange, 200, toJson(job));
+            } else if (method.equals("DELETE")) {
+                serviceController.cancel(id);
+                send(exchange, 200, toJson(job));
+            } else {
+                send(exchange, 405, null);
+            }
+        } finally {
+            exchange.close();
+        }
+    }
+
+    private void submit(HttpExchange exchange) throws IOException {
+        String path = getParameter(exchange.getRequestURI().getRawQuery(), "path");
+        if (path == null) {
+            path = readBody(exchange.getRequestBody()).trim();
+        }
+        File siardDatei = new File(path);
+        if (path.length() == 0 || !siardDatei.isFile()) {
+            send(exchange, 400, "{\"error\":" + quote("not a file: " + path) + "}");
+            return;
+        }
+        Locale locale = toLocale(getParameter(exchange.getRequestURI().getRawQuery(), "lang"));
+        ValidationJob job;
+        boolean created;
+        synchronized (serviceController) {
+            created = serviceController.getActiveJob(siardDatei, locale) == null;
+            job = serviceController.submit(siardDatei,
+                    "true".equals(getParameter(exchange.getRequestURI().getRawQuery(), "force")), locale);
+        }
+        if (job == null) {
+            send(exchange, 503, "{\"error\":\"queue full\"}");
+            return;
+        }
+        exchange.getResponseHeaders().set("Location", CONTEXT + "/" + job.getId());
+        send(exchange, created ? 202 : 200, toJson(job));
+    }
+
+    private void list(HttpExchange exchange) throws IOException {
+        StringBuilder json = new StringBuilder("[");
+        for (ValidationJob job : serviceController.getJobs()) {
+            if (json.length() > 1) {
+                json.append(',');
+            }
+            json.append(toJson(job));
+        }
+        json.append(']');
+        send(exchange, 200, json.toString());
+    }
+
+    private void stream(HttpExchange exchange, ValidationJob job) throws IOException {
+        exchange.getResponseHeaders().set("Content-Type", "text/plain; charset=" + UTF8);
+        exchange.sendResponseHeaders(200, 0);
+        Writer writer = new OutputStreamWriter(exchange.getResponseBody(), UTF8);
+        try {
+            int next = 0;
+            while (true) {
+                List<String> lines = new ArrayList<String>();
+                int end = job.awaitLines(next, STREAM_WAIT, lines);
+                int skipped = end - next - lines.size();
+                if (skipped > 0) {
+                    writer.write("... " + skipped + " lines skipped, see " + job.getLogFileName() + "\n");
+                }
+                for (String line : lines) {
+                    writer.write(line);
+                    writer.write('\n');
+                }
+                next = end;
+                writer.flush();
+                if (lines.isEmpty() && job.isFinished()) {
+                    break;
+                }
+            }
+            writer.write("STATUS = " + job.getStatus().name() + "\n");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            writer.close();
+        }
+    }
+
+    private static void send(HttpExchange exchange, int status, String json) throws IOException {
+        if (json == null) {
+            exchange.sendResponseHeaders(status, -1);
+            return;
+        }
+        byte[] body = json.getBytes(UTF8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json; charset=" + UTF8);
+        exchange.sendResponseHeaders(status, body.length);
+        OutputStream out = exchange.getResponseBody();
+        out.write(body);
+        out.close();
+    }
+
+    private static String toJson(ValidationJob job) {
+        StringBuilder json = new StringBuilder();
+        json.append("{\"id\":").append(quote(job.getId()));
+        json.append(",\"archive\":").append(quote(job.getSiardDatei().getAbsolutePath()));
+        json.append(",\"status\":").append(quote(job.getStatus().name()));
+        if (job.getLocale() != null) {
+            json.append(",\"lang\":").append(quote(job.getLocale().toString()));
+        }
+        json.append(",\"submitted\":").append(job.getSubmitted());
+        json.append(",\"started\":").append(job.getStarted());
+        json.append(",\"finished\":").append(job.getFinished());
+        String log = job.getLogFileName();
+        json.append(",\"log\":").append(log == null ? "null" : quote(log));
+        json.append('}');
+        return json.toString();
+    }
+
+    private static String quote(String value) {
+        StringBuilder quoted = new StringBuilder("\"");
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"' || c == '\\') {
+                quoted.append('\\').append(c);
+            } else if (c < 0x20) {
+                quoted.append(String.format("\\u%04x", Integer.valueOf(c)));
+            } else {
+                quoted.append(c);
+            }
+        }
+        return quoted.append('"').toString();
+    }
+
+    private static String getParameter(String query, String name) throws IOException {
+        if (query == null) {
+            return null;
+        }
+        for (String parameter : query.split("&")) {
+            int index = parameter.indexOf('=');
+            if (index > 0 && parameter.substring(0, index).equals(name)) {
+                return URLDecoder.decode(parameter.substring(index + 1), UTF8);
+            }
+        }
+        return null;
+    }
+
+    /*
+     * fr, de_CH oder de-CH; ohne Angabe gilt die Sprache des Service.
+     */
+    private static Locale toLocale(String lang) {
+        if (lang == null || lang.trim().length() == 0) {
+            return null;
+        }
+        String[] parts = lang.trim().replace('-', '_').split("_", 2);
+        return parts.length == 1 ? new Locale(parts[0]) : new Locale(parts[0], parts[1]);
+    }
+
+    private static String readBody(InputStream in) throws IOException {
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        byte[] buffer = new byte[4096];
+        int read;
+        while ((read = in.read(buffer)) != -1) {
+            body.write(buffer, 0, read);
+        }
+        return body.toString(UTF8);
+    }
+}
@@ -0,0 +1,360 @@
+/*== SIARD-Val ==================================================================================
+The SIARD-Val application is used for validate SIARD-Files. 
+Copyright (C) 2012 Claire Rthlisberger (KOST-CECO), Martin Kaiser (KOST-CECO), XYZ (xyz)
+-----------------------------------------------------------------------------------------------
+SIARD-Val is a development of the KOST-CECO. All rights rest with the KOST-CECO. 
+This application is free software: you can redistribute it and/or modify it under the 
+terms of the GNU General Public License as published by the Free Software Foundation, 
+either version 3 of the License, or (at your option) any later version. 
+This application is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; 
+without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. 
+See the follow GNU General Public License for more details.
+You should have received a copy of the GNU General Public License along with this program; 
+if not, write to the Free Software Foundation, Inc., 51 Franklin Street, Fifth Floor, 
+Boston, MA 02110-1301 USA or see <http://www.gnu.org/licenses/>.
+==============================================================================================*/
+
+package ch.kostceco.tools.siardval.controller;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.log4j.AppenderSkeleton;
+import org.apache.log4j.spi.LoggingEvent;
+import org.springframework.beans.factory.ObjectFactory;
+
+import com.sun.net.httpserver.HttpServer;
+
+import ch.kostceco.tools.siardval.logging.ArchiveFilter;
+import ch.kostceco.tools.siardval.logging.LogConfigurator;
+import ch.kostceco.tools.siardval.logging.Logger;
+import ch.kostceco.tools.siardval.logging.MessageConstants;
+import ch.kostceco.tools.siardval.service.ArchiveService;
+import ch.kostceco.tools.siardval.service.ConfigurationService;
+import ch.kostceco.tools.siardval.service.MetricsService;
+import ch.kostceco.tools.siardval.service.TextResourceService;
+import ch.kostceco.tools.siardval.service.WorkDirService;
+
+/**
+ * SIARDVal -->
+ *
+ * Service-Modus: nimmt Validierungsauftrge ber HTTP entgegen (siehe
+ * {@link JobHttpHandler}) und fhrt sie in einer beschrnkten Warteschlange
+ * aus. Spring-Kontext, Services und Schema-Cache bleiben zwischen den
+ * Auftrgen erhalten. Wie im Batch-Modus erhlt jeder Auftrag einen eigenen
+ * {@link Controller} und ein eigenes Log.
+ * <p>
+ * Wird eine SIARD-Datei eingereicht, whrend ein Auftrag fr dieselbe,
+ * unvernderte Datei wartet oder luft, wird dieser Auftrag zurckgegeben
+ * statt die Datei ein zweites Mal zu validieren.
+ */
+public class ServiceController implements MessageConstants {
+
+    private static final Logger LOGGER = new Logger(ServiceController.class);
+
+    /* Anzahl beendeter Auftrge, deren Ergebnis abrufbar bleibt */
+    private static final int MAX_FINISHED_JOBS = 1000;
+
+    private TextResourceService textResourceService;
+    private ConfigurationService configurationService;
+    private ArchiveService archiveService;
+    private WorkDirService workDirService;
+    private LogConfigurator logConfigurator;
+    private ObjectFactory<?> controllerFactory;
+    private MetricsService metricsService;
+
+    private final Map<String, ValidationJob> jobs = new LinkedHashMap<String, ValidationJob>();
+    private final Map<String, ValidationJob> active = new HashMap<String, ValidationJob>();
+    private final AtomicInteger jobCount = new AtomicInteger();
+    private int finishedCount;
+    private ThreadPoolExecutor executor;
+    private HttpServer server;
+    private File directoryOfLogfile;
+
+    public TextResourceService getTextResourceService() {
+        return textResourceService;
+    }
+    public void setTextResourceService(TextResourceService textResourceService) {
+        this.textResourceService = textResourceService;
+    }
+
+    public ConfigurationService getConfigurationService() {
+        return configurationService;
+    }
+    public void setConfigurationService(ConfigurationService configurationService) {
+        this.configurationService = configurationService;
+    }
+
+    public ArchiveService getArchiveService() {
+        return archiveService;
+    }
+    public void setArchiveService(ArchiveService archiveService) {
+        this.archiveService = archiveService;
+    }
+
+    public WorkDirService getWorkDirService() {
+        return workDirService;
+    }
+
+    public void setWorkDirService(WorkDirService workDirService) {
+        this.workDirService = workDirService;
+    }
+
+    public LogConfigurator getLogConfigurator() {
+        return logConfigurator;
+    }
+    public void setLogConfigurator(LogConfigurator logConfigurator) {
+        this.logConfigurator = logConfigurator;
+    }
+
+    public ObjectFactory<?> getControllerFactory() {
+        return controllerFactory;
+    }
+    /**
+     * @param controllerFactory
+     *            liefert fr jeden Auftrag einen neuen Controller (Bean mit
+     *            scope="prototype")
+     */
+    public void setControllerFactory(ObjectFactory<?> controllerFactory) {
+        this.controllerFactory = controllerFactory;
+    }
+
+    public MetricsService getMetricsService() {
+        return metricsService;
+    }
+    public void setMetricsService(MetricsService metricsService) {
+        this.metricsService = metricsService;
+    }
+
+    /**
+     * Startet die Worker und den HTTP-Server. Der Server nimmt nur lokale
+     * Verbindungen an und luft, bis die JVM beendet wird.
+     * @param directoryOfLogfile Verzeichnis fr die Logs der Auftrge
+     */
+    public void start(File directoryOfLogfile) throws IOException {
+        this.directoryOfLogfile = directoryOfLogfile;
+        int workers = getConfigurationService().getBatchWorkers();
+        if (workers <= 0) {
+            workers = Runtime.getRuntime().availableProcessors();
+        }
+        int queueSize = getConfigurationService().getServiceQueue();
+        executor = new ThreadPoolExecutor(workers, workers, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<Runnable>(queueSize), new ServiceThreadFactory("siardval-job-"));
+
+        InetAddress address = InetAddress.getByName("127.0.0.1");
+        int port = getConfigurationService().getServicePort();
+        server = HttpServer.create(new InetSocketAddress(address, port), 0);
+        server.createContext(JobHttpHandler.CONTEXT, new JobHttpHandler(this));
+        server.setExecutor(Executors.newCachedThreadPool(new ServiceThreadFactory("siardval-http-")));
+        server.start();
+
+        getLogConfigurator().separateConsole();
+        LOGGER.logInfo(getTextResourceService().getText(MESSAGE_SERVICE_START, address.getHostAddress(),
+                String.valueOf(port), String.valueOf(queueSize), String.valueOf(workers)));
+    }
+
+    /**
+     * Reiht eine SIARD-Datei zur Validierung ein. Wartet oder luft bereits
+     * ein Auftrag fr dieselbe Datei und Sprache, wird dieser zurckgegeben.
+     * @param force auch validieren, falls das Ergebnis im Ergebnis-Cache liegt
+     * @param locale Sprache der Meldungen oder null fr die Sprache des Service
+     * @return der Auftrag oder null, falls die Warteschlange voll ist
+     */
+    public synchronized ValidationJob submit(File siardDatei, boolean force, Locale locale) throws IOException {
+        File file = siardDatei.getCanonicalFile();
+        String key = getKey(file, locale);
+        ValidationJob job = active.get(key);
+        if (job != null) {
+            return job;
+        }
+        job = new ValidationJob(String.valueOf(jobCount.incrementAndGet()), file, key, force, locale);
+        FutureTask<Object> task = new FutureTask<Object>(new JobTask(job), null);
+        job.setFuture(task);
+        try {
+            executor.execute(task);
+        } catch (RejectedExecutionException e) {
+            return null;
+        }
+        jobs.put(job.getId(), job);
+        active.put(key, job);
+        return job;
+    }
+
+    /**
+     * @return der wartende oder laufende Auftrag fr die SIARD-Datei und
+     *         Sprache oder null
+     */
+    public synchronized ValidationJob getActiveJob(File siardDatei, Locale locale) throws IOException {
+        return active.get(getKey(siardDatei.getCanonicalFile(), locale));
+    }
+
+    /*
+     * Eine genderte Datei ergibt einen neuen Schlssel und wird neu validiert.
+     */
+    private static String getKey(File file, Locale locale) {
+        return file.getPath() + "|" + file.length() + "|" + file.lastModified() + "|"
+                + (locale == null ? "" : locale.toString());
+    }
+
+    public synchronized ValidationJob getJob(String id) {
+        return jobs.get(id);
+    }
+
+    public synchronized List<ValidationJob> getJobs() {
+        return new ArrayList<ValidationJob>(jobs.values());
+    }
+
+    /**
+     * Bricht einen Auftrag ab. Ein wartender Auftrag wird aus der
+     * Warteschlange entfernt, bei einem laufenden wird die Validierung
+     * abgebrochen, ohne den Thread zu unterbrechen.
+     * @return der Auftrag oder null, falls er nicht bekannt ist
+     */
+    public ValidationJob cancel(String id) {
+        ValidationJob job = getJob(id);
+        if (job == null) {
+            return null;
+        }
+        if (job.cancel()) {
+            executor.remove((Runnable) job.getFuture());
+            finished(job);
+        }
+        return job;
+    }
+
+    private synchronized void finished(ValidationJob job) {
+        active.remove(job.getKey());
+        finishedCount++;
+        Iterator<ValidationJob> iterator = jobs.values().iterator();
+        while (finishedCount > MAX_FINISHED_JOBS && iterator.hasNext()) {
+            if (iterator.next().isFinished()) {
+                iterator.remove();
+                finishedCount--;
+            }
+        }
+    }
+
+    private void run(ValidationJob job) {
+        File siardDatei = job.getSiardDatei();
+        String archive = "job-" + job.getId();
+        if (!job.start()) {
+            return;
+        }
+        String logFileName = getLogConfigurator().configure(directoryOfLogfile.getAbsolutePath(),
+                siardDatei.getName() + "." + job.getId(), archive);
+        job.setLogFileName(logFileName);
+        JobAppender appender = new JobAppender(job, archive);
+        org.apache.log4j.Logger.getRootLogger().addAppender(appender);
+        // gilt auch fr die Threads, die die Validierung startet
+        getTextResourceService().setLocale(job.getLocale());
+        // eigenes Arbeitsverzeichnis, auch wenn die Datei gleichzeitig in einer anderen Sprache luft
+        WorkDirService.Run run = getWorkDirService().acquire(siardDatei);
+        ValidationJob.Status result;
+        try {
+            LOGGER.logError(getTextResourceService().getText(MESSAGE_SIARDVALIDATION, siardDatei.getName()));
+            Controller controller = (Controller) getControllerFactory().getObject();
+            job.setController(controller);
+            boolean valid = controller.validate(siardDatei, logFileName, job.isForce());
+            result = valid ? ValidationJob.Status.VALID : ValidationJob.Status.INVALID;
+        } catch (RuntimeException e) {
+            LOGGER.logInfo(getTextResourceService().getText(ERROR_UNKNOWN));
+            LOGGER.logError(e.getMessage(), e);
+            result = ValidationJob.Status.ERROR;
+        } finally {
+            org.apache.log4j.Logger.getRootLogger().removeAppender(appender);
+            getTextResourceService().setLocale(null);
+            getArchiveService().release(siardDatei);
+            // jeder Auftrag hat sein eigenes Arbeitsverzeichnis, gelscht wird im Hintergrund
+            getWorkDirService().release(run);
+            getLogConfigurator().release(archive);
+        }
+        if (getMetricsService() != null) {
+            // die Summe aller Auftrge seit dem Start des Service
+            getMetricsService().write(getMetricsService().getTotal(),
+                    new File(directoryOfLogfile, MetricsService.TOTAL_NAME));
+        }
+        job.finish(result);
+        finished(job);
+        LOGGER.logInfo(getTextResourceService().getText(MESSAGE_SERVICE_JOB, job.getId(),
+                siardDatei.getAbsolutePath(), job.getStatus().name(),
+                String.valueOf((job.getFinished() - job.getStarted()) / 100 / 10.0)));
+    }
+
+    private class JobTask implements Runnable {
+
+        private final ValidationJob job;
+
+        JobTask(ValidationJob job) {
+            this.job = job;
+        }
+
+        @Override
+        public void run() {
+            ServiceController.this.run(job);
+        }
+    }
+
+    /*
+     * Sammelt die Meldungen eines Auftrags fr den Abruf ber HTTP.
+     */
+    private static class JobAppender extends AppenderSkeleton {
+
+        private final ValidationJob job;
+
+        JobAppender(ValidationJob job, String archive) {
+            this.job = job;
+            setName("job-appender-" + archive);
+            addFilter(new ArchiveFilter(archive));
+        }
+
+        @Override
+        protected void append(LoggingEvent event) {
+            String message = event.getRenderedMessage();
+            if (message != null) {
+                job.addLine(message);
+            }
+        }
+
+        @Override
+        public boolean requiresLayout() {
+            return false;
+        }
+
+        @Override
+        public void close() {
+            closed = true;
+        }
+    }
+
+    private static class ServiceThreadFactory implements ThreadFactory {
+
+        private final String name;
+        private final AtomicInteger count = new AtomicInteger();
+
+        ServiceThreadFactory(String name) {
+            this.name = name;
+        }
+
+        @Override
+        public Thread newThread(Runnable runnable) {
+            return new Thread(runnable, name + count.incrementAndGet());
+        }
+    }
+}
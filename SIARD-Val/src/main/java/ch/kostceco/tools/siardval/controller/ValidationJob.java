@@ -0,0 +1,233 @@
+/*== SIARD-Val ==================================================================================
+The SIARD-Val application is used for validate SIARD-Files. 
+Copyright (C) 2012 Claire Rthlisberger (KOST-CECO), Martin Kaiser (KOST-CECO), XYZ (xyz)
+-----------------------------------------------------------------------------------------------
+SIARD-Val is a development of the KOST-CECO. All rights rest with the KOST-CECO. 
+This application is free software: you can redistribute it and/or modify it under the 
+terms of the GNU General Public License as published by the Free Software Foundation, 
+either version 3 of the License, or (at your option) any later version. 
+This application is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; 
+without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. 
+See the follow GNU General Public License for more details.
+You should have received a copy of the GNU General Public License along with this program; 
+if not, write to the Free Software Foundation, Inc., 51 Franklin Street, Fifth Floor, 
+Boston, MA 02110-1301 USA or see <http://www.gnu.org/licenses/>.
+==============================================================================================*/
+
+package ch.kostceco.tools.siardval.controller;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.Future;
+
+/**
+ * Ein Validierungsauftrag des {@link ServiceController}. Der Auftrag sammelt
+ * die Meldungen seiner Validierung, damit sie whrend der Validierung
+ * abgerufen werden knnen. Behalten werden nur die letzten Meldungen, nach
+ * dem Ende des Auftrags noch weniger; vollstndig stehen sie im Log.
+ */
+public class ValidationJob {
+
+    /* Meldungen, die whrend der Validierung behalten werden */
+    static final int MAX_LINES = 1000;
+
+    /* Meldungen, die nach dem Ende des Auftrags behalten werden */
+    static final int MAX_FINISHED_LINES = 100;
+
+    public enum Status {
+        QUEUED, RUNNING, VALID, INVALID, ERROR, CANCELLED
+    }
+
+    private final String id;
+    private final File siardDatei;
+    private final String key;
+    private final boolean force;
+    private final Locale locale;
+    private final long submitted = System.currentTimeMillis();
+    private final List<String> lines = new ArrayList<String>();
+    /* Position der ersten behaltenen Meldung */
+    private int first;
+    private Status status = Status.QUEUED;
+    private boolean cancelRequested;
+    private Future<?> future;
+    private Controller controller;
+    private String logFileName;
+    private long started;
+    private long finished;
+
+    ValidationJob(String id, File siardDatei, String key, boolean force, Locale locale) {
+        this.id = id;
+        this.siardDatei = siardDatei;
+        this.key = key;
+        this.force = force;
+        this.locale = locale;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public File getSiardDatei() {
+        return siardDatei;
+    }
+
+    /**
+     * @return Kennung der SIARD-Datei (Pfad, Grsse, nderungsdatum), gleiche
+     *         Auftrge haben denselben Schlssel
+     */
+    String getKey() {
+        return key;
+    }
+
+    /**
+     * @return true, falls das Ergebnis nicht aus dem Ergebnis-Cache genommen
+     *         werden darf
+     */
+    public boolean isForce() {
+        return force;
+    }
+
+    /**
+     * @return die Sprache der Meldungen oder null fr die Sprache des Service
+     */
+    public Locale getLocale() {
+        return locale;
+    }
+
+    public synchronized Status getStatus() {
+        return status;
+    }
+
+    public synchronized boolean isFinished() {
+        return status != Status.QUEUED && status != Status.RUNNING;
+    }
+
+    public synchronized String getLogFileName() {
+        return logFileName;
+    }
+
+    synchronized void setLogFileName(String logFileName) {
+        this.logFileName = logFileName;
+    }
+
+    public long getSubmitted() {
+        return submitted;
+    }
+
+    public synchronized long getStarted() {
+        return started;
+    }
+
+    public synchronized long getFinished() {
+        return finished;
+    }
+
+    synchronized Future<?> getFuture() {
+        return future;
+    }
+
+    synchronized void setFuture(Future<?> future) {
+        this.future = future;
+    }
+
+    /**
+     * Setzt den Controller, der den laufenden Auftrag validiert; wurde der
+     * Auftrag bereits abgebrochen, wird die Validierung gleich abgebrochen.
+     */
+    void setController(Controller controller) {
+        boolean cancelled;
+        synchronized (this) {
+            this.controller = controller;
+            cancelled = cancelRequested;
+        }
+        // ausserhalb des Monitors, den auch das Log der Validierung belegt
+        if (cancelled && controller != null) {
+            controller.cancelValidation();
+        }
+    }
+
+    /**
+     * @return false, falls der Auftrag vor dem Start abgebrochen wurde
+     */
+    synchronized boolean start() {
+        if (status != Status.QUEUED) {
+            return false;
+        }
+        status = Status.RUNNING;
+        started = System.currentTimeMillis();
+        return true;
+    }
+
+    /**
+     * Markiert den Auftrag als abgebrochen. Ein wartender Auftrag ist damit
+     * beendet, ein laufender endet, sobald die Validierung den Abbruch
+     * bemerkt; die Validierung wird dazu ber den Controller abgebrochen.
+     * @return true, falls der Auftrag noch wartete
+     */
+    boolean cancel() {
+        Controller running;
+        synchronized (this) {
+            if (isFinished()) {
+                return false;
+            }
+            cancelRequested = true;
+            if (status == Status.QUEUED) {
+                finish(Status.CANCELLED);
+                return true;
+            }
+            running = controller;
+        }
+        if (running != null) {
+            running.cancelValidation();
+        }
+        return false;
+    }
+
+    synchronized void finish(Status result) {
+        status = cancelRequested ? Status.CANCELLED : result;
+        finished = System.currentTimeMillis();
+        controller = null;
+        trim(MAX_FINISHED_LINES);
+        notifyAll();
+    }
+
+    synchronized void addLine(String line) {
+        lines.add(line);
+        // verworfen wird blockweise, damit nicht jede Meldung die Liste verschiebt
+        if (lines.size() >= 2 * MAX_LINES) {
+            trim(MAX_LINES);
+        }
+        notifyAll();
+    }
+
+    private void trim(int max) {
+        int surplus = lines.size() - max;
+        if (surplus > 0) {
+            lines.subList(0, surplus).clear();
+            first += surplus;
+        }
+    }
+
+    /**
+     * Hngt die Meldungen ab der Position from an target an. Liegen noch
+     * keine vor, wird hchstens timeout Millisekunden gewartet.
+     * @return die Position nach der letzten Meldung; ist sie grsser als from
+     *         plus die Anzahl der angehngten Meldungen, waren die Meldungen
+     *         dazwischen bereits verworfen
+     */
+    public synchronized int awaitLines(int from, long timeout, List<String> target)
+            throws InterruptedException {
+        int end = first + lines.size();
+        if (end <= from && !isFinished()) {
+            wait(timeout);
+            end = first + lines.size();
+        }
+        if (end <= from) {
+            return from;
+        }
+        target.addAll(lines.subList(Math.max(from - first, 0), lines.size()));
+        return end;
+    }
+}
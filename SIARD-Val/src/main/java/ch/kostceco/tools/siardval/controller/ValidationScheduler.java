@@ -0,0 +1,320 @@
+/*== SIARD-Val ==================================================================================
+The SIARD-Val application is used for validate SIARD-Files. 
+Copyright (C) 2012 Claire Rthlisberger (KOST-CECO), Martin Kaiser (KOST-CECO), XYZ (xyz)
+-----------------------------------------------------------------------------------------------
+SIARD-Val is a development of the KOST-CECO. All rights rest with the KOST-CECO. 
+This application is free software: you can redistribute it and/or modify it under the 
+terms of the GNU General Public License as published by the Free Software Foundation, 
+either version 3 of the License, or (at your option) any later version. 
+This application is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; 
+without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. 
+See the follow GNU General Public License for more details.
+You should have received a copy of the GNU General Public License along with this program; 
+if not, write to the Free Software Foundation, Inc., 51 Franklin Street, Fifth Floor, 
+Boston, MA 02110-1301 USA or see <http://www.gnu.org/licenses/>.
+==============================================================================================*/
+
+package ch.kostceco.tools.siardval.controller;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import ch.kostceco.tools.siardval.metrics.ArchiveMetrics;
+import ch.kostceco.tools.siardval.metrics.Measurement;
+import ch.kostceco.tools.siardval.metrics.Metrics;
+import ch.kostceco.tools.siardval.util.Cancellation;
+
+/**
+ * Fhrt die Validierungsschritte parallel aus. Ein Schritt wird erst dem
+ * Thread-Pool bergeben, wenn alle Schritte, von denen er abhngt,
+ * abgeschlossen sind; unabhngige Schritte laufen gleichzeitig.
+ *
+ * <p>
+ * Die Reihenfolge der Schritte in der bergebenen Liste ist die
+ * Ausgabereihenfolge. Ist ein obligatorischer Schritt invalid, werden alle
+ * nachfolgenden Schritte abgebrochen; die vorangehenden laufen weiter, damit
+ * ihr Ergebnis wie bei der sequentiellen Ausfhrung ausgegeben werden kann.
+ *
+ * <p>
+ * Abgebrochen wird ohne Thread.interrupt, siehe {@link Cancellation}: ein
+ * laufender Schritt gilt sofort als abgebrochen, sein Modul beendet sich
+ * beim nchsten Abfragen des Flags.
+ *
+ * <p>
+ * Jeder Schritt wird als Phase validate seines Moduls gemessen, in den
+ * Metriken, an die der startende Thread gebunden ist.
+ */
+public class ValidationScheduler {
+
+	/**
+	 * Ergebnis eines Schrittes.
+	 */
+	public static class StepResult {
+
+		private final boolean valid;
+		private final boolean cancelled;
+		private final Throwable exception;
+		private final long nanos;
+
+		StepResult(boolean valid, boolean cancelled, Throwable exception, long nanos) {
+			this.valid = valid;
+			this.cancelled = cancelled;
+			this.exception = exception;
+			this.nanos = nanos;
+		}
+
+		public boolean isValid() {
+			return valid;
+		}
+
+		/**
+		 * @return true, falls der Schritt nicht ausgefhrt oder abgebrochen
+		 *         wurde
+		 */
+		public boolean isCancelled() {
+			return cancelled;
+		}
+
+		/**
+		 * @return die Exception des Moduls oder null
+		 */
+		public Throwable getException() {
+			return exception;
+		}
+
+		/**
+		 * @return die Dauer von validate des Moduls in Nanosekunden, 0 falls
+		 *         der Schritt nicht ausgefhrt wurde
+		 */
+		public long getNanos() {
+			return nanos;
+		}
+	}
+
+	private final List<ValidationStep> steps;
+	private final Map<String, StepTask> tasks = new HashMap<String, StepTask>();
+	private final ExecutorService executor;
+	private ArchiveMetrics metrics;
+
+	/**
+	 * @param steps
+	 *            die Schritte in Ausgabereihenfolge; ein Schritt darf nur von
+	 *            vorangehenden Schritten abhngen
+	 * @param threads
+	 *            Anzahl Threads, bei 0 oder weniger die Anzahl Prozessoren
+	 */
+	public ValidationScheduler(List<ValidationStep> steps, int threads) {
+		this.steps = new ArrayList<ValidationStep>(steps);
+		for (int i = 0; i < this.steps.size(); i++) {
+			ValidationStep step = this.steps.get(i);
+			for (String dependency : step.getDependencies()) {
+				if (!tasks.containsKey(dependency)) {
+					throw new IllegalArgumentException("Schritt " + step.getId()
+							+ " hngt von keinem vorangehenden Schritt " + dependency + " ab");
+				}
+			}
+			if (tasks.containsKey(step.getId())) {
+				throw new IllegalArgumentException("Schritt " + step.getId() + " ist doppelt");
+			}
+			tasks.put(step.getId(), new StepTask(step, i));
+		}
+		for (StepTask task : tasks.values()) {
+			for (String dependency : task.step.getDependencies()) {
+				tasks.get(dependency).dependents.add(task);
+			}
+		}
+		if (threads <= 0) {
+			threads = Runtime.getRuntime().availableProcessors();
+		}
+		executor = Executors.newFixedThreadPool(Math.max(1, Math.min(threads, this.steps.size())),
+				new ValidationThreadFactory());
+	}
+
+	/**
+	 * Startet alle Schritte ohne Abhngigkeiten; die brigen folgen, sobald
+	 * ihre Abhngigkeiten abgeschlossen sind.
+	 */
+	public void start(File siardDatei) {
+		List<StepTask> ready = new ArrayList<StepTask>();
+		synchronized (this) {
+			metrics = Metrics.getArchive();
+			for (ValidationStep step : steps) {
+				StepTask task = tasks.get(step.getId());
+				task.siardDatei = siardDatei;
+				if (task.pending == 0) {
+					ready.add(task);
+				}
+			}
+		}
+		for (StepTask task : ready) {
+			submit(task);
+		}
+	}
+
+	/**
+	 * Wartet auf das Ergebnis eines Schrittes.
+	 */
+	public StepResult await(ValidationStep step) throws InterruptedException {
+		StepTask task = tasks.get(step.getId());
+		try {
+			return new StepResult(task.get().booleanValue(), false, null, task.nanos);
+		} catch (CancellationException e) {
+			return new StepResult(false, true, null, 0);
+		} catch (ExecutionException e) {
+			return new StepResult(false, false, e.getCause(), task.nanos);
+		}
+	}
+
+	/**
+	 * Bricht alle noch laufenden und wartenden Schritte ab und beendet den
+	 * Thread-Pool.
+	 */
+	public void cancel() {
+		for (StepTask task : tasks.values()) {
+			task.cancel(false);
+		}
+		executor.shutdown();
+	}
+
+	/**
+	 * Beendet den Thread-Pool, nachdem alle Schritte abgeschlossen sind.
+	 */
+	public void shutdown() {
+		executor.shutdown();
+	}
+
+	private void submit(StepTask task) {
+		if (task.isCancelled() || executor.isShutdown()) {
+			return;
+		}
+		try {
+			executor.execute(task);
+		} catch (RejectedExecutionException e) {
+			// der Pool wurde zwischenzeitlich beendet
+			task.cancel(false);
+		}
+	}
+
+	/*
+	 * Wird aufgerufen, wenn ein Schritt abgeschlossen oder abgebrochen ist.
+	 */
+	private void completed(StepTask task) {
+		if (task.step.isMandatory() && !task.isSuccessful()) {
+			for (int i = task.position + 1; i < steps.size(); i++) {
+				tasks.get(steps.get(i).getId()).cancel(false);
+			}
+		}
+		List<StepTask> ready = new ArrayList<StepTask>();
+		synchronized (this) {
+			for (StepTask dependent : task.dependents) {
+				dependent.pending--;
+				if (dependent.pending == 0 && dependent.siardDatei != null) {
+					ready.add(dependent);
+				}
+			}
+		}
+		for (StepTask dependent : ready) {
+			submit(dependent);
+		}
+	}
+
+	private class StepTask extends FutureTask<Boolean> {
+
+		private final ValidationStep step;
+		private final int position;
+		private final List<StepTask> dependents = new ArrayList<StepTask>();
+		private final AtomicBoolean cancelled = new AtomicBoolean();
+		private int pending;
+		private File siardDatei;
+		private volatile long nanos;
+
+		StepTask(ValidationStep step, int position) {
+			this(step, position, new StepCallable());
+		}
+
+		private StepTask(ValidationStep step, int position, StepCallable callable) {
+			super(callable);
+			callable.task = this;
+			this.step = step;
+			this.position = position;
+			this.pending = step.getDependencies().size();
+		}
+
+		boolean isSuccessful() {
+			if (isCancelled()) {
+				return false;
+			}
+			try {
+				return get().booleanValue();
+			} catch (Exception e) {
+				return false;
+			}
+		}
+
+		/*
+		 * Setzt das Abbruch-Flag des Moduls; der Thread wird nie
+		 * unterbrochen.
+		 */
+		@Override
+		public boolean cancel(boolean mayInterruptIfRunning) {
+			cancelled.set(true);
+			return super.cancel(false);
+		}
+
+		@Override
+		protected void done() {
+			completed(this);
+		}
+	}
+
+	private class StepCallable implements Callable<Boolean> {
+
+		private StepTask task;
+
+		@Override
+		public Boolean call() throws Exception {
+			synchronized (ValidationScheduler.this) {
+				Metrics.bind(metrics, task.step.getId());
+			}
+			Cancellation.bind(task.cancelled);
+			long start = System.nanoTime();
+			Measurement measurement = Metrics.start(Metrics.VALIDATE);
+			measurement.setOutcome(Measurement.ERROR);
+			try {
+				boolean valid = task.step.getModule().validate(task.siardDatei);
+				measurement.setOutcome(valid ? Measurement.VALID : Measurement.INVALID);
+				return Boolean.valueOf(valid);
+			} finally {
+				measurement.stop();
+				task.nanos = System.nanoTime() - start;
+				Cancellation.unbind();
+				Metrics.unbind();
+			}
+		}
+	}
+
+	private static class ValidationThreadFactory implements ThreadFactory {
+
+		private final AtomicInteger count = new AtomicInteger();
+
+		@Override
+		public Thread newThread(Runnable runnable) {
+			Thread thread = new Thread(runnable, "siardval-validation-" + count.incrementAndGet());
+			thread.setDaemon(true);
+			return thread;
+		}
+	}
+}
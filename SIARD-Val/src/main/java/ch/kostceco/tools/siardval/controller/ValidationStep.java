@@ -0,0 +1,92 @@
+/*== SIARD-Val ==================================================================================
+The SIARD-Val application is used for validate SIARD-Files. 
+Copyright (C) 2012 Claire Rthlisberger (KOST-CECO), Martin Kaiser (KOST-CECO), XYZ (xyz)
+-----------------------------------------------------------------------------------------------
+SIARD-Val is a development of the KOST-CECO. All rights rest with the KOST-CECO. 
+This application is free software: you can redistribute it and/or modify it under the 
+terms of the GNU General Public License as published by the Free Software Foundation, 
+either version 3 of the License, or (at your option) any later version. 
+This application is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; 
+without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. 
+See the follow GNU General Public License for more details.
+You should have received a copy of the GNU General Public License along with this program; 
+if not, write to the Free Software Foundation, Inc., 51 Franklin Street, Fifth Floor, 
+Boston, MA 02110-1301 USA or see <http://www.gnu.org/licenses/>.
+==============================================================================================*/
+
+package ch.kostceco.tools.siardval.controller;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import ch.kostceco.tools.siardval.validation.ValidationModule;
+
+/**
+ * Ein Validierungsschritt im {@link ValidationScheduler}: das Modul, die
+ * Message-Keys fr die Ausgabe, ob der Schritt obligatorisch ist und von
+ * welchen Schritten er abhngt.
+ */
+public class ValidationStep {
+
+	private final String id;
+	private final ValidationModule module;
+	private final String moduleKey;
+	private final String resultKey;
+	private final boolean mandatory;
+	private final List<String> dependencies;
+
+	/**
+	 * @param id
+	 *            Bezeichnung des Schrittes, z.B. "C"
+	 * @param module
+	 *            das auszufhrende Modul
+	 * @param moduleKey
+	 *            Message-Key des Modulnamens, z.B. MESSAGE_MODULE_C
+	 * @param resultKey
+	 *            Message-Key der Erluterung bei invalidem Ergebnis, z.B.
+	 *            MESSAGE_STEPERGEBNIS_C
+	 * @param mandatory
+	 *            true, falls ein invalides Ergebnis die Validierung abbricht
+	 * @param dependencies
+	 *            die Schritte, die vorher abgeschlossen sein mssen
+	 */
+	public ValidationStep(String id, ValidationModule module, String moduleKey, String resultKey,
+			boolean mandatory, String... dependencies) {
+		this.id = id;
+		this.module = module;
+		this.moduleKey = moduleKey;
+		this.resultKey = resultKey;
+		this.mandatory = mandatory;
+		this.dependencies = Collections.unmodifiableList(Arrays.asList(dependencies));
+	}
+
+	public String getId() {
+		return id;
+	}
+
+	public ValidationModule getModule() {
+		return module;
+	}
+
+	public String getModuleKey() {
+		return moduleKey;
+	}
+
+	public String getResultKey() {
+		return resultKey;
+	}
+
+	public boolean isMandatory() {
+		return mandatory;
+	}
+
+	public List<String> getDependencies() {
+		return dependencies;
+	}
+
+	@Override
+	public String toString() {
+		return id;
+	}
+}
@@ -0,0 +1,52 @@
+/*== SIARD-Val ==================================================================================
+The SIARD-Val application is used for validate SIARD-Files. 
+Copyright (C) 2012 Claire Rthlisberger (KOST-CECO), Martin Kaiser (KOST-CECO), XYZ (xyz)
+-----------------------------------------------------------------------------------------------
+SIARD-Val is a development of the KOST-CECO. All rights rest with the KOST-CECO. 
+This application is free software: you can redistribute it and/or modify it under the 
+terms of the GNU General Public License as published by the Free Software Foundation, 
+either version 3 of the License, or (at your option) any later version. 
+This application is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; 
+without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. 
+See the follow GNU General Public License for more details.
+You should have received a copy of the GNU General Public License along with this program; 
+if not, write to the Free Software Foundation, Inc., 51 Franklin Street, Fifth Floor, 
+Boston, MA 02110-1301 USA or see <http://www.gnu.org/licenses/>.
+==============================================================================================*/
+
+package ch.kostceco.tools.siardval.logging;
+
+import org.apache.log4j.spi.Filter;
+import org.apache.log4j.spi.LoggingEvent;
+
+/**
+ * Filtert Log-Meldungen nach der SIARD-Datei, deren Validierung sie
+ * erzeugt hat. Die Datei wird im MDC unter {@link #MDC_KEY} abgelegt; da
+ * der MDC an neu gestartete Threads vererbt wird, tragen auch die Meldungen
+ * der parallel laufenden Validierungsschritte die Datei.
+ * <p>
+ * Mit einer Datei lsst der Filter nur deren Meldungen durch, ohne Datei nur
+ * Meldungen, die keiner Datei zugeordnet sind.
+ */
+public class ArchiveFilter extends Filter {
+
+    public static final String MDC_KEY = "siardval.archive";
+
+    private final String archive;
+
+    /**
+     * @param archive Kennung der SIARD-Datei oder null
+     */
+    public ArchiveFilter(String archive) {
+        this.archive = archive;
+    }
+
+    @Override
+    public int decide(LoggingEvent event) {
+        Object value = event.getMDC(MDC_KEY);
+        if (archive == null) {
+            return value == null ? NEUTRAL : DENY;
+        }
+        return archive.equals(value) ? NEUTRAL : DENY;
+    }
+}
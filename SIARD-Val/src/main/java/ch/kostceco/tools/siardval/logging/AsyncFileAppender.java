@@ -0,0 +1,229 @@
+/*== SIARD-Val ==================================================================================
+The SIARD-Val application is used for validate SIARD-Files. 
+Copyright (C) 2012 Claire Rthlisberger (KOST-CECO), Martin Kaiser (KOST-CECO), XYZ (xyz)
+-----------------------------------------------------------------------------------------------
+SIARD-Val is a development of the KOST-CECO. All rights rest with the KOST-CECO. 
+This application is free software: you can redistribute it and/or modify it under the 
+terms of the GNU General Public License as published by the Free Software Foundation, 
+either version 3 of the License, or (at your option) any later version. 
+This application is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; 
+without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. 
+See the follow GNU General Public License for more details.
+You should have received a copy of the GNU General Public License along with this program; 
+if not, write to the Free Software Foundation, Inc., 51 Franklin Street, Fifth Floor, 
+Boston, MA 02110-1301 USA or see <http://www.gnu.org/licenses/>.
+==============================================================================================*/
+
+package ch.kostceco.tools.siardval.logging;
+
+import java.io.BufferedWriter;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.log4j.AppenderSkeleton;
+import org.apache.log4j.Layout;
+import org.apache.log4j.Level;
+import org.apache.log4j.Logger;
+import org.apache.log4j.spi.LoggingEvent;
+
+import ch.kostceco.tools.siardval.service.TextResourceService;
+
+/**
+ * Schreibt das Log einer Validierung asynchron: die Meldungen werden in
+ * einem Ringpuffer fester Grsse abgelegt und von einem eigenen Thread in
+ * Blcken in die Datei geschrieben. Die validierenden Threads warten so
+ * nicht auf das Dateisystem.
+ * <p>
+ * Ist der Puffer voll, wartet der meldende Thread ({@link #BLOCK}) oder die
+ * Meldung wird verworfen und gezhlt ({@link #DROP}); die Anzahl verworfener
+ * Meldungen steht am Schluss des Logs. Erst {@link #close()} garantiert, dass
+ * alle Meldungen in der Datei stehen.
+ * <p>
+ * Die Filter werden im meldenden Thread angewendet, der MDC ist also jener
+ * der Validierung.
+ */
+public class AsyncFileAppender extends AppenderSkeleton implements MessageConstants {
+
+    /** bei vollem Puffer warten, es geht keine Meldung verloren */
+    public static final String BLOCK = "block";
+    /** bei vollem Puffer die Meldung verwerfen und zhlen */
+    public static final String DROP = "drop";
+
+    /* hchstens so viele Meldungen werden vor einem flush geschrieben */
+    private static final int BATCH_SIZE = 512;
+
+    /* beendet den Schreib-Thread */
+    private static final LoggingEvent END = new LoggingEvent(AsyncFileAppender.class.getName(),
+            Logger.getRootLogger(), Level.OFF, null, null);
+
+    private final String fileName;
+    private final BlockingQueue<LoggingEvent> buffer;
+    private final boolean drop;
+    private final AtomicLong dropped = new AtomicLong();
+    private final Writer out;
+    private final Thread writer;
+    private TextResourceService textResourceService;
+
+    /**
+     * Legt die Datei an und startet den Schreib-Thread.
+     * @param bufferSize Anzahl Meldungen im Ringpuffer
+     * @param overflowPolicy {@link #BLOCK} oder {@link #DROP}
+     */
+    public AsyncFileAppender(Layout layout, String fileName, int bufferSize, String overflowPolicy)
+            throws IOException {
+        this.layout = layout;
+        this.fileName = fileName;
+        this.buffer = new ArrayBlockingQueue<LoggingEvent>(Math.max(1, bufferSize));
+        this.drop = DROP.equalsIgnoreCase(overflowPolicy);
+        this.out = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(fileName, false)), 64 * 1024);
+        this.writer = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                write();
+            }
+        }, "siardval-log-" + fileName.substring(fileName.lastIndexOf(java.io.File.separatorChar) + 1));
+        this.writer.setDaemon(true);
+        this.writer.start();
+    }
+
+    public String getFileName() {
+        return fileName;
+    }
+
+    /**
+     * @return Anzahl Meldungen, die wegen vollem Puffer verworfen wurden
+     */
+    public long getDropped() {
+        return dropped.get();
+    }
+
+    /**
+     * @param textResourceService fr den Hinweis auf verworfene Meldungen
+     */
+    public void setTextResourceService(TextResourceService textResourceService) {
+        this.textResourceService = textResourceService;
+    }
+
+    @Override
+    protected void append(LoggingEvent event) {
+        if (drop) {
+            if (!buffer.offer(event)) {
+                dropped.incrementAndGet();
+            }
+            return;
+        }
+        try {
+            buffer.put(event);
+        } catch (InterruptedException e) {
+            // die Validierung wird abgebrochen; ohne Warten nur, wenn Platz ist
+            Thread.currentThread().interrupt();
+            if (!buffer.offer(event)) {
+                dropped.incrementAndGet();
+            }
+        }
+    }
+
+    /**
+     * Schreibt die restlichen Meldungen, wartet auf den Schreib-Thread und
+     * schliesst die Datei.
+     */
+    @Override
+    public synchronized void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        boolean interrupted = false;
+        while (true) {
+            try {
+                buffer.put(END);
+                writer.join();
+                break;
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        try {
+            if (dropped.get() > 0 && textResourceService != null) {
+                out.write(textResourceService.getText(ERROR_LOGGING_DROPPED, String.valueOf(dropped.get())));
+                out.write(Layout.LINE_SEP);
+            }
+            out.close();
+        } catch (IOException e) {
+            errorHandler.error("Log nicht geschlossen: " + fileName, e, 0);
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @Override
+    public boolean requiresLayout() {
+        return true;
+    }
+
+    /*
+     * Schreib-Thread: wartet auf die erste Meldung und schreibt sie mit
+     * allen bereits wartenden in einem Block.
+     */
+    private void write() {
+        List<LoggingEvent> batch = new ArrayList<LoggingEvent>(BATCH_SIZE);
+        boolean failed = false;
+        while (true) {
+            try {
+                batch.add(buffer.take());
+            } catch (InterruptedException e) {
+                // nur close() beendet den Thread
+                continue;
+            }
+            buffer.drainTo(batch, BATCH_SIZE - 1);
+            boolean end = false;
+            for (LoggingEvent event : batch) {
+                if (event == END) {
+                    end = true;
+                } else if (!failed) {
+                    failed = !write(event);
+                }
+            }
+            batch.clear();
+            if (!failed) {
+                try {
+                    out.flush();
+                } catch (IOException e) {
+                    failed = true;
+                    errorHandler.error("Log nicht geschrieben: " + fileName, e, 0);
+                }
+            }
+            if (end) {
+                return;
+            }
+        }
+    }
+
+    private boolean write(LoggingEvent event) {
+        try {
+            out.write(layout.format(event));
+            if (layout.ignoresThrowable()) {
+                String[] throwable = event.getThrowableStrRep();
+                if (throwable != null) {
+                    for (String line : throwable) {
+                        out.write(line);
+                        out.write(Layout.LINE_SEP);
+                    }
+                }
+            }
+            return true;
+        } catch (IOException e) {
+            // die Validierung luft weiter, nur das Log ist unvollstndig
+            errorHandler.error("Log nicht geschrieben: " + fileName, e, 0);
+            return false;
+        }
+    }
+}
@@ -17,9 +17,14 @@ package ch.kostceco.tools.siardval.logging;
 
 import java.io.File;
 import java.io.IOException;
+import java.util.Enumeration;
 
+import org.apache.log4j.Appender;
+import org.apache.log4j.AppenderSkeleton;
 import org.apache.log4j.FileAppender;
 import org.apache.log4j.Logger;
+import org.apache.log4j.MDC;
+import org.apache.log4j.spi.Filter;
 
 import ch.kostceco.tools.siardval.service.TextResourceService;
 
@@ -35,6 +40,8 @@ public class LogConfigurator implements MessageConstants {
             LogConfigurator.class);
 
     private TextResourceService textResourceService;
+    private int bufferSize = 8192;
+    private String overflowPolicy = AsyncFileAppender.BLOCK;
 
     
     public TextResourceService getTextResourceService() {
@@ -44,26 +51,104 @@ public class LogConfigurator implements MessageConstants {
         this.textResourceService = textResourceService;
     }
 
+    /**
+     * @param bufferSize Anzahl Meldungen, die pro Log-Datei auf das
+     *            Schreiben warten knnen
+     */
+    public void setBufferSize(int bufferSize) {
+        this.bufferSize = bufferSize;
+    }
+
+    /**
+     * @param overflowPolicy Verhalten bei vollem Puffer,
+     *            {@link AsyncFileAppender#BLOCK} oder {@link AsyncFileAppender#DROP}
+     */
+    public void setOverflowPolicy(String overflowPolicy) {
+        this.overflowPolicy = overflowPolicy;
+    }
+
     public String configure(String directoryOfLogfile, String nameOfLogfile) {
         
         String logFileName = directoryOfLogfile + File.separator + nameOfLogfile + ".validationlog.log"; 
         //String logFileName = directoryOfLogfile + File.separator + "SIARDVal-TEST.log";
+        addFileAppender(logFileName, "logfile", null);
+        
+        return logFileName;
+    }
+
+    /**
+     * Erstellt im Batch-Modus das Log einer einzelnen SIARD-Datei. Die Datei
+     * wird dem aktuellen Thread (und den von ihm gestarteten Threads) im MDC
+     * zugeordnet; ins Log gelangen nur deren Meldungen. Nach der Validierung
+     * muss {@link #release(String)} aufgerufen werden.
+     * @param archive eindeutige Kennung der SIARD-Datei
+     * @return Pfad der Log-Datei
+     */
+    public String configure(String directoryOfLogfile, String nameOfLogfile, String archive) {
+        String logFileName = directoryOfLogfile + File.separator + nameOfLogfile + ".validationlog.log";
+        MDC.put(ArchiveFilter.MDC_KEY, archive);
+        addFileAppender(logFileName, "logfile-" + archive, new ArchiveFilter(archive));
+        return logFileName;
+    }
+
+    /**
+     * Schliesst das mit {@link #configure(String, String, String)} erstellte
+     * Log und hebt die Zuordnung des aktuellen Threads auf. Kehrt erst
+     * zurck, wenn alle Meldungen in der Datei stehen.
+     */
+    public void release(String archive) {
+        Logger rootLogger = Logger.getRootLogger();
+        Appender logfile = rootLogger.getAppender("logfile-" + archive);
+        if (logfile != null) {
+            rootLogger.removeAppender(logfile);
+            logfile.close();
+        }
+        MDC.remove(ArchiveFilter.MDC_KEY);
+    }
+
+    /**
+     * Im Batch-Modus erscheinen auf der Konsole nur die Meldungen, die keiner
+     * SIARD-Datei zugeordnet sind, damit sich die Ausgaben der parallel
+     * validierten Dateien nicht vermischen.
+     */
+    public void separateConsole() {
+        Enumeration<?> appenders = Logger.getRootLogger().getAllAppenders();
+        while (appenders.hasMoreElements()) {
+            Object appender = appenders.nextElement();
+            if (appender instanceof AppenderSkeleton && !(appender instanceof FileAppender)
+                    && !(appender instanceof AsyncFileAppender)) {
+                // der Filter muss vor den konfigurierten stehen, da diese
+                // Meldungen abschliessend akzeptieren
+                AppenderSkeleton console = (AppenderSkeleton) appender;
+                Filter filters = console.getFilter();
+                console.clearFilters();
+                console.addFilter(new ArchiveFilter(null));
+                if (filters != null) {
+                    console.addFilter(filters);
+                }
+            }
+        }
+    }
+
+    private void addFileAppender(String logFileName, String name, Filter filter) {
         Logger rootLogger = Logger.getRootLogger();
         
         MessageOnlyLayout layout = new MessageOnlyLayout();
         try {
-            FileAppender logfile = new FileAppender(layout, logFileName);
-            logfile.setName("logfile");
-            logfile.setAppend(false);
-            logfile.activateOptions();
+            // die Meldungen werden von einem eigenen Thread geschrieben,
+            // geschlossen wird mit release() bzw. LogManager.shutdown()
+            AsyncFileAppender logfile = new AsyncFileAppender(layout, logFileName, bufferSize, overflowPolicy);
+            logfile.setName(name);
+            logfile.setTextResourceService(getTextResourceService());
+            if (filter != null) {
+                logfile.addFilter(filter);
+            }
             
             rootLogger.addAppender(logfile);
             
         } catch (IOException e) {
             LOGGER.logInfo(getTextResourceService().getText(ERROR_LOGGING_NOFILEAPPENDER));            
         }
-        
-        return logFileName;
     }
 
 }
@@ -40,6 +40,7 @@ public interface MessageConstants {
     String ERROR_LOGDIRECTORY_NOTWRITABLE               = "error.logdirectory.notwritable";
     String ERROR_SIARDFILE_FILENOTEXISTING              = "error.siardfile.filenotexisting";
     String ERROR_LOGGING_NOFILEAPPENDER                 = "error.logging.nofileappender";
+    String ERROR_LOGGING_DROPPED                        = "error.logging.dropped";
     
     String ERROR_WRONG_JRE                              = "error.wrong.jdk";
     
@@ -49,10 +50,36 @@ public interface MessageConstants {
     String MESSAGE_FOOTER_LOG                           = "message.footer.log";
     String MESSAGE_FOOTER_SIARD                         = "message.footer.siard";
     
+    // Batch-Modus
+    String ERROR_BATCH_NOINPUT                          = "error.batch.noinput";
+    String ERROR_BATCH_NOTFOUND                         = "error.batch.notfound";
+    String ERROR_BATCH_LISTFILE                         = "error.batch.listfile";
+    String ERROR_BATCH_SUMMARY                          = "error.batch.summary";
+    String MESSAGE_BATCH_START                          = "message.batch.start";
+    String MESSAGE_BATCH_ARCHIVE                        = "message.batch.archive";
+    String MESSAGE_BATCH_VALID                          = "message.batch.valid";
+    String MESSAGE_BATCH_INVALID                        = "message.batch.invalid";
+    String MESSAGE_BATCH_ERROR                          = "message.batch.error";
+    String MESSAGE_BATCH_TOTAL                          = "message.batch.total";
+    String MESSAGE_BATCH_SUMMARY                        = "message.batch.summary";
+    
+    // Service-Modus
+    String ERROR_SERVICE_START                          = "error.service.start";
+    String MESSAGE_SERVICE_START                        = "message.service.start";
+    String MESSAGE_SERVICE_JOB                          = "message.service.job";
+    
+    // Java Flight Recorder
+    String ERROR_JFR_UNAVAILABLE                        = "error.jfr.unavailable";
+    String MESSAGE_JFR_RECORDING                        = "message.jfr.recording";
+    
+    // Ergebnis-Cache
+    String MESSAGE_RESULTCACHE_HIT                      = "message.resultcache.hit";
+    
     
     // Globale Meldungen
     String MESSAGE_SIARDVALIDATION                      = "message.siardvalidation";
     String MESSAGE_VALIDATION_INTERRUPTED               = "message.validation.interrupted";
+    String MESSAGE_VALIDATION_CANCELLED                 = "message.validation.cancelled";
     String MESSAGE_VALIDATION_FINISHED                  = "message.validation.finished";
     String MESSAGE_MODULE_VALID                         = "message.module.valid";
     String MESSAGE_MODULE_INVALID                       = "message.module.invalid";
@@ -104,6 +131,7 @@ public interface MessageConstants {
     String MESSAGE_MODULE_C_NOMETADATAXSD              = "message.module.c.nometadataxsd";
     String MESSAGE_MODULE_C_METADATA_ERRORS            = "message.module.c.metadata.errors";
     String MESSAGE_MODULE_C_METADATA_ORIGERRORS        = "message.module.c.metadata.origerrors";
+    String MESSAGE_MODULE_C_CRC                        = "message.module.c.crc";
     
     // Modul D Meldungen
     String MESSAGE_MODULE_D_INVALID_FOLDER             = "message.module.d.invalid.folder";
@@ -123,6 +151,23 @@ public interface MessageConstants {
     String MESSAGE_MODULE_E_INVALID_ATTRIBUTE_OCCURRENCE = "message.module.e.attribute.occurrence.validation.failed";
     String MESSAGE_MODULE_E_INVALID_ATTRIBUTE_SEQUENCE   = "message.module.e.attribute.sequence.validation.failed";
     String MESSAGE_MODULE_E_INVALID_ATTRIBUTE_TYPE       = "message.module.e.attribute.type.validation.failed";
+    String MESSAGE_MODULE_E_COLUMNS                      = "message.module.e.columns";
+    String MESSAGE_MODULE_E_COLUMN_COUNT                 = "message.module.e.column.count";
+    String MESSAGE_MODULE_E_COLUMN_OCCURRENCE            = "message.module.e.column.occurrence";
+    String MESSAGE_MODULE_E_COLUMN_TYPE                  = "message.module.e.column.type";
+    
+    // Modul F Meldungen
+    String MESSAGE_MODULE_F_ROWS                       = "message.module.f.rows";
+    String MESSAGE_MODULE_F_INVALID_ROWS               = "message.module.f.invalid.rows";
+    String MESSAGE_MODULE_F_MISSING_ROWS               = "message.module.f.missing.rows";
+    String MESSAGE_MODULE_F_MISSING_ROW                = "message.module.f.missing.row";
+    String MESSAGE_MODULE_F_INVALID_OCCURS             = "message.module.f.invalid.occurs";
+    
+    // Modul G Meldungen
+    String MESSAGE_MODULE_G_MISSING_DIGEST             = "message.module.g.missing.digest";
+    String MESSAGE_MODULE_G_INVALID_FORMAT             = "message.module.g.invalid.format";
+    String MESSAGE_MODULE_G_INVALID_DIGEST             = "message.module.g.invalid.digest";
+    String MESSAGE_MODULE_G_THROUGHPUT                 = "message.module.g.throughput";
     
     // Modul H Meldungen
     String MESSAGE_MODULE_H_INVALID_FOLDER             = "message.module.h.invalid.folder";
@@ -137,4 +182,16 @@ public interface MessageConstants {
     String MESSAGE_MODULE_J_INVALID_FOLDER             = "message.module.j.invalid.folder";
     String MESSAGE_MODULE_J_INVALID_FILE               = "message.module.j.invalid.file";
     String MESSAGE_MODULE_J_INVALID_ENTRY               = "message.module.j.invalid.entry";
+    
+    // Modul K Meldungen
+    String MESSAGE_MODULE_K_KEY                        = "message.module.k.key";
+    String MESSAGE_MODULE_K_SPILL                      = "message.module.k.spill";
+    String MESSAGE_MODULE_K_MISSING_COLUMN             = "message.module.k.missing.column";
+    String MESSAGE_MODULE_K_NULL_KEY                   = "message.module.k.null.key";
+    String MESSAGE_MODULE_K_DUPLICATE_KEY              = "message.module.k.duplicate.key";
+    String MESSAGE_MODULE_K_DUPLICATE_COUNT            = "message.module.k.duplicate.count";
+    String MESSAGE_MODULE_K_FOREIGN_KEY                = "message.module.k.foreign.key";
+    String MESSAGE_MODULE_K_MISSING_TABLE              = "message.module.k.missing.table";
+    String MESSAGE_MODULE_K_MISSING_REFERENCE          = "message.module.k.missing.reference";
+    String MESSAGE_MODULE_K_MISSING_REFERENCE_COUNT    = "message.module.k.missing.reference.count";
 }
@@ -0,0 +1,298 @@
+/*== SIARD-Val ==================================================================================
+The SIARD-Val application is used for validate SIARD-Files. 
+Copyright (C) 2012 Claire Rthlisberger (KOST-CECO), Martin Kaiser (KOST-CECO), XYZ (xyz)
+-----------------------------------------------------------------------------------------------
+SIARD-Val is a development of the KOST-CECO. All rights rest with the KOST-CECO. 
+This application is free software: you can redistribute it and/or modify it under the 
+terms of the GNU General Public License as published by the Free Software Foundation, 
+either version 3 of the License, or (at your option) any later version. 
+This application is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; 
+without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. 
+See the follow GNU General Public License for more details.
+You should have received a copy of the GNU General Public License along with this program; 
+if not, write to the Free Software Foundation, Inc., 51 Franklin Street, Fifth Floor, 
+Boston, MA 02110-1301 USA or see <http://www.gnu.org/licenses/>.
+==============================================================================================*/
+
+package ch.kostceco.tools.siardval.metrics;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import ch.kostceco.tools.siardval.logging.Logger;
+
+/**
+ * Metriken einer Validierung, pro Modul und Phase, sowie die langsamsten
+ * Tabellen. Mit archive null die Summe aller Validierungen der JVM (Batch-
+ * und Service-Modus). Nach register() sind die Metriken als MBeans unter
+ * ch.kostceco.tools.siardval:type=Metrics sichtbar.
+ */
+public class ArchiveMetrics implements ArchiveMetricsMBean {
+
+    private static final Logger LOGGER = new Logger(ArchiveMetrics.class);
+
+    private static final String DOMAIN = "ch.kostceco.tools.siardval";
+
+    private static final int SLOWEST_TABLES = 10;
+
+    private final String archive;
+    private final Map<String, PhaseMetrics> phases = new TreeMap<String, PhaseMetrics>();
+    private final List<TableTime> slowest = new ArrayList<TableTime>();
+    private int archives;
+    private final List<ObjectName> registered = new ArrayList<ObjectName>();
+    private boolean jmx;
+
+    /**
+     * @param archive Name der SIARD-Datei oder null fr die Summe
+     */
+    public ArchiveMetrics(String archive) {
+        this.archive = archive;
+    }
+
+    @Override
+    public String getArchive() {
+        return archive;
+    }
+
+    @Override
+    public synchronized int getArchives() {
+        return archives;
+    }
+
+    @Override
+    public synchronized String[] getPhaseNames() {
+        return phases.keySet().toArray(new String[phases.size()]);
+    }
+
+    @Override
+    public synchronized String[] getSlowestTables() {
+        String[] tables = new String[slowest.size()];
+        for (int i = 0; i < tables.length; i++) {
+            TableTime table = slowest.get(i);
+            tables[i] = (table.archive == null ? "" : table.archive + " ") + table.module + " " + table.table + " "
+                    + format(table.nanos / 1e9);
+        }
+        return tables;
+    }
+
+    /**
+     * @return die Metriken der Phase, beim ersten Aufruf neu angelegt
+     */
+    public synchronized PhaseMetrics getPhase(String module, String phase) {
+        String key = module + ":" + phase;
+        PhaseMetrics metrics = phases.get(key);
+        if (metrics == null) {
+            metrics = new PhaseMetrics(module, phase);
+            phases.put(key, metrics);
+            if (jmx) {
+                register(metrics, getObjectName() + ",module=" + ObjectName.quote(module) + ",phase="
+                        + ObjectName.quote(phase));
+            }
+        }
+        return metrics;
+    }
+
+    /**
+     * Merkt sich die Dauer einer Tabelle, falls sie zu den langsamsten gehrt.
+     */
+    public synchronized void addTable(String module, String table, long nanos) {
+        addTable(new TableTime(archive, module, table, nanos));
+    }
+
+    private void addTable(TableTime table) {
+        if (slowest.size() >= SLOWEST_TABLES && slowest.get(slowest.size() - 1).nanos >= table.nanos) {
+            return;
+        }
+        slowest.add(table);
+        Collections.sort(slowest, new Comparator<TableTime>() {
+            @Override
+            public int compare(TableTime t1, TableTime t2) {
+                return t1.nanos < t2.nanos ? 1 : (t1.nanos > t2.nanos ? -1 : 0);
+            }
+        });
+        if (slowest.size() > SLOWEST_TABLES) {
+            slowest.remove(SLOWEST_TABLES);
+        }
+    }
+
+    /**
+     * Zhlt die Metriken einer abgeschlossenen Validierung zur Summe.
+     */
+    public void merge(ArchiveMetrics other) {
+        List<PhaseMetrics> otherPhases;
+        List<TableTime> otherTables;
+        synchronized (other) {
+            otherPhases = new ArrayList<PhaseMetrics>(other.phases.values());
+            otherTables = new ArrayList<TableTime>(other.slowest);
+        }
+        for (PhaseMetrics phase : otherPhases) {
+            getPhase(phase.getModule(), phase.getPhase()).merge(phase);
+        }
+        synchronized (this) {
+            for (TableTime table : otherTables) {
+                addTable(table);
+            }
+            archives++;
+        }
+    }
+
+    /**
+     * Registriert die Metriken und alle spter angelegten Phasen als MBeans.
+     */
+    public synchronized void register() {
+        jmx = true;
+        register(this, getObjectName());
+        for (PhaseMetrics metrics : phases.values()) {
+            register(metrics, getObjectName() + ",module=" + ObjectName.quote(metrics.getModule()) + ",phase="
+                    + ObjectName.quote(metrics.getPhase()));
+        }
+    }
+
+    public synchronized void unregister() {
+        jmx = false;
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        for (ObjectName name : registered) {
+            try {
+                server.unregisterMBean(name);
+            } catch (JMException e) {
+                LOGGER.logDebug(e.getMessage());
+            }
+        }
+        registered.clear();
+    }
+
+    private String getObjectName() {
+        return DOMAIN + ":type=Metrics,archive=" + (archive == null ? "all" : ObjectName.quote(archive));
+    }
+
+    private void register(Object mbean, String name) {
+        try {
+            ObjectName objectName = new ObjectName(name);
+            ManagementFactory.getPlatformMBeanServer().registerMBean(mbean, objectName);
+            registered.add(objectName);
+        } catch (JMException e) {
+            // z.B. gleichnamige SIARD-Dateien, die gleichzeitig validiert werden
+            LOGGER.logDebug(e.getMessage());
+        }
+    }
+
+    /**
+     * Schreibt die Metriken im Textformat von Prometheus. Die Metriken einer
+     * Validierung tragen das Label archive.
+     */
+    public void writePrometheus(Writer out) throws IOException {
+        List<PhaseMetrics> snapshots = new ArrayList<PhaseMetrics>();
+        List<TableTime> tables;
+        int archiveCount;
+        synchronized (this) {
+            for (PhaseMetrics metrics : phases.values()) {
+                snapshots.add(metrics.snapshot());
+            }
+            tables = new ArrayList<TableTime>(slowest);
+            archiveCount = archives;
+        }
+        if (archive == null) {
+            family(out, "siardval_archives_total", "counter", "Abgeschlossene Validierungen");
+            out.write("siardval_archives_total " + archiveCount + "\n");
+        }
+        family(out, "siardval_phase_seconds_total", "counter", "Wandzeit pro Modul und Phase");
+        for (PhaseMetrics metrics : snapshots) {
+            sample(out, "siardval_phase_seconds_total", metrics, null, format(metrics.getWallSeconds()));
+        }
+        family(out, "siardval_phase_cpu_seconds_total", "counter", "CPU-Zeit des messenden Threads");
+        for (PhaseMetrics metrics : snapshots) {
+            sample(out, "siardval_phase_cpu_seconds_total", metrics, null, format(metrics.getCpuSeconds()));
+        }
+        family(out, "siardval_phase_allocated_bytes_total", "counter", "Allozierte Bytes des messenden Threads");
+        for (PhaseMetrics metrics : snapshots) {
+            sample(out, "siardval_phase_allocated_bytes_total", metrics, null,
+                    String.valueOf(metrics.getAllocatedBytes()));
+        }
+        family(out, "siardval_phase_read_bytes_total", "counter", "Aus der SIARD-Datei gelesene Bytes");
+        for (PhaseMetrics metrics : snapshots) {
+            sample(out, "siardval_phase_read_bytes_total", metrics, null, String.valueOf(metrics.getBytesRead()));
+        }
+        family(out, "siardval_phase_entries_total", "counter", "Verarbeitete Eintrge oder Tabellen");
+        for (PhaseMetrics metrics : snapshots) {
+            sample(out, "siardval_phase_entries_total", metrics, null, String.valueOf(metrics.getEntries()));
+        }
+        family(out, "siardval_phase_duration_seconds", "histogram", "Dauer einer Messung");
+        for (PhaseMetrics metrics : snapshots) {
+            long[] histogram = metrics.getHistogram();
+            long cumulative = 0;
+            for (int i = 0; i < histogram.length; i++) {
+                cumulative += histogram[i];
+                String le = i < PhaseMetrics.BOUNDS.length ? format(PhaseMetrics.BOUNDS[i]) : "+Inf";
+                sample(out, "siardval_phase_duration_seconds_bucket", metrics, "le=\"" + le + "\"",
+                        String.valueOf(cumulative));
+            }
+            sample(out, "siardval_phase_duration_seconds_sum", metrics, null, format(metrics.getWallSeconds()));
+            sample(out, "siardval_phase_duration_seconds_count", metrics, null, String.valueOf(metrics.getCount()));
+        }
+        family(out, "siardval_table_seconds", "gauge", "Die langsamsten Tabellen");
+        for (TableTime table : tables) {
+            StringBuilder line = new StringBuilder("siardval_table_seconds{");
+            if (table.archive != null) {
+                line.append("archive=\"").append(escape(table.archive)).append("\",");
+            }
+            line.append("module=\"").append(escape(table.module)).append("\",table=\"").append(escape(table.table));
+            line.append("\"} ").append(format(table.nanos / 1e9)).append('\n');
+            out.write(line.toString());
+        }
+    }
+
+    private static void family(Writer out, String name, String type, String help) throws IOException {
+        out.write("# HELP " + name + " " + help + "\n");
+        out.write("# TYPE " + name + " " + type + "\n");
+    }
+
+    private void sample(Writer out, String name, PhaseMetrics metrics, String extraLabel, String value)
+            throws IOException {
+        StringBuilder line = new StringBuilder(name).append('{');
+        if (archive != null) {
+            line.append("archive=\"").append(escape(archive)).append("\",");
+        }
+        line.append("module=\"").append(escape(metrics.getModule())).append("\",phase=\"");
+        line.append(escape(metrics.getPhase())).append('"');
+        if (extraLabel != null) {
+            line.append(',').append(extraLabel);
+        }
+        line.append("} ").append(value).append('\n');
+        out.write(line.toString());
+    }
+
+    private static String escape(String value) {
+        return value.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n");
+    }
+
+    private static String format(double value) {
+        return String.format(Locale.ENGLISH, "%.6f", value);
+    }
+
+    private static class TableTime {
+
+        private final String archive;
+        private final String module;
+        private final String table;
+        private final long nanos;
+
+        TableTime(String archive, String module, String table, long nanos) {
+            this.archive = archive;
+            this.module = module;
+            this.table = table;
+            this.nanos = nanos;
+        }
+    }
+}
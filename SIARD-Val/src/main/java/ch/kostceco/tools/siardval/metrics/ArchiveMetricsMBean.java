@@ -0,0 +1,44 @@
+/*== SIARD-Val ==================================================================================
+The SIARD-Val application is used for validate SIARD-Files. 
+Copyright (C) 2012 Claire Rthlisberger (KOST-CECO), Martin Kaiser (KOST-CECO), XYZ (xyz)
+-----------------------------------------------------------------------------------------------
+SIARD-Val is a development of the KOST-CECO. All rights rest with the KOST-CECO. 
+This application is free software: you can redistribute it and/or modify it under the 
+terms of the GNU General Public License as published by the Free Software Foundation, 
+either version 3 of the License, or (at your option) any later version. 
+This application is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; 
+without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. 
+See the follow GNU General Public License for more details.
+You should have received a copy of the GNU General Public License along with this program; 
+if not, write to the Free Software Foundation, Inc., 51 Franklin Street, Fifth Floor, 
+Boston, MA 02110-1301 USA or see <http://www.gnu.org/licenses/>.
+==============================================================================================*/
+
+package ch.kostceco.tools.siardval.metrics;
+
+/**
+ * JMX-Sicht auf die Metriken einer Validierung oder aller Validierungen.
+ * Die Werte pro Modul und Phase sind eigene MBeans (PhaseMetricsMBean).
+ */
+public interface ArchiveMetricsMBean {
+
+    /**
+     * @return Name der SIARD-Datei oder null fr die Summe aller Validierungen
+     */
+    String getArchive();
+
+    /**
+     * @return Anzahl abgeschlossener Validierungen in der Summe
+     */
+    int getArchives();
+
+    /**
+     * @return die gemessenen Phasen als Modul:Phase
+     */
+    String[] getPhaseNames();
+
+    /**
+     * @return die langsamsten Tabellen als Modul, Tabelle und Sekunden
+     */
+    String[] getSlowestTables();
+}
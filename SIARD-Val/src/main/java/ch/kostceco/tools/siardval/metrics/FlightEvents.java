@@ -0,0 +1,165 @@
+/*== SIARD-Val ==================================================================================
+The SIARD-Val application is used for validate SIARD-Files. 
+Copyright (C) 2012 Claire Rthlisberger (KOST-CECO), Martin Kaiser (KOST-CECO), XYZ (xyz)
+-----------------------------------------------------------------------------------------------
+SIARD-Val is a development of the KOST-CECO. All rights rest with the KOST-CECO. 
+This application is free software: you can redistribute it and/or modify it under the 
+terms of the GNU General Public License as published by the Free Software Foundation, 
+either version 3 of the License, or (at your option) any later version. 
+This application is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; 
+without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. 
+See the follow GNU General Public License for more details.
+You should have received a copy of the GNU General Public License along with this program; 
+if not, write to the Free Software Foundation, Inc., 51 Franklin Street, Fifth Floor, 
+Boston, MA 02110-1301 USA or see <http://www.gnu.org/licenses/>.
+==============================================================================================*/
+
+package ch.kostceco.tools.siardval.metrics;
+
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Eigene Events fr den Java Flight Recorder: jede Messung wird als Event
+ * ch.kostceco.tools.siardval.Phase mit SIARD-Datei, Modul, Phase, Tabelle,
+ * Bytes, Eintrgen und Ergebnis aufgezeichnet. Der Event-Typ wird ber das
+ * API fr dynamische Events (jdk.jfr.EventFactory) per Reflection angelegt,
+ * da SIARD-Val weiterhin mit Java 6 luft; ohne Flight Recorder oder ohne
+ * laufende Aufzeichnung haben die Events keine Wirkung.
+ */
+final class FlightEvents {
+
+    static final String NAME = "ch.kostceco.tools.siardval.Phase";
+
+    private static final int ARCHIVE = 0;
+    private static final int MODULE = 1;
+    private static final int PHASE = 2;
+    private static final int TABLE = 3;
+    private static final int BYTES = 4;
+    private static final int ENTRIES = 5;
+    private static final int OUTCOME = 6;
+
+    private static Object factory;
+    private static Object eventType;
+    private static Method isEnabled;
+    private static Method newEvent;
+    private static Method begin;
+    private static Method set;
+    private static Method commit;
+
+    static {
+        try {
+            Class<?> annotationClass = Class.forName("jdk.jfr.AnnotationElement");
+            Constructor<?> annotation = annotationClass.getConstructor(Class.class, Object.class);
+            Class<?> name = Class.forName("jdk.jfr.Name");
+            Class<?> label = Class.forName("jdk.jfr.Label");
+            Class<?> description = Class.forName("jdk.jfr.Description");
+            Class<?> category = Class.forName("jdk.jfr.Category");
+            Class<?> dataAmount = Class.forName("jdk.jfr.DataAmount");
+            Class<?> stackTrace = Class.forName("jdk.jfr.StackTrace");
+
+            List<Object> annotations = new ArrayList<Object>();
+            annotations.add(annotation.newInstance(name, NAME));
+            annotations.add(annotation.newInstance(label, "SIARD-Val Phase"));
+            annotations.add(annotation.newInstance(description,
+                    "Phase eines Validierungsmoduls, wie in den Metriken von SIARD-Val"));
+            annotations.add(annotation.newInstance(category, new String[] { "SIARD-Val" }));
+            // der Stack wre immer der Aufruf per Reflection
+            annotations.add(annotation.newInstance(stackTrace, Boolean.FALSE));
+
+            Class<?> valueClass = Class.forName("jdk.jfr.ValueDescriptor");
+            Constructor<?> value = valueClass.getConstructor(Class.class, String.class, List.class);
+            List<Object> fields = new ArrayList<Object>();
+            fields.add(value.newInstance(String.class, "archive",
+                    Collections.singletonList(annotation.newInstance(label, "SIARD-Datei"))));
+            fields.add(value.newInstance(String.class, "module",
+                    Collections.singletonList(annotation.newInstance(label, "Modul"))));
+            fields.add(value.newInstance(String.class, "phase",
+                    Collections.singletonList(annotation.newInstance(label, "Phase"))));
+            fields.add(value.newInstance(String.class, "table",
+                    Collections.singletonList(annotation.newInstance(label, "Tabelle"))));
+            List<Object> bytesAnnotations = new ArrayList<Object>();
+            bytesAnnotations.add(annotation.newInstance(label, "Gelesene Bytes"));
+            bytesAnnotations.add(annotation.newInstance(dataAmount, "BYTES"));
+            fields.add(value.newInstance(long.class, "bytes", bytesAnnotations));
+            fields.add(value.newInstance(long.class, "entries",
+                    Collections.singletonList(annotation.newInstance(label, "Eintrge"))));
+            fields.add(value.newInstance(String.class, "outcome",
+                    Collections.singletonList(annotation.newInstance(label, "Ergebnis"))));
+
+            Class<?> factoryClass = Class.forName("jdk.jfr.EventFactory");
+            Object created = factoryClass.getMethod("create", List.class, List.class).invoke(null, annotations,
+                    fields);
+            Class<?> eventClass = Class.forName("jdk.jfr.Event");
+            eventType = factoryClass.getMethod("getEventType").invoke(created);
+            isEnabled = eventType.getClass().getMethod("isEnabled");
+            newEvent = factoryClass.getMethod("newEvent");
+            begin = eventClass.getMethod("begin");
+            set = eventClass.getMethod("set", int.class, Object.class);
+            commit = eventClass.getMethod("commit");
+            factory = created;
+        } catch (Exception e) {
+            // Java 6 bis 8 oder JVM ohne Flight Recorder
+            factory = null;
+        } catch (LinkageError e) {
+            factory = null;
+        }
+    }
+
+    private FlightEvents() {
+    }
+
+    /**
+     * @return true, falls eine Aufzeichnung luft, die die Events aufnimmt
+     */
+    static boolean isEnabled() {
+        if (factory == null) {
+            return false;
+        }
+        try {
+            return ((Boolean) isEnabled.invoke(eventType)).booleanValue();
+        } catch (Exception e) {
+            return false;
+        }
+    }
+
+    /**
+     * Beginnt ein Event, falls es aufgezeichnet wird.
+     * @return das Event oder null
+     */
+    static Object begin() {
+        if (!isEnabled()) {
+            return null;
+        }
+        try {
+            Object event = newEvent.invoke(factory);
+            begin.invoke(event);
+            return event;
+        } catch (Exception e) {
+            return null;
+        }
+    }
+
+    /**
+     * Beendet das Event und bergibt es dem Flight Recorder. Muss auf dem
+     * Thread aufgerufen werden, der das Event begonnen hat.
+     */
+    static void commit(Object event, String archive, String module, String phase, String table, long bytes,
+            long entries, String outcome) {
+        try {
+            set.invoke(event, ARCHIVE, archive);
+            set.invoke(event, MODULE, module);
+            set.invoke(event, PHASE, phase);
+            set.invoke(event, TABLE, table);
+            set.invoke(event, BYTES, bytes);
+            set.invoke(event, ENTRIES, entries);
+            set.invoke(event, OUTCOME, outcome);
+            commit.invoke(event);
+        } catch (Exception e) {
+            // ein verlorenes Event beeinflusst die Validierung nicht
+        }
+    }
+}
@@ -0,0 +1,103 @@
+/*== SIARD-Val ==================================================================================
+The SIARD-Val application is used for validate SIARD-Files. 
+Copyright (C) 2012 Claire Rthlisberger (KOST-CECO), Martin Kaiser (KOST-CECO), XYZ (xyz)
+-----------------------------------------------------------------------------------------------
+SIARD-Val is a development of the KOST-CECO. All rights rest with the KOST-CECO. 
+This application is free software: you can redistribute it and/or modify it under the 
+terms of the GNU General Public License as published by the Free Software Foundation, 
+either version 3 of the License, or (at your option) any later version. 
+This application is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; 
+without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. 
+See the follow GNU General Public License for more details.
+You should have received a copy of the GNU General Public License along with this program; 
+if not, write to the Free Software Foundation, Inc., 51 Franklin Street, Fifth Floor, 
+Boston, MA 02110-1301 USA or see <http://www.gnu.org/licenses/>.
+==============================================================================================*/
+
+package ch.kostceco.tools.siardval.metrics;
+
+import java.io.File;
+import java.lang.reflect.InvocationTargetException;
+
+import ch.kostceco.tools.siardval.logging.Logger;
+
+/**
+ * Eine Aufzeichnung des Java Flight Recorders mit der Konfiguration default
+ * und den Events von {@link FlightEvents} (Option -jfr). Die Aufzeichnung
+ * wird beim Beenden oder sptestens beim Beenden der JVM in die Zieldatei
+ * geschrieben. Wie die Events wird der Flight Recorder ber Reflection
+ * angesprochen.
+ */
+public final class FlightRecording {
+
+    private static final Logger LOGGER = new Logger(FlightRecording.class);
+
+    /** Endung der Aufzeichnung, anstelle von .validationlog.log */
+    public static final String EXTENSION = ".jfr";
+
+    /* Obergrenze fr die Daten der Aufzeichnung, v.a. im Service-Modus */
+    private static final long MAX_SIZE = 256L * 1024 * 1024;
+
+    private final Object recording;
+    private final File destination;
+
+    private FlightRecording(Object recording, File destination) {
+        this.recording = recording;
+        this.destination = destination;
+    }
+
+    /**
+     * Startet eine Aufzeichnung.
+     * @param destination die Datei, in die die Aufzeichnung geschrieben wird
+     * @return die Aufzeichnung oder null, falls die JVM keinen Flight
+     *         Recorder hat
+     */
+    public static FlightRecording start(File destination) {
+        try {
+            Class<?> configurationClass = Class.forName("jdk.jfr.Configuration");
+            Object configuration = configurationClass.getMethod("getConfiguration", String.class).invoke(null,
+                    "default");
+            Class<?> recordingClass = Class.forName("jdk.jfr.Recording");
+            Object recording = recordingClass.getConstructor(configurationClass).newInstance(configuration);
+            recordingClass.getMethod("setName", String.class).invoke(recording, "SIARDVal");
+            recordingClass.getMethod("enable", String.class).invoke(recording, FlightEvents.NAME);
+            recordingClass.getMethod("setMaxSize", long.class).invoke(recording, MAX_SIZE);
+            Class<?> pathClass = Class.forName("java.nio.file.Path");
+            Object path = File.class.getMethod("toPath").invoke(destination.getAbsoluteFile());
+            recordingClass.getMethod("setDestination", pathClass).invoke(recording, path);
+            recordingClass.getMethod("setDumpOnExit", boolean.class).invoke(recording, Boolean.TRUE);
+            recordingClass.getMethod("start").invoke(recording);
+            return new FlightRecording(recording, destination);
+        } catch (InvocationTargetException e) {
+            LOGGER.logDebug(String.valueOf(e.getCause()));
+            return null;
+        } catch (Exception e) {
+            LOGGER.logDebug(e.toString());
+            return null;
+        } catch (LinkageError e) {
+            return null;
+        }
+    }
+
+    public File getDestination() {
+        return destination;
+    }
+
+    /**
+     * Beendet die Aufzeichnung und schreibt sie in die Zieldatei.
+     * @return false, falls die Datei nicht geschrieben werden konnte
+     */
+    public boolean stop() {
+        try {
+            recording.getClass().getMethod("stop").invoke(recording);
+            recording.getClass().getMethod("close").invoke(recording);
+            return destination.isFile();
+        } catch (InvocationTargetException e) {
+            LOGGER.logDebug(String.valueOf(e.getCause()));
+            return false;
+        } catch (Exception e) {
+            LOGGER.logDebug(e.toString());
+            return false;
+        }
+    }
+}
@@ -0,0 +1,157 @@
+/*== SIARD-Val ==================================================================================
+The SIARD-Val application is used for validate SIARD-Files. 
+Copyright (C) 2012 Claire Rthlisberger (KOST-CECO), Martin Kaiser (KOST-CECO), XYZ (xyz)
+-----------------------------------------------------------------------------------------------
+SIARD-Val is a development of the KOST-CECO. All rights rest with the KOST-CECO. 
+This application is free software: you can redistribute it and/or modify it under the 
+terms of the GNU General Public License as published by the Free Software Foundation, 
+either version 3 of the License, or (at your option) any later version. 
+This application is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; 
+without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. 
+See the follow GNU General Public License for more details.
+You should have received a copy of the GNU General Public License along with this program; 
+if not, write to the Free Software Foundation, Inc., 51 Franklin Street, Fifth Floor, 
+Boston, MA 02110-1301 USA or see <http://www.gnu.org/licenses/>.
+==============================================================================================*/
+
+package ch.kostceco.tools.siardval.metrics;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+
+/**
+ * Eine laufende Messung einer Phase, gestartet mit {@link Metrics#start}.
+ * CPU-Zeit und allozierte Bytes betreffen nur den Thread, der die Messung
+ * gestartet hat; Tabellen, die auf eigenen Threads geprft werden, haben
+ * ihre eigenen Messungen.
+ *
+ * <p>
+ * Luft eine Aufzeichnung des Java Flight Recorders, wird jede Messung
+ * zustzlich als Event aufgezeichnet (siehe {@link FlightEvents}).
+ */
+public class Measurement {
+
+    /** Ergebnis einer Messung, die ohne Fehler beendet wurde (Vorgabe) */
+    public static final String OK = "ok";
+    public static final String VALID = "valid";
+    public static final String INVALID = "invalid";
+    /** Ergebnis einer Messung, die durch eine Exception beendet wurde */
+    public static final String ERROR = "error";
+
+    private static final ThreadMXBean THREADS = ManagementFactory.getThreadMXBean();
+
+    private static final boolean CPU_TIME = THREADS.isCurrentThreadCpuTimeSupported();
+
+    private static final boolean ALLOCATION = isAllocationSupported();
+
+    /* Messung ohne Wirkung, falls der Thread zu keiner Validierung gehrt */
+    static final Measurement NONE = new Measurement(null, null, null);
+
+    private final Metrics.Context context;
+    private final PhaseMetrics phase;
+    private final Measurement parent;
+    private final long startWall;
+    private final long startCpu;
+    private final long startAllocated;
+    private long bytes;
+    private long entries;
+    private String table;
+    private String outcome = OK;
+    private final Object event;
+    private boolean stopped;
+
+    Measurement(Metrics.Context context, PhaseMetrics phase, Measurement parent) {
+        this.context = context;
+        this.phase = phase;
+        this.parent = parent;
+        if (phase == null) {
+            startWall = 0;
+            startCpu = 0;
+            startAllocated = 0;
+            event = null;
+        } else {
+            startWall = System.nanoTime();
+            startCpu = cpuTime();
+            startAllocated = allocatedBytes();
+            event = FlightEvents.begin();
+        }
+    }
+
+    Measurement getParent() {
+        return parent;
+    }
+
+    public void addBytes(long count) {
+        bytes += count;
+    }
+
+    public void addEntries(long count) {
+        entries += count;
+    }
+
+    /**
+     * @param table Bezeichnung der Tabelle, fr die Events
+     */
+    public void setTable(String table) {
+        this.table = table;
+    }
+
+    /**
+     * @param outcome Ergebnis der Phase, fr die Events, z.B. {@link #VALID}
+     */
+    public void setOutcome(String outcome) {
+        this.outcome = outcome;
+    }
+
+    /**
+     * Beendet die Messung und zhlt sie zur Phase.
+     * @return die Wandzeit in Nanosekunden
+     */
+    public long stop() {
+        if (phase == null || stopped) {
+            return 0;
+        }
+        stopped = true;
+        long wall = System.nanoTime() - startWall;
+        long cpu = CPU_TIME ? Math.max(0, cpuTime() - startCpu) : 0;
+        long allocated = ALLOCATION ? Math.max(0, allocatedBytes() - startAllocated) : 0;
+        phase.record(wall, cpu, allocated, bytes, entries);
+        if (event != null) {
+            FlightEvents.commit(event, context.getArchive().getArchive(), phase.getModule(), phase.getPhase(),
+                    table, bytes, entries, outcome);
+        }
+        context.stopped(this);
+        return wall;
+    }
+
+    private static long cpuTime() {
+        if (!CPU_TIME) {
+            return 0;
+        }
+        try {
+            return THREADS.getCurrentThreadCpuTime();
+        } catch (UnsupportedOperationException e) {
+            return 0;
+        }
+    }
+
+    /*
+     * Allozierte Bytes gibt es nur bei HotSpot-kompatiblen JVMs.
+     */
+    private static boolean isAllocationSupported() {
+        try {
+            return THREADS instanceof com.sun.management.ThreadMXBean
+                    && ((com.sun.management.ThreadMXBean) THREADS).isThreadAllocatedMemorySupported()
+                    && ((com.sun.management.ThreadMXBean) THREADS).isThreadAllocatedMemoryEnabled();
+        } catch (LinkageError e) {
+            return false;
+        }
+    }
+
+    private static long allocatedBytes() {
+        if (!ALLOCATION) {
+            return 0;
+        }
+        return ((com.sun.management.ThreadMXBean) THREADS).getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+}
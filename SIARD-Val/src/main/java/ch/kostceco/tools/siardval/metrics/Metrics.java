@@ -0,0 +1,204 @@
+/*== SIARD-Val ==================================================================================
+The SIARD-Val application is used for validate SIARD-Files. 
+Copyright (C) 2012 Claire Rthlisberger (KOST-CECO), Martin Kaiser (KOST-CECO), XYZ (xyz)
+-----------------------------------------------------------------------------------------------
+SIARD-Val is a development of the KOST-CECO. All rights rest with the KOST-CECO. 
+This application is free software: you can redistribute it and/or modify it under the 
+terms of the GNU General Public License as published by the Free Software Foundation, 
+either version 3 of the License, or (at your option) any later version. 
+This application is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; 
+without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. 
+See the follow GNU General Public License for more details.
+You should have received a copy of the GNU General Public License along with this program; 
+if not, write to the Free Software Foundation, Inc., 51 Franklin Street, Fifth Floor, 
+Boston, MA 02110-1301 USA or see <http://www.gnu.org/licenses/>.
+==============================================================================================*/
+
+package ch.kostceco.tools.siardval.metrics;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Zugang zu den Metriken der laufenden Validierung. Jeder Thread, der fr
+ * eine Validierung arbeitet, wird mit {@link #bind} an deren Metriken und an
+ * ein Modul gebunden; Messungen ohne Bindung haben keine Wirkung. So mssen
+ * die Metriken nicht durch alle Aufrufe gereicht werden.
+ *
+ * <p>
+ * Messungen auf demselben Thread sind verschachtelt; gelesene Bytes und
+ * Eintrge werden der innersten laufenden Messung zugerechnet.
+ */
+public final class Metrics {
+
+    /** Validierung einer SIARD-Datei, im Modul CONTROLLER */
+    public static final String TOTAL = "total";
+    /** validate eines Moduls */
+    public static final String VALIDATE = "validate";
+    /** Lesen des zentralen Verzeichnisses */
+    public static final String INDEX = "index";
+    /** Entpacken ins Arbeitsverzeichnis (extractarchive=yes) */
+    public static final String EXTRACT = "extract";
+    /** Parsen von metadata.xml */
+    public static final String PARSE = "parse";
+    /** Kompilieren eines XML-Schemas */
+    public static final String SCHEMA = "schema";
+    /** Prfung einer Tabelle */
+    public static final String TABLE = "table";
+    /** Berechnen der Prfsumme ber den content-Bereich */
+    public static final String CHECKSUM = "checksum";
+
+    /** Modul fr die Arbeit des Controllers ausserhalb der Module */
+    public static final String CONTROLLER = "controller";
+
+    private static final ThreadLocal<Context> CONTEXT = new ThreadLocal<Context>();
+
+    private Metrics() {
+    }
+
+    /**
+     * Bindet den aktuellen Thread an die Metriken einer Validierung.
+     */
+    public static void bind(ArchiveMetrics archive, String module) {
+        if (archive == null) {
+            CONTEXT.remove();
+        } else {
+            CONTEXT.set(new Context(archive, module));
+        }
+    }
+
+    public static void unbind() {
+        CONTEXT.remove();
+    }
+
+    /**
+     * @return die Metriken, an die der Thread gebunden ist, oder null
+     */
+    public static ArchiveMetrics getArchive() {
+        Context context = CONTEXT.get();
+        return context == null ? null : context.archive;
+    }
+
+    /**
+     * @return das Modul, an das der Thread gebunden ist, oder null
+     */
+    public static String getModule() {
+        Context context = CONTEXT.get();
+        return context == null ? null : context.module;
+    }
+
+    /**
+     * Startet eine Messung der Phase im gebundenen Modul. Die Messung muss
+     * auf demselben Thread beendet werden.
+     */
+    public static Measurement start(String phase) {
+        Context context = CONTEXT.get();
+        if (context == null) {
+            return Measurement.NONE;
+        }
+        Measurement measurement = new Measurement(context, context.archive.getPhase(context.module, phase),
+                context.current);
+        context.current = measurement;
+        return measurement;
+    }
+
+    public static void addBytes(long count) {
+        Context context = CONTEXT.get();
+        if (context != null && context.current != null) {
+            context.current.addBytes(count);
+        }
+    }
+
+    public static void addEntries(long count) {
+        Context context = CONTEXT.get();
+        if (context != null && context.current != null) {
+            context.current.addEntries(count);
+        }
+    }
+
+    /**
+     * Zhlt die aus dem Stream gelesenen Bytes; sie werden beim Schliessen
+     * zusammen mit entries Eintrgen gemeldet. Ohne Bindung wird der Stream
+     * unverndert zurckgegeben.
+     */
+    public static InputStream count(InputStream in, long entries) {
+        if (CONTEXT.get() == null) {
+            return in;
+        }
+        return new CountingInputStream(in, entries);
+    }
+
+    static final class Context {
+
+        private final ArchiveMetrics archive;
+        private final String module;
+        private Measurement current;
+
+        Context(ArchiveMetrics archive, String module) {
+            this.archive = archive;
+            this.module = module;
+        }
+
+        ArchiveMetrics getArchive() {
+            return archive;
+        }
+
+        void stopped(Measurement measurement) {
+            // nicht beendete innere Messungen (Exceptions) werden verworfen
+            for (Measurement m = current; m != null; m = m.getParent()) {
+                if (m == measurement) {
+                    current = measurement.getParent();
+                    return;
+                }
+            }
+        }
+    }
+
+    private static class CountingInputStream extends FilterInputStream {
+
+        private final long entries;
+        private long bytes;
+        private boolean closed;
+
+        CountingInputStream(InputStream in, long entries) {
+            super(in);
+            this.entries = entries;
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if (b >= 0) {
+                bytes++;
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int n = super.read(b, off, len);
+            if (n > 0) {
+                bytes += n;
+            }
+            return n;
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            long skipped = super.skip(n);
+            bytes += skipped;
+            return skipped;
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (!closed) {
+                closed = true;
+                addBytes(bytes);
+                addEntries(entries);
+            }
+            super.close();
+        }
+    }
+}
@@ -0,0 +1,179 @@
+/*== SIARD-Val ==================================================================================
+The SIARD-Val application is used for validate SIARD-Files. 
+Copyright (C) 2012 Claire Rthlisberger (KOST-CECO), Martin Kaiser (KOST-CECO), XYZ (xyz)
+-----------------------------------------------------------------------------------------------
+SIARD-Val is a development of the KOST-CECO. All rights rest with the KOST-CECO. 
+This application is free software: you can redistribute it and/or modify it under the 
+terms of the GNU General Public License as published by the Free Software Foundation, 
+either version 3 of the License, or (at your option) any later version. 
+This application is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; 
+without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. 
+See the follow GNU General Public License for more details.
+You should have received a copy of the GNU General Public License along with this program; 
+if not, write to the Free Software Foundation, Inc., 51 Franklin Street, Fifth Floor, 
+Boston, MA 02110-1301 USA or see <http://www.gnu.org/licenses/>.
+==============================================================================================*/
+
+package ch.kostceco.tools.siardval.metrics;
+
+/**
+ * Summierte Messwerte eines Moduls und einer Phase, z.B. Modul H, Phase
+ * table: Anzahl Messungen, Wand- und CPU-Zeit, allozierte und gelesene
+ * Bytes, verarbeitete Eintrge sowie ein Histogramm der Dauer.
+ */
+public class PhaseMetrics implements PhaseMetricsMBean {
+
+    /* Obergrenzen der Histogramm-Klassen in Sekunden */
+    static final double[] BOUNDS = { 0.001, 0.005, 0.01, 0.05, 0.1, 0.5, 1, 5, 10, 30, 60, 300, 900, 3600,
+            10800 };
+
+    private static final double NANOS = 1e9;
+
+    private final String module;
+    private final String phase;
+
+    private long count;
+    private long wallNanos;
+    private long cpuNanos;
+    private long allocatedBytes;
+    private long bytesRead;
+    private long entries;
+    private long maxNanos;
+    private final long[] buckets = new long[BOUNDS.length + 1];
+
+    PhaseMetrics(String module, String phase) {
+        this.module = module;
+        this.phase = phase;
+    }
+
+    synchronized void record(long wall, long cpu, long allocated, long bytes, long entryCount) {
+        count++;
+        wallNanos += wall;
+        cpuNanos += cpu;
+        allocatedBytes += allocated;
+        bytesRead += bytes;
+        entries += entryCount;
+        maxNanos = Math.max(maxNanos, wall);
+        double seconds = wall / NANOS;
+        int bucket = 0;
+        while (bucket < BOUNDS.length && seconds > BOUNDS[bucket]) {
+            bucket++;
+        }
+        buckets[bucket]++;
+    }
+
+    synchronized void merge(PhaseMetrics other) {
+        PhaseMetrics snapshot = other.snapshot();
+        count += snapshot.count;
+        wallNanos += snapshot.wallNanos;
+        cpuNanos += snapshot.cpuNanos;
+        allocatedBytes += snapshot.allocatedBytes;
+        bytesRead += snapshot.bytesRead;
+        entries += snapshot.entries;
+        maxNanos = Math.max(maxNanos, snapshot.maxNanos);
+        for (int i = 0; i < buckets.length; i++) {
+            buckets[i] += snapshot.buckets[i];
+        }
+    }
+
+    /**
+     * @return eine Kopie, deren Werte zueinander passen
+     */
+    synchronized PhaseMetrics snapshot() {
+        PhaseMetrics copy = new PhaseMetrics(module, phase);
+        copy.count = count;
+        copy.wallNanos = wallNanos;
+        copy.cpuNanos = cpuNanos;
+        copy.allocatedBytes = allocatedBytes;
+        copy.bytesRead = bytesRead;
+        copy.entries = entries;
+        copy.maxNanos = maxNanos;
+        System.arraycopy(buckets, 0, copy.buckets, 0, buckets.length);
+        return copy;
+    }
+
+    @Override
+    public String getModule() {
+        return module;
+    }
+
+    @Override
+    public String getPhase() {
+        return phase;
+    }
+
+    @Override
+    public synchronized long getCount() {
+        return count;
+    }
+
+    @Override
+    public synchronized double getWallSeconds() {
+        return wallNanos / NANOS;
+    }
+
+    @Override
+    public synchronized double getCpuSeconds() {
+        return cpuNanos / NANOS;
+    }
+
+    @Override
+    public synchronized long getAllocatedBytes() {
+        return allocatedBytes;
+    }
+
+    @Override
+    public synchronized long getBytesRead() {
+        return bytesRead;
+    }
+
+    @Override
+    public synchronized long getEntries() {
+        return entries;
+    }
+
+    @Override
+    public synchronized double getMaxSeconds() {
+        return maxNanos / NANOS;
+    }
+
+    @Override
+    public double getMedianSeconds() {
+        return getPercentile(0.5);
+    }
+
+    @Override
+    public double getPercentile95Seconds() {
+        return getPercentile(0.95);
+    }
+
+    @Override
+    public double getPercentile99Seconds() {
+        return getPercentile(0.99);
+    }
+
+    private synchronized double getPercentile(double quantile) {
+        if (count == 0) {
+            return 0;
+        }
+        long rank = (long) Math.ceil(quantile * count);
+        long cumulative = 0;
+        for (int i = 0; i < BOUNDS.length; i++) {
+            cumulative += buckets[i];
+            if (cumulative >= rank) {
+                return Math.min(BOUNDS[i], maxNanos / NANOS);
+            }
+        }
+        return maxNanos / NANOS;
+    }
+
+    @Override
+    public double[] getHistogramBounds() {
+        return BOUNDS.clone();
+    }
+
+    @Override
+    public synchronized long[] getHistogram() {
+        return buckets.clone();
+    }
+}
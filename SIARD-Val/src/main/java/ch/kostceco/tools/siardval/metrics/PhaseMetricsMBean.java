@@ -0,0 +1,58 @@
+/*== SIARD-Val ==================================================================================
+The SIARD-Val application is used for validate SIARD-Files. 
+Copyright (C) 2012 Claire Rthlisberger (KOST-CECO), Martin Kaiser (KOST-CECO), XYZ (xyz)
+-----------------------------------------------------------------------------------------------
+SIARD-Val is a development of the KOST-CECO. All rights rest with the KOST-CECO. 
+This application is free software: you can redistribute it and/or modify it under the 
+terms of the GNU General Public License as published by the Free Software Foundation, 
+either version 3 of the License, or (at your option) any later version. 
+This application is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; 
+without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. 
+See the follow GNU General Public License for more details.
+You should have received a copy of the GNU General Public License along with this program; 
+if not, write to the Free Software Foundation, Inc., 51 Franklin Street, Fifth Floor, 
+Boston, MA 02110-1301 USA or see <http://www.gnu.org/licenses/>.
+==============================================================================================*/
+
+package ch.kostceco.tools.siardval.metrics;
+
+/**
+ * JMX-Sicht auf die Messwerte eines Moduls und einer Phase. Die Perzentile
+ * sind Obergrenzen der Histogramm-Klassen.
+ */
+public interface PhaseMetricsMBean {
+
+    String getModule();
+
+    String getPhase();
+
+    long getCount();
+
+    double getWallSeconds();
+
+    double getCpuSeconds();
+
+    long getAllocatedBytes();
+
+    long getBytesRead();
+
+    long getEntries();
+
+    double getMaxSeconds();
+
+    double getMedianSeconds();
+
+    double getPercentile95Seconds();
+
+    double getPercentile99Seconds();
+
+    /**
+     * @return Obergrenzen der Histogramm-Klassen in Sekunden, ohne +Inf
+     */
+    double[] getHistogramBounds();
+
+    /**
+     * @return Anzahl Messungen pro Klasse, die letzte Klasse ist +Inf
+     */
+    long[] getHistogram();
+}
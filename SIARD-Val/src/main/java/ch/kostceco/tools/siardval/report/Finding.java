@@ -0,0 +1,163 @@
+/*== SIARD-Val ==================================================================================
+The SIARD-Val application is used for validate SIARD-Files. 
+Copyright (C) 2012 Claire Rthlisberger (KOST-CECO), Martin Kaiser (KOST-CECO), XYZ (xyz)
+-----------------------------------------------------------------------------------------------
+SIARD-Val is a development of the KOST-CECO. All rights rest with the KOST-CECO. 
+This application is free software: you can redistribute it and/or modify it under the 
+terms of the GNU General Public License as published by the Free Software Foundation, 
+either version 3 of the License, or (at your option) any later version. 
+This application is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; 
+without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. 
+See the follow GNU General Public License for more details.
+You should have received a copy of the GNU General Public License along with this program; 
+if not, write to the Free Software Foundation, Inc., 51 Franklin Street, Fifth Floor, 
+Boston, MA 02110-1301 USA or see <http://www.gnu.org/licenses/>.
+==============================================================================================*/
+
+package ch.kostceco.tools.siardval.report;
+
+import ch.kostceco.tools.siardval.logging.MessageConstants;
+import ch.kostceco.tools.siardval.service.TextResourceService;
+
+/**
+ * Eine Meldung eines Validierungsmoduls mit ihren strukturierten Angaben
+ * fr den Findings-Report: Level (siehe MessageService), Text und, soweit
+ * bekannt, Meldungsschlssel mit Argumenten, Eintrag in der SIARD-Datei,
+ * Tabelle sowie Zeile und Spalte.
+ * <p>
+ * Meldungen mit Schlssel werden erst formatiert, wenn der Text gebraucht
+ * wird, und danach nicht mehr; eine nie ausgegebene Meldung kostet so nur
+ * das Objekt selbst.
+ */
+public class Finding {
+
+    private final String level;
+    private volatile String text;
+    private final TextResourceService texts;
+    private final String moduleKey;
+    private String key;
+    private Object[] args;
+    private String entry;
+    private String table;
+    private int line = -1;
+    private int column = -1;
+    private boolean published;
+
+    /**
+     * @param level Level der Meldung, z.B. MessageService.ERROR
+     * @param text der formatierte Text, wie er im Log erscheint
+     */
+    public Finding(String level, String text) {
+        this.level = level;
+        this.text = text;
+        this.texts = null;
+        this.moduleKey = null;
+    }
+
+    /**
+     * Meldung mit Schlssel, die erst bei Bedarf formatiert wird: Text ist
+     * die Bezeichnung des Moduls, gefolgt von message.dashes und der Meldung
+     * zu key.
+     * @param level Level der Meldung, z.B. MessageService.ERROR
+     * @param texts zum Formatieren
+     * @param moduleKey Schlssel der Bezeichnung des Moduls, z.B. message.module.h
+     * @param key Schlssel der Meldung
+     * @param args die Argumente der Meldung
+     */
+    public Finding(String level, TextResourceService texts, String moduleKey, String key, Object... args) {
+        this.level = level;
+        this.texts = texts;
+        this.moduleKey = moduleKey;
+        this.key = key;
+        this.args = args;
+    }
+
+    /**
+     * Setzt den Meldungsschlssel und die Argumente, mit denen der Text
+     * formatiert wurde.
+     */
+    public Finding key(String key, Object... args) {
+        this.key = key;
+        this.args = args;
+        return this;
+    }
+
+    /**
+     * Setzt den Eintrag in der SIARD-Datei, z.B. content/schema0/table1/table1.xml.
+     */
+    public Finding entry(String entry) {
+        this.entry = entry;
+        return this;
+    }
+
+    /**
+     * Setzt die Tabelle, z.B. schema0/table1 oder den Namen aus metadata.xml.
+     */
+    public Finding table(String table) {
+        this.table = table;
+        return this;
+    }
+
+    /**
+     * Setzt die Position im Eintrag; negative Werte bedeuten unbekannt.
+     */
+    public Finding position(int line, int column) {
+        this.line = line;
+        this.column = column;
+        return this;
+    }
+
+    public String getLevel() {
+        return level;
+    }
+
+    /**
+     * @return der formatierte Text; eine Meldung mit Schlssel wird beim
+     *         ersten Aufruf formatiert
+     */
+    public String getText() {
+        String formatted = text;
+        if (formatted == null) {
+            // formatieren mehrere Threads gleichzeitig, ist das Ergebnis gleich
+            formatted = texts.getText(moduleKey) + texts.getText(MessageConstants.MESSAGE_DASHES)
+                    + texts.getText(key, args);
+            text = formatted;
+        }
+        return formatted;
+    }
+
+    public String getKey() {
+        return key;
+    }
+
+    public Object[] getArgs() {
+        return args;
+    }
+
+    public String getEntry() {
+        return entry;
+    }
+
+    public String getTable() {
+        return table;
+    }
+
+    public int getLine() {
+        return line;
+    }
+
+    public int getColumn() {
+        return column;
+    }
+
+    /**
+     * @return true, falls die Meldung bereits in den Report geschrieben wurde
+     */
+    public boolean isPublished() {
+        return published;
+    }
+
+    public void setPublished(boolean published) {
+        this.published = published;
+    }
+}
@@ -0,0 +1,296 @@
+/*== SIARD-Val ==================================================================================
+The SIARD-Val application is used for validate SIARD-Files. 
+Copyright (C) 2012 Claire Rthlisberger (KOST-CECO), Martin Kaiser (KOST-CECO), XYZ (xyz)
+-----------------------------------------------------------------------------------------------
+SIARD-Val is a development of the KOST-CECO. All rights rest with the KOST-CECO. 
+This application is free software: you can redistribute it and/or modify it under the 
+terms of the GNU General Public License as published by the Free Software Foundation, 
+either version 3 of the License, or (at your option) any later version. 
+This application is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; 
+without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. 
+See the follow GNU General Public License for more details.
+You should have received a copy of the GNU General Public License along with this program; 
+if not, write to the Free Software Foundation, Inc., 51 Franklin Street, Fifth Floor, 
+Boston, MA 02110-1301 USA or see <http://www.gnu.org/licenses/>.
+==============================================================================================*/
+
+package ch.kostceco.tools.siardval.report;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+import ch.kostceco.tools.siardval.logging.Logger;
+import ch.kostceco.tools.siardval.service.MessageService;
+
+/**
+ * Schreibt den Findings-Report einer Validierung im Format JSON Lines: eine
+ * Zeile pro Meldung, sobald das Modul sie erzeugt, und am Schluss eine
+ * Zusammenfassung mit Status, Dauer und Anzahl Meldungen pro Modul. Jede
+ * Zeile wird sofort geschrieben, damit ein Verarbeiter den Report schon
+ * whrend der Validierung lesen kann und der Speicherbedarf nicht mit der
+ * Anzahl Meldungen wchst.
+ * <p>
+ * Die Module schreiben parallel; die Reihenfolge der Meldungen verschiedener
+ * Module ist deshalb nicht festgelegt, jene eines Moduls schon.
+ */
+public class FindingsWriter {
+
+    private static final Logger LOGGER = new Logger(FindingsWriter.class);
+
+    /** Endung des Reports, anstelle von .validationlog.log */
+    public static final String EXTENSION = ".findings.jsonl";
+
+    public static final String VALID = "valid";
+    public static final String INVALID = "invalid";
+    /** der Schritt wurde abgebrochen oder ist mit einer Exception gescheitert */
+    public static final String ABORTED = "aborted";
+    /** der Schritt wurde nach einem invaliden obligatorischen Schritt nicht ausgegeben */
+    public static final String SKIPPED = "skipped";
+
+    /* Levels des MessageService und ihre Namen im Report */
+    private static final String[] LEVELS = { MessageService.ERROR, MessageService.FATAL, MessageService.INFO,
+            MessageService.WARN, MessageService.DEBUG };
+    private static final String[] SEVERITIES = { "error", "fatal", "info", "warning", "debug" };
+
+    private final File file;
+    private final String archive;
+    private final Writer out;
+    private final Map<String, ModuleStatus> modules = new LinkedHashMap<String, ModuleStatus>();
+    private final long[] counts = new long[LEVELS.length];
+    private boolean failed;
+    private boolean closed;
+
+    private FindingsWriter(File file, String archive, Writer out) {
+        this.file = file;
+        this.archive = archive;
+        this.out = out;
+    }
+
+    /**
+     * Legt den Report an.
+     * @return der Report oder null, falls die Datei nicht angelegt werden kann
+     */
+    public static FindingsWriter open(File file, String archive) {
+        try {
+            Writer out = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(file), "UTF-8"));
+            return new FindingsWriter(file, archive, out);
+        } catch (IOException e) {
+            LOGGER.logDebug("Findings-Report nicht angelegt: " + file.getAbsolutePath() + " " + e.getMessage());
+            return null;
+        }
+    }
+
+    public File getFile() {
+        return file;
+    }
+
+    /**
+     * Schreibt eine Meldung des Moduls. Die Zeile wird ausserhalb der Sperre
+     * aufgebaut, parallele Tabellen warten nur auf das Schreiben.
+     */
+    public void write(String module, Finding finding) {
+        int level = level(finding.getLevel());
+        StringBuilder line = new StringBuilder(256);
+        line.append("{\"type\":\"finding\"");
+        field(line, "archive", archive);
+        field(line, "module", module);
+        field(line, "severity", SEVERITIES[level]);
+        field(line, "key", finding.getKey());
+        if (finding.getArgs() != null) {
+            line.append(",\"args\":[");
+            Object[] args = finding.getArgs();
+            for (int i = 0; i < args.length; i++) {
+                if (i > 0) {
+                    line.append(',');
+                }
+                value(line, args[i]);
+            }
+            line.append(']');
+        }
+        field(line, "entry", finding.getEntry());
+        field(line, "table", finding.getTable());
+        if (finding.getLine() >= 0) {
+            line.append(",\"line\":").append(finding.getLine());
+        }
+        if (finding.getColumn() >= 0) {
+            line.append(",\"column\":").append(finding.getColumn());
+        }
+        field(line, "message", finding.getText());
+        line.append('}');
+        synchronized (this) {
+            counts[level]++;
+            status(module).counts[level]++;
+            writeLine(line);
+        }
+    }
+
+    /**
+     * Hlt das Ergebnis eines Moduls fr die Zusammenfassung fest.
+     * @param nanos Dauer des Moduls, 0 falls es nicht gelaufen ist
+     */
+    public synchronized void module(String module, String status, long nanos) {
+        ModuleStatus moduleStatus = status(module);
+        moduleStatus.status = status;
+        moduleStatus.nanos = nanos;
+    }
+
+    /**
+     * Schreibt die Zusammenfassung und schliesst den Report.
+     * @param steps die Module in Ausgabereihenfolge; Module ohne Ergebnis
+     *            gelten als {@link #SKIPPED}
+     * @param cached true, falls das Ergebnis aus dem Ergebnis-Cache stammt
+     */
+    public synchronized void summary(boolean valid, long nanos, List<String> steps, boolean cached) {
+        StringBuilder line = new StringBuilder(1024);
+        line.append("{\"type\":\"summary\"");
+        field(line, "archive", archive);
+        field(line, "status", valid ? VALID : INVALID);
+        line.append(",\"seconds\":").append(seconds(nanos));
+        line.append(",\"cached\":").append(cached);
+        line.append(",\"findings\":");
+        counts(line, counts);
+        line.append(",\"modules\":[");
+        boolean first = true;
+        for (String step : steps) {
+            ModuleStatus moduleStatus = status(step);
+            if (!first) {
+                line.append(',');
+            }
+            first = false;
+            line.append('{');
+            line.append("\"module\":");
+            value(line, step);
+            field(line, "status", moduleStatus.status == null ? SKIPPED : moduleStatus.status);
+            line.append(",\"seconds\":").append(seconds(moduleStatus.nanos));
+            line.append(",\"findings\":");
+            counts(line, moduleStatus.counts);
+            line.append('}');
+        }
+        line.append("]}");
+        writeLine(line);
+        close();
+    }
+
+    public synchronized void close() {
+        closed = true;
+        try {
+            out.close();
+        } catch (IOException e) {
+            LOGGER.logDebug(e.getMessage());
+        }
+    }
+
+    private ModuleStatus status(String module) {
+        ModuleStatus status = modules.get(module);
+        if (status == null) {
+            status = new ModuleStatus();
+            modules.put(module, status);
+        }
+        return status;
+    }
+
+    private void writeLine(StringBuilder line) {
+        // Meldungen abgebrochener Schritte nach dem Abschluss des Reports
+        if (failed || closed) {
+            return;
+        }
+        try {
+            line.append('\n');
+            out.write(line.toString());
+            out.flush();
+        } catch (IOException e) {
+            // die Validierung luft weiter, nur der Report ist unvollstndig
+            failed = true;
+            LOGGER.logDebug("Findings-Report unvollstndig: " + file.getAbsolutePath() + " " + e.getMessage());
+        }
+    }
+
+    private static int level(String level) {
+        for (int i = 0; i < LEVELS.length; i++) {
+            if (LEVELS[i].equals(level)) {
+                return i;
+            }
+        }
+        return 2;
+    }
+
+    private static void counts(StringBuilder line, long[] counts) {
+        line.append('{');
+        boolean first = true;
+        for (int i = 0; i < counts.length; i++) {
+            if (counts[i] > 0) {
+                if (!first) {
+                    line.append(',');
+                }
+                first = false;
+                value(line, SEVERITIES[i]);
+                line.append(':').append(counts[i]);
+            }
+        }
+        line.append('}');
+    }
+
+    private static String seconds(long nanos) {
+        return String.format(Locale.ENGLISH, "%.3f", nanos / 1e9);
+    }
+
+    private static void field(StringBuilder line, String name, String value) {
+        if (value != null) {
+            line.append(",\"").append(name).append("\":");
+            value(line, value);
+        }
+    }
+
+    private static void value(StringBuilder line, Object value) {
+        if (value == null) {
+            line.append("null");
+        } else if (value instanceof Number || value instanceof Boolean) {
+            line.append(value);
+        } else {
+            String text = value.toString();
+            line.append('"');
+            for (int i = 0; i < text.length(); i++) {
+                char c = text.charAt(i);
+                switch (c) {
+                case '"':
+                    line.append("\\\"");
+                    break;
+                case '\\':
+                    line.append("\\\\");
+                    break;
+                case '\n':
+                    line.append("\\n");
+                    break;
+                case '\r':
+                    line.append("\\r");
+                    break;
+                case '\t':
+                    line.append("\\t");
+                    break;
+                default:
+                    if (c < 0x20) {
+                        line.append(String.format("\\u%04x", Integer.valueOf(c)));
+                    } else {
+                        line.append(c);
+                    }
+                }
+            }
+            line.append('"');
+        }
+    }
+
+    private static class ModuleStatus {
+
+        private String status;
+        private long nanos;
+        private final long[] counts = new long[LEVELS.length];
+    }
+}
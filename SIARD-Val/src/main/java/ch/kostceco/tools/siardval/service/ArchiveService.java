@@ -0,0 +1,62 @@
+/*== SIARD-Val ==================================================================================
+The SIARD-Val application is used for validate SIARD-Files. 
+Copyright (C) 2012 Claire Rthlisberger (KOST-CECO), Martin Kaiser (KOST-CECO), XYZ (xyz)
+-----------------------------------------------------------------------------------------------
+SIARD-Val is a development of the KOST-CECO. All rights rest with the KOST-CECO. 
+This application is free software: you can redistribute it and/or modify it under the 
+terms of the GNU General Public License as published by the Free Software Foundation, 
+either version 3 of the License, or (at your option) any later version. 
+This application is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; 
+without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. 
+See the follow GNU General Public License for more details.
+You should have received a copy of the GNU General Public License along with this program; 
+if not, write to the Free Software Foundation, Inc., 51 Franklin Street, Fifth Floor, 
+Boston, MA 02110-1301 USA or see <http://www.gnu.org/licenses/>.
+==============================================================================================*/
+
+package ch.kostceco.tools.siardval.service;
+
+import java.io.File;
+import java.io.IOException;
+
+import javax.xml.stream.XMLStreamException;
+
+import ch.kostceco.tools.siardval.archive.SiardArchiveIndex;
+import ch.kostceco.tools.siardval.archive.SiardMetadata;
+
+/**
+ * SIARDVal -->
+ *
+ * Service Interface fr den Zugriff auf die zu validierende SIARD-Datei.
+ * Das zentrale Verzeichnis wird pro Validierung nur einmal gelesen.
+ */
+public interface ArchiveService extends Service {
+
+    /**
+     * Gibt den Index der SIARD-Datei zurck. Beim ersten Aufruf wird das
+     * zentrale Verzeichnis gelesen, danach wird der gleiche Index geliefert,
+     * bis er mit <code>release</code> freigegeben wird.
+     * @param siardDatei die zu validierende SIARD-Datei
+     * @return Index der SIARD-Datei
+     * @throws IOException falls die Datei kein lesbares ZIP(64) ist
+     */
+    SiardArchiveIndex getArchiveIndex(File siardDatei) throws IOException;
+
+    /**
+     * Gibt die Angaben aus metadata.xml der SIARD-Datei zurck. Beim ersten
+     * Aufruf wird metadata.xml gelesen, danach wird das gleiche Modell
+     * geliefert, bis es mit <code>release</code> freigegeben wird.
+     * @param siardDatei die zu validierende SIARD-Datei
+     * @return die Angaben aus metadata.xml
+     * @throws IOException falls metadata.xml nicht gelesen werden kann
+     * @throws XMLStreamException falls metadata.xml nicht wohlgeformt ist
+     */
+    SiardMetadata getMetadata(File siardDatei) throws IOException, XMLStreamException;
+
+    /**
+     * Schliesst die SIARD-Datei und verwirft Index und Metadaten.
+     * @param siardDatei die validierte SIARD-Datei
+     */
+    void release(File siardDatei);
+
+}
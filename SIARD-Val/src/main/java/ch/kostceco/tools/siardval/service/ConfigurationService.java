@@ -16,6 +16,8 @@ Boston, MA 02110-1301 USA or see <http://www.gnu.org/licenses/>.
 
 package ch.kostceco.tools.siardval.service;
 
+import java.net.URL;
+
 
 /**
  * SIARDVal -->
@@ -32,4 +34,82 @@ public interface ConfigurationService extends Service {
      */
     String getPathToWorkDir();
     
+    /**
+     * Gibt den Pfad eines Verzeichnisses im RAM (z.B. tmpfs) fr die
+     * Arbeitsverzeichnisse zurck.
+     * @return Pfad, null falls kein RAM-Verzeichnis konfiguriert ist
+     */
+    String getPathToRamWorkDir();
+    
+    /**
+     * Gibt zurck, wie viele MB SIARD-Dateien gleichzeitig im RAM-Verzeichnis
+     * validiert werden. Weitere SIARD-Dateien arbeiten unter pathtoworkdir.
+     * @return Budget in MB
+     */
+    int getRamWorkDirBudget();
+    
+    /**
+     * Gibt an, ob die SIARD-Datei ins Arbeitsverzeichnis entpackt werden soll.
+     * Standardmssig werden metadata.xml, die XSD- und die Tabellen-Dateien
+     * direkt aus der SIARD-Datei gelesen.
+     * @return true, falls extractarchive auf "yes" gesetzt ist
+     */
+    boolean isExtractArchive();
+    
+    /**
+     * Gibt die Anzahl Threads fr die tabellenweisen Prfungen (Module F und H) zurck.
+     * Bei 0 oder fehlendem Eintrag wird die Anzahl anhand der Prozessoren
+     * und der Grsse der Tabellen bestimmt.
+     * @return Anzahl Threads, 0 fr automatisch
+     */
+    int getContentThreads();
+    
+    /**
+     * Gibt die Anzahl Threads zurck, die mit extractarchive=yes die SIARD-Datei
+     * ins Arbeitsverzeichnis entpacken.
+     * @return Anzahl Threads, 0 fr die Anzahl Prozessoren
+     */
+    int getExtractThreads();
+    
+    /**
+     * Gibt das Speicherbudget fr die Schlsselprfungen (Modul K) in MB zurck.
+     * Das Budget wird auf die gleichzeitig geprften Tabellen verteilt; wird
+     * es berschritten, werden Zwischendateien ins Arbeitsverzeichnis geschrieben.
+     * @return Speicherbudget in MB
+     */
+    int getConstraintMemory();
+    
+    /**
+     * Gibt die Anzahl SIARD-Dateien zurck, die im Batch- und im Service-Modus
+     * gleichzeitig validiert werden.
+     * @return Anzahl Worker, 0 fr die Anzahl Prozessoren
+     */
+    int getBatchWorkers();
+    
+    /**
+     * Gibt den lokalen Port des Validierungs-Service zurck.
+     * @return Port, Standard 8480
+     */
+    int getServicePort();
+    
+    /**
+     * Gibt die Anzahl Auftrge zurck, die im Service-Modus hchstens auf
+     * einen Worker warten. Weitere Auftrge werden abgewiesen.
+     * @return Grsse der Warteschlange
+     */
+    int getServiceQueue();
+    
+    /**
+     * Gibt den Pfad des Ergebnis-Caches zurck.
+     * @return Pfad des Cache-Verzeichnisses, null falls der Cache
+     *         ausgeschaltet ist
+     */
+    String getPathToResultCache();
+    
+    /**
+     * Gibt die Adresse der gelesenen Konfigurationsdatei zurck.
+     * @return Adresse von SIARDVal.conf.xml
+     */
+    URL getConfigurationUrl();
+    
 }
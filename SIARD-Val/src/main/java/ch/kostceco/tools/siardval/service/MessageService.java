@@ -16,9 +16,16 @@ Boston, MA 02110-1301 USA or see <http://www.gnu.org/licenses/>.
 
 package ch.kostceco.tools.siardval.service;
 
+import java.util.List;
+
+import ch.kostceco.tools.siardval.report.Finding;
+import ch.kostceco.tools.siardval.report.FindingsWriter;
+
 
 /**
- * Interface fr den Message Stack Service.
+ * Interface fr den Message Stack Service. Jedes Modul hat einen eigenen
+ * Service (scope prototype); log darf von mehreren Threads aufgerufen
+ * werden.
  * @author Rc Claire Rthlisberger, KOST-CECO
  */
 public interface MessageService extends Service {
@@ -34,6 +41,33 @@ public interface MessageService extends Service {
     void logWarning(String message);
     void logError(String message);
     void logFatal(String message);
+    
+    /**
+     * Nimmt eine Meldung mit ihren strukturierten Angaben auf und schreibt
+     * sie in den Findings-Report, falls sie nicht schon mit
+     * {@link #publish(Finding)} geschrieben wurde.
+     */
+    void log(Finding finding);
+    
+    /**
+     * Schreibt eine Meldung sofort in den Findings-Report, ohne sie
+     * aufzunehmen. Fr Meldungen, die erst spter in fester Reihenfolge mit
+     * {@link #log(Finding)} ausgegeben werden, z.B. bei parallel geprften
+     * Tabellen.
+     */
+    void publish(Finding finding);
+    
+    /**
+     * Setzt den Findings-Report der laufenden Validierung.
+     * @param writer der Report oder null
+     * @param module Bezeichnung des Moduls im Report, z.B. H
+     */
+    void setFindingsWriter(FindingsWriter writer, String module);
     void clear();
+    
+    /**
+     * @return Kopie der gesammelten Meldungen als Paare aus Level und Text
+     */
+    List<String[]> getMessages();
     void print();
 }
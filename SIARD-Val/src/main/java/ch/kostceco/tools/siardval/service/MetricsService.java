@@ -0,0 +1,70 @@
+/*== SIARD-Val ==================================================================================
+The SIARD-Val application is used for validate SIARD-Files. 
+Copyright (C) 2012 Claire Rthlisberger (KOST-CECO), Martin Kaiser (KOST-CECO), XYZ (xyz)
+-----------------------------------------------------------------------------------------------
+SIARD-Val is a development of the KOST-CECO. All rights rest with the KOST-CECO. 
+This application is free software: you can redistribute it and/or modify it under the 
+terms of the GNU General Public License as published by the Free Software Foundation, 
+either version 3 of the License, or (at your option) any later version. 
+This application is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; 
+without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. 
+See the follow GNU General Public License for more details.
+You should have received a copy of the GNU General Public License along with this program; 
+if not, write to the Free Software Foundation, Inc., 51 Franklin Street, Fifth Floor, 
+Boston, MA 02110-1301 USA or see <http://www.gnu.org/licenses/>.
+==============================================================================================*/
+
+package ch.kostceco.tools.siardval.service;
+
+import java.io.File;
+
+import ch.kostceco.tools.siardval.metrics.ArchiveMetrics;
+
+/**
+ * SIARDVal -->
+ *
+ * Service Interface fr die Metriken der Validierungen: Zeit, CPU-Zeit,
+ * Allokationen, gelesene Bytes und Eintrge pro Modul und Phase. Die
+ * Metriken sind als MBeans sichtbar und werden am Ende jeder Validierung im
+ * Textformat von Prometheus geschrieben.
+ */
+public interface MetricsService extends Service {
+
+    /**
+     * Name der Datei mit der Summe aller Validierungen im Log-Verzeichnis
+     * (Batch- und Service-Modus).
+     */
+    String TOTAL_NAME = "SIARDVal.metrics.prom";
+
+    /**
+     * Endung der Datei einer einzelnen Validierung, anstelle von
+     * .validationlog.log.
+     */
+    String EXTENSION = ".metrics.prom";
+
+    /**
+     * Legt die Metriken einer Validierung an, registriert sie als MBeans und
+     * bindet den aufrufenden Thread daran.
+     * @param archive Name der Validierung, eindeutig unter den laufenden
+     */
+    ArchiveMetrics begin(String archive);
+
+    /**
+     * Lst den aufrufenden Thread, zhlt die Metriken zur Summe und schreibt
+     * sie in die Datei.
+     * @param file die Datei oder null
+     */
+    void end(ArchiveMetrics metrics, File file);
+
+    /**
+     * @return die Summe aller abgeschlossenen Validierungen
+     */
+    ArchiveMetrics getTotal();
+
+    /**
+     * Schreibt die Metriken im Textformat von Prometheus. Die Datei wird
+     * ersetzt, damit ein Collector nie eine halbe Datei liest.
+     */
+    void write(ArchiveMetrics metrics, File file);
+
+}
@@ -0,0 +1,54 @@
+/*== SIARD-Val ==================================================================================
+The SIARD-Val application is used for validate SIARD-Files. 
+Copyright (C) 2012 Claire Rthlisberger (KOST-CECO), Martin Kaiser (KOST-CECO), XYZ (xyz)
+-----------------------------------------------------------------------------------------------
+SIARD-Val is a development of the KOST-CECO. All rights rest with the KOST-CECO. 
+This application is free software: you can redistribute it and/or modify it under the 
+terms of the GNU General Public License as published by the Free Software Foundation, 
+either version 3 of the License, or (at your option) any later version. 
+This application is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; 
+without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. 
+See the follow GNU General Public License for more details.
+You should have received a copy of the GNU General Public License along with this program; 
+if not, write to the Free Software Foundation, Inc., 51 Franklin Street, Fifth Floor, 
+Boston, MA 02110-1301 USA or see <http://www.gnu.org/licenses/>.
+==============================================================================================*/
+
+package ch.kostceco.tools.siardval.service;
+
+import java.io.File;
+
+import ch.kostceco.tools.siardval.cache.ValidationRecord;
+
+/**
+ * SIARDVal -->
+ *
+ * Service Interface fr den Ergebnis-Cache. Wird eine unvernderte
+ * SIARD-Datei mit derselben Version von SIARD-Val und derselben
+ * Konfiguration erneut validiert, wird das abgelegte Ergebnis verwendet,
+ * ohne den Inhalt der SIARD-Datei zu lesen.
+ */
+public interface ResultCacheService extends Service {
+
+    /**
+     * Bildet den Schlssel aus einem Fingerprint der SIARD-Datei (Grsse und
+     * zentrales Verzeichnis mit den CRCs der Eintrge), der Version von
+     * SIARD-Val, der Sprache sowie einem Digest ber SIARDVal.conf.xml und
+     * validation.properties.
+     * @return der Schlssel oder null, falls der Cache ausgeschaltet ist oder
+     *         die SIARD-Datei kein lesbares ZIP ist
+     */
+    String getKey(File siardDatei);
+
+    /**
+     * @return das abgelegte Ergebnis oder null
+     */
+    ValidationRecord get(String key);
+
+    /**
+     * Legt ein Ergebnis ab. berschreitet der Cache seine Grsse, werden die
+     * am lngsten nicht verwendeten Ergebnisse gelscht.
+     */
+    void put(String key, ValidationRecord record);
+
+}
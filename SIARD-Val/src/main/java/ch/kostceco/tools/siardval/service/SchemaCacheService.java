@@ -0,0 +1,53 @@
+/*== SIARD-Val ==================================================================================
+The SIARD-Val application is used for validate SIARD-Files. 
+Copyright (C) 2012 Claire Rthlisberger (KOST-CECO), Martin Kaiser (KOST-CECO), XYZ (xyz)
+-----------------------------------------------------------------------------------------------
+SIARD-Val is a development of the KOST-CECO. All rights rest with the KOST-CECO. 
+This application is free software: you can redistribute it and/or modify it under the 
+terms of the GNU General Public License as published by the Free Software Foundation, 
+either version 3 of the License, or (at your option) any later version. 
+This application is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; 
+without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. 
+See the follow GNU General Public License for more details.
+You should have received a copy of the GNU General Public License along with this program; 
+if not, write to the Free Software Foundation, Inc., 51 Franklin Street, Fifth Floor, 
+Boston, MA 02110-1301 USA or see <http://www.gnu.org/licenses/>.
+==============================================================================================*/
+
+package ch.kostceco.tools.siardval.service;
+
+import java.io.IOException;
+
+import javax.xml.transform.stream.StreamSource;
+import javax.xml.validation.Schema;
+
+import org.w3c.dom.ls.LSResourceResolver;
+import org.xml.sax.SAXException;
+
+/**
+ * SIARDVal -->
+ *
+ * Service Interface fr kompilierte XML-Schemas. Inhaltlich gleiche XSD-Dateien
+ * werden nur einmal kompiliert, auch ber mehrere Validierungen hinweg.
+ */
+public interface SchemaCacheService extends Service {
+
+    /**
+     * Gibt das kompilierte Schema zur XSD-Datei zurck. Der Schlssel ist ein
+     * Digest ber den Inhalt der XSD-Datei; XSD-Dateien mit xs:include,
+     * xs:import oder xs:redefine werden jedes Mal neu kompiliert, da ihr
+     * Schema von weiteren Dateien abhngt.
+     * @param xsd die XSD-Datei; ein allflliger InputStream wird geschlossen
+     * @param resolver Resolver fr referenzierte Dateien oder null
+     * @return das kompilierte Schema, darf von mehreren Threads verwendet werden
+     * @throws SAXException falls die XSD-Datei kein gltiges Schema ist
+     * @throws IOException falls die XSD-Datei nicht gelesen werden kann
+     */
+    Schema getSchema(StreamSource xsd, LSResourceResolver resolver) throws SAXException, IOException;
+
+    /**
+     * Verwirft alle Schemas im Cache.
+     */
+    void clear();
+
+}
@@ -27,7 +27,7 @@ import java.util.Locale;
 public interface TextResourceService extends Service {
     /**
      * Ermitteln eines ResourceValues anhand eines Keys. Es wird die Locale aus
-     * dem UserContext verwendet.
+     * {@link #getLocale()} verwendet.
      * 
      * Gleichzeitig wird ein MessageFormat an das Ergebnis angewendet und die
      * Platzhalter aus der Resource mit den Werten aus aValues ersetzt.
@@ -55,4 +55,19 @@ public interface TextResourceService extends Service {
      * @return das formatierte Ergebnis
      */
     String getText(Locale locale, String aKey, Object... values);
+
+    /**
+     * Setzt die Locale der Meldungen fr den aktuellen Thread und die
+     * Threads, die er danach startet, z.B. fr einen Auftrag im
+     * Service-Modus.
+     * 
+     * @param locale
+     *            die Locale oder null fr Locale.getDefault()
+     */
+    void setLocale(Locale locale);
+
+    /**
+     * @return die Locale der Meldungen im aktuellen Thread
+     */
+    Locale getLocale();
 }
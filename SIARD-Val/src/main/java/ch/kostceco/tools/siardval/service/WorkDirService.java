@@ -0,0 +1,81 @@
+/*== SIARD-Val ==================================================================================
+The SIARD-Val application is used for validate SIARD-Files. 
+Copyright (C) 2012 Claire Rthlisberger (KOST-CECO), Martin Kaiser (KOST-CECO), XYZ (xyz)
+-----------------------------------------------------------------------------------------------
+SIARD-Val is a development of the KOST-CECO. All rights rest with the KOST-CECO. 
+This application is free software: you can redistribute it and/or modify it under the 
+terms of the GNU General Public License as published by the Free Software Foundation, 
+either version 3 of the License, or (at your option) any later version. 
+This application is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; 
+without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. 
+See the follow GNU General Public License for more details.
+You should have received a copy of the GNU General Public License along with this program; 
+if not, write to the Free Software Foundation, Inc., 51 Franklin Street, Fifth Floor, 
+Boston, MA 02110-1301 USA or see <http://www.gnu.org/licenses/>.
+==============================================================================================*/
+
+package ch.kostceco.tools.siardval.service;
+
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * SIARDVal -->
+ *
+ * Service Interface fr die Arbeitsverzeichnisse. Jede Validierung erhlt
+ * unter pathtoworkdir bzw. pathtoramworkdir ein eigenes Verzeichnis, damit
+ * sich gleichzeitige Validierungen (Batch- und Service-Modus oder mehrere
+ * Prozesse auf demselben Rechner) nicht gegenseitig Dateien berschreiben.
+ * Das gilt auch fr zwei gleichzeitige Validierungen derselben Datei, z.B.
+ * zwei Auftrge mit verschiedener Sprache im Service-Modus.
+ */
+public interface WorkDirService extends Service {
+
+    /**
+     * Beginnt eine Validierung der SIARD-Datei. Der aktuelle Thread und die
+     * Threads, die er danach startet, erhalten mit <code>getWorkDir</code>
+     * das Arbeitsverzeichnis dieser Validierung.
+     * @param siardDatei die zu validierende SIARD-Datei
+     * @return die Validierung, die mit <code>release</code> freigegeben wird
+     */
+    Run acquire(File siardDatei);
+
+    /**
+     * Gibt das Arbeitsverzeichnis der Validierung des aktuellen Threads
+     * zurck. Beim ersten Aufruf wird es angelegt, im RAM-Verzeichnis, falls
+     * die SIARD-Datei noch ins Budget passt, sonst unter pathtoworkdir;
+     * danach wird das gleiche Verzeichnis geliefert, bis die Validierung
+     * freigegeben wird.
+     * @param siardDatei die zu validierende SIARD-Datei
+     * @return das Arbeitsverzeichnis
+     * @throws IOException falls kein Arbeitsverzeichnis angelegt werden kann
+     * @throws IllegalStateException falls fr diese Datei im aktuellen Thread
+     *             keine Validierung mit <code>acquire</code> begonnen wurde
+     */
+    File getWorkDir(File siardDatei) throws IOException;
+
+    /**
+     * Gibt das Arbeitsverzeichnis der Validierung frei. Es wird im
+     * Hintergrund gelscht, der Aufruf wartet nicht darauf; was beim Beenden
+     * der JVM noch nicht gelscht ist, entfernt die nchste Validierung.
+     * @param run die mit <code>acquire</code> begonnene Validierung
+     */
+    void release(Run run);
+
+    /**
+     * Eine mit <code>acquire</code> begonnene Validierung.
+     */
+    final class Run {
+
+        private final File siardDatei;
+
+        public Run(File siardDatei) {
+            this.siardDatei = siardDatei;
+        }
+
+        public File getSiardDatei() {
+            return siardDatei;
+        }
+    }
+
+}
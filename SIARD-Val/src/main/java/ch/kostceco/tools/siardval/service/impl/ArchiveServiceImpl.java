@@ -0,0 +1,182 @@
+/*== SIARD-Val ==================================================================================
+The SIARD-Val application is used for validate SIARD-Files. 
+Copyright (C) 2012 Claire Rthlisberger (KOST-CECO), Martin Kaiser (KOST-CECO), XYZ (xyz)
+-----------------------------------------------------------------------------------------------
+SIARD-Val is a development of the KOST-CECO. All rights rest with the KOST-CECO. 
+This application is free software: you can redistribute it and/or modify it under the 
+terms of the GNU General Public License as published by the Free Software Foundation, 
+either version 3 of the License, or (at your option) any later version. 
+This application is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; 
+without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. 
+See the follow GNU General Public License for more details.
+You should have received a copy of the GNU General Public License along with this program; 
+if not, write to the Free Software Foundation, Inc., 51 Franklin Street, Fifth Floor, 
+Boston, MA 02110-1301 USA or see <http://www.gnu.org/licenses/>.
+==============================================================================================*/
+
+package ch.kostceco.tools.siardval.service.impl;
+
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+
+import javax.xml.stream.XMLStreamException;
+
+import ch.kostceco.tools.siardval.archive.SiardArchiveIndex;
+import ch.kostceco.tools.siardval.archive.SiardMetadata;
+import ch.kostceco.tools.siardval.logging.Logger;
+import ch.kostceco.tools.siardval.metrics.Measurement;
+import ch.kostceco.tools.siardval.metrics.Metrics;
+import ch.kostceco.tools.siardval.service.ArchiveService;
+
+/**
+ * Hlt pro SIARD-Datei einen {@link SiardArchiveIndex} und die
+ * {@link SiardMetadata}, damit nicht jedes Modul das zentrale Verzeichnis
+ * bzw. metadata.xml erneut liest.
+ * <p>
+ * Alle Maps sind durch den Monitor der Instanz geschtzt. metadata.xml wird
+ * ausserhalb des Monitors gelesen, pro SIARD-Datei nur einmal: weitere
+ * Aufrufer warten auf das Ergebnis des ersten.
+ */
+public class ArchiveServiceImpl implements ArchiveService {
+
+    private static final Logger LOGGER = new Logger(ArchiveServiceImpl.class);
+
+    private final Map<String, SiardArchiveIndex> indexes = new HashMap<String, SiardArchiveIndex>();
+    private final Map<String, SiardMetadata> metadata = new HashMap<String, SiardMetadata>();
+    /* metadata.xml, das gerade gelesen wird */
+    private final Map<String, FutureTask<SiardMetadata>> parsing = new HashMap<String, FutureTask<SiardMetadata>>();
+
+    @Override
+    public synchronized SiardArchiveIndex getArchiveIndex(File siardDatei) throws IOException {
+        String key = siardDatei.getCanonicalPath();
+        SiardArchiveIndex index = indexes.get(key);
+        if (index == null) {
+            // Fehler werden nicht gemerkt, das aufrufende Modul meldet sie
+            Measurement measurement = Metrics.start(Metrics.INDEX);
+            index = new SiardArchiveIndex(siardDatei);
+            measurement.addEntries(index.getEntryCount());
+            measurement.stop();
+            indexes.put(key, index);
+        }
+        return index;
+    }
+
+    @Override
+    public SiardMetadata getMetadata(File siardDatei) throws IOException, XMLStreamException {
+        String key = siardDatei.getCanonicalPath();
+        FutureTask<SiardMetadata> task;
+        boolean owner = false;
+        synchronized (this) {
+            SiardMetadata siardMetadata = metadata.get(key);
+            if (siardMetadata != null) {
+                return siardMetadata;
+            }
+            task = parsing.get(key);
+            if (task == null) {
+                task = new FutureTask<SiardMetadata>(new Parse(siardDatei));
+                parsing.put(key, task);
+                owner = true;
+            }
+        }
+
+        if (owner) {
+            try {
+                task.run();
+                // wie beim Index werden Fehler nicht gemerkt
+                SiardMetadata siardMetadata = getResult(task);
+                synchronized (this) {
+                    // nach einem release wird das Ergebnis nicht mehr abgelegt
+                    if (parsing.get(key) == task) {
+                        metadata.put(key, siardMetadata);
+                    }
+                }
+                return siardMetadata;
+            } finally {
+                synchronized (this) {
+                    if (parsing.get(key) == task) {
+                        parsing.remove(key);
+                    }
+                }
+            }
+        }
+        return getResult(task);
+    }
+
+    @Override
+    public synchronized void release(File siardDatei) {
+        try {
+            String key = siardDatei.getCanonicalPath();
+            metadata.remove(key);
+            parsing.remove(key);
+            SiardArchiveIndex index = indexes.remove(key);
+            if (index != null) {
+                index.close();
+            }
+        } catch (IOException e) {
+            LOGGER.logDebug(e.getMessage());
+        }
+    }
+
+    private static SiardMetadata getResult(FutureTask<SiardMetadata> task) throws IOException,
+            XMLStreamException {
+        try {
+            return task.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException(e.getMessage());
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            }
+            if (cause instanceof XMLStreamException) {
+                throw (XMLStreamException) cause;
+            }
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new IllegalStateException(cause);
+        }
+    }
+
+    /*
+     * Liest metadata.xml; luft im Thread des ersten Aufrufers, ohne den
+     * Monitor zu halten.
+     */
+    private class Parse implements Callable<SiardMetadata> {
+
+        private final File siardDatei;
+
+        Parse(File siardDatei) {
+            this.siardDatei = siardDatei;
+        }
+
+        @Override
+        public SiardMetadata call() throws IOException, XMLStreamException {
+            SiardArchiveIndex index = getArchiveIndex(siardDatei);
+            Measurement measurement = Metrics.start(Metrics.PARSE);
+            InputStream in = index.openEntryInputStream(SiardMetadata.ENTRY);
+            SiardMetadata siardMetadata;
+            try {
+                siardMetadata = SiardMetadata.parse(new BufferedInputStream(in, 64 * 1024));
+            } finally {
+                in.close();
+                measurement.stop();
+            }
+            measurement.addEntries(siardMetadata.getTableCount());
+            return siardMetadata;
+        }
+    }
+
+}
@@ -36,6 +36,10 @@ import ch.kostceco.tools.siardval.service.TextResourceService;
 public class ConfigurationServiceImpl implements ConfigurationService {
 
     private static final Logger LOGGER = new Logger(ConfigurationServiceImpl.class);
+    private static final int DEFAULT_CONSTRAINT_MEMORY = 256;
+    private static final int DEFAULT_RAM_WORKDIR_BUDGET = 512;
+    private static final int DEFAULT_SERVICE_PORT = 8480;
+    private static final int DEFAULT_SERVICE_QUEUE = 100;
     XMLConfiguration config = null;
     private TextResourceService textResourceService;
 
@@ -47,7 +51,7 @@ public class ConfigurationServiceImpl implements ConfigurationService {
     }
 
 // Holt sich das Configuration-file.
-    private XMLConfiguration getConfig(){
+    private synchronized XMLConfiguration getConfig(){
         if (this.config == null) {
             try {
                 String path = "configuration/SIARDVal.conf.xml";
@@ -86,4 +90,177 @@ public class ConfigurationServiceImpl implements ConfigurationService {
         }
         return null;
     }
+    
+    @Override
+    public String getPathToRamWorkDir() {
+        /**
+         * Gibt den Pfad des RAM-Verzeichnisses fr die Arbeitsverzeichnisse zurck.
+         * @return Pfad, null falls der Eintrag fehlt oder leer ist
+         */
+        Object prop = getConfig().getProperty("pathtoramworkdir");
+        if (prop instanceof String && ((String) prop).trim().length() > 0) {
+            return ((String) prop).trim();
+        }
+        return null;
+    }
+    
+    @Override
+    public int getRamWorkDirBudget() {
+        /**
+         * Gibt das Budget des RAM-Verzeichnisses in MB zurck.
+         * Fehlt der Eintrag oder ist er ungltig, gilt das Standardbudget.
+         * @return Budget in MB
+         */
+        Object prop = getConfig().getProperty("ramworkdirbudget");
+        if (prop instanceof String) {
+            try {
+                return Math.max(0, Integer.parseInt(((String) prop).trim()));
+            } catch (NumberFormatException e) {
+                return DEFAULT_RAM_WORKDIR_BUDGET;
+            }
+        }
+        return DEFAULT_RAM_WORKDIR_BUDGET;
+    }
+    
+    @Override
+    public boolean isExtractArchive() {
+        /**
+         * Gibt an, ob die SIARD-Datei ins Arbeitsverzeichnis entpackt wird.
+         * Fehlt der Eintrag, wird direkt in der SIARD-Datei validiert.
+         * @return true, falls extractarchive auf "yes" gesetzt ist
+         */
+        Object prop = getConfig().getProperty("extractarchive");
+        if (prop instanceof String) {
+            String value = (String) prop;
+            return value.trim().equalsIgnoreCase("yes");
+        }
+        return false;
+    }
+    
+    @Override
+    public int getContentThreads() {
+        /**
+         * Gibt die Anzahl Threads fr die tabellenweisen Prfungen zurck.
+         * Fehlt der Eintrag oder ist er ungltig, wird 0 (automatisch) zurckgegeben.
+         * @return Anzahl Threads, 0 fr automatisch
+         */
+        Object prop = getConfig().getProperty("contentthreads");
+        if (prop instanceof String) {
+            try {
+                return Math.max(0, Integer.parseInt(((String) prop).trim()));
+            } catch (NumberFormatException e) {
+                return 0;
+            }
+        }
+        return 0;
+    }
+    
+    @Override
+    public int getExtractThreads() {
+        /**
+         * Gibt die Anzahl Threads zum Entpacken zurck.
+         * Fehlt der Eintrag oder ist er ungltig, wird 0 (automatisch) zurckgegeben.
+         * @return Anzahl Threads, 0 fr automatisch
+         */
+        Object prop = getConfig().getProperty("extractthreads");
+        if (prop instanceof String) {
+            try {
+                return Math.max(0, Integer.parseInt(((String) prop).trim()));
+            } catch (NumberFormatException e) {
+                return 0;
+            }
+        }
+        return 0;
+    }
+    
+    @Override
+    public int getConstraintMemory() {
+        /**
+         * Gibt das Speicherbudget fr die Schlsselprfungen in MB zurck.
+         * Fehlt der Eintrag oder ist er ungltig, gilt das Standardbudget.
+         * @return Speicherbudget in MB
+         */
+        Object prop = getConfig().getProperty("constraintmemory");
+        if (prop instanceof String) {
+            try {
+                return Math.max(1, Integer.parseInt(((String) prop).trim()));
+            } catch (NumberFormatException e) {
+                return DEFAULT_CONSTRAINT_MEMORY;
+            }
+        }
+        return DEFAULT_CONSTRAINT_MEMORY;
+    }
+    
+    @Override
+    public int getBatchWorkers() {
+        /**
+         * Gibt die Anzahl Worker fr den Batch-Modus zurck.
+         * Fehlt der Eintrag oder ist er ungltig, wird 0 (automatisch) zurckgegeben.
+         * @return Anzahl Worker, 0 fr automatisch
+         */
+        Object prop = getConfig().getProperty("batchworkers");
+        if (prop instanceof String) {
+            try {
+                return Math.max(0, Integer.parseInt(((String) prop).trim()));
+            } catch (NumberFormatException e) {
+                return 0;
+            }
+        }
+        return 0;
+    }
+    
+    @Override
+    public int getServicePort() {
+        /**
+         * Gibt den Port des Validierungs-Service zurck.
+         * Fehlt der Eintrag oder ist er ungltig, gilt der Standardport.
+         * @return Port
+         */
+        Object prop = getConfig().getProperty("serviceport");
+        if (prop instanceof String) {
+            try {
+                return Integer.parseInt(((String) prop).trim());
+            } catch (NumberFormatException e) {
+                return DEFAULT_SERVICE_PORT;
+            }
+        }
+        return DEFAULT_SERVICE_PORT;
+    }
+    
+    @Override
+    public int getServiceQueue() {
+        /**
+         * Gibt die Grsse der Warteschlange des Validierungs-Service zurck.
+         * Fehlt der Eintrag oder ist er ungltig, gilt die Standardgrsse.
+         * @return Grsse der Warteschlange
+         */
+        Object prop = getConfig().getProperty("servicequeue");
+        if (prop instanceof String) {
+            try {
+                return Math.max(1, Integer.parseInt(((String) prop).trim()));
+            } catch (NumberFormatException e) {
+                return DEFAULT_SERVICE_QUEUE;
+            }
+        }
+        return DEFAULT_SERVICE_QUEUE;
+    }
+    
+    @Override
+    public String getPathToResultCache() {
+        /**
+         * Gibt den Pfad des Ergebnis-Caches zurck.
+         * Fehlt der Eintrag oder ist er leer, ist der Cache ausgeschaltet.
+         * @return Pfad des Cache-Verzeichnisses oder null
+         */
+        Object prop = getConfig().getProperty("pathtoresultcache");
+        if (prop instanceof String && ((String) prop).trim().length() > 0) {
+            return ((String) prop).trim();
+        }
+        return null;
+    }
+    
+    @Override
+    public URL getConfigurationUrl() {
+        return getConfig().getURL();
+    }
 }
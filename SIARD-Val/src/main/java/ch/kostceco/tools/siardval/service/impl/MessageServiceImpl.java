@@ -16,77 +16,121 @@ Boston, MA 02110-1301 USA or see <http://www.gnu.org/licenses/>.
 
 package ch.kostceco.tools.siardval.service.impl;
 
-import java.util.Iterator;
-import java.util.LinkedList;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
 
 import ch.kostceco.tools.siardval.logging.Logger;
+import ch.kostceco.tools.siardval.report.Finding;
+import ch.kostceco.tools.siardval.report.FindingsWriter;
 import ch.kostceco.tools.siardval.service.MessageService;
 
+/**
+ * Sammelt die Meldungen eines Moduls als {@link Finding}. Die Meldungen
+ * werden in der Reihenfolge von log ausgegeben; die Warteschlange ist ohne
+ * Sperre threadsicher, Meldungen mit Schlssel werden erst bei der Ausgabe
+ * formatiert. Parallel geprfte Tabellen sammeln ihre Meldungen selbst und
+ * bergeben sie in fester Reihenfolge, damit die Ausgabe nicht von der
+ * Ausfhrungsreihenfolge abhngt.
+ * @author Rc Claire Rthlisberger, KOST-CECO
+ */
 public class MessageServiceImpl implements MessageService {
-    /**
-     * @author Rc Claire Rthlisberger, KOST-CECO
-     */
     
     private static final Logger LOGGER = new Logger(MessageServiceImpl.class);
 
     
-    List<String[]> stack = new LinkedList<String[]>();
+    private final Queue<Finding> stack = new ConcurrentLinkedQueue<Finding>();
+    
+    private FindingsWriter findingsWriter;
+    private String module;
     
     @Override
     public void logDebug(String message) {
-        this.stack.add(new String[]{MessageService.DEBUG, message});
+        log(new Finding(MessageService.DEBUG, message));
     }
 
     @Override
     public void logError(String message) {
-        this.stack.add(new String[]{MessageService.ERROR, message});
+        log(new Finding(MessageService.ERROR, message));
     }
 
     @Override
     public void logFatal(String message) {
-        this.stack.add(new String[]{MessageService.FATAL, message});
+        log(new Finding(MessageService.FATAL, message));
     }
 
     @Override
     public void logInfo(String message) {
-        this.stack.add(new String[]{MessageService.INFO, message});
+        log(new Finding(MessageService.INFO, message));
     }
 
     @Override
     public void logWarning(String message) {
-        this.stack.add(new String[]{MessageService.WARN, message});
+        log(new Finding(MessageService.WARN, message));
+    }
+
+    @Override
+    public void log(Finding finding) {
+        this.stack.add(finding);
+        if (!finding.isPublished()) {
+            publish(finding);
+        }
+    }
+
+    @Override
+    public void publish(Finding finding) {
+        FindingsWriter writer = findingsWriter;
+        if (writer != null) {
+            writer.write(module, finding);
+        }
+        finding.setPublished(true);
+    }
+
+    @Override
+    public void setFindingsWriter(FindingsWriter writer, String module) {
+        this.findingsWriter = writer;
+        this.module = module;
     }
 
     @Override
     public void clear() {
-        this.stack.removeAll(stack);
+        this.stack.clear();
+    }
+
+    @Override
+    public List<String[]> getMessages() {
+        List<String[]> messages = new ArrayList<String[]>(stack.size());
+        for (Finding finding : stack) {
+            messages.add(new String[]{finding.getLevel(), finding.getText()});
+        }
+        return messages;
     }
 
     @Override
     public void print() {
-        Iterator<String[]> it = this.stack.iterator();
-        while (it.hasNext()) {
-            String[] message = (String[]) it.next();
-            if (message[0].equals(MessageService.DEBUG)) {
-                LOGGER.logDebug(message[1]);
+        Finding finding;
+        while ((finding = this.stack.poll()) != null) {
+            String level = finding.getLevel();
+            // Debug-Meldungen nur formatieren, wenn sie geloggt werden
+            if (level.equals(MessageService.DEBUG)) {
+                if (LOGGER.isDebugEnabled()) {
+                    LOGGER.logDebug(finding.getText());
+                }
             }
-            if (message[0].equals(MessageService.ERROR)) {
-                LOGGER.logError(message[1]);
+            if (level.equals(MessageService.ERROR)) {
+                LOGGER.logError(finding.getText());
             }
-            if (message[0].equals(MessageService.FATAL)) {
-                LOGGER.logFatal(message[1]);
+            if (level.equals(MessageService.FATAL)) {
+                LOGGER.logFatal(finding.getText());
             }
-            if (message[0].equals(MessageService.INFO)) {
-                LOGGER.logInfo(message[1]);
+            if (level.equals(MessageService.INFO)) {
+                LOGGER.logInfo(finding.getText());
             }
-            if (message[0].equals(MessageService.WARN)) {
-                LOGGER.logWarning(message[1]);
+            if (level.equals(MessageService.WARN)) {
+                LOGGER.logWarning(finding.getText());
             }
         }
-        
-        this.clear();
-    
     }
    
 }
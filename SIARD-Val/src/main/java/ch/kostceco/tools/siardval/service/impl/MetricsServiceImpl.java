@@ -0,0 +1,92 @@
+/*== SIARD-Val ==================================================================================
+The SIARD-Val application is used for validate SIARD-Files. 
+Copyright (C) 2012 Claire Rthlisberger (KOST-CECO), Martin Kaiser (KOST-CECO), XYZ (xyz)
+-----------------------------------------------------------------------------------------------
+SIARD-Val is a development of the KOST-CECO. All rights rest with the KOST-CECO. 
+This application is free software: you can redistribute it and/or modify it under the 
+terms of the GNU General Public License as published by the Free Software Foundation, 
+either version 3 of the License, or (at your option) any later version. 
+This application is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; 
+without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. 
+See the follow GNU General Public License for more details.
+You should have received a copy of the GNU General Public License along with this program; 
+if not, write to the Free Software Foundation, Inc., 51 Franklin Street, Fifth Floor, 
+Boston, MA 02110-1301 USA or see <http://www.gnu.org/licenses/>.
+==============================================================================================*/
+
+package ch.kostceco.tools.siardval.service.impl;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+
+import ch.kostceco.tools.siardval.logging.Logger;
+import ch.kostceco.tools.siardval.metrics.ArchiveMetrics;
+import ch.kostceco.tools.siardval.metrics.Metrics;
+import ch.kostceco.tools.siardval.service.MetricsService;
+
+/**
+ * Hlt die Summe aller Validierungen der JVM und schreibt die Metriken als
+ * Textdatei fr den textfile-Collector von Prometheus.
+ */
+public class MetricsServiceImpl implements MetricsService {
+
+    private static final Logger LOGGER = new Logger(MetricsServiceImpl.class);
+
+    private final ArchiveMetrics total = new ArchiveMetrics(null);
+    private boolean registered;
+
+    @Override
+    public ArchiveMetrics begin(String archive) {
+        synchronized (this) {
+            if (!registered) {
+                total.register();
+                registered = true;
+            }
+        }
+        ArchiveMetrics metrics = new ArchiveMetrics(archive);
+        metrics.register();
+        Metrics.bind(metrics, Metrics.CONTROLLER);
+        return metrics;
+    }
+
+    @Override
+    public void end(ArchiveMetrics metrics, File file) {
+        Metrics.unbind();
+        metrics.unregister();
+        total.merge(metrics);
+        if (file != null) {
+            write(metrics, file);
+        }
+    }
+
+    @Override
+    public ArchiveMetrics getTotal() {
+        return total;
+    }
+
+    @Override
+    public synchronized void write(ArchiveMetrics metrics, File file) {
+        File tmp = new File(file.getPath() + ".tmp");
+        try {
+            Writer out = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(tmp), "UTF-8"));
+            try {
+                metrics.writePrometheus(out);
+            } finally {
+                out.close();
+            }
+            file.delete();
+            if (!tmp.renameTo(file)) {
+                LOGGER.logDebug("Metriken nicht geschrieben: " + file.getAbsolutePath());
+                tmp.delete();
+            }
+        } catch (IOException e) {
+            LOGGER.logDebug(e.getMessage());
+            tmp.delete();
+        }
+    }
+
+}
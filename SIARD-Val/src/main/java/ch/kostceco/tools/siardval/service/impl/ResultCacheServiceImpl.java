@@ -0,0 +1,306 @@
+/*== SIARD-Val ==================================================================================
+The SIARD-Val application is used for validate SIARD-Files. 
+Copyright (C) 2012 Claire Rthlisberger (KOST-CECO), Martin Kaiser (KOST-CECO), XYZ (xyz)
+-----------------------------------------------------------------------------------------------
+SIARD-Val is a development of the KOST-CECO. All rights rest with the KOST-CECO. 
+This application is free software: you can redistribute it and/or modify it under the 
+terms of the GNU General Public License as published by the Free Software Foundation, 
+either version 3 of the License, or (at your option) any later version. 
+This application is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; 
+without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. 
+See the follow GNU General Public License for more details.
+You should have received a copy of the GNU General Public License along with this program; 
+if not, write to the Free Software Foundation, Inc., 51 Franklin Street, Fifth Floor, 
+Boston, MA 02110-1301 USA or see <http://www.gnu.org/licenses/>.
+==============================================================================================*/
+
+package ch.kostceco.tools.siardval.service.impl;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.FilenameFilter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URL;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Comparator;
+
+import ch.kostceco.tools.siardval.SIARDVal;
+import ch.kostceco.tools.siardval.archive.SiardArchiveEntry;
+import ch.kostceco.tools.siardval.archive.SiardArchiveIndex;
+import ch.kostceco.tools.siardval.cache.ValidationRecord;
+import ch.kostceco.tools.siardval.logging.Logger;
+import ch.kostceco.tools.siardval.service.ArchiveService;
+import ch.kostceco.tools.siardval.service.ConfigurationService;
+import ch.kostceco.tools.siardval.service.ResultCacheService;
+import ch.kostceco.tools.siardval.service.TextResourceService;
+
+/**
+ * Ergebnis-Cache im Verzeichnis pathtoresultcache der Konfiguration; ohne
+ * diesen Eintrag ist der Cache ausgeschaltet. Jedes Ergebnis liegt in einer
+ * eigenen Datei. Die Grsse des Verzeichnisses ist durch maxSize begrenzt;
+ * gelscht werden die Ergebnisse, die am lngsten nicht verwendet wurden.
+ */
+public class ResultCacheServiceImpl implements ResultCacheService {
+
+    private static final Logger LOGGER = new Logger(ResultCacheServiceImpl.class);
+
+    private static final String SUFFIX = ".result";
+
+    private static final String DIGEST = "SHA-256";
+
+    private ConfigurationService configurationService;
+    private ArchiveService archiveService;
+    private TextResourceService textResourceService;
+    private long maxSize = 256L * 1024 * 1024;
+
+    /* Digest ber Version und Konfiguration, einmal berechnet */
+    private byte[] environment;
+
+    public ConfigurationService getConfigurationService() {
+        return configurationService;
+    }
+    public void setConfigurationService(ConfigurationService configurationService) {
+        this.configurationService = configurationService;
+    }
+
+    public ArchiveService getArchiveService() {
+        return archiveService;
+    }
+    public void setArchiveService(ArchiveService archiveService) {
+        this.archiveService = archiveService;
+    }
+
+    public TextResourceService getTextResourceService() {
+        return textResourceService;
+    }
+    public void setTextResourceService(TextResourceService textResourceService) {
+        this.textResourceService = textResourceService;
+    }
+
+    public long getMaxSize() {
+        return maxSize;
+    }
+    /**
+     * @param maxSize hchste Grsse des Cache-Verzeichnisses in Bytes
+     */
+    public void setMaxSize(long maxSize) {
+        this.maxSize = maxSize;
+    }
+
+    private File getDirectory() {
+        String path = getConfigurationService().getPathToResultCache();
+        if (path == null || path.trim().length() == 0) {
+            return null;
+        }
+        return new File(path.trim());
+    }
+
+    @Override
+    public String getKey(File siardDatei) {
+        if (getDirectory() == null) {
+            return null;
+        }
+        try {
+            SiardArchiveIndex index = getArchiveService().getArchiveIndex(siardDatei);
+            MessageDigest digest = MessageDigest.getInstance(DIGEST);
+            digest.update(getEnvironment());
+            // die Meldungen im Ergebnis sind in der Sprache des Auftrags formatiert
+            digest.update(getTextResourceService().getLocale().toString().getBytes("UTF-8"));
+            DataOutputStream out = new DataOutputStream(new DigestSink(digest));
+            out.writeLong(siardDatei.length());
+            for (SiardArchiveEntry entry : index.getEntries()) {
+                out.writeUTF(entry.getName());
+                out.writeLong(entry.getOffset());
+                out.writeLong(entry.getSize());
+                out.writeLong(entry.getCompressedSize());
+                out.writeInt(entry.getMethod());
+                out.writeLong(entry.getCrc());
+            }
+            out.flush();
+            return toHex(digest.digest());
+        } catch (IOException e) {
+            LOGGER.logDebug(e.getMessage());
+            return null;
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /*
+     * Version von SIARD-Val (mit dem Zeitpunkt des Builds, damit auch
+     * Entwicklungsstnde ohne Versionsnummer unterschieden werden),
+     * SIARDVal.conf.xml und validation.properties.
+     */
+    private synchronized byte[] getEnvironment() throws IOException, NoSuchAlgorithmException {
+        if (environment == null) {
+            MessageDigest digest = MessageDigest.getInstance(DIGEST);
+            Package siardValPackage = SIARDVal.class.getPackage();
+            String version = siardValPackage == null ? null : siardValPackage.getImplementationVersion();
+            URL build = SIARDVal.class.getResource("SIARDVal.class");
+            long buildTime = build == null ? 0 : build.openConnection().getLastModified();
+            digest.update((version + "|" + buildTime).getBytes("UTF-8"));
+            update(digest, getConfigurationService().getConfigurationUrl());
+            update(digest, ResultCacheServiceImpl.class.getResource("/validation.properties"));
+            environment = digest.digest();
+        }
+        return environment;
+    }
+
+    private static void update(MessageDigest digest, URL url) throws IOException {
+        if (url == null) {
+            return;
+        }
+        InputStream in = url.openStream();
+        try {
+            byte[] buffer = new byte[8192];
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                digest.update(buffer, 0, read);
+            }
+        } finally {
+            in.close();
+        }
+    }
+
+    @Override
+    public ValidationRecord get(String key) {
+        File directory = getDirectory();
+        if (directory == null || key == null) {
+            return null;
+        }
+        File file = new File(directory, key + SUFFIX);
+        if (!file.isFile()) {
+            return null;
+        }
+        try {
+            DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)));
+            try {
+                ValidationRecord record = ValidationRecord.read(in);
+                // fr die Verdrngung gilt der letzte Zugriff
+                file.setLastModified(System.currentTimeMillis());
+                return record;
+            } finally {
+                in.close();
+            }
+        } catch (IOException e) {
+            // unvollstndige oder veraltete Datei
+            LOGGER.logDebug(e.getMessage());
+            file.delete();
+            return null;
+        }
+    }
+
+    @Override
+    public void put(String key, ValidationRecord record) {
+        File directory = getDirectory();
+        if (directory == null || key == null) {
+            return;
+        }
+        File file = new File(directory, key + SUFFIX);
+        File tmp = null;
+        try {
+            directory.mkdirs();
+            // erst vollstndig schreiben, dann umbenennen, damit parallele
+            // Validierungen keine halben Dateien lesen
+            tmp = File.createTempFile("siardval-result", ".tmp", directory);
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tmp)));
+            try {
+                record.write(out);
+            } finally {
+                out.close();
+            }
+            file.delete();
+            if (!tmp.renameTo(file)) {
+                tmp.delete();
+                return;
+            }
+        } catch (IOException e) {
+            LOGGER.logDebug(e.getMessage());
+            if (tmp != null) {
+                tmp.delete();
+            }
+            return;
+        }
+        evict(directory);
+    }
+
+    private synchronized void evict(File directory) {
+        File[] files = directory.listFiles(new FilenameFilter() {
+            @Override
+            public boolean accept(File dir, String name) {
+                return name.endsWith(SUFFIX);
+            }
+        });
+        if (files == null) {
+            return;
+        }
+        long size = 0;
+        for (File file : files) {
+            size += file.length();
+        }
+        if (size <= maxSize) {
+            return;
+        }
+        final long[] modified = new long[files.length];
+        for (int i = 0; i < files.length; i++) {
+            modified[i] = files[i].lastModified();
+        }
+        Integer[] order = new Integer[files.length];
+        for (int i = 0; i < order.length; i++) {
+            order[i] = Integer.valueOf(i);
+        }
+        Arrays.sort(order, new Comparator<Integer>() {
+            @Override
+            public int compare(Integer i1, Integer i2) {
+                long m1 = modified[i1.intValue()];
+                long m2 = modified[i2.intValue()];
+                return m1 < m2 ? -1 : (m1 > m2 ? 1 : 0);
+            }
+        });
+        for (int i = 0; i < order.length && size > maxSize; i++) {
+            File file = files[order[i].intValue()];
+            long length = file.length();
+            if (file.delete()) {
+                size -= length;
+            }
+        }
+    }
+
+    private static String toHex(byte[] bytes) {
+        StringBuilder hex = new StringBuilder(bytes.length * 2);
+        for (byte b : bytes) {
+            hex.append(Character.forDigit((b >> 4) & 0xf, 16)).append(Character.forDigit(b & 0xf, 16));
+        }
+        return hex.toString();
+    }
+
+    /*
+     * Leitet die geschriebenen Bytes in einen Digest.
+     */
+    private static class DigestSink extends java.io.OutputStream {
+
+        private final MessageDigest digest;
+
+        DigestSink(MessageDigest digest) {
+            this.digest = digest;
+        }
+
+        @Override
+        public void write(int b) {
+            digest.update((byte) b);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+            digest.update(b, off, len);
+        }
+    }
+}
@@ -0,0 +1,295 @@
+/*== SIARD-Val ==================================================================================
+The SIARD-Val application is used for validate SIARD-Files. 
+Copyright (C) 2012 Claire Rthlisberger (KOST-CECO), Martin Kaiser (KOST-CECO), XYZ (xyz)
+-----------------------------------------------------------------------------------------------
+SIARD-Val is a development of the KOST-CECO. All rights rest with the KOST-CECO. 
+This application is free software: you can redistribute it and/or modify it under the 
+terms of the GNU General Public License as published by the Free Software Foundation, 
+either version 3 of the License, or (at your option) any later version. 
+This application is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; 
+without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. 
+See the follow GNU General Public License for more details.
+You should have received a copy of the GNU General Public License along with this program; 
+if not, write to the Free Software Foundation, Inc., 51 Franklin Street, Fifth Floor, 
+Boston, MA 02110-1301 USA or see <http://www.gnu.org/licenses/>.
+==============================================================================================*/
+
+package ch.kostceco.tools.siardval.service.impl;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.net.URL;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.regex.Pattern;
+
+import javax.xml.XMLConstants;
+import javax.xml.transform.stream.StreamSource;
+import javax.xml.validation.Schema;
+import javax.xml.validation.SchemaFactory;
+
+import org.w3c.dom.ls.LSResourceResolver;
+import org.xml.sax.SAXException;
+
+import ch.kostceco.tools.siardval.logging.Logger;
+import ch.kostceco.tools.siardval.metrics.Measurement;
+import ch.kostceco.tools.siardval.metrics.Metrics;
+import ch.kostceco.tools.siardval.service.SchemaCacheService;
+
+/**
+ * LRU-Cache fr kompilierte XML-Schemas. Die Grsse ist durch die Anzahl
+ * Schemas und durch eine Schtzung des Speicherbedarfs begrenzt; beide Werte
+ * knnen per Dependency Injection gesetzt werden.
+ *
+ * <p>
+ * Wird dasselbe Schema gleichzeitig von mehreren Threads angefordert, wird
+ * es nur einmal kompiliert; die brigen Threads warten auf das Ergebnis.
+ */
+public class SchemaCacheServiceImpl implements SchemaCacheService {
+
+    private static final Logger LOGGER = new Logger(SchemaCacheServiceImpl.class);
+
+    /*
+     * Geschtzter Speicherbedarf eines kompilierten Schemas pro Byte XSD.
+     */
+    private static final int WEIGHT_PER_BYTE = 16;
+
+    private static final Pattern EXTERNAL_REFERENCE = Pattern.compile("<(\\w+:)?(include|import|redefine)\\b");
+
+    private int maxEntries = 512;
+    private long maxWeight = 64L * 1024 * 1024;
+
+    private final LinkedHashMap<String, CachedSchema> cache = new LinkedHashMap<String, CachedSchema>(16, 0.75f, true);
+    private final Map<String, FutureTask<Schema>> compiling = new HashMap<String, FutureTask<Schema>>();
+    private long weight;
+    private long hits;
+    private long misses;
+
+    public int getMaxEntries() {
+        return maxEntries;
+    }
+
+    /**
+     * Setzt die maximale Anzahl Schemas im Cache.
+     */
+    public void setMaxEntries(int maxEntries) {
+        this.maxEntries = maxEntries;
+    }
+
+    public long getMaxWeight() {
+        return maxWeight;
+    }
+
+    /**
+     * Setzt den maximalen geschtzten Speicherbedarf des Caches in Bytes.
+     */
+    public void setMaxWeight(long maxWeight) {
+        this.maxWeight = maxWeight;
+    }
+
+    public synchronized long getHits() {
+        return hits;
+    }
+
+    public synchronized long getMisses() {
+        return misses;
+    }
+
+    @Override
+    public Schema getSchema(StreamSource xsd, LSResourceResolver resolver) throws SAXException, IOException {
+        byte[] content = read(xsd);
+        String systemId = xsd.getSystemId();
+        if (EXTERNAL_REFERENCE.matcher(new String(content, "ISO-8859-1")).find()) {
+            return compile(content, systemId, resolver);
+        }
+
+        String key = digest(content);
+        FutureTask<Schema> task;
+        boolean owner = false;
+        synchronized (this) {
+            CachedSchema cached = cache.get(key);
+            if (cached != null) {
+                hits++;
+                return cached.schema;
+            }
+            task = compiling.get(key);
+            if (task == null) {
+                task = new FutureTask<Schema>(new Compilation(content, systemId, resolver));
+                compiling.put(key, task);
+                owner = true;
+                misses++;
+            }
+        }
+
+        if (owner) {
+            try {
+                task.run();
+                Schema schema = getResult(task);
+                synchronized (this) {
+                    put(key, new CachedSchema(schema, (long) content.length * WEIGHT_PER_BYTE));
+                }
+                return schema;
+            } finally {
+                synchronized (this) {
+                    compiling.remove(key);
+                }
+            }
+        }
+        return getResult(task);
+    }
+
+    @Override
+    public synchronized void clear() {
+        cache.clear();
+        weight = 0;
+    }
+
+    private void put(String key, CachedSchema cached) {
+        CachedSchema previous = cache.put(key, cached);
+        if (previous != null) {
+            weight -= previous.weight;
+        }
+        weight += cached.weight;
+        // das zuletzt verwendete Schema bleibt in jedem Fall im Cache
+        Iterator<CachedSchema> eldest = cache.values().iterator();
+        while (cache.size() > 1 && (cache.size() > maxEntries || weight > maxWeight)) {
+            weight -= eldest.next().weight;
+            eldest.remove();
+        }
+    }
+
+    private Schema getResult(FutureTask<Schema> task) throws SAXException, IOException {
+        try {
+            return task.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException(e.getMessage());
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof SAXException) {
+                throw (SAXException) cause;
+            }
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            }
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw new IllegalStateException(cause);
+        }
+    }
+
+    private static Schema compile(byte[] content, String systemId, LSResourceResolver resolver) throws SAXException {
+        // SchemaFactory ist nicht thread-safe, deshalb pro Kompilierung eine neue Instanz
+        SchemaFactory factory = SchemaFactory.newInstance(XMLConstants.W3C_XML_SCHEMA_NS_URI);
+        if (resolver != null) {
+            factory.setResourceResolver(resolver);
+        }
+        Measurement measurement = Metrics.start(Metrics.SCHEMA);
+        measurement.setTable(systemId);
+        measurement.setOutcome(Measurement.ERROR);
+        try {
+            Schema schema = factory.newSchema(new StreamSource(new ByteArrayInputStream(content), systemId));
+            measurement.setOutcome(Measurement.OK);
+            return schema;
+        } finally {
+            measurement.stop();
+        }
+    }
+
+    /*
+     * Liest die XSD-Datei vollstndig; XSD-Dateien sind klein.
+     */
+    private static byte[] read(StreamSource xsd) throws IOException {
+        InputStream in = xsd.getInputStream();
+        if (in == null) {
+            in = new URL(xsd.getSystemId()).openStream();
+        }
+        try {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            byte[] buffer = new byte[8192];
+            for (int iRead = in.read(buffer); iRead >= 0; iRead = in.read(buffer)) {
+                out.write(buffer, 0, iRead);
+            }
+            return out.toByteArray();
+        } finally {
+            in.close();
+        }
+    }
+
+    /*
+     * SHA-256 ber den Inhalt ohne Byte Order Mark und mit einheitlichen
+     * Zeilenenden, damit dieselbe XSD-Datei von Windows und Unix den gleichen
+     * Schlssel hat.
+     */
+    private static String digest(byte[] content) {
+        MessageDigest md;
+        try {
+            md = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+        int start = 0;
+        if (content.length >= 3 && (content[0] & 0xff) == 0xef && (content[1] & 0xff) == 0xbb
+                && (content[2] & 0xff) == 0xbf) {
+            start = 3;
+        }
+        for (int i = start; i < content.length; i++) {
+            byte b = content[i];
+            if (b == '\r') {
+                md.update((byte) '\n');
+                if (i + 1 < content.length && content[i + 1] == '\n') {
+                    i++;
+                }
+            } else {
+                md.update(b);
+            }
+        }
+        StringBuilder key = new StringBuilder();
+        for (byte b : md.digest()) {
+            key.append(Character.forDigit((b >> 4) & 0xf, 16)).append(Character.forDigit(b & 0xf, 16));
+        }
+        return key.toString();
+    }
+
+    private static class CachedSchema {
+
+        private final Schema schema;
+        private final long weight;
+
+        CachedSchema(Schema schema, long weight) {
+            this.schema = schema;
+            this.weight = weight;
+        }
+    }
+
+    private static class Compilation implements Callable<Schema> {
+
+        private final byte[] content;
+        private final String systemId;
+        private final LSResourceResolver resolver;
+
+        Compilation(byte[] content, String systemId, LSResourceResolver resolver) {
+            this.content = content;
+            this.systemId = systemId;
+            this.resolver = resolver;
+        }
+
+        @Override
+        public Schema call() throws SAXException {
+            Schema schema = compile(content, systemId, resolver);
+            LOGGER.logDebug("Schema kompiliert: " + systemId);
+            return schema;
+        }
+    }
+}
@@ -19,10 +19,17 @@ package ch.kostceco.tools.siardval.service.impl;
 import java.text.MessageFormat;
 import java.util.Locale;
 import java.util.ResourceBundle;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 import ch.kostceco.tools.siardval.service.TextResourceService;
 /**
  * Dieser Service managt die Zugriffe auf die Resource Bundles.
+ * 
+ * Die Texte werden pro Locale und Schlssel einmal aus dem Resource Bundle
+ * gelesen und als MessageFormat kompiliert; Texte ohne Platzhalter werden
+ * gleich fertig formatiert abgelegt. Die Locale kann pro Thread gesetzt
+ * werden und wird an die Threads vererbt, die eine Validierung startet.
  * @author Rc Claire Rthlisberger, KOST-CECO
  */
 public class TextResourceServiceImpl implements TextResourceService {
@@ -30,6 +37,30 @@ public class TextResourceServiceImpl implements TextResourceService {
     // Injection berschrieben werden.
     private String bundleBaseName = "messages";
 
+    private final ConcurrentMap<Locale, ConcurrentMap<String, Template>> templates = new ConcurrentHashMap<Locale, ConcurrentMap<String, Template>>();
+
+    private final InheritableThreadLocal<Locale> locale = new InheritableThreadLocal<Locale>();
+
+    /*
+     * Die bersetzten Texte liegen in <Sprache>_messages.properties, z.B.
+     * fr_messages.properties; messages.properties gilt fr alle anderen
+     * Sprachen.
+     */
+    private static final ResourceBundle.Control BUNDLE_CONTROL = new ResourceBundle.Control() {
+        @Override
+        public String toBundleName(String baseName, Locale locale) {
+            if (Locale.ROOT.equals(locale)) {
+                return baseName;
+            }
+            return locale.toString() + "_" + baseName;
+        }
+
+        @Override
+        public Locale getFallbackLocale(String baseName, Locale locale) {
+            return null;
+        }
+    };
+
     /**
      * Gibt den Wert des Attributs <code>bundleBaseName</code> zurck.
      * @return Wert des Attributs bundleBaseName.
@@ -45,26 +76,84 @@ public class TextResourceServiceImpl implements TextResourceService {
      */
     public void setBundleBaseName(String bundleBaseName) {
         this.bundleBaseName = bundleBaseName;
+        templates.clear();
     }
 
     /**
      * {@inheritDoc}
      */
     public String getText(String aKey, Object... values) {
+        return this.getText(getLocale(), aKey, values);
+    }
 
-        // For the time being, we use the VM Default Locale
-        Locale locale = Locale.getDefault();
+    /**
+     * {@inheritDoc}
+     */
+    public String getText(Locale locale, String aKey, Object... values) {
+        ConcurrentMap<String, Template> forLocale = templates.get(locale);
+        if (forLocale == null) {
+            forLocale = new ConcurrentHashMap<String, Template>();
+            ConcurrentMap<String, Template> existing = templates.putIfAbsent(locale, forLocale);
+            if (existing != null) {
+                forLocale = existing;
+            }
+        }
+        Template template = forLocale.get(aKey);
+        if (template == null) {
+            // parallel kompilierte Templates sind gleich, eines gewinnt
+            template = new Template(ResourceBundle.getBundle(this.bundleBaseName, locale, BUNDLE_CONTROL)
+                    .getString(aKey), locale);
+            forLocale.put(aKey, template);
+        }
+        return template.format(values);
+    }
 
-        return this.getText(locale, aKey, values);
+    /**
+     * {@inheritDoc}
+     */
+    public void setLocale(Locale locale) {
+        if (locale == null) {
+            this.locale.remove();
+        } else {
+            this.locale.set(locale);
+        }
     }
 
     /**
      * {@inheritDoc}
      */
-    public String getText(Locale locale, String aKey, Object... values) {
+    public Locale getLocale() {
+        Locale current = this.locale.get();
+        return current == null ? Locale.getDefault() : current;
+    }
+
+    /*
+     * Kompilierter Text. MessageFormat ist nicht threadsicher, formatiert
+     * wird mit einer Kopie; das Parsen des Musters entfllt dabei.
+     */
+    private static final class Template {
+
+        private final MessageFormat format;
+        /* der formatierte Text, falls das Muster keine Platzhalter hat */
+        private final String text;
+
+        Template(String pattern, Locale locale) {
+            MessageFormat messageFormat = new MessageFormat(pattern, locale);
+            if (messageFormat.getFormatsByArgumentIndex().length == 0) {
+                this.format = null;
+                this.text = messageFormat.format(new Object[0]);
+            } else {
+                this.format = messageFormat;
+                this.text = null;
+            }
+        }
 
-        String theValue = ResourceBundle.getBundle(this.bundleBaseName, locale).getString(aKey);
-        return MessageFormat.format(theValue, values);
+        String format(Object[] values) {
+            if (format == null) {
+                return text;
+            }
+            return ((MessageFormat) format.clone()).format(values == null ? new Object[0] : values);
+        }
     }
 
 }
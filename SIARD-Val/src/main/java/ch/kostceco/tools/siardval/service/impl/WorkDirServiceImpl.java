@@ -0,0 +1,429 @@
+/*== SIARD-Val ==================================================================================
+The SIARD-Val application is used for validate SIARD-Files. 
+Copyright (C) 2012 Claire Rthlisberger (KOST-CECO), Martin Kaiser (KOST-CECO), XYZ (xyz)
+-----------------------------------------------------------------------------------------------
+SIARD-Val is a development of the KOST-CECO. All rights rest with the KOST-CECO. 
+This application is free software: you can redistribute it and/or modify it under the 
+terms of the GNU General Public License as published by the Free Software Foundation, 
+either version 3 of the License, or (at your option) any later version. 
+This application is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; 
+without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. 
+See the follow GNU General Public License for more details.
+You should have received a copy of the GNU General Public License along with this program; 
+if not, write to the Free Software Foundation, Inc., 51 Franklin Street, Fifth Floor, 
+Boston, MA 02110-1301 USA or see <http://www.gnu.org/licenses/>.
+==============================================================================================*/
+
+package ch.kostceco.tools.siardval.service.impl;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import ch.kostceco.tools.siardval.logging.Logger;
+import ch.kostceco.tools.siardval.service.ConfigurationService;
+import ch.kostceco.tools.siardval.service.WorkDirService;
+import ch.kostceco.tools.siardval.service.WorkDirService.Run;
+
+/**
+ * Legt pro Validierung ein eigenes Arbeitsverzeichnis an und lscht es nach
+ * der Validierung im Hintergrund. Die Validierung wird wie die Sprache der
+ * Meldungen an die Threads vererbt, die sie startet.
+ *
+ * <p>
+ * Ist pathtoramworkdir konfiguriert (z.B. ein tmpfs), kommen die
+ * Arbeitsverzeichnisse dorthin, solange die Grsse der SIARD-Dateien in
+ * Arbeit das Budget ramworkdirbudget nicht bersteigt; die SIARD-Datei gilt
+ * dabei als obere Grenze fr das Entpackte und die Zwischendateien. Sonst
+ * und falls das RAM-Verzeichnis nicht angelegt werden kann, wird unter
+ * pathtoworkdir gearbeitet.
+ *
+ * <p>
+ * Jedes Arbeitsverzeichnis enthlt eine Sperrdatei, die gesperrt bleibt,
+ * solange die Validierung luft. Freigegebene Verzeichnisse werden
+ * umbenannt und von mehreren Threads gelscht. Beim ersten Arbeitsverzeichnis
+ * rumt ein Janitor auf, was frhere Prozesse zurckgelassen haben:
+ * umbenannte Verzeichnisse und solche, deren Sperre kein Prozess mehr hlt.
+ */
+public class WorkDirServiceImpl implements WorkDirService {
+
+    private static final Logger LOGGER = new Logger(WorkDirServiceImpl.class);
+
+    private static final int DEFAULT_DELETE_THREADS = 4;
+
+    /* daran erkennt der Janitor die Arbeitsverzeichnisse */
+    private static final String PREFIX = "run-";
+    /* Endung der freigegebenen Verzeichnisse, die noch gelscht werden */
+    private static final String DELETED = ".deleted";
+    private static final String LOCK = ".lock";
+    /* Verzeichnisse ohne Sperrdatei gelten erst nach dieser Zeit als verwaist */
+    private static final long ORPHAN_AGE = 24L * 60 * 60 * 1000;
+    /* der Name der SIARD-Datei wird gekrzt, wegen allowedlengthofpaths */
+    private static final int MAX_NAME_LENGTH = 24;
+
+    private ConfigurationService configurationService;
+    private int deleteThreads = DEFAULT_DELETE_THREADS;
+
+    private final Map<Run, WorkDir> workDirs = new HashMap<Run, WorkDir>();
+    private final InheritableThreadLocal<Run> current = new InheritableThreadLocal<Run>();
+    private final Random random = new Random();
+    private long ramReserved;
+    private boolean janitorStarted;
+    private ExecutorService cleaner;
+    private ExecutorService deleters;
+
+    public ConfigurationService getConfigurationService() {
+        return configurationService;
+    }
+
+    public void setConfigurationService(ConfigurationService configurationService) {
+        this.configurationService = configurationService;
+    }
+
+    /**
+     * @param deleteThreads Anzahl Threads, die ein Arbeitsverzeichnis lschen
+     */
+    public void setDeleteThreads(int deleteThreads) {
+        this.deleteThreads = Math.max(1, deleteThreads);
+    }
+
+    @Override
+    public Run acquire(File siardDatei) {
+        Run run = new Run(siardDatei);
+        current.set(run);
+        return run;
+    }
+
+    @Override
+    public synchronized File getWorkDir(File siardDatei) throws IOException {
+        Run run = getRun(siardDatei);
+        WorkDir workDir = workDirs.get(run);
+        if (workDir != null) {
+            return workDir.dir;
+        }
+        File diskBase = new File(getConfigurationService().getPathToWorkDir());
+        File ramBase = getRamBase();
+        if (!janitorStarted) {
+            janitorStarted = true;
+            startJanitor(diskBase, ramBase);
+        }
+        long size = siardDatei.length();
+        if (ramBase != null && ramReserved + size <= getConfigurationService().getRamWorkDirBudget() * 1024L * 1024L
+                && (ramBase.isDirectory() || ramBase.mkdirs()) && ramBase.getUsableSpace() > size) {
+            try {
+                workDir = create(ramBase, siardDatei.getName(), size);
+                ramReserved += size;
+            } catch (IOException e) {
+                LOGGER.logDebug("RAM-Arbeitsverzeichnis nicht angelegt: " + e.getMessage());
+            }
+        }
+        if (workDir == null) {
+            workDir = create(diskBase, siardDatei.getName(), 0);
+        }
+        workDirs.put(run, workDir);
+        return workDir.dir;
+    }
+
+    /*
+     * Die Validierung des aktuellen Threads. Ohne acquire gbe es niemanden,
+     * der das Verzeichnis wieder freigibt.
+     */
+    private Run getRun(File siardDatei) throws IOException {
+        Run run = current.get();
+        if (run == null) {
+            throw new IllegalStateException("no validation acquired for " + siardDatei.getPath());
+        }
+        if (!run.getSiardDatei().getCanonicalPath().equals(siardDatei.getCanonicalPath())) {
+            throw new IllegalStateException("validation acquired for " + run.getSiardDatei().getPath()
+                    + ", not for " + siardDatei.getPath());
+        }
+        return run;
+    }
+
+    @Override
+    public void release(Run run) {
+        // die Worker im Batch- und Service-Modus werden wiederverwendet
+        if (current.get() == run) {
+            current.remove();
+        }
+        WorkDir workDir;
+        synchronized (this) {
+            workDir = workDirs.remove(run);
+            if (workDir == null) {
+                return;
+            }
+        }
+        workDir.unlock();
+        // umbenennen geht sofort; schlgt es fehl (z.B. noch offene Dateien
+        // unter Windows), wird am alten Ort gelscht
+        File trash = new File(workDir.dir.getParentFile(), workDir.dir.getName() + DELETED);
+        final File dir = workDir.dir.renameTo(trash) ? trash : workDir.dir;
+        final long reserved = workDir.reserved;
+        getCleaner().execute(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    delete(dir);
+                } finally {
+                    synchronized (WorkDirServiceImpl.this) {
+                        ramReserved -= reserved;
+                    }
+                }
+            }
+        });
+    }
+
+    private File getRamBase() {
+        String path = getConfigurationService().getPathToRamWorkDir();
+        return path == null ? null : new File(path);
+    }
+
+    /*
+     * mkdir ist atomar, ein Name wird also auch von parallelen Prozessen nur
+     * einmal vergeben.
+     */
+    private WorkDir create(File base, String archiveName, long reserved) throws IOException {
+        if (!base.isDirectory() && !base.mkdirs() && !base.isDirectory()) {
+            throw new IOException("directory not created: " + base.getPath());
+        }
+        StringBuilder name = new StringBuilder(PREFIX);
+        for (int i = 0; i < archiveName.length() && i < MAX_NAME_LENGTH; i++) {
+            char c = archiveName.charAt(i);
+            name.append(Character.isLetterOrDigit(c) || c == '.' || c == '-' || c == '_' ? c : '_');
+        }
+        name.append('-');
+        for (int attempt = 0; attempt < 100; attempt++) {
+            File dir = new File(base, name + Long.toString(random.nextLong() & Long.MAX_VALUE, 36));
+            if (dir.mkdir()) {
+                WorkDir workDir = new WorkDir(dir, reserved);
+                workDir.lock();
+                return workDir;
+            }
+        }
+        throw new IOException("no unique work directory in " + base.getPath());
+    }
+
+    /*
+     * Der Janitor luft im Hintergrund, die Validierung wartet nicht auf ihn.
+     * Er loggt nicht, seine Meldungen kmen sonst ins Log der laufenden
+     * Validierung.
+     */
+    private void startJanitor(final File diskBase, final File ramBase) {
+        getCleaner().execute(new Runnable() {
+            @Override
+            public void run() {
+                clean(diskBase);
+                if (ramBase != null) {
+                    clean(ramBase);
+                }
+            }
+        });
+    }
+
+    private void clean(File base) {
+        File[] children = base.listFiles();
+        if (children == null) {
+            return;
+        }
+        for (File child : children) {
+            String name = child.getName();
+            if (!name.startsWith(PREFIX) || !child.isDirectory() || isActive(child)) {
+                continue;
+            }
+            if (name.endsWith(DELETED) || isAbandoned(child)) {
+                delete(child);
+            }
+        }
+    }
+
+    private synchronized boolean isActive(File dir) {
+        for (WorkDir workDir : workDirs.values()) {
+            if (workDir.dir.equals(dir)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /*
+     * Die Sperre wird vom Betriebssystem aufgehoben, wenn der Prozess endet.
+     * Ohne Sperrdatei wurde das Verzeichnis gerade erst angelegt oder der
+     * Prozess ist beim Anlegen abgebrochen.
+     */
+    private static boolean isAbandoned(File dir) {
+        File lockFile = new File(dir, LOCK);
+        if (!lockFile.isFile()) {
+            return System.currentTimeMillis() - dir.lastModified() > ORPHAN_AGE;
+        }
+        try {
+            RandomAccessFile file = new RandomAccessFile(lockFile, "rw");
+            try {
+                FileLock lock = file.getChannel().tryLock();
+                if (lock == null) {
+                    return false;
+                }
+                lock.release();
+                return true;
+            } finally {
+                file.close();
+            }
+        } catch (OverlappingFileLockException e) {
+            // von dieser JVM gesperrt
+            return false;
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    private void delete(File dir) {
+        Deletion deletion = new Deletion(getDeleters());
+        deletion.submit(dir);
+        try {
+            deletion.finished.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return;
+        }
+        // die leeren Verzeichnisse von unten nach oben
+        List<File> bottomUp = new ArrayList<File>(deletion.directories);
+        Collections.sort(bottomUp, new Comparator<File>() {
+            @Override
+            public int compare(File f1, File f2) {
+                return f2.getPath().length() - f1.getPath().length();
+            }
+        });
+        // was sich nicht lschen lsst, versucht der Janitor beim nchsten Lauf
+        for (File directory : bottomUp) {
+            directory.delete();
+        }
+    }
+
+    private synchronized ExecutorService getCleaner() {
+        if (cleaner == null) {
+            cleaner = Executors.newSingleThreadExecutor(new CleanupThreadFactory("siardval-janitor"));
+        }
+        return cleaner;
+    }
+
+    private synchronized ExecutorService getDeleters() {
+        if (deleters == null) {
+            deleters = Executors.newFixedThreadPool(deleteThreads, new CleanupThreadFactory("siardval-delete"));
+        }
+        return deleters;
+    }
+
+    private static class WorkDir {
+
+        private final File dir;
+        private final long reserved;
+        private RandomAccessFile lockFile;
+        private FileLock lock;
+
+        WorkDir(File dir, long reserved) {
+            this.dir = dir;
+            this.reserved = reserved;
+        }
+
+        void lock() throws IOException {
+            lockFile = new RandomAccessFile(new File(dir, LOCK), "rw");
+            try {
+                lock = lockFile.getChannel().tryLock();
+            } catch (OverlappingFileLockException e) {
+                lock = null;
+            }
+            // ohne Sperre hielte der Janitor eines anderen Prozesses das
+            // Verzeichnis fr verwaist
+            if (lock == null) {
+                lockFile.close();
+                throw new IOException("work directory locked by another process: " + dir.getPath());
+            }
+        }
+
+        void unlock() {
+            try {
+                if (lock != null) {
+                    lock.release();
+                }
+                lockFile.close();
+            } catch (IOException e) {
+                LOGGER.logDebug(e.getMessage());
+            }
+        }
+    }
+
+    /*
+     * Lscht ein Verzeichnis mit mehreren Threads. Jede Aufgabe leert ein
+     * Verzeichnis; ein Unterverzeichnis, das sich nicht lschen lsst, weil
+     * es nicht leer ist, wird als eigene Aufgabe weitergegeben.
+     */
+    private static class Deletion {
+
+        private final ExecutorService pool;
+        private final List<File> directories = Collections.synchronizedList(new ArrayList<File>());
+        private final AtomicInteger pending = new AtomicInteger();
+        private final CountDownLatch finished = new CountDownLatch(1);
+
+        Deletion(ExecutorService pool) {
+            this.pool = pool;
+        }
+
+        void submit(final File directory) {
+            directories.add(directory);
+            pending.incrementAndGet();
+            pool.execute(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        File[] children = directory.listFiles();
+                        if (children != null) {
+                            for (File child : children) {
+                                if (!child.delete() && child.isDirectory()) {
+                                    submit(child);
+                                }
+                            }
+                        }
+                    } finally {
+                        if (pending.decrementAndGet() == 0) {
+                            finished.countDown();
+                        }
+                    }
+                }
+            });
+        }
+    }
+
+    /*
+     * Daemon-Threads: beim Beenden der JVM wird nicht auf das Lschen
+     * gewartet.
+     */
+    private static class CleanupThreadFactory implements ThreadFactory {
+
+        private final String name;
+        private final AtomicInteger count = new AtomicInteger();
+
+        CleanupThreadFactory(String name) {
+            this.name = name;
+        }
+
+        @Override
+        public Thread newThread(Runnable runnable) {
+            Thread thread = new Thread(runnable, name + "-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+}
@@ -0,0 +1,76 @@
+/*== SIARD-Val ==================================================================================
+The SIARD-Val application is used for validate SIARD-Files. 
+Copyright (C) 2012 Claire Rthlisberger (KOST-CECO), Martin Kaiser (KOST-CECO), XYZ (xyz)
+-----------------------------------------------------------------------------------------------
+SIARD-Val is a development of the KOST-CECO. All rights rest with the KOST-CECO. 
+This application is free software: you can redistribute it and/or modify it under the 
+terms of the GNU General Public License as published by the Free Software Foundation, 
+either version 3 of the License, or (at your option) any later version. 
+This application is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; 
+without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. 
+See the follow GNU General Public License for more details.
+You should have received a copy of the GNU General Public License along with this program; 
+if not, write to the Free Software Foundation, Inc., 51 Franklin Street, Fifth Floor, 
+Boston, MA 02110-1301 USA or see <http://www.gnu.org/licenses/>.
+==============================================================================================*/
+
+package ch.kostceco.tools.siardval.util;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Abbruch eines Validierungsschrittes ohne Thread.interrupt.
+ *
+ * <p>
+ * Ein unterbrochener Thread, der gerade ber einen FileChannel liest,
+ * schliesst den Channel (ClosedByInterruptException) und damit die
+ * SIARD-Datei fr alle Module. Abgebrochen wird deshalb ber ein Flag, an
+ * das der Scheduler den Thread eines Schrittes bindet; die lang laufenden
+ * Schleifen fragen es zwischen zwei Tabellen, Eintrgen oder Blcken ab.
+ * Threads, die ein Schritt selbst startet, erhalten das Flag des
+ * Schrittes.
+ */
+public final class Cancellation {
+
+    private static final ThreadLocal<AtomicBoolean> FLAG = new ThreadLocal<AtomicBoolean>();
+
+    private Cancellation() {
+    }
+
+    /**
+     * Bindet den aktuellen Thread an das Abbruch-Flag eines Schrittes.
+     */
+    public static void bind(AtomicBoolean flag) {
+        if (flag == null) {
+            FLAG.remove();
+        } else {
+            FLAG.set(flag);
+        }
+    }
+
+    public static void unbind() {
+        FLAG.remove();
+    }
+
+    /**
+     * @return das Flag, an das der Thread gebunden ist, oder null
+     */
+    public static AtomicBoolean get() {
+        return FLAG.get();
+    }
+
+    /**
+     * @return true, falls der Schritt des aktuellen Threads abgebrochen wurde
+     */
+    public static boolean isCancelled() {
+        return isCancelled(FLAG.get());
+    }
+
+    /**
+     * @return true, falls das Flag gesetzt ist; null gilt als nicht
+     *         abgebrochen
+     */
+    public static boolean isCancelled(AtomicBoolean flag) {
+        return flag != null && flag.get();
+    }
+}
@@ -0,0 +1,218 @@
+/*== SIARD-Val ==================================================================================
+The SIARD-Val application is used for validate SIARD-Files. 
+Copyright (C) 2012 Claire Rthlisberger (KOST-CECO), Martin Kaiser (KOST-CECO), XYZ (xyz)
+-----------------------------------------------------------------------------------------------
+SIARD-Val is a development of the KOST-CECO. All rights rest with the KOST-CECO. 
+This application is free software: you can redistribute it and/or modify it under the 
+terms of the GNU General Public License as published by the Free Software Foundation, 
+either version 3 of the License, or (at your option) any later version. 
+This application is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; 
+without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. 
+See the follow GNU General Public License for more details.
+You should have received a copy of the GNU General Public License along with this program; 
+if not, write to the Free Software Foundation, Inc., 51 Franklin Street, Fifth Floor, 
+Boston, MA 02110-1301 USA or see <http://www.gnu.org/licenses/>.
+==============================================================================================*/
+
+package ch.kostceco.tools.siardval.validation;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import ch.kostceco.tools.siardval.metrics.ArchiveMetrics;
+import ch.kostceco.tools.siardval.metrics.Measurement;
+import ch.kostceco.tools.siardval.metrics.Metrics;
+import ch.kostceco.tools.siardval.util.Cancellation;
+
+/**
+ * Fhrt Prfungen pro Tabelle auf einem begrenzten Thread-Pool aus. Die
+ * Aufgaben sammeln ihre Ergebnisse selbst; der Aufrufer wertet sie nach
+ * {@link #execute(List, int, String)} in seiner Reihenfolge aus, damit die
+ * Ausgabe nicht von der Ausfhrungsreihenfolge abhngt.
+ *
+ * <p>
+ * Jede Aufgabe wird als Phase table des aufrufenden Moduls gemessen; die
+ * Threads des Pools werden dazu an dessen Metriken gebunden.
+ *
+ * <p>
+ * Wird der Validierungsschritt abgebrochen ({@link Cancellation}), starten
+ * keine weiteren Tabellen; laufende werden zu Ende geprft.
+ */
+public class TableTaskExecutor {
+
+    /**
+     * Prfung einer Tabelle. <code>run</code> darf keine Exceptions werfen,
+     * Fehler werden in der Aufgabe festgehalten.
+     */
+    public interface TableTask extends Runnable {
+
+        /**
+         * @return Grsse der Tabellendaten in Bytes, 0 falls unbekannt
+         */
+        long getSize();
+
+        /**
+         * @return Bezeichnung der Tabelle fr die Metriken, z.B.
+         *         schema0/table1
+         */
+        String getName();
+    }
+
+    /*
+     * Fester Aufwand pro Tabelle (Dateien ffnen, Schema lesen), umgerechnet
+     * in Bytes Tabellendaten.
+     */
+    private static final long TABLE_OVERHEAD = 256L * 1024;
+
+    /*
+     * Arbeitsmenge pro Thread, unterhalb derer sich ein weiterer Thread
+     * nicht lohnt.
+     */
+    private static final long BYTES_PER_THREAD = 8L * 1024 * 1024;
+
+    private TableTaskExecutor() {
+    }
+
+    /**
+     * Fhrt alle Aufgaben aus und kehrt zurck, wenn alle abgeschlossen sind.
+     * Die grssten Tabellen werden zuerst gestartet, damit am Ende keine
+     * grosse Tabelle allein luft.
+     * @param tasks die Aufgaben
+     * @param threads konfigurierte Anzahl Threads, 0 fr automatisch
+     * @param threadName Prfix der Thread-Namen
+     * @throws InterruptedException falls der Validierungsschritt abgebrochen wurde
+     */
+    public static void execute(List<? extends TableTask> tasks, int threads, String threadName)
+            throws InterruptedException {
+        threads = getThreadCount(tasks, threads);
+        if (threads <= 1) {
+            for (TableTask task : tasks) {
+                if (Cancellation.isCancelled()) {
+                    throw new InterruptedException();
+                }
+                run(task);
+            }
+            return;
+        }
+        List<TableTask> bySize = new ArrayList<TableTask>(tasks);
+        Collections.sort(bySize, new Comparator<TableTask>() {
+            @Override
+            public int compare(TableTask t1, TableTask t2) {
+                return t1.getSize() < t2.getSize() ? 1 : (t1.getSize() > t2.getSize() ? -1 : 0);
+            }
+        });
+        ExecutorService executor = Executors.newFixedThreadPool(threads, new TableThreadFactory(threadName));
+        ArchiveMetrics metrics = Metrics.getArchive();
+        String module = Metrics.getModule();
+        AtomicBoolean cancelled = Cancellation.get();
+        try {
+            List<Future<?>> futures = new ArrayList<Future<?>>();
+            for (TableTask task : bySize) {
+                futures.add(executor.submit(new BoundTask(task, metrics, module, cancelled)));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } catch (ExecutionException e) {
+            // TableTask.run fngt alle Exceptions ab
+            throw new IllegalStateException(e.getCause());
+        } finally {
+            // nicht shutdownNow: die Threads lesen ber den FileChannel
+            executor.shutdown();
+        }
+        if (Cancellation.isCancelled(cancelled)) {
+            throw new InterruptedException();
+        }
+    }
+
+    private static void run(TableTask task) {
+        Measurement measurement = Metrics.start(Metrics.TABLE);
+        measurement.setTable(task.getName());
+        measurement.setOutcome(Measurement.ERROR);
+        try {
+            task.run();
+            measurement.setOutcome(Measurement.OK);
+        } finally {
+            measurement.addEntries(1);
+            long nanos = measurement.stop();
+            ArchiveMetrics metrics = Metrics.getArchive();
+            if (metrics != null) {
+                metrics.addTable(Metrics.getModule(), task.getName(), nanos);
+            }
+        }
+    }
+
+    /**
+     * Konfigurierte Anzahl Threads oder, bei 0, die Anzahl Prozessoren,
+     * begrenzt durch die Anzahl Tabellen und die Datenmenge.
+     */
+    public static int getThreadCount(List<? extends TableTask> tasks, int threads) {
+        if (threads <= 0) {
+            long work = 0;
+            for (TableTask task : tasks) {
+                work += task.getSize() + TABLE_OVERHEAD;
+            }
+            long useful = (work + BYTES_PER_THREAD - 1) / BYTES_PER_THREAD;
+            threads = (int) Math.min(Runtime.getRuntime().availableProcessors(), useful);
+        }
+        return Math.max(1, Math.min(threads, tasks.size()));
+    }
+
+    /*
+     * Fhrt eine Aufgabe auf einem Thread des Pools aus, gebunden an die
+     * Metriken des aufrufenden Moduls.
+     */
+    private static class BoundTask implements Runnable {
+
+        private final TableTask task;
+        private final ArchiveMetrics metrics;
+        private final String module;
+        private final AtomicBoolean cancelled;
+
+        BoundTask(TableTask task, ArchiveMetrics metrics, String module, AtomicBoolean cancelled) {
+            this.task = task;
+            this.metrics = metrics;
+            this.module = module;
+            this.cancelled = cancelled;
+        }
+
+        @Override
+        public void run() {
+            if (Cancellation.isCancelled(cancelled)) {
+                return;
+            }
+            Metrics.bind(metrics, module);
+            try {
+                TableTaskExecutor.run(task);
+            } finally {
+                Metrics.unbind();
+            }
+        }
+    }
+
+    private static class TableThreadFactory implements ThreadFactory {
+
+        private final String name;
+        private final AtomicInteger count = new AtomicInteger();
+
+        TableThreadFactory(String name) {
+            this.name = name;
+        }
+
+        @Override
+        public Thread newThread(Runnable runnable) {
+            Thread thread = new Thread(runnable, name + "-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+}
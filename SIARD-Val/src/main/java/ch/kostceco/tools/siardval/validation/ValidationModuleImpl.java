@@ -16,8 +16,11 @@ Boston, MA 02110-1301 USA or see <http://www.gnu.org/licenses/>.
 
 package ch.kostceco.tools.siardval.validation;
 
+import ch.kostceco.tools.siardval.report.Finding;
+import ch.kostceco.tools.siardval.service.ArchiveService;
 import ch.kostceco.tools.siardval.service.MessageService;
 import ch.kostceco.tools.siardval.service.TextResourceService;
+import ch.kostceco.tools.siardval.service.WorkDirService;
 
 /**
  * @author Rc Claire Rthlisberger, KOST-CECO
@@ -30,6 +33,8 @@ public abstract class ValidationModuleImpl {
     
     private TextResourceService textResourceService;
     private MessageService messageService;
+    private ArchiveService archiveService;
+    private WorkDirService workDirService;
 
     public TextResourceService getTextResourceService() {
         return textResourceService;
@@ -47,5 +52,31 @@ public abstract class ValidationModuleImpl {
         return messageService;
     }
 
+    public ArchiveService getArchiveService() {
+        return archiveService;
+    }
+
+    public void setArchiveService(ArchiveService archiveService) {
+        this.archiveService = archiveService;
+    }
+
+    public WorkDirService getWorkDirService() {
+        return workDirService;
+    }
+
+    public void setWorkDirService(WorkDirService workDirService) {
+        this.workDirService = workDirService;
+    }
+
+    /**
+     * Meldung fr {@link MessageService#log(Finding)}: der Text aus der
+     * Bezeichnung des Moduls und dem Meldungstext zu key wird erst bei der
+     * Ausgabe gebildet; Schlssel und Argumente gehen in den Findings-Report.
+     * @param moduleKey Schlssel der Bezeichnung des Moduls, z.B. MESSAGE_MODULE_H
+     */
+    protected Finding finding(String level, String moduleKey, String key, Object... args) {
+        return new Finding(level, getTextResourceService(), moduleKey, key, args);
+    }
+
 
 }
@@ -4,10 +4,14 @@ import java.util.List;
 
 import org.jdom2.Element;
 
+import ch.kostceco.tools.siardval.archive.SiardMetadata;
+
 public class SiardTable {
 	
 	private String tableName;
-	private List<Element> metadataXMLElements;
+	private String tablePath;
+	private SiardMetadata metadata;
+	private int table;
 	private List<Element> tableXSDElements;
 	
 	public String getTableName() {
@@ -18,12 +22,40 @@ public class SiardTable {
 		this.tableName = tableName;
 	}
 	
-	public List<Element> getMetadataXMLElements() {
-		return metadataXMLElements;
+	/**
+	 * @return schema and table folder, e.g. schema0/table1, as used in the
+	 *         findings of the other modules
+	 */
+	public String getTablePath() {
+		return tablePath;
+	}
+	
+	public void setTablePath(String tablePath) {
+		this.tablePath = tablePath;
+	}
+	
+	/**
+	 * Sets the table in metadata.xml whose columns are validated.
+	 */
+	public void setMetadataTable(SiardMetadata metadata, int table) {
+		this.metadata = metadata;
+		this.table = table;
+	}
+	
+	public int getMetadataColumnCount() {
+		return metadata.getColumnEnd(table) - metadata.getFirstColumn(table);
+	}
+	
+	public String getMetadataColumnName(int i) {
+		return metadata.getColumnName(metadata.getFirstColumn(table) + i);
+	}
+	
+	public String getMetadataColumnType(int i) {
+		return metadata.getColumnType(metadata.getFirstColumn(table) + i);
 	}
 	
-	public void setMetadataXMLElements(List<Element> metadataXMLElements) {
-		this.metadataXMLElements = metadataXMLElements;
+	public String getMetadataColumnNullable(int i) {
+		return metadata.getColumnNullable(metadata.getFirstColumn(table) + i);
 	}
 	
 	public List<Element> getTableXSDElements() {
@@ -0,0 +1,238 @@
+/*== SIARD-Val ==================================================================================
+The SIARD-Val application is used for validate SIARD-Files. 
+Copyright (C) 2012 Claire Rthlisberger (KOST-CECO), Martin Kaiser (KOST-CECO), XYZ (xyz)
+-----------------------------------------------------------------------------------------------
+SIARD-Val is a development of the KOST-CECO. All rights rest with the KOST-CECO. 
+This application is free software: you can redistribute it and/or modify it under the 
+terms of the GNU General Public License as published by the Free Software Foundation, 
+either version 3 of the License, or (at your option) any later version. 
+This application is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; 
+without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. 
+See the follow GNU General Public License for more details.
+You should have received a copy of the GNU General Public License along with this program; 
+if not, write to the Free Software Foundation, Inc., 51 Franklin Street, Fifth Floor, 
+Boston, MA 02110-1301 USA or see <http://www.gnu.org/licenses/>.
+==============================================================================================*/
+
+package ch.kostceco.tools.siardval.validation.constraint;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.Set;
+
+/**
+ * Findet mehrfach vorkommende Fingerprints mit begrenztem Speicher. Die
+ * Fingerprints werden im {@link OffHeapFingerprintSet} gesammelt; ist das
+ * Budget erreicht, wird das Set als sortierte Zwischendatei ins
+ * Arbeitsverzeichnis geschrieben. Am Schluss werden die Zwischendateien
+ * gemischt, wobei Fingerprints aus mehreren Dateien als Duplikate erkannt
+ * werden.
+ */
+public class DuplicateFinder {
+
+    /* Anzahl Zwischendateien, die in einem Durchgang gemischt werden */
+    private static final int MAX_MERGE_WIDTH = 64;
+
+    private static final int IO_BUFFER_SIZE = 64 * 1024;
+
+    private final OffHeapFingerprintSet set;
+    private final File workDir;
+    private final int maxDuplicates;
+    private final Set<KeyFingerprint> duplicates = new HashSet<KeyFingerprint>();
+    private final List<File> runs = new ArrayList<File>();
+    private long duplicateCount;
+    private int runCount;
+
+    /**
+     * @param maxBytes Speicherbudget in Bytes
+     * @param expected erwartete Anzahl Fingerprints, 0 falls unbekannt
+     * @param workDir Verzeichnis fr die Zwischendateien
+     * @param maxDuplicates Anzahl Duplikate, die hchstens gesammelt werden
+     */
+    public DuplicateFinder(long maxBytes, long expected, File workDir, int maxDuplicates) {
+        this.set = new OffHeapFingerprintSet(maxBytes, expected);
+        this.workDir = workDir;
+        this.maxDuplicates = maxDuplicates;
+    }
+
+    public void add(KeyFingerprint fingerprint) throws IOException {
+        if (set.isFull()) {
+            spill();
+        }
+        if (!set.add(fingerprint.getHigh(), fingerprint.getLow())) {
+            duplicate(fingerprint);
+        }
+    }
+
+    /**
+     * Mischt allfllige Zwischendateien und gibt die gefundenen Duplikate
+     * zurck. Danach drfen keine Fingerprints mehr hinzugefgt werden.
+     * @return hchstens maxDuplicates mehrfach vorkommende Fingerprints
+     */
+    public Set<KeyFingerprint> finish() throws IOException {
+        if (!runs.isEmpty()) {
+            spill();
+            while (runs.size() > 1) {
+                int width = Math.min(MAX_MERGE_WIDTH, runs.size());
+                List<File> group = new ArrayList<File>(runs.subList(0, width));
+                runs.subList(0, width).clear();
+                File merged = merge(group, runs.isEmpty() ? null : createRun());
+                if (merged != null) {
+                    runs.add(merged);
+                }
+            }
+            close();
+        }
+        return duplicates;
+    }
+
+    /**
+     * @return Anzahl Fingerprints, die einen bereits gesehenen wiederholen
+     */
+    public long getDuplicateCount() {
+        return duplicateCount;
+    }
+
+    /**
+     * @return Anzahl geschriebener Zwischendateien
+     */
+    public int getRunCount() {
+        return runCount;
+    }
+
+    /**
+     * Lscht alle Zwischendateien.
+     */
+    public void close() {
+        for (File run : runs) {
+            run.delete();
+        }
+        runs.clear();
+    }
+
+    private void duplicate(KeyFingerprint fingerprint) {
+        duplicateCount++;
+        if (duplicates.size() < maxDuplicates) {
+            duplicates.add(fingerprint);
+        }
+    }
+
+    private File createRun() throws IOException {
+        workDir.mkdirs();
+        // close() lscht die Lufe, nach einem Absturz der Janitor des
+        // Arbeitsverzeichnisses
+        return File.createTempFile("siardval-keys", ".run", workDir);
+    }
+
+    private void spill() throws IOException {
+        if (set.size() == 0) {
+            return;
+        }
+        File run = createRun();
+        runs.add(run);
+        runCount++;
+        DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(run), IO_BUFFER_SIZE));
+        try {
+            set.drainSorted(out);
+        } finally {
+            out.close();
+        }
+    }
+
+    /*
+     * Mischt sortierte Zwischendateien. Ist target nicht null, wird jeder
+     * Fingerprint einmal dorthin geschrieben, sonst wird nur nach Duplikaten
+     * gesucht. Die gemischten Dateien werden gelscht.
+     */
+    private File merge(List<File> group, File target) throws IOException {
+        PriorityQueue<RunReader> queue = new PriorityQueue<RunReader>(group.size());
+        DataOutputStream out = null;
+        try {
+            for (File run : group) {
+                RunReader reader = new RunReader(run);
+                if (reader.next()) {
+                    queue.add(reader);
+                } else {
+                    reader.close();
+                }
+            }
+            if (target != null) {
+                out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(target), IO_BUFFER_SIZE));
+            }
+            boolean first = true;
+            long lastHigh = 0;
+            long lastLow = 0;
+            while (!queue.isEmpty()) {
+                RunReader reader = queue.poll();
+                if (!first && reader.high == lastHigh && reader.low == lastLow) {
+                    duplicate(new KeyFingerprint(reader.high, reader.low));
+                } else {
+                    if (out != null) {
+                        out.writeLong(reader.high);
+                        out.writeLong(reader.low);
+                    }
+                    first = false;
+                    lastHigh = reader.high;
+                    lastLow = reader.low;
+                }
+                if (reader.next()) {
+                    queue.add(reader);
+                } else {
+                    reader.close();
+                }
+            }
+        } finally {
+            for (RunReader reader : queue) {
+                reader.close();
+            }
+            if (out != null) {
+                out.close();
+            }
+            for (File run : group) {
+                run.delete();
+            }
+        }
+        return target;
+    }
+
+    private static class RunReader implements Comparable<RunReader> {
+
+        private final DataInputStream in;
+        private long high;
+        private long low;
+
+        RunReader(File run) throws IOException {
+            in = new DataInputStream(new BufferedInputStream(new FileInputStream(run), IO_BUFFER_SIZE));
+        }
+
+        boolean next() throws IOException {
+            try {
+                high = in.readLong();
+            } catch (EOFException e) {
+                return false;
+            }
+            low = in.readLong();
+            return true;
+        }
+
+        void close() throws IOException {
+            in.close();
+        }
+
+        @Override
+        public int compareTo(RunReader other) {
+            return KeyFingerprint.compare(high, low, other.high, other.low);
+        }
+    }
+}
@@ -0,0 +1,95 @@
+/*== SIARD-Val ==================================================================================
+The SIARD-Val application is used for validate SIARD-Files. 
+Copyright (C) 2012 Claire Rthlisberger (KOST-CECO), Martin Kaiser (KOST-CECO), XYZ (xyz)
+-----------------------------------------------------------------------------------------------
+SIARD-Val is a development of the KOST-CECO. All rights rest with the KOST-CECO. 
+This application is free software: you can redistribute it and/or modify it under the 
+terms of the GNU General Public License as published by the Free Software Foundation, 
+either version 3 of the License, or (at your option) any later version. 
+This application is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; 
+without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. 
+See the follow GNU General Public License for more details.
+You should have received a copy of the GNU General Public License along with this program; 
+if not, write to the Free Software Foundation, Inc., 51 Franklin Street, Fifth Floor, 
+Boston, MA 02110-1301 USA or see <http://www.gnu.org/licenses/>.
+==============================================================================================*/
+
+package ch.kostceco.tools.siardval.validation.constraint;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * Merge-Join fr die Prfung eines Fremdschlssels: beide Folgen sind nach
+ * Wert sortiert ({@link KeyRowSorter}), jeder Wert der referenzierenden
+ * Tabelle muss in der referenzierten vorkommen. Behalten werden die
+ * fehlenden Werte mit den kleinsten Zeilennummern.
+ */
+public class ForeignKeyJoin {
+
+    /* Ordnung nach Zeilennummer, fr die Ausgabe fehlender Referenzen */
+    private static final Comparator<KeyRowSorter.KeyRow> ROW_ORDER = new Comparator<KeyRowSorter.KeyRow>() {
+        @Override
+        public int compare(KeyRowSorter.KeyRow r1, KeyRowSorter.KeyRow r2) {
+            return r1.getRow() < r2.getRow() ? -1 : (r1.getRow() > r2.getRow() ? 1 : 0);
+        }
+    };
+
+    private final int maxReported;
+    private final List<KeyRowSorter.KeyRow> missing = new ArrayList<KeyRowSorter.KeyRow>();
+    private long missingCount;
+
+    /**
+     * @param maxReported Anzahl fehlender Werte, die hchstens behalten werden
+     */
+    public ForeignKeyJoin(int maxReported) {
+        this.maxReported = maxReported;
+    }
+
+    /**
+     * Durchluft beide Folgen einmal und schliesst sie.
+     */
+    public void join(KeyRowSorter.KeyRowIterator values, KeyRowSorter.KeyRowIterator referencedValues)
+            throws IOException {
+        PriorityQueue<KeyRowSorter.KeyRow> smallest = new PriorityQueue<KeyRowSorter.KeyRow>(maxReported + 1,
+                Collections.reverseOrder(ROW_ORDER));
+        try {
+            KeyRowSorter.KeyRow reference = referencedValues.next();
+            for (KeyRowSorter.KeyRow value = values.next(); value != null; value = values.next()) {
+                while (reference != null && reference.getKey().compareTo(value.getKey()) < 0) {
+                    reference = referencedValues.next();
+                }
+                if (reference == null || !reference.getKey().equals(value.getKey())) {
+                    missingCount++;
+                    smallest.add(value);
+                    if (smallest.size() > maxReported) {
+                        smallest.poll();
+                    }
+                }
+            }
+        } finally {
+            values.close();
+            referencedValues.close();
+        }
+        missing.addAll(smallest);
+        Collections.sort(missing, ROW_ORDER);
+    }
+
+    /**
+     * @return Anzahl Zeilen, deren Wert in der referenzierten Tabelle fehlt
+     */
+    public long getMissingCount() {
+        return missingCount;
+    }
+
+    /**
+     * @return hchstens maxReported fehlende Werte, nach Zeilennummer geordnet
+     */
+    public List<KeyRowSorter.KeyRow> getMissing() {
+        return missing;
+    }
+}
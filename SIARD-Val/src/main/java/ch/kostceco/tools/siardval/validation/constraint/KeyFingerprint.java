@@ -0,0 +1,197 @@
+/*== SIARD-Val ==================================================================================
+The SIARD-Val application is used for validate SIARD-Files. 
+Copyright (C) 2012 Claire Rthlisberger (KOST-CECO), Martin Kaiser (KOST-CECO), XYZ (xyz)
+-----------------------------------------------------------------------------------------------
+SIARD-Val is a development of the KOST-CECO. All rights rest with the KOST-CECO. 
+This application is free software: you can redistribute it and/or modify it under the 
+terms of the GNU General Public License as published by the Free Software Foundation, 
+either version 3 of the License, or (at your option) any later version. 
+This application is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; 
+without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. 
+See the follow GNU General Public License for more details.
+You should have received a copy of the GNU General Public License along with this program; 
+if not, write to the Free Software Foundation, Inc., 51 Franklin Street, Fifth Floor, 
+Boston, MA 02110-1301 USA or see <http://www.gnu.org/licenses/>.
+==============================================================================================*/
+
+package ch.kostceco.tools.siardval.validation.constraint;
+
+import java.nio.charset.Charset;
+
+/**
+ * 128-Bit-Fingerprint eines Schlsselwerts (MurmurHash3, x64, 128 Bit).
+ * Gleiche Schlsselwerte ergeben den gleichen Fingerprint; gleiche
+ * Fingerprints bedeuten nur mit sehr hoher Wahrscheinlichkeit gleiche
+ * Schlsselwerte und werden deshalb exakt nachgeprft.
+ */
+public final class KeyFingerprint implements Comparable<KeyFingerprint> {
+
+    private static final Charset UTF8 = Charset.forName("UTF-8");
+
+    /*
+     * Trennzeichen und NULL-Markierung; beide Zeichen sind in XML 1.0 nicht
+     * erlaubt und knnen in keinem Wert vorkommen.
+     */
+    private static final char SEPARATOR = '\u0000';
+    private static final char NULL = '\u0001';
+
+    private static final long C1 = 0x87c37b91114253d5L;
+    private static final long C2 = 0x4cf5ad432745937fL;
+
+    private final long high;
+    private final long low;
+
+    public KeyFingerprint(long high, long low) {
+        this.high = high;
+        this.low = low;
+    }
+
+    public long getHigh() {
+        return high;
+    }
+
+    public long getLow() {
+        return low;
+    }
+
+    /**
+     * Setzt die Werte eines Schlssels eindeutig zu einem String zusammen.
+     * @param values Spaltenwerte, null fr NULL
+     */
+    public static String encode(String[] values) {
+        if (values.length == 1 && values[0] != null) {
+            return values[0];
+        }
+        StringBuilder key = new StringBuilder();
+        for (int i = 0; i < values.length; i++) {
+            if (i > 0) {
+                key.append(SEPARATOR);
+            }
+            if (values[i] == null) {
+                key.append(NULL);
+            } else {
+                key.append(values[i]);
+            }
+        }
+        return key.toString();
+    }
+
+    /**
+     * @param key ein mit {@link #encode(String[])} erstellter Schlssel
+     */
+    public static KeyFingerprint of(String key) {
+        byte[] data = key.getBytes(UTF8);
+        int blocks = data.length / 16;
+        long h1 = 0;
+        long h2 = 0;
+        for (int i = 0; i < blocks; i++) {
+            long k1 = getLong(data, i * 16);
+            long k2 = getLong(data, i * 16 + 8);
+            k1 *= C1;
+            k1 = Long.rotateLeft(k1, 31);
+            k1 *= C2;
+            h1 ^= k1;
+            h1 = Long.rotateLeft(h1, 27);
+            h1 += h2;
+            h1 = h1 * 5 + 0x52dce729;
+            k2 *= C2;
+            k2 = Long.rotateLeft(k2, 33);
+            k2 *= C1;
+            h2 ^= k2;
+            h2 = Long.rotateLeft(h2, 31);
+            h2 += h1;
+            h2 = h2 * 5 + 0x38495ab5;
+        }
+        long k1 = 0;
+        long k2 = 0;
+        int tail = blocks * 16;
+        for (int i = data.length - 1; i >= tail + 8; i--) {
+            k2 = (k2 << 8) | (data[i] & 0xffL);
+        }
+        for (int i = Math.min(data.length, tail + 8) - 1; i >= tail; i--) {
+            k1 = (k1 << 8) | (data[i] & 0xffL);
+        }
+        if (data.length > tail + 8) {
+            k2 *= C2;
+            k2 = Long.rotateLeft(k2, 33);
+            k2 *= C1;
+            h2 ^= k2;
+        }
+        if (data.length > tail) {
+            k1 *= C1;
+            k1 = Long.rotateLeft(k1, 31);
+            k1 *= C2;
+            h1 ^= k1;
+        }
+        h1 ^= data.length;
+        h2 ^= data.length;
+        h1 += h2;
+        h2 += h1;
+        h1 = mix(h1);
+        h2 = mix(h2);
+        h1 += h2;
+        h2 += h1;
+        return valueOf(h1, h2);
+    }
+
+    /*
+     * 0/0 markiert im OffHeapFingerprintSet einen leeren Platz und wird
+     * deshalb auf 0/1 abgebildet.
+     */
+    static KeyFingerprint valueOf(long high, long low) {
+        if (high == 0 && low == 0) {
+            low = 1;
+        }
+        return new KeyFingerprint(high, low);
+    }
+
+    private static long getLong(byte[] data, int offset) {
+        long value = 0;
+        for (int i = 7; i >= 0; i--) {
+            value = (value << 8) | (data[offset + i] & 0xffL);
+        }
+        return value;
+    }
+
+    private static long mix(long k) {
+        k ^= k >>> 33;
+        k *= 0xff51afd7ed558ccdL;
+        k ^= k >>> 33;
+        k *= 0xc4ceb9fe1a85ec53L;
+        k ^= k >>> 33;
+        return k;
+    }
+
+    /**
+     * Vergleicht zwei Fingerprints; die gleiche Ordnung gilt fr die
+     * sortierten Zwischendateien.
+     */
+    public static int compare(long high1, long low1, long high2, long low2) {
+        if (high1 != high2) {
+            return high1 < high2 ? -1 : 1;
+        }
+        if (low1 != low2) {
+            return low1 < low2 ? -1 : 1;
+        }
+        return 0;
+    }
+
+    @Override
+    public int compareTo(KeyFingerprint other) {
+        return compare(high, low, other.high, other.low);
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (!(obj instanceof KeyFingerprint)) {
+            return false;
+        }
+        KeyFingerprint other = (KeyFingerprint) obj;
+        return high == other.high && low == other.low;
+    }
+
+    @Override
+    public int hashCode() {
+        return (int) (low ^ (low >>> 32));
+    }
+}
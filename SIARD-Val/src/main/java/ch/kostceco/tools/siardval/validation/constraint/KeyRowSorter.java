@@ -0,0 +1,304 @@
+/*== SIARD-Val ==================================================================================
+The SIARD-Val application is used for validate SIARD-Files. 
+Copyright (C) 2012 Claire Rthlisberger (KOST-CECO), Martin Kaiser (KOST-CECO), XYZ (xyz)
+-----------------------------------------------------------------------------------------------
+SIARD-Val is a development of the KOST-CECO. All rights rest with the KOST-CECO. 
+This application is free software: you can redistribute it and/or modify it under the 
+terms of the GNU General Public License as published by the Free Software Foundation, 
+either version 3 of the License, or (at your option) any later version. 
+This application is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; 
+without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. 
+See the follow GNU General Public License for more details.
+You should have received a copy of the GNU General Public License along with this program; 
+if not, write to the Free Software Foundation, Inc., 51 Franklin Street, Fifth Floor, 
+Boston, MA 02110-1301 USA or see <http://www.gnu.org/licenses/>.
+==============================================================================================*/
+
+package ch.kostceco.tools.siardval.validation.constraint;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * Sortiert Paare aus Schlsselwert und Zeilennummer mit begrenztem
+ * Speicher (externes Mergesort). Die Paare werden im Heap gesammelt, bis
+ * das Budget erreicht ist, und dann sortiert als Zwischendatei ins
+ * Arbeitsverzeichnis geschrieben. {@link #finish()} mischt die
+ * Zwischendateien zu einer sortierten Folge.
+ * <p>
+ * Sortiert wird nach dem Schlsselwert ({@link String#compareTo(String)}),
+ * bei gleichem Wert nach der Zeilennummer.
+ */
+public class KeyRowSorter {
+
+    /* Anzahl Zwischendateien, die in einem Durchgang gemischt werden */
+    private static final int MAX_MERGE_WIDTH = 64;
+
+    private static final int IO_BUFFER_SIZE = 64 * 1024;
+
+    /* geschtzter Heap-Bedarf eines Paars ohne die Zeichen des Werts */
+    private static final int ENTRY_OVERHEAD = 80;
+
+    private static final Charset UTF8 = Charset.forName("UTF-8");
+
+    /**
+     * Ein Schlsselwert mit der Nummer der Zeile, in der er vorkommt.
+     */
+    public static final class KeyRow implements Comparable<KeyRow> {
+
+        private final String key;
+        private final long row;
+
+        public KeyRow(String key, long row) {
+            this.key = key;
+            this.row = row;
+        }
+
+        public String getKey() {
+            return key;
+        }
+
+        public long getRow() {
+            return row;
+        }
+
+        @Override
+        public int compareTo(KeyRow other) {
+            int result = key.compareTo(other.key);
+            if (result != 0) {
+                return result;
+            }
+            return row < other.row ? -1 : (row > other.row ? 1 : 0);
+        }
+    }
+
+    /**
+     * Sortierte Folge von Paaren, muss nach Gebrauch geschlossen werden.
+     */
+    public interface KeyRowIterator {
+
+        /**
+         * @return das nchste Paar oder null am Ende
+         */
+        KeyRow next() throws IOException;
+
+        void close() throws IOException;
+    }
+
+    private final long maxBytes;
+    private final File workDir;
+    private final List<KeyRow> buffer = new ArrayList<KeyRow>();
+    private final List<File> runs = new ArrayList<File>();
+    private long bufferedBytes;
+    private int runCount;
+
+    /**
+     * @param maxBytes Speicherbudget in Bytes
+     * @param workDir Verzeichnis fr die Zwischendateien
+     */
+    public KeyRowSorter(long maxBytes, File workDir) {
+        this.maxBytes = maxBytes;
+        this.workDir = workDir;
+    }
+
+    public void add(String key, long row) throws IOException {
+        buffer.add(new KeyRow(key, row));
+        bufferedBytes += ENTRY_OVERHEAD + 2L * key.length();
+        if (bufferedBytes >= maxBytes) {
+            spill();
+        }
+    }
+
+    /**
+     * @return Anzahl geschriebener Zwischendateien
+     */
+    public int getRunCount() {
+        return runCount;
+    }
+
+    /**
+     * Gibt die sortierte Folge aller Paare zurck. Danach drfen keine
+     * Paare mehr hinzugefgt werden.
+     */
+    public KeyRowIterator finish() throws IOException {
+        if (runs.isEmpty()) {
+            Collections.sort(buffer);
+            final Iterator<KeyRow> iterator = buffer.iterator();
+            return new KeyRowIterator() {
+                @Override
+                public KeyRow next() {
+                    return iterator.hasNext() ? iterator.next() : null;
+                }
+
+                @Override
+                public void close() {
+                    buffer.clear();
+                }
+            };
+        }
+        spill();
+        while (runs.size() > MAX_MERGE_WIDTH) {
+            List<File> group = new ArrayList<File>(runs.subList(0, MAX_MERGE_WIDTH));
+            runs.subList(0, MAX_MERGE_WIDTH).clear();
+            File merged = createRun();
+            runs.add(merged);
+            MergeIterator iterator = new MergeIterator(group);
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(merged), IO_BUFFER_SIZE));
+            try {
+                for (KeyRow keyRow = iterator.next(); keyRow != null; keyRow = iterator.next()) {
+                    write(out, keyRow);
+                }
+            } finally {
+                out.close();
+                iterator.close();
+            }
+        }
+        List<File> group = new ArrayList<File>(runs);
+        runs.clear();
+        return new MergeIterator(group);
+    }
+
+    /**
+     * Lscht alle Zwischendateien.
+     */
+    public void close() {
+        for (File run : runs) {
+            run.delete();
+        }
+        runs.clear();
+        buffer.clear();
+    }
+
+    private File createRun() throws IOException {
+        workDir.mkdirs();
+        // close() lscht die Lufe, nach einem Absturz der Janitor des
+        // Arbeitsverzeichnisses
+        return File.createTempFile("siardval-fk", ".run", workDir);
+    }
+
+    private void spill() throws IOException {
+        if (buffer.isEmpty()) {
+            return;
+        }
+        Collections.sort(buffer);
+        File run = createRun();
+        runs.add(run);
+        runCount++;
+        DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(run), IO_BUFFER_SIZE));
+        try {
+            for (KeyRow keyRow : buffer) {
+                write(out, keyRow);
+            }
+        } finally {
+            out.close();
+        }
+        buffer.clear();
+        bufferedBytes = 0;
+    }
+
+    private static void write(DataOutputStream out, KeyRow keyRow) throws IOException {
+        byte[] key = keyRow.key.getBytes(UTF8);
+        out.writeInt(key.length);
+        out.write(key);
+        out.writeLong(keyRow.row);
+    }
+
+    /*
+     * Mischt sortierte Zwischendateien; die Dateien werden beim Schliessen
+     * gelscht.
+     */
+    private static class MergeIterator implements KeyRowIterator {
+
+        private final List<File> files;
+        private final PriorityQueue<RunReader> queue;
+
+        MergeIterator(List<File> files) throws IOException {
+            this.files = files;
+            this.queue = new PriorityQueue<RunReader>(Math.max(1, files.size()));
+            try {
+                for (File file : files) {
+                    RunReader reader = new RunReader(file);
+                    if (reader.next()) {
+                        queue.add(reader);
+                    } else {
+                        reader.close();
+                    }
+                }
+            } catch (IOException e) {
+                close();
+                throw e;
+            }
+        }
+
+        @Override
+        public KeyRow next() throws IOException {
+            RunReader reader = queue.poll();
+            if (reader == null) {
+                return null;
+            }
+            KeyRow current = reader.current;
+            if (reader.next()) {
+                queue.add(reader);
+            } else {
+                reader.close();
+            }
+            return current;
+        }
+
+        @Override
+        public void close() throws IOException {
+            for (RunReader reader : queue) {
+                reader.close();
+            }
+            queue.clear();
+            for (File file : files) {
+                file.delete();
+            }
+        }
+    }
+
+    private static class RunReader implements Comparable<RunReader> {
+
+        private final DataInputStream in;
+        private KeyRow current;
+
+        RunReader(File run) throws IOException {
+            in = new DataInputStream(new BufferedInputStream(new FileInputStream(run), IO_BUFFER_SIZE));
+        }
+
+        boolean next() throws IOException {
+            int length;
+            try {
+                length = in.readInt();
+            } catch (EOFException e) {
+                return false;
+            }
+            byte[] key = new byte[length];
+            in.readFully(key);
+            current = new KeyRow(new String(key, UTF8), in.readLong());
+            return true;
+        }
+
+        void close() throws IOException {
+            in.close();
+        }
+
+        @Override
+        public int compareTo(RunReader other) {
+            return current.compareTo(other.current);
+        }
+    }
+}
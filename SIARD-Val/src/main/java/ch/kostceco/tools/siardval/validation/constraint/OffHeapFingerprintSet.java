@@ -0,0 +1,227 @@
+/*== SIARD-Val ==================================================================================
+The SIARD-Val application is used for validate SIARD-Files. 
+Copyright (C) 2012 Claire Rthlisberger (KOST-CECO), Martin Kaiser (KOST-CECO), XYZ (xyz)
+-----------------------------------------------------------------------------------------------
+SIARD-Val is a development of the KOST-CECO. All rights rest with the KOST-CECO. 
+This application is free software: you can redistribute it and/or modify it under the 
+terms of the GNU General Public License as published by the Free Software Foundation, 
+either version 3 of the License, or (at your option) any later version. 
+This application is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; 
+without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. 
+See the follow GNU General Public License for more details.
+You should have received a copy of the GNU General Public License along with this program; 
+if not, write to the Free Software Foundation, Inc., 51 Franklin Street, Fifth Floor, 
+Boston, MA 02110-1301 USA or see <http://www.gnu.org/licenses/>.
+==============================================================================================*/
+
+package ch.kostceco.tools.siardval.validation.constraint;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * Hash-Set von 128-Bit-Fingerprints ausserhalb des Java-Heaps (Direct-Buffer,
+ * offene Adressierung mit linearer Sondierung). Ein Eintrag belegt 16 Bytes;
+ * ein Platz mit 0/0 ist leer.
+ * <p>
+ * Die Tabelle wchst bis zum Speicherbudget. Ist sie dort zu voll, meldet
+ * {@link #isFull()} dies, und der Inhalt wird mit
+ * {@link #drainSorted(DataOutputStream)} sortiert ausgelagert. Nicht
+ * threadsicher.
+ */
+public class OffHeapFingerprintSet {
+
+    static final int ENTRY_SIZE = 16;
+
+    private static final int MIN_CAPACITY = 1 << 12;
+
+    /* grsster Direct-Buffer: 2^26 Eintrge = 1 GB */
+    private static final int MAX_CAPACITY = 1 << 26;
+
+    private static final double MAX_LOAD = 0.7;
+
+    private static final int INSERTION_SORT_THRESHOLD = 16;
+
+    private final int maxCapacity;
+    private ByteBuffer table;
+    private int capacity;
+    private int mask;
+    private int size;
+    private int threshold;
+
+    /**
+     * @param maxBytes Speicherbudget in Bytes
+     * @param expected erwartete Anzahl Eintrge, 0 falls unbekannt
+     */
+    public OffHeapFingerprintSet(long maxBytes, long expected) {
+        int max = MIN_CAPACITY;
+        while (max < MAX_CAPACITY && (long) max * 2 * ENTRY_SIZE <= maxBytes) {
+            max *= 2;
+        }
+        maxCapacity = max;
+        int initial = MIN_CAPACITY;
+        while (initial < maxCapacity && initial * MAX_LOAD < expected) {
+            initial *= 2;
+        }
+        allocate(initial);
+    }
+
+    private void allocate(int newCapacity) {
+        capacity = newCapacity;
+        mask = newCapacity - 1;
+        threshold = (int) (newCapacity * MAX_LOAD);
+        table = ByteBuffer.allocateDirect(newCapacity * ENTRY_SIZE);
+        size = 0;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return true, falls das Budget erreicht ist und vor dem nchsten
+     *         {@link #add(long, long)} ausgelagert werden muss
+     */
+    public boolean isFull() {
+        return size >= threshold && capacity >= maxCapacity;
+    }
+
+    /**
+     * @return false, falls der Fingerprint bereits enthalten ist
+     */
+    public boolean add(long high, long low) {
+        if (size >= threshold) {
+            if (capacity >= maxCapacity) {
+                throw new IllegalStateException("Fingerprint-Set ist voll");
+            }
+            grow();
+        }
+        return insert(table, mask, high, low);
+    }
+
+    private boolean insert(ByteBuffer buffer, int bufferMask, long high, long low) {
+        int slot = (int) (low ^ (low >>> 32)) & bufferMask;
+        while (true) {
+            int position = slot * ENTRY_SIZE;
+            long h = buffer.getLong(position);
+            long l = buffer.getLong(position + 8);
+            if (h == 0 && l == 0) {
+                buffer.putLong(position, high);
+                buffer.putLong(position + 8, low);
+                size++;
+                return true;
+            }
+            if (h == high && l == low) {
+                return false;
+            }
+            slot = (slot + 1) & bufferMask;
+        }
+    }
+
+    private void grow() {
+        ByteBuffer old = table;
+        int oldCapacity = capacity;
+        allocate(capacity * 2);
+        for (int i = 0; i < oldCapacity; i++) {
+            long h = old.getLong(i * ENTRY_SIZE);
+            long l = old.getLong(i * ENTRY_SIZE + 8);
+            if (h != 0 || l != 0) {
+                insert(table, mask, h, l);
+            }
+        }
+    }
+
+    /**
+     * Schreibt alle Eintrge aufsteigend sortiert (je 16 Bytes) und leert das
+     * Set. Sortiert wird in der Tabelle selbst, ohne zustzlichen Speicher.
+     */
+    public void drainSorted(DataOutputStream out) throws IOException {
+        int count = 0;
+        for (int i = 0; i < capacity; i++) {
+            long h = table.getLong(i * ENTRY_SIZE);
+            long l = table.getLong(i * ENTRY_SIZE + 8);
+            if (h != 0 || l != 0) {
+                if (i != count) {
+                    table.putLong(count * ENTRY_SIZE, h);
+                    table.putLong(count * ENTRY_SIZE + 8, l);
+                }
+                count++;
+            }
+        }
+        sort(0, count - 1);
+        for (int i = 0; i < count; i++) {
+            out.writeLong(table.getLong(i * ENTRY_SIZE));
+            out.writeLong(table.getLong(i * ENTRY_SIZE + 8));
+        }
+        clear();
+    }
+
+    public void clear() {
+        for (int i = 0; i < capacity * ENTRY_SIZE; i += 8) {
+            table.putLong(i, 0L);
+        }
+        size = 0;
+    }
+
+    private int compare(int i, int j) {
+        return KeyFingerprint.compare(table.getLong(i * ENTRY_SIZE), table.getLong(i * ENTRY_SIZE + 8),
+                table.getLong(j * ENTRY_SIZE), table.getLong(j * ENTRY_SIZE + 8));
+    }
+
+    private void swap(int i, int j) {
+        long h = table.getLong(i * ENTRY_SIZE);
+        long l = table.getLong(i * ENTRY_SIZE + 8);
+        table.putLong(i * ENTRY_SIZE, table.getLong(j * ENTRY_SIZE));
+        table.putLong(i * ENTRY_SIZE + 8, table.getLong(j * ENTRY_SIZE + 8));
+        table.putLong(j * ENTRY_SIZE, h);
+        table.putLong(j * ENTRY_SIZE + 8, l);
+    }
+
+    /*
+     * Quicksort mit Median aus drei; die kleinere Hlfte wird rekursiv
+     * sortiert, damit die Rekursionstiefe logarithmisch bleibt.
+     */
+    private void sort(int from, int to) {
+        while (to - from > INSERTION_SORT_THRESHOLD) {
+            int middle = (from + to) >>> 1;
+            if (compare(middle, from) < 0) {
+                swap(middle, from);
+            }
+            if (compare(to, from) < 0) {
+                swap(to, from);
+            }
+            if (compare(to, middle) < 0) {
+                swap(to, middle);
+            }
+            // Pivot an Position to - 1
+            swap(middle, to - 1);
+            int pivot = to - 1;
+            int i = from;
+            int j = to - 1;
+            while (true) {
+                while (compare(++i, pivot) < 0) {
+                }
+                while (compare(--j, pivot) > 0) {
+                }
+                if (i >= j) {
+                    break;
+                }
+                swap(i, j);
+            }
+            swap(i, to - 1);
+            if (i - from < to - i) {
+                sort(from, i - 1);
+                from = i + 1;
+            } else {
+                sort(i + 1, to);
+                to = i - 1;
+            }
+        }
+        for (int i = from + 1; i <= to; i++) {
+            for (int j = i; j > from && compare(j, j - 1) < 0; j--) {
+                swap(j, j - 1);
+            }
+        }
+    }
+}
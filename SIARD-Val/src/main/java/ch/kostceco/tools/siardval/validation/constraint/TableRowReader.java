@@ -0,0 +1,114 @@
+/*== SIARD-Val ==================================================================================
+The SIARD-Val application is used for validate SIARD-Files. 
+Copyright (C) 2012 Claire Rthlisberger (KOST-CECO), Martin Kaiser (KOST-CECO), XYZ (xyz)
+-----------------------------------------------------------------------------------------------
+SIARD-Val is a development of the KOST-CECO. All rights rest with the KOST-CECO. 
+This application is free software: you can redistribute it and/or modify it under the 
+terms of the GNU General Public License as published by the Free Software Foundation, 
+either version 3 of the License, or (at your option) any later version. 
+This application is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; 
+without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. 
+See the follow GNU General Public License for more details.
+You should have received a copy of the GNU General Public License along with this program; 
+if not, write to the Free Software Foundation, Inc., 51 Franklin Street, Fifth Floor, 
+Boston, MA 02110-1301 USA or see <http://www.gnu.org/licenses/>.
+==============================================================================================*/
+
+package ch.kostceco.tools.siardval.validation.constraint;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.HashMap;
+import java.util.Map;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+/**
+ * Liest ausgewhlte Spalten aus tableZ.xml mit StAX, Zeile fr Zeile. Die
+ * Spalte n einer Tabelle steht im Element cn der Zeile; fehlt das Element,
+ * ist der Wert NULL.
+ */
+public class TableRowReader {
+
+    private static final String ROW = "row";
+
+    /**
+     * Verarbeitet die Werte einer Zeile.
+     */
+    public interface RowHandler {
+
+        /**
+         * @param row Zeilennummer, beginnend bei 1
+         * @param values Werte der gewhlten Spalten, null fr NULL; das
+         *            Array wird fr die nchste Zeile wiederverwendet
+         */
+        void row(long row, String[] values) throws IOException;
+    }
+
+    private final Map<String, Integer> columns = new HashMap<String, Integer>();
+    private final int count;
+
+    /**
+     * @param columnNumbers Nummern der gewhlten Spalten, beginnend bei 1
+     */
+    public TableRowReader(int[] columnNumbers) {
+        for (int i = 0; i < columnNumbers.length; i++) {
+            columns.put("c" + columnNumbers[i], Integer.valueOf(i));
+        }
+        count = columnNumbers.length;
+    }
+
+    /**
+     * Liest alle Zeilen; der Stream wird nicht geschlossen.
+     * @return Anzahl Zeilen
+     */
+    public long read(InputStream in, RowHandler handler) throws IOException, XMLStreamException {
+        XMLInputFactory factory = XMLInputFactory.newInstance();
+        factory.setProperty(XMLInputFactory.IS_NAMESPACE_AWARE, Boolean.TRUE);
+        factory.setProperty(XMLInputFactory.IS_COALESCING, Boolean.FALSE);
+        factory.setProperty(XMLInputFactory.SUPPORT_DTD, Boolean.FALSE);
+        XMLStreamReader reader = factory.createXMLStreamReader(in);
+        String[] values = new String[count];
+        StringBuilder text = new StringBuilder();
+        long rows = 0;
+        int depth = 0;
+        int column = -1;
+        boolean inRow = false;
+        try {
+            while (reader.hasNext()) {
+                int event = reader.next();
+                if (event == XMLStreamConstants.START_ELEMENT) {
+                    depth++;
+                    if (depth == 2 && ROW.equals(reader.getLocalName())) {
+                        inRow = true;
+                        for (int i = 0; i < count; i++) {
+                            values[i] = null;
+                        }
+                    } else if (depth == 3 && inRow) {
+                        Integer index = columns.get(reader.getLocalName());
+                        column = index == null ? -1 : index.intValue();
+                        text.setLength(0);
+                    }
+                } else if (event == XMLStreamConstants.END_ELEMENT) {
+                    if (depth == 3 && column >= 0) {
+                        values[column] = text.toString();
+                        column = -1;
+                    } else if (depth == 2 && inRow) {
+                        inRow = false;
+                        handler.row(++rows, values);
+                    }
+                    depth--;
+                } else if (column >= 0 && (event == XMLStreamConstants.CHARACTERS
+                        || event == XMLStreamConstants.CDATA || event == XMLStreamConstants.SPACE)) {
+                    text.append(reader.getTextCharacters(), reader.getTextStart(), reader.getTextLength());
+                }
+            }
+        } finally {
+            reader.close();
+        }
+        return rows;
+    }
+}
@@ -22,12 +22,13 @@ import java.io.FileReader;
 import java.util.Arrays;
 import java.util.List;
 
+import ch.kostceco.tools.siardval.archive.SiardArchiveEntry;
+import ch.kostceco.tools.siardval.archive.SiardArchiveIndex;
 import ch.kostceco.tools.siardval.service.ConfigurationService;
+import ch.kostceco.tools.siardval.service.MessageService;
 import ch.kostceco.tools.siardval.exception.module.ValidationAzipException;
 import ch.kostceco.tools.siardval.validation.ValidationModuleImpl;
 import ch.kostceco.tools.siardval.validation.module.ValidationAzipModule;
-import ch.enterag.utils.zip.Zip64File;
-import ch.enterag.utils.zip.FileEntry;
 
 /**
  * Validierungsschritt A (Lesbarkeit)
@@ -83,9 +84,7 @@ public class ValidationAzipModuleImpl extends ValidationModuleImpl implements Va
             	// höchstwahrscheinlich ein ZIP da es mit 504B0304 respektive PK.. beginnt
                 valid = true;
             } else{
-                getMessageService().logError(getTextResourceService().getText(MESSAGE_MODULE_A) + 
-                        getTextResourceService().getText(MESSAGE_DASHES) + 
-                        getTextResourceService().getText(ERROR_MODULE_A_INCORRECTFILEENDING));    
+                getMessageService().log(finding(MessageService.ERROR, MESSAGE_MODULE_A, ERROR_MODULE_A_INCORRECTFILEENDING));    
                 //Die SIARD-Datei ist kein ZIP.            
                 return false;
             }
@@ -97,34 +96,28 @@ public class ValidationAzipModuleImpl extends ValidationModuleImpl implements Va
        
         // die Datei darf kein Directory sein
         if (siardDatei.isDirectory()) {
-            getMessageService().logError(getTextResourceService().getText(MESSAGE_MODULE_A) + 
-                    getTextResourceService().getText(MESSAGE_DASHES) + 
-                    getTextResourceService().getText(ERROR_MODULE_A_INCORRECTFILEENDING));    
+            getMessageService().log(finding(MessageService.ERROR, MESSAGE_MODULE_A, ERROR_MODULE_A_INCORRECTFILEENDING));    
             // Die SIARD-Datei ist kein ZIP.            
             return false;
         }
         
         // Das ZIP-Archiv darf nicht komprimiert sein
-        Zip64File zf = null;
-        try { 
+        try {
         	Integer compressed = 0;
-            // Versuche das ZIP file zu öffnen
-            zf = new Zip64File(siardDatei);
+            // Versuche das ZIP file zu öffnen, das zentrale Verzeichnis wird dabei
+            // einmalig gelesen und steht den folgenden Modulen als Index zur Verfügung
+            SiardArchiveIndex index = getArchiveService().getArchiveIndex(siardDatei);
             // auslesen der Komprimierungsmethode aus allen FileEntries der zip(64)-Datei
-			List<FileEntry> fileEntryList = zf.getListFileEntries();
-            for (FileEntry fileEntry : fileEntryList) {
+			List<SiardArchiveEntry> fileEntryList = index.getEntries();
+            for (SiardArchiveEntry fileEntry : fileEntryList) {
               compressed = fileEntry.getMethod() + compressed;
-              // Compression method for uncompressed entries = STORED = 0 
+              // Compression method for uncompressed entries = STORED = 0
             }
-            // und wenn es klappt, gleich wieder schliessen
-            zf.close();
             if (compressed == 0) {
             	// erlaubtes unkomprimiertes ZIP
                 valid = true;
             } else{
-                getMessageService().logError(getTextResourceService().getText(MESSAGE_MODULE_A) + 
-                        getTextResourceService().getText(MESSAGE_DASHES) + 
-                        getTextResourceService().getText(ERROR_MODULE_A_DEFLATED));    
+                getMessageService().log(finding(MessageService.ERROR, MESSAGE_MODULE_A, ERROR_MODULE_A_DEFLATED));    
                 // Die SIARD-Datei ist komprimiert.            
                 return false;
             }
@@ -19,11 +19,11 @@ package ch.kostceco.tools.siardval.validation.module.impl;
 import java.io.File;
 import java.util.List;
 
+import ch.kostceco.tools.siardval.archive.SiardArchiveEntry;
 import ch.kostceco.tools.siardval.exception.module.ValidationBprimaryStructureException;
+import ch.kostceco.tools.siardval.service.MessageService;
 import ch.kostceco.tools.siardval.validation.ValidationModuleImpl;
 import ch.kostceco.tools.siardval.validation.module.ValidationBprimaryStructureModule;
-import ch.enterag.utils.zip.FileEntry;
-import ch.enterag.utils.zip.Zip64File;
 
 /**
  * Validierungsschritt B (primre Verzeichnisstruktur)
@@ -50,9 +50,8 @@ public class ValidationBprimaryStructureModuleImpl extends ValidationModuleImpl
         
         try {
            
-            Zip64File zipfile = new Zip64File(siardDatei);
-            List<FileEntry> fileEntryList = zipfile.getListFileEntries();
-            for (FileEntry fileEntry : fileEntryList) {
+            List<SiardArchiveEntry> fileEntryList = getArchiveService().getArchiveIndex(siardDatei).getEntries();
+            for (SiardArchiveEntry fileEntry : fileEntryList) {
             	
             	// nur valid wenn es mit header oder content anfngt
                 // dies schliesst auch [Name].siard/[Name]/header und [Name].siard/[Name]/content mit ein
@@ -66,29 +65,19 @@ public class ValidationBprimaryStructureModuleImpl extends ValidationModuleImpl
                 		bExistsHeaderFolder = 1;
                 	} else {
                     	// keines der beiden validen Mglichkeiten -> Fehler
-                    	getMessageService().logError(
-                                getTextResourceService().getText(MESSAGE_MODULE_B) + 
-                                getTextResourceService().getText(MESSAGE_DASHES) + 
-                                getTextResourceService().getText(MESSAGE_MODULE_B_NOTALLOWEDFILE, name));
+                    	getMessageService().log(finding(MessageService.ERROR, MESSAGE_MODULE_B, MESSAGE_MODULE_B_NOTALLOWEDFILE, name).entry(name));
                         // SIARD enthaelt ein File, das sich nicht dort befinden duerfte: {0}
                         return false;
                 	}
                 }
             }
-            zipfile.close();
             if (bExistsContentFolder == 0){
-            	getMessageService().logError(
-                        getTextResourceService().getText(MESSAGE_MODULE_B) + 
-                        getTextResourceService().getText(MESSAGE_DASHES) + 
-                        getTextResourceService().getText(MESSAGE_MODULE_B_CONTENT));
+            	getMessageService().log(finding(MessageService.ERROR, MESSAGE_MODULE_B, MESSAGE_MODULE_B_CONTENT));
                 // SIARD enthaelt kein content-Ordner
                 return false;
             }
             if (bExistsHeaderFolder == 0){
-            	getMessageService().logError(
-                        getTextResourceService().getText(MESSAGE_MODULE_B) + 
-                        getTextResourceService().getText(MESSAGE_DASHES) + 
-                        getTextResourceService().getText(MESSAGE_MODULE_B_HEADER));
+            	getMessageService().log(finding(MessageService.ERROR, MESSAGE_MODULE_B, MESSAGE_MODULE_B_HEADER));
                 // SIARD enthaelt kein header-Ordner
                 return false;
             }
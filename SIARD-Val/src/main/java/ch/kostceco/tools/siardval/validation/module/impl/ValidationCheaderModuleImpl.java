@@ -17,24 +17,34 @@ Boston, MA 02110-1301 USA or see <http://www.gnu.org/licenses/>.
 package ch.kostceco.tools.siardval.validation.module.impl;
 
 import java.io.File;
-import java.io.FileOutputStream;
-import java.util.List;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Map;
+import java.util.zip.ZipException;
 
 import javax.xml.parsers.DocumentBuilder;
 import javax.xml.parsers.DocumentBuilderFactory;
 import javax.xml.parsers.ParserConfigurationException;
+import javax.xml.transform.stream.StreamSource;
+import javax.xml.validation.Schema;
 
 import org.xml.sax.SAXException;
 import org.xml.sax.SAXParseException;
 import org.xml.sax.helpers.DefaultHandler;
 
+import ch.kostceco.tools.siardval.archive.ArchiveExtractor;
+import ch.kostceco.tools.siardval.archive.ArchiveResourceResolver;
+import ch.kostceco.tools.siardval.archive.SiardArchiveEntry;
+import ch.kostceco.tools.siardval.archive.SiardArchiveIndex;
+import ch.kostceco.tools.siardval.metrics.Measurement;
+import ch.kostceco.tools.siardval.metrics.Metrics;
 import ch.kostceco.tools.siardval.service.ConfigurationService;
+import ch.kostceco.tools.siardval.service.MessageService;
+import ch.kostceco.tools.siardval.service.SchemaCacheService;
+import ch.kostceco.tools.siardval.util.Cancellation;
 import ch.kostceco.tools.siardval.exception.module.ValidationCheaderException;
 import ch.kostceco.tools.siardval.validation.ValidationModuleImpl;
 import ch.kostceco.tools.siardval.validation.module.ValidationCheaderModule;
-import ch.enterag.utils.zip.EntryInputStream;
-import ch.enterag.utils.zip.FileEntry;
-import ch.enterag.utils.zip.Zip64File;
 
 /**
  * Validierungsschritt C (Header-Validierung)
@@ -50,6 +60,8 @@ public class ValidationCheaderModuleImpl extends ValidationModuleImpl implements
 
     public ConfigurationService configurationService;
     
+    public SchemaCacheService schemaCacheService;
+    
 
     public ConfigurationService getConfigurationService() {
         return configurationService;
@@ -59,39 +71,34 @@ public class ValidationCheaderModuleImpl extends ValidationModuleImpl implements
         this.configurationService = configurationService;
     }
 
+    public SchemaCacheService getSchemaCacheService() {
+        return schemaCacheService;
+    }
+
+    public void setSchemaCacheService(SchemaCacheService schemaCacheService) {
+        this.schemaCacheService = schemaCacheService;
+    }
+
 
     @Override
     public boolean validate(File siardDatei) throws ValidationCheaderException {
     	
         // Sind im Header-Ordner metadata.xml und metadata.xsd vorhanden?
-        FileEntry metadataxml = null;        
-        FileEntry metadataxsd = null;
+        SiardArchiveEntry metadataxml = null;        
+        SiardArchiveEntry metadataxsd = null;
         
          try {
-            Zip64File zipfile = new Zip64File(siardDatei);
-            List<FileEntry> fileEntryList = zipfile.getListFileEntries();
-            for (FileEntry fileEntry : fileEntryList) {
-                if (fileEntry.getName().equals("header/" + METADATA)) {
-                    metadataxml = fileEntry;
-                }
-                if (fileEntry.getName().equals("header/" + XSD_METADATA)) {
-                    metadataxsd = fileEntry;
-                }
-            }
+            SiardArchiveIndex index = getArchiveService().getArchiveIndex(siardDatei);
+            metadataxml = index.getEntry(SiardArchiveIndex.HEADER + METADATA);
+            metadataxsd = index.getEntry(SiardArchiveIndex.HEADER + XSD_METADATA);
             if (metadataxml == null) {
                 // keine metadata.xml = METADATA in der SIARD-Datei gefunden
-                getMessageService().logError(
-                        getTextResourceService().getText(MESSAGE_MODULE_C) + 
-                        getTextResourceService().getText(MESSAGE_DASHES) + 
-                        getTextResourceService().getText(MESSAGE_MODULE_C_NOMETADATAFOUND));                                
+                getMessageService().log(finding(MessageService.ERROR, MESSAGE_MODULE_C, MESSAGE_MODULE_C_NOMETADATAFOUND));                                
                 return false;
             }
             if (metadataxsd == null) {
                 // keine metadata.xsd = XSD_METADATA in der SIARD-Datei gefunden
-                getMessageService().logError(
-                        getTextResourceService().getText(MESSAGE_MODULE_C) + 
-                        getTextResourceService().getText(MESSAGE_DASHES) + 
-                        getTextResourceService().getText(MESSAGE_MODULE_C_NOMETADATAXSD));                                
+                getMessageService().log(finding(MessageService.ERROR, MESSAGE_MODULE_C, MESSAGE_MODULE_C_NOMETADATAXSD));                                
                 return false;
             }
         } catch (Exception e) {
@@ -110,41 +117,33 @@ public class ValidationCheaderModuleImpl extends ValidationModuleImpl implements
         toplevelDir = toplevelDir.substring(0, lastDotIdx);
         
         try {
-            // Arbeitsverzeichnis zum Entpacken des Archivs erstellen
-            String pathToWorkDir = getConfigurationService().getPathToWorkDir();
-            /** Nicht vergessen in "src/main/resources/config/applicationContext-services.xml"
-             *  beim entsprechenden Modul die property anzugeben:
-             *  <property name="configurationService" ref="configurationService" />
-             */
-            File tmpDir = new File(pathToWorkDir);
-            if (!tmpDir.exists()) {
-                tmpDir.mkdir();
-            } 
-
-            // Das metadata.xml und sein xsd mssen in das Filesystem extrahiert werden, weil bei
-            // bei Verwendung eines Inputstreams bei der Validierung ein Problem mit
-            // den xs:include Statements besteht, die includes knnen so nicht aufgelst werden.
-            // Es werden hier jedoch nicht nur diese Files extrahiert, sondern gleich die ganze Zip-Datei,
-            // weil auch sptere Validierungen nur mit den extrahierten Files arbeiten knnen.
-            Zip64File zipfile = new Zip64File(siardDatei);
-            List<FileEntry> fileEntryList = zipfile.getListFileEntries();
-            for (FileEntry fileEntry : fileEntryList) {
-                if (!fileEntry.isDirectory()) {
-                    byte[] buffer = new byte[8192];
-                    // Scheibe die Datei an den richtigen Ort respektive in den richtigen Ordner der ggf angelegt werden muss.
-                    EntryInputStream eis = zipfile.openEntryInputStream(fileEntry.getName());
-                    File newFile = new File(tmpDir, fileEntry.getName());
-                    File parent = newFile.getParentFile();
-                    if (!parent.exists()) {
-                        parent.mkdirs();
-                    }
-                    FileOutputStream fos = new FileOutputStream(newFile);
-                    for (int iRead = eis.read(buffer); iRead >= 0; iRead = eis.read(buffer)){
-                        fos.write(buffer, 0, iRead);
-                    }
-                    eis.close();
-                    fos.close();
-                    // Festhalten von metadata.xml und metadata.xsd
+            SiardArchiveIndex index = getArchiveService().getArchiveIndex(siardDatei);
+            if (getConfigurationService().isExtractArchive()) {
+                // Arbeitsverzeichnis zum Entpacken des Archivs erstellen
+                /** Nicht vergessen in "src/main/resources/config/applicationContext-services.xml"
+                 *  beim entsprechenden Modul die property anzugeben:
+                 *  <property name="workDirService" ref="workDirService" />
+                 */
+                File tmpDir = getWorkDirService().getWorkDir(siardDatei);
+
+                // Mit extractarchive=yes wird gleich die ganze Zip-Datei extrahiert, die
+                // Validierungen (und externe Programme) arbeiten anschliessend mit den
+                // extrahierten Files. Der ArchiveExtractor legt die Ordner vorab an und
+                // schreibt die Dateien mit mehreren Threads.
+                Measurement extract = Metrics.start(Metrics.EXTRACT);
+                Map<String, File> extracted;
+                try {
+                    extracted = new ArchiveExtractor(index, tmpDir,
+                            getConfigurationService().getExtractThreads()).extract(ArchiveExtractor.ALL);
+                } catch (InterruptedException e) {
+                    // der Validierungsschritt wurde abgebrochen
+                    Thread.currentThread().interrupt();
+                    return false;
+                } finally {
+                    extract.stop();
+                }
+                // Festhalten von metadata.xml und metadata.xsd
+                for (File newFile : extracted.values()) {
                     if (newFile.getName().endsWith(METADATA)) {
                         xmlToValidate = newFile;
                     }
@@ -152,23 +151,55 @@ public class ValidationCheaderModuleImpl extends ValidationModuleImpl implements
                         xsdToValidate = newFile;
                     }
                 }
-            }
-            if (xmlToValidate != null && xsdToValidate != null) {
-            	// der andere Fall wurde bereits oben abgefangen
+                if (xmlToValidate != null && xsdToValidate != null) {
+                	// der andere Fall wurde bereits oben abgefangen
+                    try {
+                    	// Validierung von metadata.xml und metadata.xsd mit dem (private class) Validator
+                        System.setProperty("javax.xml.parsers.DocumentBuilderFactory",
+                                "org.apache.xerces.jaxp.DocumentBuilderFactoryImpl");
+                        DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
+                        factory.setNamespaceAware(true);
+                        // das kompilierte metadata.xsd kommt aus dem Schema-Cache
+                        factory.setSchema(getSchemaCacheService().getSchema(new StreamSource(xsdToValidate), null));
+                        DocumentBuilder builder = factory.newDocumentBuilder();
+                        Validator handler = new Validator();
+                        builder.setErrorHandler(handler);
+                        builder.parse(xmlToValidate.getAbsolutePath());
+                        if (handler.validationError == true){
+                            return false;
+                        }
+                    } catch (java.io.IOException ioe) {
+                		getMessageService().logError(
+                                getTextResourceService().getText(MESSAGE_MODULE_C) + 
+                                getTextResourceService().getText(MESSAGE_DASHES) + 
+                                "IOException " + 
+                                ioe.getMessage());                
+                    } catch (SAXException e) {
+                       getMessageService().logError(
+                                getTextResourceService().getText(MESSAGE_MODULE_C) + 
+                                getTextResourceService().getText(MESSAGE_DASHES) + 
+                                "SAXException " + 
+                                e.getMessage());                
+                    } catch (ParserConfigurationException e) {
+                        getMessageService().logError(
+                                getTextResourceService().getText(MESSAGE_MODULE_C) + 
+                                getTextResourceService().getText(MESSAGE_DASHES) + 
+                                "ParserConfigurationException " + 
+                                e.getMessage());                
+                    }
+                }
+            } else {
+                // metadata.xml und metadata.xsd werden direkt aus der SIARD-Datei gelesen,
+                // die xs:include Statements lst der ArchiveResourceResolver im Archiv auf.
+                ArchiveResourceResolver resolver = new ArchiveResourceResolver(index);
                 try {
-                	// Validierung von metadata.xml und metadata.xsd mit dem (private class) Validator
-                    System.setProperty("javax.xml.parsers.DocumentBuilderFactory",
-                            "org.apache.xerces.jaxp.DocumentBuilderFactoryImpl");
-                    DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
-                    factory.setNamespaceAware(true);
-                    factory.setValidating(true);
-                    factory.setAttribute("http://java.sun.com/xml/jaxp/properties/schemaLanguage",
-                            "http://www.w3.org/2001/XMLSchema");
-                    factory.setAttribute("http://java.sun.com/xml/jaxp/properties/schemaSource", xsdToValidate.getAbsolutePath());
-                    DocumentBuilder builder = factory.newDocumentBuilder();
+                    Schema schema = getSchemaCacheService().getSchema(
+                            resolver.getSource(SiardArchiveIndex.HEADER + XSD_METADATA), resolver);
+                    javax.xml.validation.Validator validator = schema.newValidator();
+                    validator.setResourceResolver(resolver);
                     Validator handler = new Validator();
-                    builder.setErrorHandler(handler);
-                    builder.parse(xmlToValidate.getAbsolutePath());
+                    validator.setErrorHandler(handler);
+                    validator.validate(resolver.getSource(SiardArchiveIndex.HEADER + METADATA));
                     if (handler.validationError == true){
                         return false;
                     }
@@ -184,15 +215,13 @@ public class ValidationCheaderModuleImpl extends ValidationModuleImpl implements
                             getTextResourceService().getText(MESSAGE_DASHES) + 
                             "SAXException " + 
                             e.getMessage());                
-                } catch (ParserConfigurationException e) {
-                    getMessageService().logError(
-                            getTextResourceService().getText(MESSAGE_MODULE_C) + 
-                            getTextResourceService().getText(MESSAGE_DASHES) + 
-                            "ParserConfigurationException " + 
-                            e.getMessage());                
+                }
+                // Ohne Entpacken liest C nur den header-Ordner; die CRC32 aller
+                // brigen Eintrge wird hier in einem Durchgang geprft
+                if (!checkEntries(index)) {
+                    return false;
                 }
             }
-            zipfile.close();
         } catch (Exception e) {
             getMessageService().logError(
                     getTextResourceService().getText(MESSAGE_MODULE_C) + 
@@ -213,24 +242,54 @@ public class ValidationCheaderModuleImpl extends ValidationModuleImpl implements
         return true;
     }
     
+    /*
+     * Liest alle Eintrge der Reihe nach bis zum Ende; die Streams des Index
+     * prfen dabei die CRC32 wie frher EntryInputStream von Zip64File. Die
+     * brigen Module lesen nicht jeden Eintrag vollstndig, ohne diesen
+     * Durchgang bliebe eine beschdigte SIARD-Datei unbemerkt.
+     */
+    private boolean checkEntries(SiardArchiveIndex index) throws IOException {
+        boolean valid = true;
+        byte[] buffer = new byte[64 * 1024];
+        for (SiardArchiveEntry entry : index.getEntries()) {
+            if (Cancellation.isCancelled()) {
+                return false;
+            }
+            if (entry.isDirectory()) {
+                continue;
+            }
+            InputStream in = index.openEntryInputStream(entry.getName());
+            try {
+                while (in.read(buffer) >= 0) {
+                    // nur lesen
+                }
+            } catch (ZipException e) {
+                getMessageService().log(finding(MessageService.ERROR, MESSAGE_MODULE_C, MESSAGE_MODULE_C_CRC,
+                        entry.getName()).entry(entry.getName()));
+                valid = false;
+            } finally {
+                in.close();
+            }
+        }
+        return valid;
+    }
+
     private class Validator extends DefaultHandler {
         public boolean validationError = false;
         public SAXParseException saxParseException = null;
         public void error(SAXParseException exception) throws SAXException {
             validationError = true;
             saxParseException = exception;            
-            getMessageService().logError(
-                    getTextResourceService().getText(MESSAGE_MODULE_C) + 
-                    getTextResourceService().getText(MESSAGE_DASHES) + 
-                    getTextResourceService().getText(MESSAGE_MODULE_C_METADATA_ERRORS, saxParseException.getLineNumber(), saxParseException.getColumnNumber(), saxParseException.getMessage()));                
+            getMessageService().log(finding(MessageService.ERROR, MESSAGE_MODULE_C, MESSAGE_MODULE_C_METADATA_ERRORS, saxParseException.getLineNumber(), saxParseException.getColumnNumber(), saxParseException.getMessage())
+                    .entry(SiardArchiveIndex.HEADER + METADATA)
+                    .position(saxParseException.getLineNumber(), saxParseException.getColumnNumber()));                
         }
         public void fatalError(SAXParseException exception) throws SAXException {
             validationError = true;
             saxParseException = exception;
-            getMessageService().logError(
-                    getTextResourceService().getText(MESSAGE_MODULE_C) + 
-                    getTextResourceService().getText(MESSAGE_DASHES) + 
-                    getTextResourceService().getText(MESSAGE_MODULE_C_METADATA_ERRORS, saxParseException.getLineNumber(), saxParseException.getColumnNumber(), saxParseException.getMessage()));                
+            getMessageService().log(finding(MessageService.ERROR, MESSAGE_MODULE_C, MESSAGE_MODULE_C_METADATA_ERRORS, saxParseException.getLineNumber(), saxParseException.getColumnNumber(), saxParseException.getMessage())
+                    .entry(SiardArchiveIndex.HEADER + METADATA)
+                    .position(saxParseException.getLineNumber(), saxParseException.getColumnNumber()));                
         }
         public void warning(SAXParseException exception) throws SAXException {
         	// Warnungen werden nicht ausgegeben
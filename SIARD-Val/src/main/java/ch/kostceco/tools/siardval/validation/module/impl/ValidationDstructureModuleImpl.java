@@ -17,18 +17,14 @@ Boston, MA 02110-1301 USA or see <http://www.gnu.org/licenses/>.
 package ch.kostceco.tools.siardval.validation.module.impl;
 
 import java.io.File;
-import java.io.FileInputStream;
-import java.io.InputStream;
-import java.util.List;
 
-import org.jdom2.Document;
-import org.jdom2.Element;
-import org.jdom2.JDOMException;
-import org.jdom2.Namespace;
-import org.jdom2.input.SAXBuilder;
+import javax.xml.stream.XMLStreamException;
 
+import ch.kostceco.tools.siardval.archive.SiardArchiveIndex;
+import ch.kostceco.tools.siardval.archive.SiardMetadata;
 import ch.kostceco.tools.siardval.exception.module.ValidationDstructureException;
 import ch.kostceco.tools.siardval.service.ConfigurationService;
+import ch.kostceco.tools.siardval.service.MessageService;
 import ch.kostceco.tools.siardval.validation.ValidationModuleImpl;
 import ch.kostceco.tools.siardval.validation.module.ValidationDstructureModule;
 
@@ -59,25 +55,15 @@ public class ValidationDstructureModuleImpl extends ValidationModuleImpl impleme
     {
     	boolean valid = true;
         try {
-        	/*
-        	 * Extract the metadata.xml from the temporare work folder and build a jdom document
-        	 */
-            String pathToWorkDir = getConfigurationService().getPathToWorkDir();
-            File metadataXml = new File(new StringBuilder(pathToWorkDir).append(File.separator).append("header").append(File.separator).append("metadata.xml").toString());
-            InputStream fin = new FileInputStream(metadataXml);
-            SAXBuilder builder = new SAXBuilder();
-            Document document = builder.build(fin);
-            fin.close();
+            SiardArchiveIndex index = getArchiveService().getArchiveIndex(siardDatei);
+            SiardMetadata metadata = getArchiveService().getMetadata(siardDatei);
 
             /*
-             * read the document and for each schema and table entry verify existence in temporary extracted structure
+             * for each schema and table in metadata.xml verify existence in the entry list of the archive
              */
-        	Namespace ns = Namespace.getNamespace("http://www.bar.admin.ch/xmlns/siard/1.0/metadata.xsd");
-        	// select schema elements and loop
-        	List<Element> schemas = document.getRootElement().getChild("schemas", ns).getChildren("schema", ns);
-        	for (Element schema : schemas)
+        	for (int schema = 0; schema < metadata.getSchemaCount(); schema++)
         	{
-        		valid = validateSchema(schema, ns, pathToWorkDir);
+        		valid = validateSchema(metadata, schema, index);
         	}
         } 
         catch (java.io.IOException ioe) 
@@ -89,106 +75,85 @@ public class ValidationDstructureModuleImpl extends ValidationModuleImpl impleme
                     "IOException " + 
                     ioe.getMessage());                
         } 
-        catch (JDOMException e) 
+        catch (XMLStreamException e) 
         {
         	valid = false;
            getMessageService().logError(
                     getTextResourceService().getText(MESSAGE_MODULE_D) + 
                     getTextResourceService().getText(MESSAGE_DASHES) + 
-                    "JDOMException " + 
+                    "XMLStreamException " + 
                     e.getMessage());                
         } 
 
         return valid;
     }
     
-    private boolean validateSchema(Element schema, Namespace ns, String pathToWorkDir)
+    private boolean validateSchema(SiardMetadata metadata, int schema, SiardArchiveIndex index)
     {
     	boolean valid = true;
-		Element schemaFolder = schema.getChild("folder", ns);
-        File schemaPath = new File(new StringBuilder(pathToWorkDir).append(File.separator).append("content").append(File.separator).append(schemaFolder.getText()).toString());
-		if (schemaPath.isDirectory())
+		String schemaName = metadata.getSchemaFolder(schema);
+        String schemaPath = new StringBuilder(SiardArchiveIndex.CONTENT).append(schemaName).append("/").toString();
+		if (index.isDirectory(schemaPath))
 		{
-			List<Element> tables = schema.getChild("tables", ns).getChildren("table", ns);
-			for (Element table : tables)
+			for (int table = metadata.getFirstTable(schema); table < metadata.getTableEnd(schema); table++)
 			{
-				valid = valid && validateTable(table, ns, pathToWorkDir, schemaPath);
+				valid = valid && validateTable(metadata.getTableFolder(table), index, schemaPath, schemaName);
 			}
 		}
 		else
 		{
 			valid = false;
-			if (schemaPath.exists())
+			if (index.exists(SiardArchiveIndex.CONTENT + schemaName))
 			{
-        		getMessageService().logError(
-                        getTextResourceService().getText(MESSAGE_MODULE_D) + 
-                        getTextResourceService().getText(MESSAGE_DASHES) + 
-                        getTextResourceService().getText("content" + " " + MESSAGE_MODULE_D_INVALID_FOLDER) + " " + schemaPath.getName() + " in ");                
+        		getMessageService().log(finding(MessageService.ERROR, MESSAGE_MODULE_D, MESSAGE_MODULE_D_INVALID_FOLDER,
+        				"content", schemaName).entry(SiardArchiveIndex.CONTENT + schemaName));
 			}
 			else
 			{
-        		getMessageService().logError(
-                        getTextResourceService().getText(MESSAGE_MODULE_D) + 
-                        getTextResourceService().getText(MESSAGE_DASHES) + 
-                        getTextResourceService().getText(MESSAGE_MODULE_D_MISSING_FOLDER) + " " + "content" + ": " + schemaPath.getName());                
+        		getMessageService().log(finding(MessageService.ERROR, MESSAGE_MODULE_D, MESSAGE_MODULE_D_MISSING_FOLDER,
+        				"content", schemaName).entry(schemaPath));
 			}
 		}
 		return valid;
     }
     
-    private boolean validateTable(Element table, Namespace ns, String pathToWorkDir, File schemaPath)
+    private boolean validateTable(String tableName, SiardArchiveIndex index, String schemaPath, String schemaName)
     {
     	boolean valid = true;
-		Element tableFolder = table.getChild("folder", ns);
-		File tablePath = new File(new StringBuilder(schemaPath.getAbsolutePath()).append(File.separator).append(tableFolder.getText()).toString());
-		if (tablePath.isDirectory())
+		String tablePath = new StringBuilder(schemaPath).append(tableName).append("/").toString();
+		if (index.isDirectory(tablePath))
 		{
-			File tableXml = new File(new StringBuilder(tablePath.getAbsolutePath()).append(File.separator).append(tableFolder.getText() +".xml").toString());
-			valid = valid && validateFile(tableXml, tablePath);
-			File tableXsd = new File(new StringBuilder(tablePath.getAbsolutePath()).append(File.separator).append(tableFolder.getText() +".xsd").toString());
-			valid = valid && validateFile(tableXsd, tablePath);
+			valid = valid && validateFile(index, tablePath, tableName, tableName + ".xml");
+			valid = valid && validateFile(index, tablePath, tableName, tableName + ".xsd");
 		}
 		else
 		{
 			valid = false;
-			if (tablePath.exists())
+			if (index.exists(schemaPath + tableName))
 			{
-        		getMessageService().logError(
-                        getTextResourceService().getText(MESSAGE_MODULE_D) + 
-                        getTextResourceService().getText(MESSAGE_DASHES) + 
-                        getTextResourceService().getText(schemaPath.getName() + " " + MESSAGE_MODULE_D_INVALID_FOLDER) + " " + tablePath.getName() + " in ");                
+        		getMessageService().log(finding(MessageService.ERROR, MESSAGE_MODULE_D, MESSAGE_MODULE_D_INVALID_FOLDER,
+        				schemaName, tableName).entry(schemaPath + tableName).table(schemaName + "/" + tableName));
 			}
 			else
 			{
-        		getMessageService().logError(
-                        getTextResourceService().getText(MESSAGE_MODULE_D) + 
-                        getTextResourceService().getText(MESSAGE_DASHES) + 
-                        getTextResourceService().getText(MESSAGE_MODULE_D_MISSING_FOLDER) + " " + schemaPath.getName() + ": " + tablePath.getName());                
+        		getMessageService().log(finding(MessageService.ERROR, MESSAGE_MODULE_D, MESSAGE_MODULE_D_MISSING_FOLDER,
+        				schemaName, tableName).entry(tablePath).table(schemaName + "/" + tableName));
 			}
 		}
 		return valid;
     }
     
-    private boolean validateFile(File file, File parent)
+    private boolean validateFile(SiardArchiveIndex index, String parentPath, String parentName, String fileName)
     {
     	boolean valid = true;
-		if (!file.isFile())
+		if (!index.isFile(parentPath + fileName))
 		{
 			valid = false;
-			if (file.exists())
-			{
-    			getMessageService().logError(
-                        getTextResourceService().getText(MESSAGE_MODULE_D) + 
-                        getTextResourceService().getText(MESSAGE_DASHES) + 
-                        getTextResourceService().getText(parent.getName() + " " + MESSAGE_MODULE_D_INVALID_FILE) + " " + file.getName());                
-			}
-			else
-			{
-    			getMessageService().logError(
-                        getTextResourceService().getText(MESSAGE_MODULE_D) + 
-                        getTextResourceService().getText(MESSAGE_DASHES) + 
-                        getTextResourceService().getText(MESSAGE_MODULE_D_MISSING_FILE) + " " + parent.getName() + ": " + file.getName());                
-			}
+			// schema0/table0, wie in den Meldungen der brigen Module
+			String table = parentPath.substring(SiardArchiveIndex.CONTENT.length(), parentPath.length() - 1);
+			String key = index.exists(parentPath + fileName) ? MESSAGE_MODULE_D_INVALID_FILE : MESSAGE_MODULE_D_MISSING_FILE;
+			getMessageService().log(finding(MessageService.ERROR, MESSAGE_MODULE_D, key,
+					parentName, fileName).entry(parentPath + fileName).table(table));
 		}
 		return valid;
     }
@@ -19,7 +19,6 @@ package ch.kostceco.tools.siardval.validation.module.impl;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileNotFoundException;
-import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.text.MessageFormat;
@@ -27,13 +26,16 @@ import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Properties;
+import javax.xml.stream.XMLStreamException;
 import org.jdom2.*;
 import org.jdom2.input.SAXBuilder;
-import ch.enterag.utils.zip.EntryInputStream;
-import ch.enterag.utils.zip.FileEntry;
-import ch.enterag.utils.zip.Zip64File;
+import ch.kostceco.tools.siardval.archive.SiardArchiveEntry;
+import ch.kostceco.tools.siardval.archive.SiardArchiveIndex;
+import ch.kostceco.tools.siardval.archive.SiardMetadata;
 import ch.kostceco.tools.siardval.exception.module.ValidationEcolumnException;
+import ch.kostceco.tools.siardval.logging.Logger;
 import ch.kostceco.tools.siardval.service.ConfigurationService;
+import ch.kostceco.tools.siardval.service.MessageService;
 import ch.kostceco.tools.siardval.validation.ValidationModuleImpl;
 import ch.kostceco.tools.siardval.validation.bean.SiardTable;
 import ch.kostceco.tools.siardval.validation.module.ValidationEcolumnModule;
@@ -86,6 +88,8 @@ import ch.kostceco.tools.siardval.validation.module.ValidationEcolumnModule;
  */
 
 public class ValidationEcolumnModuleImpl extends ValidationModuleImpl implements ValidationEcolumnModule {
+	/*The trace log is written to the debug log in verbose mode, the results are findings*/
+	private static final Logger LOGGER = new Logger(ValidationEcolumnModuleImpl.class);
     /*Validation parameters*/
 	private boolean verboseMode;
 	/*Service related properties*/
@@ -93,10 +97,12 @@ public class ValidationEcolumnModuleImpl extends ValidationModuleImpl implements
 	/*Validation context related properties*/
 	private Properties validationProperties;
 	/*Content of the SIARD package*/
+	private SiardArchiveIndex siardArchiveIndex;
 	private HashMap<String, File> siardFiles;
 	private File metadataXML;
-	private Document metadataXMLDocument;
+	private SiardMetadata metadata;
 	private String contentPath; 
+	private String workDir;
 	private String headerPath;
 	/*SIARD XML processing related properties*/
 	private List<Element> xmlElements;
@@ -131,18 +137,13 @@ public class ValidationEcolumnModuleImpl extends ValidationModuleImpl implements
 	@SuppressWarnings("finally")
 	@Override
 	public boolean validate(File siardDatei) throws ValidationEcolumnException {
-		 //Validation parameters
-		 this.setVerboseMode(true);
 		 //All over validation flag
 		 boolean valid = true;
 		 try {
 			 //Initialize the validation context
 			 if (prepareValidation(siardDatei) == false) {
 				 valid = false;
-				 getMessageService().logInfo(
-	                     getTextResourceService().getText(MESSAGE_MODULE_E) +
-	                     getTextResourceService().getText(MESSAGE_DASHES) +
-	                     getTextResourceService().getText(MESSAGE_MODULE_E_INVALID_VALIDATION_CONTEXT));
+				 getMessageService().log(finding(MessageService.ERROR, MESSAGE_MODULE_E, MESSAGE_MODULE_E_INVALID_VALIDATION_CONTEXT));
 			 } 
 			 //Get the prepared SIARD tables from the validation context
 			 List<SiardTable> siardTables = this.getSiardTables();
@@ -150,52 +151,32 @@ public class ValidationEcolumnModuleImpl extends ValidationModuleImpl implements
 			 Properties properties = this.getValidationProperties();
 			 if (properties == null) {
 				 valid = false;
-				 getMessageService().logInfo(
-	                     getTextResourceService().getText(MESSAGE_MODULE_E) +
-	                     getTextResourceService().getText(MESSAGE_DASHES) +
-	                     getTextResourceService().getText(MESSAGE_MODULE_E_MISSING_PROPERTIES));
+				 getMessageService().log(finding(MessageService.ERROR, MESSAGE_MODULE_E, MESSAGE_MODULE_E_MISSING_PROPERTIES));
 			 }
 			 if (siardTables == null) {
 				 valid = false;
-				 getMessageService().logInfo(
-	                     getTextResourceService().getText(MESSAGE_MODULE_E) +
-	                     getTextResourceService().getText(MESSAGE_DASHES) +
-	                     getTextResourceService().getText(MESSAGE_MODULE_E_MISSING_SIARD_TABLES));
+				 getMessageService().log(finding(MessageService.ERROR, MESSAGE_MODULE_E, MESSAGE_MODULE_E_MISSING_SIARD_TABLES));
 			 }
 			 //Validates the number of the attributes
 			 if (validateAttributeCount(siardTables, properties) == false) {
 				 valid = false;
-					 getMessageService().logInfo(
-	                 getTextResourceService().getText(MESSAGE_MODULE_E) +
-	                 getTextResourceService().getText(MESSAGE_DASHES) +
-	                 getTextResourceService().getText(MESSAGE_MODULE_E_INVALID_ATTRIBUTE_COUNT));
+					 getMessageService().log(finding(MessageService.ERROR, MESSAGE_MODULE_E, MESSAGE_MODULE_E_INVALID_ATTRIBUTE_COUNT));
 			 } 
 			 //Validates the nullable property in metadata.xml
 			 if (validateAttributeOccurrence(siardTables, properties) == false) {
 				valid = false;
-					 getMessageService().logInfo(
-	                 getTextResourceService().getText(MESSAGE_MODULE_E) +
-	                 getTextResourceService().getText(MESSAGE_DASHES) +
-	                 getTextResourceService().getText(MESSAGE_MODULE_E_INVALID_ATTRIBUTE_OCCURRENCE));
+					 getMessageService().log(finding(MessageService.ERROR, MESSAGE_MODULE_E, MESSAGE_MODULE_E_INVALID_ATTRIBUTE_OCCURRENCE));
 			 } 
 			 //Validates the type of table attributes in metadata.xml
 			 if (validateAttributeType(siardTables, properties) == false) {
 				valid = false;
-					 getMessageService().logInfo(
-	                 getTextResourceService().getText(MESSAGE_MODULE_E) +
-	                 getTextResourceService().getText(MESSAGE_DASHES) +
-	                 getTextResourceService().getText(MESSAGE_MODULE_E_INVALID_ATTRIBUTE_TYPE));
-			 } else if (this.isVerboseMode()) {
-				 	getMessageService().logInfo(this.getValidationLog().toString());
-			 }	
+					 getMessageService().log(finding(MessageService.ERROR, MESSAGE_MODULE_E, MESSAGE_MODULE_E_INVALID_ATTRIBUTE_TYPE));
+			 }
 			 /*
 	         //Validates the sequence of table attributes in metadata.xml
 			 if (validateAttributeSequence(properties) == false) {
 				valid = false;
-					getMessageService().logInfo(
-	                getTextResourceService().getText(MESSAGE_MODULE_E) +
-	                getTextResourceService().getText(MESSAGE_DASHES) +
-	                getTextResourceService().getText(MESSAGE_MODULE_E_INVALID_ATTRIBUTE_SEQUENCE));
+					getMessageService().log(finding(MessageService.ERROR, MESSAGE_MODULE_E, MESSAGE_MODULE_E_INVALID_ATTRIBUTE_SEQUENCE));
 			 } else if (this.isVerboseMode()) {
 				 getMessageService().logInfo(this.getValidationLog().toString());
 			 }*/
@@ -208,16 +189,16 @@ public class ValidationEcolumnModuleImpl extends ValidationModuleImpl implements
 	            getTextResourceService().getText(MESSAGE_DASHES) + je.getMessage());
 		} finally {
 			//System.out.println(this.getValidationLog().toString());
-			//If the verbose mode flag is set, the validationLog is beeing flushed
-			if (this.isVerboseMode()) {
-				 getMessageService().logInfo(this.getValidationLog().toString());
+			//If the verbose mode flag is set, the validationLog is flushed to the debug log
+			if (this.isVerboseMode() && LOGGER.isDebugEnabled() && this.getValidationLog() != null) {
+				 LOGGER.logDebug(this.getValidationLog().toString());
 			 }
 			return valid;
 		}
 	}
 	
 	/* [E.0] */
-	private boolean prepareValidation(File siardFile) throws IOException, JDOMException {
+	private boolean prepareValidation(File siardFile) throws IOException, JDOMException, XMLStreamException {
 		StringBuilder validationLog = new StringBuilder();
 		validationLog.append('\n');
 		validationLog.append("============================");
@@ -226,6 +207,8 @@ public class ValidationEcolumnModuleImpl extends ValidationModuleImpl implements
 		validationLog.append('\n');
 		validationLog.append("============================");
 		this.setValidationLog(validationLog);
+		//Each validation gets its own work directory
+		this.setWorkDir(getWorkDirService().getWorkDir(siardFile).getPath());
 		//All over preparation flag
 		boolean prepared = true;
 		//Load the Java properties to the validation context
@@ -287,14 +270,20 @@ public class ValidationEcolumnModuleImpl extends ValidationModuleImpl implements
 	    //Iteratic over all SIARD tables to count the table attributes
 		//and compare it to the number of registered attributes in the according XML schemas
 		for (SiardTable siardTable : siardTables) {
-			int metadataXMLColumnsCount = siardTable.getMetadataXMLElements().size();
+			int metadataXMLColumnsCount = siardTable.getMetadataColumnCount();
 			int tableXSDColumnsCount = siardTable.getTableXSDElements().size();
 			//Checks whether the columns count is correct
 			if (metadataXMLColumnsCount == tableXSDColumnsCount) {
 				validColumn = true;
+				getMessageService().log(finding(MessageService.INFO, MESSAGE_MODULE_E, MESSAGE_MODULE_E_COLUMNS,
+						siardTable.getTablePath(), String.valueOf(metadataXMLColumnsCount), siardTable.getTableName() + ".xsd")
+						.table(siardTable.getTablePath()));
 			} else {
 				validColumn = false;
 				validTable = false;
+				getMessageService().log(finding(MessageService.ERROR, MESSAGE_MODULE_E, MESSAGE_MODULE_E_COLUMN_COUNT,
+						siardTable.getTablePath(), String.valueOf(metadataXMLColumnsCount), String.valueOf(tableXSDColumnsCount),
+						siardTable.getTableName() + ".xsd").table(siardTable.getTablePath()));
 			}
 			//Preparing validation log entry
 			String validationLogSceleton = properties.
@@ -358,28 +347,20 @@ public class ValidationEcolumnModuleImpl extends ValidationModuleImpl implements
 						   siardTable.getTableName());
 			validationLog.append(validationLogTableEntry);
 			//Number of attributes in metadata.xml
-			int metadataXMLColumnsCount = siardTable.getMetadataXMLElements().size();
+			int metadataXMLColumnsCount = siardTable.getMetadataColumnCount();
 			//Number of attributes in the according XML schemata
 			int tableXSDColumnsCount = siardTable.getTableXSDElements().size();
 			//Start the validation if the allover number is equal in metadata.xml and XML schemata	 
 			if (metadataXMLColumnsCount == tableXSDColumnsCount) {
-				//Element/Attributes of the actual SIARD table
-				List<Element> xmlElements = siardTable.getMetadataXMLElements();
 				//Elements/Attributes of the according XML schema
 				List<Element> xsdElements = siardTable.getTableXSDElements();
-				Namespace xmlNamespace = this.getXmlNamespace();
 				for ( int i = 0; i < metadataXMLColumnsCount; i++) {
-					//Actual Element of the metadata.xml									
-					Element xmlElement = xmlElements.get(i);
 					//Actual Element of the according XML schema
 					Element xsdElement = xsdElements.get(i);
-					String nullableElementDescription = properties.
-							getProperty("siard.metadata.xml.nullable.element.name");
 					String minuOccursAttributeDescription = properties.
 							getProperty("siard.table.xsd.attribute.minOccurs.name");
 					//Value of the nullable Element in metadata.xml
-					String nullable = xmlElement.getChild(nullableElementDescription, 
-							xmlNamespace).getValue();
+					String nullable = siardTable.getMetadataColumnNullable(i);
 					//Value of the minOccurs attribute in the according XML schema
 					String minOccurs = xsdElement.
 							getAttributeValue(minuOccursAttributeDescription);
@@ -388,6 +369,9 @@ public class ValidationEcolumnModuleImpl extends ValidationModuleImpl implements
 						//Validation fails becaus the minOccurs attribute must be set to zero
 						validOccurrence = false;
 						valid = false;
+						getMessageService().log(finding(MessageService.ERROR, MESSAGE_MODULE_E, MESSAGE_MODULE_E_COLUMN_OCCURRENCE,
+								siardTable.getTablePath(), siardTable.getMetadataColumnName(i), nullable,
+								siardTable.getTableName() + ".xsd").table(siardTable.getTablePath()));
 					//If the nullable Element is set to true and the minOccurs attribute is set to zero
 					} else if (nullable.equalsIgnoreCase("true") && minOccurs.equalsIgnoreCase("0")) {
 						validOccurrence = true;
@@ -401,14 +385,12 @@ public class ValidationEcolumnModuleImpl extends ValidationModuleImpl implements
 					String validationLogColumnName = properties.getProperty("attribute.occurrence.column.name");
 					String validationLogColumnNullable = properties.getProperty("attribute.occurrence.nullable");
 					String validationLogColumnMinOccurs = properties.getProperty("attribute.occurrence.minOccurs");
-					Element columnName = xmlElement.getChild(validationLogColumnName, this.getXmlNamespace());
-					Element columnNullable = xmlElement.getChild(validationLogColumnNullable, this.getXmlNamespace());
 					String columnMinOccurs = xsdElement.getAttributeValue(validationLogColumnMinOccurs);
 					String validationLogColumnEntry = MessageFormat.
 							format(validationLogColumnSceleton, 
-								   columnName.getValue(),
-								   columnNullable.getName(),
-								   columnNullable.getValue(),
+								   siardTable.getMetadataColumnName(i),
+								   validationLogColumnNullable,
+								   nullable,
 								   validationLogColumnMinOccurs,
 								   columnMinOccurs,
 								   siardTable.getTableName(),
@@ -463,8 +445,8 @@ public class ValidationEcolumnModuleImpl extends ValidationModuleImpl implements
 		List<String> xsdElementSequence = new ArrayList<String>();
 		//Iterate over the SIARD tables and verify the column types
 		for (SiardTable siardTable : siardTables) {
-			//Elements of the actual SIARD table
-			List<Element> xmlElements = siardTable.getMetadataXMLElements();
+			//Number of columns of the actual SIARD table
+			int metadataXMLColumnsCount = siardTable.getMetadataColumnCount();
 			//Elements of the according XML schema
 			List<Element> xsdElements = siardTable.getTableXSDElements();
 			//Update validation log
@@ -474,15 +456,13 @@ public class ValidationEcolumnModuleImpl extends ValidationModuleImpl implements
 							   siardTable.getTableName());
 			validationLog.append(tableName);
 			//Verify whether the number of column elements in XML and XSD are equal 
-			if (xmlElements.size() == xsdElements.size()) {
-				for ( int i = 0; i < xmlElements.size(); i++ ) {
-					Element xmlElement = xmlElements.get(i);
+			if (metadataXMLColumnsCount == xsdElements.size()) {
+				for ( int i = 0; i < metadataXMLColumnsCount; i++ ) {
 					Element xsdElement = xsdElements.get(i);
 					//Retrieve the Elements name
-					String xmlTypeElementName = properties.getProperty("siard.metadata.xml.type.element.name");
 					String xsdTypeAttributeName = properties.getProperty("siard.table.xsd.type.attribute.name");
 					//Retrieve the original column type from metadata.xml
-					String leftSide = xmlElement.getChild(xmlTypeElementName, this.getXmlNamespace()).getValue();
+					String leftSide = siardTable.getMetadataColumnType(i);
 					//Retrieve the original column type from table.xsd
 					String rightSide = xsdElement.getAttributeValue(xsdTypeAttributeName);
 					String delimiter = properties.getProperty("attribute.sequence.validator.original.type.delimiter");
@@ -505,15 +485,16 @@ public class ValidationEcolumnModuleImpl extends ValidationModuleImpl implements
 					} else {
 						validType = false;
 						valid = false;
+						getMessageService().log(finding(MessageService.ERROR, MESSAGE_MODULE_E, MESSAGE_MODULE_E_COLUMN_TYPE,
+								siardTable.getTablePath(), siardTable.getMetadataColumnName(i), leftSide, expectedType,
+								siardTable.getTableName() + ".xsd", rightSide).table(siardTable.getTablePath()));
 					}
 					//Add column info to the log entry
 					String validationLogTypeSceleton = properties.
 							getProperty("attribute.type.validator.log.column");
-					String validationLogColumnName = properties.getProperty("attribute.occurrence.column.name");
-					Element columnName = xmlElement.getChild(validationLogColumnName, this.getXmlNamespace());
 					String validationLogColumnEntry = MessageFormat.
 							format(validationLogTypeSceleton,
-								   columnName.getValue(),
+								   siardTable.getMetadataColumnName(i),
 								   leftSide,
 								   siardTable.getTableName(),
 								   expectedType,
@@ -650,7 +631,7 @@ public class ValidationEcolumnModuleImpl extends ValidationModuleImpl implements
 		StringBuilder contentPath = new StringBuilder();
 		//Initializing validation Logging
 	    StringBuilder validationLog = new StringBuilder();
-		String workDir = this.getConfigurationService().getPathToWorkDir();
+		String workDir = this.getWorkDir();
 		//Preparing the internal SIARD directory structure
 		headerPath.append(workDir);
 		headerPath.append(File.separator);
@@ -677,21 +658,19 @@ public class ValidationEcolumnModuleImpl extends ValidationModuleImpl implements
 	} 
 	/* [E.0.5] */
 	private boolean prepareXMLAccess(Properties properties, File metadataXML) 
-			throws JDOMException, IOException {
+			throws IOException, XMLStreamException {
 		boolean successfullyCommitted = false;
 		String me = "[E.0.5] prepareXMLAccess(Properties properties, File metadataXML) ";
 		//Initializing validation Logging
 	    StringBuilder validationLog = new StringBuilder();
-		InputStream inputStream = new FileInputStream(metadataXML);
-  		SAXBuilder builder = new SAXBuilder();
-        Document document = builder.build(inputStream);
-        //Assigning JDOM Document to the validation context
-        this.setMetadataXMLDocument(document);
+		//metadata.xml is read once per validation and shared by all modules
+		SiardMetadata metadata = getArchiveService().getMetadata(this.getSiardArchiveIndex().getSiardDatei());
+        //Assigning the metadata to the validation context
+        this.setMetadata(metadata);
 		String xmlPrefix = properties.getProperty("metadata.xml.prefix");
 		String xsdPrefix = properties.getProperty("table.xsd.prefix");
 		//Setting the namespaces to access metadata.xml and the different table.xsd
-		Element rootElement = document.getRootElement();
-		String namespaceURI = rootElement.getNamespaceURI();
+		String namespaceURI = metadata.getNamespaceURI();
 		Namespace xmlNamespace = Namespace.getNamespace(xmlPrefix, namespaceURI);
 		Namespace xsdNamespace = Namespace.getNamespace(xsdPrefix, namespaceURI);
 		//Assigning prefix to the validation context
@@ -704,7 +683,7 @@ public class ValidationEcolumnModuleImpl extends ValidationModuleImpl implements
 			 this.getXsdNamespace() != null &&
 			 this.getXmlPrefix() != null &&
 			 this.getXsdPrefix() != null &&
-			 this.getMetadataXMLDocument() != null && 
+			 this.getMetadata() != null && 
 			 this.getValidationProperties() != null) {
 			 //Updating the validation log
 			 String message = properties.getProperty("successfully.executed");
@@ -718,6 +697,24 @@ public class ValidationEcolumnModuleImpl extends ValidationModuleImpl implements
 		return successfullyCommitted;
 	}    
 	/* */
+	private String toEntryName(String path) {
+		String entryName = path.replace(File.separatorChar, '/');
+		while (entryName.startsWith("/")) {
+			entryName = entryName.substring(1);
+		}
+		return entryName;
+	}
+	/* */
+	private InputStream openSiardEntry(String entryName) throws IOException {
+		//Extracted files are preferred, otherwise the entry is read from the SIARD archive
+		File extractedFile = this.getSiardFiles().get(
+				new File(this.getWorkDir(), entryName).getPath());
+		if (extractedFile != null) {
+			return new FileInputStream(extractedFile);
+		}
+		return this.getSiardArchiveIndex().openEntryInputStream(entryName);
+	}
+	/* */
 	private String trimLeftSideType(String leftside, String delimiter) {
 		int i = leftside.indexOf(delimiter);
 		if (i > -1) {
@@ -735,31 +732,28 @@ public class ValidationEcolumnModuleImpl extends ValidationModuleImpl implements
     	//Initializing validation Logging
 	    StringBuilder validationLog = new StringBuilder();
 		//Initializing the access to the SIARD archive
-    	Zip64File zipfile = new Zip64File(packedSiardArchive);
-		List<FileEntry> fileEntryList = zipfile.getListFileEntries();
-		String pathToWorkDir = getConfigurationService().getPathToWorkDir();
+		SiardArchiveIndex index = getArchiveService().getArchiveIndex(packedSiardArchive);
+		this.setSiardArchiveIndex(index);
+		String pathToWorkDir = this.getWorkDir();
 		File tmpDir = new File(pathToWorkDir);
 		//Initializing the resulting Hashmap containing all files, indexed by its absolute path
 		HashMap<String, File> extractedSiardFiles = new HashMap<String, File>();
-		//Iterating over the whole SIARD archive
-		for (FileEntry fileEntry : fileEntryList) {
-			if (!fileEntry.isDirectory()) {
-				byte[] buffer = new byte[8192];
-			    EntryInputStream eis = zipfile.openEntryInputStream(fileEntry.getName());
-			    File newFile = new File(tmpDir, fileEntry.getName());
-			    File parent = newFile.getParentFile();
-			    if (!parent.exists()) {
-			    	parent.mkdirs();
-			    }
-			    FileOutputStream fos = new FileOutputStream(newFile);          
-			    for (int iRead = eis.read(buffer); iRead >= 0; iRead = eis.read(buffer)){
-			    	fos.write(buffer, 0, iRead);
-			    }
-			    extractedSiardFiles.put(newFile.getPath(), newFile);
-			    eis.close();
-			    fos.close();
+		//Module C has already extracted the whole archive into the same work folder, E only
+		//picks up metadata.xml and the table schemas; otherwise the files are read in place.
+		//The files are not written again, other modules may be reading them concurrently.
+		if (getConfigurationService().isExtractArchive()) {
+			String metadataEntry = toEntryName(properties.getProperty("siard.description"));
+			String schemaExtension = properties.getProperty("siard.metadata.xml.table.schema.extension");
+			for (SiardArchiveEntry entry : index.getEntries()) {
+				String name = entry.getName();
+				if (!entry.isDirectory() && (name.equals(metadataEntry) ||
+						(name.startsWith(SiardArchiveIndex.CONTENT) && name.endsWith(schemaExtension)))) {
+					File extractedFile = new File(tmpDir, name);
+					if (extractedFile.isFile()) {
+						extractedSiardFiles.put(extractedFile.getPath(), extractedFile);
+					}
+				}
 			}
-			
 		}
 		this.setSiardFiles(extractedSiardFiles);
 		//Checks whether the siard extraction succeeded or not
@@ -782,9 +776,13 @@ public class ValidationEcolumnModuleImpl extends ValidationModuleImpl implements
 		//Initializing validation Logging
 	    StringBuilder validationLog = new StringBuilder();
 		HashMap<String, File> siardFiles = this.getSiardFiles();
-		String pathToMetadataXML = this.getConfigurationService().getPathToWorkDir();
+		String pathToMetadataXML = this.getWorkDir();
 		pathToMetadataXML = pathToMetadataXML+properties.getProperty("siard.description");
 		File metadataXML = siardFiles.get(pathToMetadataXML);
+		if (metadataXML == null && this.getSiardArchiveIndex().isFile(toEntryName(properties.getProperty("siard.description")))) {
+			//Not extracted: the path only identifies the entry read from the SIARD archive
+			metadataXML = new File(pathToMetadataXML);
+		}
 		//Retreave the metadata.xml from the SIARD archive and writes it back to the validation context
 		this.setMetadataXML(metadataXML);
 		//Checks whether the metadata.xml could be picked up
@@ -810,38 +808,19 @@ public class ValidationEcolumnModuleImpl extends ValidationModuleImpl implements
 	    StringBuilder validationLog = new StringBuilder();
 		//Gets the tables to be validated
 		List<SiardTable> siardTables = new ArrayList<SiardTable>();
-		Document document = this.getMetadataXMLDocument();
-        Element rootElement = document.getRootElement();
-        String workingDirectory = this.getConfigurationService().getPathToWorkDir();     
-        String siardSchemasElementsName = properties.getProperty("siard.metadata.xml.schemas.name");
-        //Gets the list of <schemas> elements from metadata.xml
-        List<Element> siardSchemasElements = rootElement.getChildren(siardSchemasElementsName, 
-        		this.getXmlNamespace());
-        for (Element siardSchemasElement : siardSchemasElements) {
-           	//Gets the list of <schema> elements from metadata.xml
-        	List<Element> siardSchemaElements = siardSchemasElement.getChildren(properties.
-        			getProperty("siard.metadata.xml.schema.name"), this.getXmlNamespace());
-        	//Iterating over all <schema> elements
-        	for (Element siardSchemaElement : siardSchemaElements) {
-           		String schemaFolderName = siardSchemaElement.getChild(properties.
-        				getProperty("siard.metadata.xml.schema.folder.name"), this.getXmlNamespace()).getValue();
-        		Element siardTablesElement = siardSchemaElement.getChild(properties.
-        				getProperty("siard.metadata.xml.tables.name"), this.getXmlNamespace());
-        		List<Element> siardTableElements = siardTablesElement.getChildren(properties.
-        				getProperty("siard.metadata.xml.table.name"), this.getXmlNamespace());
+		SiardMetadata metadata = this.getMetadata();
+        String workingDirectory = this.getWorkDir();     
+        	//Iterating over all <schema> elements of metadata.xml
+        	for (int schema = 0; schema < metadata.getSchemaCount(); schema++) {
+           		String schemaFolderName = metadata.getSchemaFolder(schema);
         		//Iterating over all containing table elements
-        		for (Element siardTableElement : siardTableElements) {
-           			Element siardColumnsElement = siardTableElement.getChild(properties.
-        					getProperty("siard.metadata.xml.columns.name"), this.getXmlNamespace());
-        			List<Element> siardColumnElements = siardColumnsElement.getChildren(properties.
-        					getProperty("siard.metadata.xml.column.name"), this.getXmlNamespace());
-        			String tableName = siardTableElement.getChild(properties.
-        					getProperty("siard.metadata.xml.table.folder.name"), this.getXmlNamespace()).getValue();
+        		for (int table = metadata.getFirstTable(schema); table < metadata.getTableEnd(schema); table++) {
+        			String tableName = metadata.getTableFolder(table);
            			SiardTable siardTable = new SiardTable();
-        			siardTable.setMetadataXMLElements(siardColumnElements);
+        			siardTable.setMetadataTable(metadata, table);
         			siardTable.setTableName(tableName);
-        			String siardTableFolderName = siardTableElement.getChild(properties.
-        					getProperty("siard.metadata.xml.table.folder.name"), this.getXmlNamespace()).getValue();
+        			siardTable.setTablePath(schemaFolderName + "/" + tableName);
+        			String siardTableFolderName = metadata.getTableFolder(table);
         			StringBuilder pathToTableSchema = new StringBuilder();
         		    //Preparing access to the according XML schema file
         			pathToTableSchema.append(workingDirectory);
@@ -855,9 +834,11 @@ public class ValidationEcolumnModuleImpl extends ValidationModuleImpl implements
         		    pathToTableSchema.append(siardTableFolderName.replaceAll(" ", ""));
         		    pathToTableSchema.append(properties.getProperty("siard.table.xsd.file.extension"));
         		    //Retrieve the according XML schema
-        		    File tableSchema = this.getSiardFiles().get(pathToTableSchema.toString());
+        		    String tableSchemaEntry = toEntryName(pathToTableSchema.substring(workingDirectory.length()));
+        		    InputStream tableSchema = openSiardEntry(tableSchemaEntry);
            			SAXBuilder builder = new SAXBuilder();
            			Document tableSchemaDocument = builder.build(tableSchema);
+           			tableSchema.close();
            			Element tableSchemaRootElement = tableSchemaDocument.getRootElement();
         			Namespace namespace = tableSchemaRootElement.getNamespace();
         			//Getting the tags from XML schema to be validated
@@ -873,7 +854,6 @@ public class ValidationEcolumnModuleImpl extends ValidationModuleImpl implements
            			this.setSiardTables(siardTables);
         		}		
         	}
-        }
         if (this.getSiardTables() != null &&
         	properties != null &&
         	metadataXML != null) {
@@ -892,6 +872,20 @@ public class ValidationEcolumnModuleImpl extends ValidationModuleImpl implements
 		return successfullyCommitted;
 	}
 	//Setter and Getter methods
+	/**
+	 * @return the siardArchiveIndex
+	 */
+	public SiardArchiveIndex getSiardArchiveIndex() {
+		return siardArchiveIndex;
+	}
+
+	/**
+	 * @param siardArchiveIndex the siardArchiveIndex to set
+	 */
+	public void setSiardArchiveIndex(SiardArchiveIndex siardArchiveIndex) {
+		this.siardArchiveIndex = siardArchiveIndex;
+	}
+
 	/**
 	 * @return the configurationService
 	 */
@@ -920,6 +914,20 @@ public class ValidationEcolumnModuleImpl extends ValidationModuleImpl implements
 		this.validationProperties = validationProperties;
 	}
 
+	/**
+	 * @return the work directory of this validation
+	 */
+	public String getWorkDir() {
+		return workDir;
+	}
+
+	/**
+	 * @param workDir the work directory to set
+	 */
+	public void setWorkDir(String workDir) {
+		this.workDir = workDir;
+	}
+
 	/**
 	 * @return the siardFiles
 	 */
@@ -1116,16 +1124,16 @@ public class ValidationEcolumnModuleImpl extends ValidationModuleImpl implements
 		this.siardTables = siardTables;
 	}
 	/**
-	 * @param siardTables the siardTables to set
+	 * @return the metadata
 	 */
-	public Document getMetadataXMLDocument() {
-		return metadataXMLDocument;
+	public SiardMetadata getMetadata() {
+		return metadata;
 	}
 	/**
-	 * @param siardTables the siardTables to set
+	 * @param metadata the metadata to set
 	 */
-	public void setMetadataXMLDocument(Document metadataXMLDocument) {
-		this.metadataXMLDocument = metadataXMLDocument;
+	public void setMetadata(SiardMetadata metadata) {
+		this.metadata = metadata;
 	}
 	/**
 	 * @param siardTables the siardTables to set
@@ -0,0 +1,361 @@
+/*== SIARD-Val ==================================================================================
+The SIARD-Val application is used for validate SIARD-Files. 
+Copyright (C) 2012 Claire Rthlisberger (KOST-CECO), Martin Kaiser (KOST-CECO), XYZ (xyz)
+-----------------------------------------------------------------------------------------------
+SIARD-Val is a development of the KOST-CECO. All rights rest with the KOST-CECO. 
+This application is free software: you can redistribute it and/or modify it under the 
+terms of the GNU General Public License as published by the Free Software Foundation, 
+either version 3 of the License, or (at your option) any later version. 
+This application is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; 
+without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. 
+See the follow GNU General Public License for more details.
+You should have received a copy of the GNU General Public License along with this program; 
+if not, write to the Free Software Foundation, Inc., 51 Franklin Street, Fifth Floor, 
+Boston, MA 02110-1301 USA or see <http://www.gnu.org/licenses/>.
+==============================================================================================*/
+
+package ch.kostceco.tools.siardval.validation.module.impl;
+
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.xml.XMLConstants;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+import ch.kostceco.tools.siardval.archive.SiardArchiveEntry;
+import ch.kostceco.tools.siardval.archive.SiardArchiveIndex;
+import ch.kostceco.tools.siardval.archive.SiardMetadata;
+import ch.kostceco.tools.siardval.exception.module.ValidationFrowException;
+import ch.kostceco.tools.siardval.service.ConfigurationService;
+import ch.kostceco.tools.siardval.service.MessageService;
+import ch.kostceco.tools.siardval.validation.TableTaskExecutor;
+import ch.kostceco.tools.siardval.validation.ValidationModuleImpl;
+import ch.kostceco.tools.siardval.validation.module.ValidationFrowModule;
+
+/**
+ * Validierungsschritt F (Zeilen-Validierung)
+ * Stimmt die Anzahl Zeilen aus metadata.xml mit tableZ.xsd und tableZ.xml berein?
+ * valid --> minOccurs <= rows <= maxOccurs des Elements row in tableZ.xsd
+ * valid --> rows in metadata.xml = Anzahl row in tableZ.xml
+ * Die row-Elemente werden mit StAX gezhlt, der Speicherbedarf ist unabhngig
+ * von der Grsse der Tabelle. Die Tabellen werden parallel geprft.
+ */
+
+public class ValidationFrowModuleImpl extends ValidationModuleImpl implements ValidationFrowModule {
+
+    private static final String ROW = "row";
+
+    public ConfigurationService configurationService;
+
+
+    public ConfigurationService getConfigurationService() {
+        return configurationService;
+    }
+
+    public void setConfigurationService(ConfigurationService configurationService) {
+        this.configurationService = configurationService;
+    }
+
+
+    @Override
+    public boolean validate(File siardDatei) throws ValidationFrowException
+    {
+    	boolean valid = true;
+        try {
+            SiardArchiveIndex index = getArchiveService().getArchiveIndex(siardDatei);
+            SiardMetadata metadata = getArchiveService().getMetadata(siardDatei);
+
+            boolean extracted = getConfigurationService().isExtractArchive();
+            String pathToWorkDir = extracted ? getWorkDirService().getWorkDir(siardDatei).getPath() : null;
+            List<RowCount> rowCounts = new ArrayList<RowCount>();
+        	for (int schema = 0; schema < metadata.getSchemaCount(); schema++)
+        	{
+        		String schemaFolder = metadata.getSchemaFolder(schema);
+        		if (schemaFolder == null || !metadata.hasTables(schema))
+        		{
+        			// wird von Modul D gemeldet
+        			continue;
+        		}
+        		for (int table = metadata.getFirstTable(schema); table < metadata.getTableEnd(schema); table++)
+        		{
+        			String tableFolder = metadata.getTableFolder(table);
+        			if (tableFolder == null)
+        			{
+        				continue;
+        			}
+        			String tablePath = SiardArchiveIndex.CONTENT + schemaFolder + "/" + tableFolder + "/";
+        			RowCount rowCount = new RowCount(index, schemaFolder + "/" + tableFolder,
+        					tablePath + tableFolder + ".xml", tablePath + tableFolder + ".xsd",
+        					extracted ? pathToWorkDir : null, metadata.getTableRows(table));
+        			rowCounts.add(rowCount);
+        		}
+        	}
+
+        	try {
+        		TableTaskExecutor.execute(rowCounts, getConfigurationService().getContentThreads(), "siardval-rows");
+        	}
+        	catch (InterruptedException e)
+        	{
+        		// der Validierungsschritt wurde abgebrochen
+        		Thread.currentThread().interrupt();
+        		return false;
+        	}
+
+        	// Ausgabe in der Reihenfolge von metadata.xml
+        	for (RowCount rowCount : rowCounts)
+        	{
+        		valid = report(rowCount) && valid;
+        	}
+        }
+        catch (java.io.IOException ioe)
+        {
+        	valid = false;
+    		getMessageService().logError(
+                    getTextResourceService().getText(MESSAGE_MODULE_F) +
+                    getTextResourceService().getText(MESSAGE_DASHES) +
+                    "IOException " +
+                    ioe.getMessage());
+        }
+        catch (XMLStreamException e)
+        {
+        	valid = false;
+    		getMessageService().logError(
+                    getTextResourceService().getText(MESSAGE_MODULE_F) +
+                    getTextResourceService().getText(MESSAGE_DASHES) +
+                    "XMLStreamException " +
+                    e.getMessage());
+        }
+
+        return valid;
+    }
+
+    private boolean report(RowCount rowCount)
+    {
+    	String prefix = getTextResourceService().getText(MESSAGE_MODULE_F) + getTextResourceService().getText(MESSAGE_DASHES);
+    	if (rowCount.error != null)
+    	{
+    		getMessageService().logError(prefix + rowCount.error);
+    		return false;
+    	}
+    	boolean valid = true;
+    	getMessageService().log(finding(MessageService.INFO, MESSAGE_MODULE_F, MESSAGE_MODULE_F_ROWS,
+    			rowCount.name, String.valueOf(rowCount.count), rowCount.rows < 0 ? "-" : String.valueOf(rowCount.rows)).table(rowCount.name));
+    	if (rowCount.rows < 0)
+    	{
+    		getMessageService().log(finding(MessageService.ERROR, MESSAGE_MODULE_F, MESSAGE_MODULE_F_MISSING_ROWS, rowCount.name).table(rowCount.name));
+    		return false;
+    	}
+    	if (rowCount.count != rowCount.rows)
+    	{
+    		valid = false;
+    		getMessageService().log(finding(MessageService.ERROR, MESSAGE_MODULE_F, MESSAGE_MODULE_F_INVALID_ROWS,
+    				rowCount.name, String.valueOf(rowCount.count), String.valueOf(rowCount.rows)).table(rowCount.name));
+    	}
+    	if (!rowCount.rowDefined)
+    	{
+    		valid = false;
+    		getMessageService().log(finding(MessageService.ERROR, MESSAGE_MODULE_F, MESSAGE_MODULE_F_MISSING_ROW, rowCount.name).table(rowCount.name));
+    	}
+    	else if (rowCount.rows < rowCount.minOccurs || (rowCount.maxOccurs >= 0 && rowCount.rows > rowCount.maxOccurs))
+    	{
+    		valid = false;
+    		getMessageService().log(finding(MessageService.ERROR, MESSAGE_MODULE_F, MESSAGE_MODULE_F_INVALID_OCCURS,
+    				rowCount.name, String.valueOf(rowCount.minOccurs),
+    				rowCount.maxOccurs < 0 ? "unbounded" : String.valueOf(rowCount.maxOccurs), String.valueOf(rowCount.rows)).table(rowCount.name));
+    	}
+    	return valid;
+    }
+
+    private static XMLStreamReader createReader(InputStream in) throws XMLStreamException
+    {
+    	XMLInputFactory factory = XMLInputFactory.newInstance();
+    	factory.setProperty(XMLInputFactory.IS_NAMESPACE_AWARE, Boolean.TRUE);
+    	factory.setProperty(XMLInputFactory.IS_COALESCING, Boolean.FALSE);
+    	factory.setProperty(XMLInputFactory.SUPPORT_DTD, Boolean.FALSE);
+    	return factory.createXMLStreamReader(in);
+    }
+
+    /*
+     * Zeilenzhlung einer Tabelle. Die Ergebnisse werden gesammelt und erst
+     * nach Abschluss aller Tabellen ausgegeben.
+     */
+    private class RowCount implements TableTaskExecutor.TableTask
+    {
+    	private final SiardArchiveIndex index;
+    	private final String name;
+    	private final String xmlEntry;
+    	private final String xsdEntry;
+    	private final String pathToWorkDir;
+    	private final long rows;
+    	private final long size;
+    	private long count;
+    	private boolean rowDefined;
+    	private long minOccurs = 1;
+    	private long maxOccurs = 1;
+    	private String error;
+
+    	RowCount(SiardArchiveIndex index, String name, String xmlEntry, String xsdEntry, String pathToWorkDir, long rows)
+    	{
+    		this.index = index;
+    		this.name = name;
+    		this.xmlEntry = xmlEntry;
+    		this.xsdEntry = xsdEntry;
+    		this.pathToWorkDir = pathToWorkDir;
+    		this.rows = rows;
+    		if (pathToWorkDir != null)
+    		{
+    			this.size = new File(pathToWorkDir, xmlEntry).length();
+    		}
+    		else
+    		{
+    			SiardArchiveEntry entry = index.getEntry(xmlEntry);
+    			this.size = entry == null ? 0 : entry.getSize();
+    		}
+    	}
+
+    	@Override
+    	public long getSize()
+    	{
+    		return size;
+    	}
+
+    	@Override
+    	public String getName()
+    	{
+    		return name;
+    	}
+
+    	@Override
+    	public void run()
+    	{
+    		try {
+    			readOccurs();
+    			countRows();
+    		}
+    		catch (IOException e)
+    		{
+    			error = "IOException " + e.getMessage();
+    		}
+    		catch (XMLStreamException e)
+    		{
+    			error = "XMLStreamException " + e.getMessage();
+    		}
+    		catch (RuntimeException e)
+    		{
+    			// z.B. NumberFormatException bei einer fehlerhaften Tabelle; als
+    			// Befund von Modul F melden, TableTask.run darf nichts werfen
+    			error = e.getClass().getSimpleName() + " " + e.getMessage();
+    		}
+    	}
+
+    	private InputStream open(String entry) throws IOException
+    	{
+    		if (pathToWorkDir != null)
+    		{
+    			return new BufferedInputStream(new FileInputStream(new File(pathToWorkDir, entry)), 64 * 1024);
+    		}
+    		return new BufferedInputStream(index.openEntryInputStream(entry), 64 * 1024);
+    	}
+
+    	/*
+    	 * Zhlt die row-Elemente unterhalb des Wurzelelements table.
+    	 */
+    	private void countRows() throws IOException, XMLStreamException
+    	{
+    		InputStream in = open(xmlEntry);
+    		try {
+    			XMLStreamReader reader = createReader(in);
+    			int depth = 0;
+    			while (reader.hasNext())
+    			{
+    				int event = reader.next();
+    				if (event == XMLStreamConstants.START_ELEMENT)
+    				{
+    					depth++;
+    					if (depth == 2 && ROW.equals(reader.getLocalName()))
+    					{
+    						count++;
+    					}
+    				}
+    				else if (event == XMLStreamConstants.END_ELEMENT)
+    				{
+    					depth--;
+    				}
+    			}
+    			reader.close();
+    		}
+    		finally
+    		{
+    			in.close();
+    		}
+    	}
+
+    	/*
+    	 * Liest minOccurs und maxOccurs von
+    	 * xs:schema/xs:element/xs:complexType/xs:sequence/xs:element[@name='row'].
+    	 */
+    	private void readOccurs() throws IOException, XMLStreamException
+    	{
+    		InputStream in = open(xsdEntry);
+    		try {
+    			XMLStreamReader reader = createReader(in);
+    			int depth = 0;
+    			while (reader.hasNext() && !rowDefined)
+    			{
+    				int event = reader.next();
+    				if (event == XMLStreamConstants.START_ELEMENT)
+    				{
+    					depth++;
+    					if (depth == 5 && XMLConstants.W3C_XML_SCHEMA_NS_URI.equals(reader.getNamespaceURI())
+    							&& "element".equals(reader.getLocalName())
+    							&& ROW.equals(reader.getAttributeValue(null, "name")))
+    					{
+    						rowDefined = true;
+    						minOccurs = parseOccurs(reader.getAttributeValue(null, "minOccurs"));
+    						maxOccurs = parseOccurs(reader.getAttributeValue(null, "maxOccurs"));
+    					}
+    				}
+    				else if (event == XMLStreamConstants.END_ELEMENT)
+    				{
+    					depth--;
+    				}
+    			}
+    			reader.close();
+    		}
+    		finally
+    		{
+    			in.close();
+    		}
+    	}
+
+    	/*
+    	 * Fehlt das Attribut, gilt 1; "unbounded" wird als -1 zurckgegeben.
+    	 */
+    	private long parseOccurs(String occurs) throws XMLStreamException
+    	{
+    		if (occurs == null)
+    		{
+    			return 1;
+    		}
+    		if ("unbounded".equals(occurs.trim()))
+    		{
+    			return -1;
+    		}
+    		try {
+    			return Long.parseLong(occurs.trim());
+    		}
+    		catch (NumberFormatException e)
+    		{
+    			throw new XMLStreamException(xsdEntry + ": " + occurs);
+    		}
+    	}
+    }
+}
@@ -0,0 +1,183 @@
+/*== SIARD-Val ==================================================================================
+The SIARD-Val application is used for validate SIARD-Files. 
+Copyright (C) 2012 Claire Rthlisberger (KOST-CECO), Martin Kaiser (KOST-CECO), XYZ (xyz)
+-----------------------------------------------------------------------------------------------
+SIARD-Val is a development of the KOST-CECO. All rights rest with the KOST-CECO. 
+This application is free software: you can redistribute it and/or modify it under the 
+terms of the GNU General Public License as published by the Free Software Foundation, 
+either version 3 of the License, or (at your option) any later version. 
+This application is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; 
+without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. 
+See the follow GNU General Public License for more details.
+You should have received a copy of the GNU General Public License along with this program; 
+if not, write to the Free Software Foundation, Inc., 51 Franklin Street, Fifth Floor, 
+Boston, MA 02110-1301 USA or see <http://www.gnu.org/licenses/>.
+==============================================================================================*/
+
+package ch.kostceco.tools.siardval.validation.module.impl;
+
+import java.io.File;
+import java.io.InputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Locale;
+
+import javax.xml.stream.XMLStreamException;
+
+import ch.kostceco.tools.siardval.archive.PipelinedDigest;
+import ch.kostceco.tools.siardval.archive.SiardArchiveEntry;
+import ch.kostceco.tools.siardval.archive.SiardArchiveIndex;
+import ch.kostceco.tools.siardval.archive.SiardMetadata;
+import ch.kostceco.tools.siardval.exception.module.ValidationGchecksumException;
+import ch.kostceco.tools.siardval.metrics.Measurement;
+import ch.kostceco.tools.siardval.metrics.Metrics;
+import ch.kostceco.tools.siardval.service.MessageService;
+import ch.kostceco.tools.siardval.validation.ValidationModuleImpl;
+import ch.kostceco.tools.siardval.validation.module.ValidationGchecksumModule;
+
+/**
+ * Validierungsschritt G (Prfsummen-Validierung)
+ * Stimmt die Prfsumme in (messageDigest) mit jener ber den Ordner content berein?
+ * valid --> Prfalorithmus = MD5 	oder	Prfalorithmus = SHA-1
+ * Die Prfsumme wird ber den Bereich der SIARD-Datei berechnet, der den
+ * Ordner content enthlt: vom lokalen Header des ersten bis zum Ende des
+ * letzten Eintrags unter content/. Der Bereich wird in einem Durchgang
+ * sequentiell gelesen; Lesen und Hashen laufen in getrennten Threads.
+ */
+
+public class ValidationGchecksumModuleImpl extends ValidationModuleImpl implements ValidationGchecksumModule {
+
+    private static final String MD5 = "MD5";
+
+    private static final String SHA1 = "SHA1";
+
+
+    @Override
+    public boolean validate(File siardDatei) throws ValidationGchecksumException
+    {
+        String prefix = getTextResourceService().getText(MESSAGE_MODULE_G) +
+                getTextResourceService().getText(MESSAGE_DASHES);
+        try {
+            SiardArchiveIndex index = getArchiveService().getArchiveIndex(siardDatei);
+            SiardMetadata metadata = getArchiveService().getMetadata(siardDatei);
+            String messageDigest = metadata.getMessageDigest() == null ? null : metadata.getMessageDigest().trim();
+            if (messageDigest == null || messageDigest.length() == 0)
+            {
+                // messageDigest ist in metadata.xml optional
+                getMessageService().log(finding(MessageService.INFO, MESSAGE_MODULE_G, MESSAGE_MODULE_G_MISSING_DIGEST));
+                return true;
+            }
+            String algorithm = getAlgorithm(messageDigest);
+            if (algorithm == null)
+            {
+                getMessageService().log(finding(MessageService.ERROR, MESSAGE_MODULE_G, MESSAGE_MODULE_G_INVALID_FORMAT, messageDigest));
+                return false;
+            }
+            String expected = messageDigest.substring(algorithm.length()).toLowerCase(Locale.ENGLISH);
+            MessageDigest digest = MessageDigest.getInstance(MD5.equals(algorithm) ? "MD5" : "SHA-1");
+            if (expected.length() != digest.getDigestLength() * 2 || !expected.matches("[0-9a-f]*"))
+            {
+                getMessageService().log(finding(MessageService.ERROR, MESSAGE_MODULE_G, MESSAGE_MODULE_G_INVALID_FORMAT, messageDigest));
+                return false;
+            }
+
+            // Bereich der content-Eintrge in der SIARD-Datei
+            long start = Long.MAX_VALUE;
+            long end = 0;
+            for (SiardArchiveEntry entry : index.getEntries())
+            {
+                if (entry.getName().startsWith(SiardArchiveIndex.CONTENT))
+                {
+                    start = Math.min(start, entry.getOffset());
+                    end = Math.max(end, index.getEntryEnd(entry.getName()));
+                }
+            }
+            if (start > end)
+            {
+                start = 0;
+                end = 0;
+            }
+
+            long begin = System.nanoTime();
+            Measurement checksum = Metrics.start(Metrics.CHECKSUM);
+            checksum.setOutcome(Measurement.ERROR);
+            InputStream in = index.openRangeInputStream(start, end - start);
+            long bytes;
+            String actual;
+            try {
+                bytes = new PipelinedDigest().update(in, digest);
+                actual = toHex(digest.digest());
+                checksum.setOutcome(actual.equals(expected) ? Measurement.VALID : Measurement.INVALID);
+            }
+            finally
+            {
+                in.close();
+                checksum.stop();
+            }
+            long nanos = Math.max(1, System.nanoTime() - begin);
+            double megabytes = bytes / (1024.0 * 1024.0);
+            getMessageService().log(finding(MessageService.INFO, MESSAGE_MODULE_G, MESSAGE_MODULE_G_THROUGHPUT,
+                    String.format(Locale.ENGLISH, "%.1f", megabytes),
+                    String.format(Locale.ENGLISH, "%.2f", nanos / 1e9),
+                    String.format(Locale.ENGLISH, "%.1f", megabytes / (nanos / 1e9))));
+
+            if (!actual.equals(expected))
+            {
+                getMessageService().log(finding(MessageService.ERROR, MESSAGE_MODULE_G, MESSAGE_MODULE_G_INVALID_DIGEST,
+                        algorithm, actual, expected));
+                return false;
+            }
+            return true;
+        }
+        catch (java.io.IOException ioe)
+        {
+            getMessageService().logError(prefix + "IOException " + ioe.getMessage());
+        }
+        catch (XMLStreamException e)
+        {
+            getMessageService().logError(prefix + "XMLStreamException " + e.getMessage());
+        }
+        catch (NoSuchAlgorithmException e)
+        {
+            getMessageService().logError(prefix + "NoSuchAlgorithmException " + e.getMessage());
+        }
+        catch (InterruptedException e)
+        {
+            // der Validierungsschritt wurde abgebrochen
+            Thread.currentThread().interrupt();
+        }
+        return false;
+    }
+
+    /*
+     * messageDigest beginnt mit MD5 oder SHA1 (auch SHA-1), danach folgt die
+     * Prfsumme hexadezimal.
+     */
+    private String getAlgorithm(String messageDigest)
+    {
+        String upper = messageDigest.toUpperCase(Locale.ENGLISH);
+        if (upper.startsWith(MD5))
+        {
+            return MD5;
+        }
+        if (upper.startsWith(SHA1))
+        {
+            return SHA1;
+        }
+        if (upper.startsWith("SHA-1"))
+        {
+            return "SHA-1";
+        }
+        return null;
+    }
+
+    private static String toHex(byte[] bytes)
+    {
+        StringBuilder hex = new StringBuilder(bytes.length * 2);
+        for (byte b : bytes)
+        {
+            hex.append(Character.forDigit((b >> 4) & 0xf, 16)).append(Character.forDigit(b & 0xf, 16));
+        }
+        return hex.toString();
+    }
+}
@@ -17,28 +17,30 @@ Boston, MA 02110-1301 USA or see <http://www.gnu.org/licenses/>.
 package ch.kostceco.tools.siardval.validation.module.impl;
 
 import java.io.File;
-import java.io.FileInputStream;
 import java.io.IOException;
-import java.io.InputStream;
+import java.util.ArrayList;
 import java.util.List;
 
+import javax.xml.stream.XMLStreamException;
 import javax.xml.transform.Source;
 import javax.xml.transform.stream.StreamSource;
 import javax.xml.validation.Schema;
-import javax.xml.validation.SchemaFactory;
 import javax.xml.validation.Validator;
 
-import org.jdom2.Document;
-import org.jdom2.Element;
-import org.jdom2.JDOMException;
-import org.jdom2.Namespace;
-import org.jdom2.input.SAXBuilder;
 import org.xml.sax.ErrorHandler;
 import org.xml.sax.SAXException;
 import org.xml.sax.SAXParseException;
 
+import ch.kostceco.tools.siardval.archive.ArchiveResourceResolver;
+import ch.kostceco.tools.siardval.archive.SiardArchiveEntry;
+import ch.kostceco.tools.siardval.archive.SiardArchiveIndex;
+import ch.kostceco.tools.siardval.archive.SiardMetadata;
 import ch.kostceco.tools.siardval.exception.module.ValidationHcontentException;
+import ch.kostceco.tools.siardval.report.Finding;
 import ch.kostceco.tools.siardval.service.ConfigurationService;
+import ch.kostceco.tools.siardval.service.MessageService;
+import ch.kostceco.tools.siardval.service.SchemaCacheService;
+import ch.kostceco.tools.siardval.validation.TableTaskExecutor;
 import ch.kostceco.tools.siardval.validation.ValidationModuleImpl;
 import ch.kostceco.tools.siardval.validation.module.ValidationHcontentModule;
 
@@ -46,6 +48,8 @@ import ch.kostceco.tools.siardval.validation.module.ValidationHcontentModule;
  * Validierungsschritt H (Content-Validierung)
  * Sind die XML-Dateien im content valid zu ihrer Schema-Definition (XSD-Dateien)? 
  * valid --> tableZ.xml	valid zu	tableZ.xsd
+ * Die Tabellen werden parallel validiert; die Meldungen werden pro Tabelle
+ * gesammelt und in der Reihenfolge von metadata.xml ausgegeben.
  * @author Ec Christian Eugster
  */
 
@@ -53,6 +57,8 @@ public class ValidationHcontentModuleImpl extends ValidationModuleImpl implement
 
     public ConfigurationService configurationService;
     
+    public SchemaCacheService schemaCacheService;
+    
 
     public ConfigurationService getConfigurationService() {
         return configurationService;
@@ -62,48 +68,62 @@ public class ValidationHcontentModuleImpl extends ValidationModuleImpl implement
         this.configurationService = configurationService;
     }
 
+    public SchemaCacheService getSchemaCacheService() {
+        return schemaCacheService;
+    }
+
+    public void setSchemaCacheService(SchemaCacheService schemaCacheService) {
+        this.schemaCacheService = schemaCacheService;
+    }
+
 
     @Override
     public boolean validate(File siardDatei) throws ValidationHcontentException 
     {
     	boolean valid = true;
         try {
-        	/*
-        	 * Extract the metadata.xml from the temporare work folder and build a jdom document
-        	 */
-            String pathToWorkDir = getConfigurationService().getPathToWorkDir();
-            File metadataXml = new File(new StringBuilder(pathToWorkDir).append(File.separator).append("header").append(File.separator).append("metadata.xml").toString());
-            InputStream fin = new FileInputStream(metadataXml);
-            SAXBuilder builder = new SAXBuilder();
-            Document document = builder.build(fin);
-            fin.close();
+            SiardArchiveIndex index = getArchiveService().getArchiveIndex(siardDatei);
+            SiardMetadata metadata = getArchiveService().getMetadata(siardDatei);
 
             /*
-             * read the document and for each schema and table entry verify existence in temporary extracted structure
+             * for each schema and table in metadata.xml verify existence in the entry list of the archive.
+             * The table files are read from the work folder if the archive has been extracted, otherwise
+             * directly from the archive.
              */
-        	Namespace ns = Namespace.getNamespace("http://www.bar.admin.ch/xmlns/siard/1.0/metadata.xsd");
-        	// select schema elements and loop
-        	List<Element> schemas = document.getRootElement().getChild("schemas", ns).getChildren("schema", ns);
-        	for (Element schema : schemas)
+            boolean extracted = getConfigurationService().isExtractArchive();
+            String pathToWorkDir = extracted ? getWorkDirService().getWorkDir(siardDatei).getPath() : null;
+            ArchiveResourceResolver resolver = new ArchiveResourceResolver(index);
+            List<TableValidation> tableValidations = new ArrayList<TableValidation>();
+        	for (int schema = 0; schema < metadata.getSchemaCount(); schema++)
         	{
-        		Element schemaFolder = schema.getChild("folder", ns);
-                File schemaPath = new File(new StringBuilder(pathToWorkDir).append(File.separator).append("content").append(File.separator).append(schemaFolder.getText()).toString());
-        		if (schemaPath.isDirectory())
+                String schemaPath = new StringBuilder(SiardArchiveIndex.CONTENT).append(metadata.getSchemaFolder(schema)).append("/").toString();
+        		if (index.isDirectory(schemaPath))
         		{
-        			List<Element> tables = schema.getChild("tables", ns).getChildren("table", ns);
-        			for (Element table : tables)
+        			for (int table = metadata.getFirstTable(schema); table < metadata.getTableEnd(schema); table++)
         			{
-        				Element tableFolder = table.getChild("folder", ns);
-                		File tablePath = new File(new StringBuilder(schemaPath.getAbsolutePath()).append(File.separator).append(tableFolder.getText()).toString());
-                		if (tablePath.isDirectory())
+        				String tableFolder = metadata.getTableFolder(table);
+                		String tablePath = new StringBuilder(schemaPath).append(tableFolder).append("/").toString();
+                		if (index.isDirectory(tablePath))
                 		{
-                			File tableXml = new File(new StringBuilder(tablePath.getAbsolutePath()).append(File.separator).append(tableFolder.getText() +".xml").toString());
-                			File tableXsd = new File(new StringBuilder(tablePath.getAbsolutePath()).append(File.separator).append(tableFolder.getText() +".xsd").toString());
-                			valid = valid && validate(tableXml, tableXsd);
+                			String tableXml = tablePath + tableFolder + ".xml";
+                			String tableXsd = tablePath + tableFolder + ".xsd";
+                			if (extracted)
+                			{
+                				File xmlFile = new File(pathToWorkDir, tableXml);
+                				tableValidations.add(new TableValidation(xmlFile, new File(pathToWorkDir, tableXsd), 
+                						xmlFile.length()));
+                			}
+                			else
+                			{
+                				SiardArchiveEntry entry = index.getEntry(tableXml);
+                				tableValidations.add(new TableValidation(resolver, tableXml, tableXsd, 
+                						entry == null ? 0 : entry.getSize()));
+                			}
                 		}
         			}
         		}
         	}
+        	valid = validateTables(tableValidations);
         } 
         catch (java.io.IOException ioe) 
         {
@@ -114,52 +134,181 @@ public class ValidationHcontentModuleImpl extends ValidationModuleImpl implement
                     "IOException " + 
                     ioe.getMessage());                
         } 
-        catch (JDOMException e) 
+        catch (XMLStreamException e) 
         {
         	valid = false;
            getMessageService().logError(
                     getTextResourceService().getText(MESSAGE_MODULE_H) + 
                     getTextResourceService().getText(MESSAGE_DASHES) + 
-                    "JDOMException " + 
-                    e.getMessage());                
-        }
-        catch (SAXException e) 
-        {
-        	valid = false;
-        	getMessageService().logError(
-                    getTextResourceService().getText(MESSAGE_MODULE_H) + 
-                    getTextResourceService().getText(MESSAGE_DASHES) + 
-                    "SAXException " + 
+                    "XMLStreamException " + 
                     e.getMessage());                
         }
         
         return valid;
     }
 
-    private boolean validate(File xmlFile, File schemaLocation) throws SAXException, IOException
+    /*
+     * Validiert die Tabellen auf einem Thread-Pool; ausgegeben wird in der
+     * Reihenfolge von metadata.xml.
+     */
+    private boolean validateTables(List<TableValidation> tableValidations)
+    {
+    	try {
+    		TableTaskExecutor.execute(tableValidations, getConfigurationService().getContentThreads(), "siardval-content");
+    	} 
+    	catch (InterruptedException e) 
+    	{
+    		// der Validierungsschritt wurde abgebrochen
+    		Thread.currentThread().interrupt();
+    		return false;
+    	}
+
+    	boolean valid = true;
+    	for (TableValidation tableValidation : tableValidations)
+    	{
+    		for (Finding message : tableValidation.messages)
+    		{
+    			getMessageService().log(message);
+    		}
+    		valid = valid && tableValidation.valid;
+    	}
+    	return valid;
+    }
+
+    private boolean validate(File xmlFile, File schemaLocation, ValidationErrorHandler errorHandler) throws SAXException, IOException
     {
-		SchemaFactory factory = SchemaFactory.newInstance("http://www.w3.org/2001/XMLSchema");
-		Schema schema = factory.newSchema(schemaLocation);
+		Schema schema = getSchemaCacheService().getSchema(new StreamSource(schemaLocation), null);
 		Validator validator = schema.newValidator();
-		ValidationErrorHandler errorHandler = new ValidationErrorHandler(xmlFile, schemaLocation);
 		validator.setErrorHandler(errorHandler);
 		Source source = new StreamSource(xmlFile);
 		validator.validate(source);
 		return errorHandler.isValid();
     }
 
+    private boolean validate(ArchiveResourceResolver resolver, String xmlEntry, String schemaEntry, ValidationErrorHandler errorHandler) throws SAXException, IOException
+    {
+		Schema schema = getSchemaCacheService().getSchema(resolver.getSource(schemaEntry), resolver);
+		Validator validator = schema.newValidator();
+		validator.setResourceResolver(resolver);
+		validator.setErrorHandler(errorHandler);
+		validator.validate(resolver.getSource(xmlEntry));
+		return errorHandler.isValid();
+    }
+
+    /*
+     * Validierung einer Tabelle. Die Meldungen werden gesammelt, damit sie
+     * unabhngig von der Ausfhrungsreihenfolge ausgegeben werden knnen;
+     * in den Findings-Report gehen sie sofort.
+     */
+    private class TableValidation implements TableTaskExecutor.TableTask
+    {
+    	private final ArchiveResourceResolver resolver;
+    	private final String xmlEntry;
+    	private final String schemaEntry;
+    	private final File xmlFile;
+    	private final File schemaLocation;
+    	private final long size;
+    	private final List<Finding> messages = new ArrayList<Finding>();
+    	private boolean valid;
+
+    	TableValidation(ArchiveResourceResolver resolver, String xmlEntry, String schemaEntry, long size)
+    	{
+    		this.resolver = resolver;
+    		this.xmlEntry = xmlEntry;
+    		this.schemaEntry = schemaEntry;
+    		this.xmlFile = null;
+    		this.schemaLocation = null;
+    		this.size = size;
+    	}
+
+    	TableValidation(File xmlFile, File schemaLocation, long size)
+    	{
+    		this.resolver = null;
+    		this.xmlEntry = null;
+    		this.schemaEntry = null;
+    		this.xmlFile = xmlFile;
+    		this.schemaLocation = schemaLocation;
+    		this.size = size;
+    	}
+
+    	@Override
+    	public long getSize()
+    	{
+    		return size;
+    	}
+
+    	@Override
+    	public String getName()
+    	{
+    		File file = xmlFile != null ? xmlFile : new File(xmlEntry);
+    		return file.getParentFile().getParentFile().getName() + "/" + file.getParentFile().getName();
+    	}
+
+    	@Override
+    	public void run()
+    	{
+    		try {
+    			if (resolver == null)
+    			{
+    				valid = validate(xmlFile, schemaLocation, 
+    						new ValidationErrorHandler(xmlFile.getName(), schemaLocation.getName(), xmlFile.getPath(), getName(), messages));
+    			}
+    			else
+    			{
+    				valid = validate(resolver, xmlEntry, schemaEntry, 
+    						new ValidationErrorHandler(new File(xmlEntry).getName(), new File(schemaEntry).getName(), xmlEntry, getName(), messages));
+    			}
+    		}
+    		catch (IOException e)
+    		{
+    			valid = false;
+    			messages.add(new Finding(MessageService.ERROR, getTextResourceService().getText(MESSAGE_MODULE_H) + 
+    					getTextResourceService().getText(MESSAGE_DASHES) + 
+    					"IOException " + 
+    					e.getMessage()).table(getName()));
+    		}
+    		catch (SAXException e)
+    		{
+    			valid = false;
+    			messages.add(new Finding(MessageService.ERROR, getTextResourceService().getText(MESSAGE_MODULE_H) + 
+    					getTextResourceService().getText(MESSAGE_DASHES) + 
+    					"SAXException " + 
+    					e.getMessage()).table(getName()));
+    		}
+    		catch (RuntimeException e)
+    		{
+    			// als Befund von Modul H fr diese Tabelle melden,
+    			// TableTask.run darf nichts werfen
+    			valid = false;
+    			messages.add(new Finding(MessageService.ERROR, getTextResourceService().getText(MESSAGE_MODULE_H) + 
+    					getTextResourceService().getText(MESSAGE_DASHES) + 
+    					e.getClass().getSimpleName() + " " + 
+    					e.getMessage()).table(getName()));
+    		}
+    	}
+    }
+
     private class ValidationErrorHandler implements ErrorHandler 
     {
     	private boolean valid = true;
     	
-    	private File xmlFile;
+    	private String xmlFile;
+    	
+    	private String schemaLocation;
+    	
+    	private String entry;
     	
-    	private File schemaLocation;
+    	private String table;
     	
-    	public ValidationErrorHandler(File xmlFile, File schemaLocation)
+    	private List<Finding> messages;
+    	
+    	public ValidationErrorHandler(String xmlFile, String schemaLocation, String entry, String table, List<Finding> messages)
     	{
     		this.xmlFile = xmlFile;
     		this.schemaLocation = schemaLocation;
+    		this.entry = entry;
+    		this.table = table;
+    		this.messages = messages;
     	}
     	
     	@Override
@@ -194,10 +343,10 @@ public class ValidationHcontentModuleImpl extends ValidationModuleImpl implement
     	
     	private void logError(SAXParseException e)
     	{
-            getMessageService().logError(
-                    getTextResourceService().getText(MESSAGE_MODULE_H) + 
-                    getTextResourceService().getText(MESSAGE_DASHES) + 
-                    getTextResourceService().getText(MESSAGE_MODULE_H_INVALID_ERROR, xmlFile.getName(), schemaLocation.getName(), e.getLineNumber(), e.getColumnNumber(), e.getLocalizedMessage()));
+            Finding finding = finding(MessageService.ERROR, MESSAGE_MODULE_H, MESSAGE_MODULE_H_INVALID_ERROR, xmlFile, schemaLocation, e.getLineNumber(), e.getColumnNumber(), e.getLocalizedMessage())
+                    .entry(entry).table(table).position(e.getLineNumber(), e.getColumnNumber());
+            getMessageService().publish(finding);
+            messages.add(finding);
         }
     	
     	public boolean isValid()
@@ -20,6 +20,7 @@ import java.io.File;
 
 import ch.kostceco.tools.siardval.exception.module.ValidationIrecognitionException;
 //import ch.kostceco.tools.siardval.util.Util;
+import ch.kostceco.tools.siardval.service.MessageService;
 import ch.kostceco.tools.siardval.validation.ValidationModuleImpl;
 import ch.kostceco.tools.siardval.validation.module.ValidationIrecognitionModule;
 
@@ -40,10 +41,7 @@ public class ValidationIrecognitionModuleImpl extends ValidationModuleImpl imple
     	 * Validierung ob die Extension .siard lautet
     	 */
         if (! siardDatei.getAbsolutePath().toLowerCase().endsWith(".siard")){
-        	getMessageService().logError(
-                    getTextResourceService().getText(MESSAGE_MODULE_I) + 
-                    getTextResourceService().getText(MESSAGE_DASHES) + 
-                    getTextResourceService().getText(MESSAGE_MODULE_I_NOTALLOWEDEXT));
+        	getMessageService().log(finding(MessageService.ERROR, MESSAGE_MODULE_I, MESSAGE_MODULE_I_NOTALLOWEDEXT));
             // Die SIARD-Datei wurde nicht als solche erkannt, weil sie keine .siard Extension hat.
             return false;
         } 
@@ -17,29 +17,16 @@ Boston, MA 02110-1301 USA or see <http://www.gnu.org/licenses/>.
 package ch.kostceco.tools.siardval.validation.module.impl;
 
 import java.io.File;
-import java.io.FileInputStream;
-import java.io.InputStream;
-import java.util.Iterator;
-
-import javax.xml.XMLConstants;
-import javax.xml.namespace.NamespaceContext;
-import javax.xml.parsers.DocumentBuilder;
-import javax.xml.parsers.DocumentBuilderFactory;
-import javax.xml.parsers.ParserConfigurationException;
-import javax.xml.xpath.XPath;
-import javax.xml.xpath.XPathConstants;
-import javax.xml.xpath.XPathExpression;
-import javax.xml.xpath.XPathExpressionException;
-import javax.xml.xpath.XPathFactory;
-
-import org.jdom2.Text;
-import org.w3c.dom.Document;
-import org.w3c.dom.Node;
-import org.xml.sax.InputSource;
-import org.xml.sax.SAXException;
+import java.util.ArrayList;
+import java.util.List;
 
+import javax.xml.stream.XMLStreamException;
+
+import ch.kostceco.tools.siardval.archive.SiardArchiveIndex;
+import ch.kostceco.tools.siardval.archive.SiardMetadata;
 import ch.kostceco.tools.siardval.exception.module.ValidationJsurplusFilesException;
 import ch.kostceco.tools.siardval.service.ConfigurationService;
+import ch.kostceco.tools.siardval.service.MessageService;
 import ch.kostceco.tools.siardval.validation.ValidationModuleImpl;
 import ch.kostceco.tools.siardval.validation.module.ValidationJsurplusFilesModule;
 
@@ -70,177 +57,89 @@ public class ValidationJsurplusFilesModuleImpl extends ValidationModuleImpl impl
     {
     	boolean valid = true;
         try {
-            String pathToWorkDir = getConfigurationService().getPathToWorkDir();
-            File metadataXml = new File(new StringBuilder(pathToWorkDir).append(File.separator).append("header").append(File.separator).append("metadata.xml").toString());
-            InputStream fin = new FileInputStream(metadataXml);
-            InputSource source = new InputSource(fin);
-            DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
-            factory.setNamespaceAware(true);
-            DocumentBuilder builder = factory.newDocumentBuilder();
-            Document doc = builder.parse(source);
-            fin.close();
-
-            XPathFactory xPathFactory = XPathFactory.newInstance();
-    		XPath xPath = xPathFactory.newXPath();
-    		xPath.setNamespaceContext(new SiardNamespaceContext());
-
-    		File content = new File(new StringBuilder(pathToWorkDir).append(File.separator).append("content").toString());
-        	File[] schemas = content.listFiles();
-        	for (File schema : schemas)
+            SiardArchiveIndex index = getArchiveService().getArchiveIndex(siardDatei);
+            SiardMetadata metadata = getArchiveService().getMetadata(siardDatei);
+
+    		// die Eintrge im content-Ordner werden dem Verzeichnisbaum der SIARD-Datei entnommen
+            // und in einem Durchgang mit den Ordnern aus metadata.xml abgeglichen
+            List<String> surplus = new ArrayList<String>();
+        	for (String schema : index.getChildren(SiardArchiveIndex.CONTENT))
         	{
-        		valid = validateSchema(schema, xPath, doc);
+        		reconcileSchema(index, SiardArchiveIndex.CONTENT + schema, metadata, surplus);
         	}
+
+        	// alle berzhligen Eintrge werden gemeldet, nicht nur der letzte
+        	for (String path : surplus)
+        	{
+        		logSurplus(index, path);
+        	}
+        	valid = surplus.isEmpty();
         } 
         catch (java.io.IOException e) 
         {
         	valid = false;
     		getMessageService().logError(
-                    getTextResourceService().getText(MESSAGE_MODULE_D) + 
+                    getTextResourceService().getText(MESSAGE_MODULE_J) + 
                     getTextResourceService().getText(MESSAGE_DASHES) + 
                     "IOException " + 
                     e.getMessage());                
         } 
-        catch (XPathExpressionException e) 
-        {
-        	valid = false;
-    		getMessageService().logError(
-                    getTextResourceService().getText(MESSAGE_MODULE_D) + 
-                    getTextResourceService().getText(MESSAGE_DASHES) + 
-                    "XPathExpressionException " + 
-                    e.getMessage());                
-		} 
-        catch (ParserConfigurationException e) 
-        {
-        	valid = false;
-    		getMessageService().logError(
-                    getTextResourceService().getText(MESSAGE_MODULE_D) + 
-                    getTextResourceService().getText(MESSAGE_DASHES) + 
-                    "ParserConfigurationException " + 
-                    e.getMessage());                
-		} 
-        catch (SAXException e) 
+        catch (XMLStreamException e) 
         {
         	valid = false;
     		getMessageService().logError(
-                    getTextResourceService().getText(MESSAGE_MODULE_D) + 
+                    getTextResourceService().getText(MESSAGE_MODULE_J) + 
                     getTextResourceService().getText(MESSAGE_DASHES) + 
-                    "SAXException " + 
+                    "XMLStreamException " + 
                     e.getMessage());                
 		} 
 
         return valid;
     }
 
-    private boolean validateSchema(File schema, XPath xPath, Document doc) throws XPathExpressionException
+    /**
+     * Ein Schemaordner ist referenziert, wenn ein Schema in metadata.xml ihn als folder hat.
+     * Die Eintrge eines nicht referenzierten Schemaordners werden nicht einzeln gemeldet.
+     */
+    private void reconcileSchema(SiardArchiveIndex index, String schemaPath, SiardMetadata metadata,
+    		List<String> surplus)
     {
-    	boolean valid = true;
-		XPathExpression expression = xPath.compile("//siard:schema[siard:folder='" + schema.getName() + "']/siard:folder/text()");
-		Node node = (Node) expression.evaluate(doc, XPathConstants.NODE);
-		if (node == null)
-		{
-        	valid = false;
-        	File content = new File(schema.getParent());
-        	if (schema.isFile())
-        	{
-        		getMessageService().logError(
-                        getTextResourceService().getText(MESSAGE_MODULE_J) + 
-                        getTextResourceService().getText(MESSAGE_DASHES) + 
-                        content.getName() + " "  + getTextResourceService().getText(MESSAGE_MODULE_J_INVALID_FILE) + " " + schema.getName() + ".");
-        	}
-        	else if (schema.isDirectory())
-        	{
-        		getMessageService().logError(
-                        getTextResourceService().getText(MESSAGE_MODULE_J) + 
-                        getTextResourceService().getText(MESSAGE_DASHES) + 
-                        content.getName() + " " + getTextResourceService().getText(MESSAGE_MODULE_J_INVALID_FOLDER) + " " + schema.getName() + ".");
-        	}
-        	else
-        	{
-        		getMessageService().logError(
-                        getTextResourceService().getText(MESSAGE_MODULE_J) + 
-                        getTextResourceService().getText(MESSAGE_DASHES) + 
-                        content.getName()+ " " + getTextResourceService().getText(MESSAGE_MODULE_J_INVALID_ENTRY) + " " + schema.getName() + ".");
-        	}
-		}
-		if (valid)
+    	String schemaFolder = new File(schemaPath).getName();
+		if (!index.isDirectory(schemaPath) || metadata.getSchema(schemaFolder) < 0)
 		{
-			File[] tables = schema.listFiles();
-        	for (File table : tables)
-        	{
-        		valid = validateTable(table, xPath, doc);
-        	}
+			surplus.add(schemaPath);
+			return;
 		}
-		return valid;
+    	for (String table : index.getChildren(schemaPath))
+    	{
+    		String tablePath = schemaPath + table;
+    		// der Tabellenordner muss zu einer Tabelle dieses Schemas gehren
+    		if (!index.isDirectory(tablePath)
+    				|| metadata.getTable(schemaFolder, new File(tablePath).getName()) < 0)
+    		{
+    			surplus.add(tablePath);
+    		}
+    	}
     }
 
-    private boolean validateTable(File table, XPath xPath, Document doc) throws XPathExpressionException
-    {
-    	boolean valid = true;
-		XPathExpression expression = xPath.compile("//siard:table[siard:folder='" + table.getName() + "']/siard:folder/text()");
-		Node node = (Node) expression.evaluate(doc, XPathConstants.NODE);
-		if (node == null)
-		{
-        	valid = false;
-        	File schema = new File(table.getParent());
-        	if (table.isFile())
-        	{
-        		getMessageService().logError(
-                        getTextResourceService().getText(MESSAGE_MODULE_J) + 
-                        getTextResourceService().getText(MESSAGE_DASHES) + 
-                        schema.getName() + " " + getTextResourceService().getText(MESSAGE_MODULE_J_INVALID_FILE) + " " + table.getName() + ".");
-        	}
-        	else if (table.isDirectory())
-        	{
-        		getMessageService().logError(
-                        getTextResourceService().getText(MESSAGE_MODULE_J) + 
-                        getTextResourceService().getText(MESSAGE_DASHES) + 
-                        schema.getName() + " " + getTextResourceService().getText(MESSAGE_MODULE_J_INVALID_FOLDER) + " " + table.getName() + ".");
-        	}
-        	else
-        	{
-        		getMessageService().logError(
-                        getTextResourceService().getText(MESSAGE_MODULE_J) + 
-                        getTextResourceService().getText(MESSAGE_DASHES) + 
-                        schema.getName() + " " + getTextResourceService().getText(MESSAGE_MODULE_J_INVALID_ENTRY) + " " + table.getName() + ".");
-        	}
-		}
-		return valid;
-    }
-    
-    private class SiardNamespaceContext implements NamespaceContext
+    private void logSurplus(SiardArchiveIndex index, String path)
     {
-    	private static final String SIARD_URI = "http://www.bar.admin.ch/xmlns/siard/1.0/metadata.xsd";
-
-    	private static final String DB_URI = "http://db.apache.org/torque/4.0/templates/database";
-
-    	@Override
-		public String getNamespaceURI(String prefix) 
-		{
-			if (prefix == null)
-			{
-				throw new NullPointerException("Null prefix is not allowed");
-			}
-			if ("siard".equals(prefix)) {
-				return SIARD_URI;
-			}
-			if ("db".equals(prefix))
-			{
-				return DB_URI;
-			}
-			return XMLConstants.XML_NS_URI;
-		}
-
-		@Override
-		public String getPrefix(String uri)
-		{
-			throw new UnsupportedOperationException();
-		}
-
-		@Override
-		public Iterator<String> getPrefixes(String uri) 
-		{
-			throw new UnsupportedOperationException();
-		}
-    	
+    	File entry = new File(path);
+    	File parent = new File(entry.getParent());
+    	String message;
+    	if (index.isFile(path))
+    	{
+    		message = MESSAGE_MODULE_J_INVALID_FILE;
+    	}
+    	else if (index.isDirectory(path))
+    	{
+    		message = MESSAGE_MODULE_J_INVALID_FOLDER;
+    	}
+    	else
+    	{
+    		message = MESSAGE_MODULE_J_INVALID_ENTRY;
+    	}
+		getMessageService().log(finding(MessageService.ERROR, MESSAGE_MODULE_J, message,
+				parent.getName(), entry.getName()).entry(path));
     }
 }
@@ -0,0 +1,792 @@
+/*== SIARD-Val ==================================================================================
+The SIARD-Val application is used for validate SIARD-Files. 
+Copyright (C) 2012 Claire Rthlisberger (KOST-CECO), Martin Kaiser (KOST-CECO), XYZ (xyz)
+-----------------------------------------------------------------------------------------------
+SIARD-Val is a development of the KOST-CECO. All rights rest with the KOST-CECO. 
+This application is free software: you can redistribute it and/or modify it under the 
+terms of the GNU General Public License as published by the Free Software Foundation, 
+either version 3 of the License, or (at your option) any later version. 
+This application is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; 
+without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. 
+See the follow GNU General Public License for more details.
+You should have received a copy of the GNU General Public License along with this program; 
+if not, write to the Free Software Foundation, Inc., 51 Franklin Street, Fifth Floor, 
+Boston, MA 02110-1301 USA or see <http://www.gnu.org/licenses/>.
+==============================================================================================*/
+
+package ch.kostceco.tools.siardval.validation.module.impl;
+
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import javax.xml.stream.XMLStreamException;
+
+import ch.kostceco.tools.siardval.archive.SiardArchiveEntry;
+import ch.kostceco.tools.siardval.archive.SiardArchiveIndex;
+import ch.kostceco.tools.siardval.archive.SiardMetadata;
+import ch.kostceco.tools.siardval.exception.module.ValidationKconstraintException;
+import ch.kostceco.tools.siardval.service.ConfigurationService;
+import ch.kostceco.tools.siardval.service.MessageService;
+import ch.kostceco.tools.siardval.validation.TableTaskExecutor;
+import ch.kostceco.tools.siardval.validation.ValidationModuleImpl;
+import ch.kostceco.tools.siardval.validation.constraint.DuplicateFinder;
+import ch.kostceco.tools.siardval.validation.constraint.ForeignKeyJoin;
+import ch.kostceco.tools.siardval.validation.constraint.KeyFingerprint;
+import ch.kostceco.tools.siardval.validation.constraint.KeyRowSorter;
+import ch.kostceco.tools.siardval.validation.constraint.TableRowReader;
+import ch.kostceco.tools.siardval.validation.module.ValidationKconstraintModule;
+
+/**
+ * Validierungsschritt K (Constraint-Validierung)
+ * Sind die vorgegebenen Constraints valid?
+ *  --> Constraint-Verletzung als Fehler ausgeben
+ * valid --> die Werte von primaryKey und candidateKey sind eindeutig
+ * valid --> die Spalten von primaryKey sind nie NULL
+ * Pro Schlssel wird fr jede Zeile ein 128-Bit-Fingerprint in ein Hash-Set
+ * ausserhalb des Heaps eingefgt; bei berschrittenem Speicherbudget werden
+ * sortierte Zwischendateien geschrieben und am Schluss gemischt. Gleiche
+ * Fingerprints werden in einem zweiten Durchgang mit den Werten verglichen.
+ * valid --> jeder Wert eines foreignKey kommt in der referenzierten Tabelle vor
+ * Pro Fremdschlssel werden die Werte beider Tabellen mit Zeilennummer
+ * extern sortiert (sortierte Zwischendateien, Mischen) und anschliessend in
+ * einem Durchgang verglichen (Merge-Join).
+ */
+
+public class ValidationKconstraintModuleImpl extends ValidationModuleImpl implements ValidationKconstraintModule {
+
+    /* Anzahl doppelter Schlsselwerte, die pro Schlssel exakt geprft werden */
+    private static final int MAX_DUPLICATES = 10000;
+
+    /* Anzahl doppelter Schlsselwerte, die pro Schlssel einzeln gemeldet werden */
+    private static final int MAX_REPORTED = 10;
+
+    private static final long MB = 1024L * 1024;
+
+    public ConfigurationService configurationService;
+
+
+    public ConfigurationService getConfigurationService() {
+        return configurationService;
+    }
+
+    public void setConfigurationService(ConfigurationService configurationService) {
+        this.configurationService = configurationService;
+    }
+
+
+    @Override
+    public boolean validate(File siardDatei) throws ValidationKconstraintException
+    {
+    	boolean valid = true;
+    	String prefix = getTextResourceService().getText(MESSAGE_MODULE_K) + getTextResourceService().getText(MESSAGE_DASHES);
+        try {
+            SiardArchiveIndex index = getArchiveService().getArchiveIndex(siardDatei);
+            SiardMetadata metadata = getArchiveService().getMetadata(siardDatei);
+
+            // auch ohne extractarchive=yes fr die Zwischendateien
+            String pathToWorkDir = getWorkDirService().getWorkDir(siardDatei).getPath();
+            boolean extracted = getConfigurationService().isExtractArchive();
+            // Tabellen nach Schema- und Tabellenname, fr die Fremdschlssel
+            Map<String, TableInfo> tables = new HashMap<String, TableInfo>();
+            List<TableInfo> tableList = new ArrayList<TableInfo>();
+        	for (int schema = 0; schema < metadata.getSchemaCount(); schema++)
+        	{
+        		String schemaFolder = metadata.getSchemaFolder(schema);
+        		if (schemaFolder == null || !metadata.hasTables(schema))
+        		{
+        			// wird von Modul D gemeldet
+        			continue;
+        		}
+        		for (int table = metadata.getFirstTable(schema); table < metadata.getTableEnd(schema); table++)
+        		{
+        			String tableFolder = metadata.getTableFolder(table);
+        			if (tableFolder == null || !metadata.hasColumns(table))
+        			{
+        				continue;
+        			}
+        			String tablePath = SiardArchiveIndex.CONTENT + schemaFolder + "/" + tableFolder + "/";
+        			TableInfo tableInfo = new TableInfo(index, schemaFolder + "/" + tableFolder, table,
+        					tablePath + tableFolder + ".xml", extracted ? pathToWorkDir : null,
+        					Math.max(0, metadata.getTableRows(table)));
+        			int firstColumn = metadata.getFirstColumn(table);
+        			for (int column = firstColumn; column < metadata.getColumnEnd(table); column++)
+        			{
+        				tableInfo.columnNumbers.put(trim(metadata.getColumnName(column)), Integer.valueOf(column - firstColumn + 1));
+        			}
+        			tables.put(trim(metadata.getSchemaName(schema)) + "." + trim(metadata.getTableName(table)), tableInfo);
+        			tableList.add(tableInfo);
+        		}
+        	}
+
+        	List<KeyCheck> keyChecks = new ArrayList<KeyCheck>();
+        	List<ForeignKeyCheck> foreignKeyChecks = new ArrayList<ForeignKeyCheck>();
+        	for (TableInfo tableInfo : tableList)
+        	{
+        		int table = tableInfo.table;
+        		List<Key> keys = new ArrayList<Key>();
+        		for (int keyNumber = metadata.getFirstKey(table); keyNumber < metadata.getKeyEnd(table); keyNumber++)
+        		{
+        			Key key = createKey(metadata, keyNumber, tableInfo.columnNumbers);
+        			if (key.missingColumn != null)
+        			{
+        				valid = false;
+        				getMessageService().log(finding(MessageService.ERROR, MESSAGE_MODULE_K, MESSAGE_MODULE_K_MISSING_COLUMN,
+        						tableInfo.name, key.name, key.missingColumn).table(tableInfo.name));
+        				continue;
+        			}
+        			keys.add(key);
+        		}
+        		if (!keys.isEmpty())
+        		{
+        			keyChecks.add(new KeyCheck(tableInfo, keys));
+        		}
+
+        		for (int foreignKey = metadata.getFirstForeignKey(table); foreignKey < metadata.getForeignKeyEnd(table); foreignKey++)
+        		{
+        			ForeignKeyCheck foreignKeyCheck = createForeignKey(metadata, foreignKey, tableInfo, tables);
+        			if (foreignKeyCheck == null)
+        			{
+        				valid = false;
+        				continue;
+        			}
+        			foreignKeyChecks.add(foreignKeyCheck);
+        		}
+        	}
+
+        	// das Speicherbudget wird auf die gleichzeitig laufenden Prfungen verteilt
+        	List<TableTaskExecutor.TableTask> tasks = new ArrayList<TableTaskExecutor.TableTask>();
+        	tasks.addAll(keyChecks);
+        	tasks.addAll(foreignKeyChecks);
+        	int threads = TableTaskExecutor.getThreadCount(tasks, getConfigurationService().getContentThreads());
+        	long budget = getConfigurationService().getConstraintMemory() * MB / threads;
+        	File spillDir = new File(pathToWorkDir);
+        	for (KeyCheck keyCheck : keyChecks)
+        	{
+        		keyCheck.budget = budget;
+        		keyCheck.spillDir = spillDir;
+        	}
+        	for (ForeignKeyCheck foreignKeyCheck : foreignKeyChecks)
+        	{
+        		foreignKeyCheck.budget = budget;
+        		foreignKeyCheck.spillDir = spillDir;
+        	}
+        	try {
+        		TableTaskExecutor.execute(tasks, threads, "siardval-keys");
+        	}
+        	catch (InterruptedException e)
+        	{
+        		// der Validierungsschritt wurde abgebrochen
+        		Thread.currentThread().interrupt();
+        		return false;
+        	}
+
+        	// Ausgabe in der Reihenfolge von metadata.xml
+        	for (KeyCheck keyCheck : keyChecks)
+        	{
+        		valid = report(keyCheck, prefix) && valid;
+        	}
+        	for (ForeignKeyCheck foreignKeyCheck : foreignKeyChecks)
+        	{
+        		valid = report(foreignKeyCheck, prefix) && valid;
+        	}
+        }
+        catch (java.io.IOException ioe)
+        {
+        	valid = false;
+    		getMessageService().logError(prefix + "IOException " + ioe.getMessage());
+        }
+        catch (XMLStreamException e)
+        {
+        	valid = false;
+    		getMessageService().logError(prefix + "XMLStreamException " + e.getMessage());
+        }
+
+        return valid;
+    }
+
+    private Key createKey(SiardMetadata metadata, int keyNumber, Map<String, Integer> columnNumbers)
+    {
+    	boolean primary = metadata.isPrimaryKey(keyNumber);
+    	String keyName = trim(metadata.getKeyName(keyNumber));
+    	Key key = new Key(keyName == null ? (primary ? "primaryKey" : "candidateKey") : keyName, primary);
+    	int firstColumn = metadata.getFirstKeyColumn(keyNumber);
+    	key.columns = new int[metadata.getKeyColumnEnd(keyNumber) - firstColumn];
+    	for (int i = 0; i < key.columns.length; i++)
+    	{
+    		String columnName = trim(metadata.getKeyColumn(firstColumn + i));
+    		Integer number = columnNumbers.get(columnName);
+    		if (number == null)
+    		{
+    			key.missingColumn = columnName;
+    			return key;
+    		}
+    		key.columns[i] = number.intValue();
+    	}
+    	return key;
+    }
+
+    /*
+     * Gibt null zurck, falls der Fremdschlssel auf eine unbekannte Tabelle
+     * oder Spalte verweist; der Fehler ist dann bereits ausgegeben.
+     */
+    private ForeignKeyCheck createForeignKey(SiardMetadata metadata, int foreignKey, TableInfo tableInfo,
+    		Map<String, TableInfo> tables)
+    {
+    	String name = trim(metadata.getForeignKeyName(foreignKey));
+    	String referencedName = trim(metadata.getReferencedSchema(foreignKey)) + "."
+    			+ trim(metadata.getReferencedTable(foreignKey));
+    	TableInfo referenced = tables.get(referencedName);
+    	if (referenced == null)
+    	{
+    		getMessageService().log(finding(MessageService.ERROR, MESSAGE_MODULE_K, MESSAGE_MODULE_K_MISSING_TABLE,
+    				tableInfo.name, name, referencedName).table(tableInfo.name));
+    		return null;
+    	}
+    	int firstReference = metadata.getFirstReference(foreignKey);
+    	int[] columns = new int[metadata.getReferenceEnd(foreignKey) - firstReference];
+    	int[] referencedColumns = new int[columns.length];
+    	for (int i = 0; i < columns.length; i++)
+    	{
+    		String column = trim(metadata.getReferenceColumn(firstReference + i));
+    		Integer number = tableInfo.columnNumbers.get(column);
+    		if (number == null)
+    		{
+    			getMessageService().log(finding(MessageService.ERROR, MESSAGE_MODULE_K, MESSAGE_MODULE_K_MISSING_COLUMN,
+    					tableInfo.name, name, column).table(tableInfo.name));
+    			return null;
+    		}
+    		columns[i] = number.intValue();
+    		// referenced enthlt den Spaltennamen, allenfalls als tabelle.spalte
+    		String referencedColumn = trim(metadata.getReferencedColumn(firstReference + i));
+    		number = referenced.columnNumbers.get(referencedColumn);
+    		if (number == null && referencedColumn != null && referencedColumn.lastIndexOf('.') >= 0)
+    		{
+    			number = referenced.columnNumbers.get(referencedColumn.substring(referencedColumn.lastIndexOf('.') + 1));
+    		}
+    		if (number == null)
+    		{
+    			getMessageService().log(finding(MessageService.ERROR, MESSAGE_MODULE_K, MESSAGE_MODULE_K_MISSING_COLUMN,
+    					tableInfo.name, name, referenced.name + "." + referencedColumn).table(tableInfo.name));
+    			return null;
+    		}
+    		referencedColumns[i] = number.intValue();
+    	}
+    	return new ForeignKeyCheck(name, tableInfo, columns, referenced, referencedColumns);
+    }
+
+    private boolean report(KeyCheck keyCheck, String prefix)
+    {
+    	if (keyCheck.error != null)
+    	{
+    		getMessageService().logError(prefix + keyCheck.table.name + ": " + keyCheck.error);
+    		return false;
+    	}
+    	boolean valid = true;
+    	for (Key key : keyCheck.keys)
+    	{
+    		getMessageService().log(finding(MessageService.INFO, MESSAGE_MODULE_K, MESSAGE_MODULE_K_KEY,
+    				keyCheck.table.name, key.name, String.valueOf(keyCheck.rowCount)).table(keyCheck.table.name));
+    		if (key.runs > 0)
+    		{
+    			getMessageService().log(finding(MessageService.INFO, MESSAGE_MODULE_K, MESSAGE_MODULE_K_SPILL,
+    					keyCheck.table.name, key.name, String.valueOf(key.runs)).table(keyCheck.table.name));
+    		}
+    		if (key.nullCount > 0)
+    		{
+    			valid = false;
+    			getMessageService().log(finding(MessageService.ERROR, MESSAGE_MODULE_K, MESSAGE_MODULE_K_NULL_KEY,
+    					keyCheck.table.name, key.name, String.valueOf(key.nullCount), String.valueOf(key.firstNullRow)).table(keyCheck.table.name));
+    		}
+    		for (Duplicate duplicate : key.reported)
+    		{
+    			valid = false;
+    			getMessageService().log(finding(MessageService.ERROR, MESSAGE_MODULE_K, MESSAGE_MODULE_K_DUPLICATE_KEY,
+    					keyCheck.table.name, key.name, String.valueOf(duplicate.row), duplicate.value, String.valueOf(duplicate.firstRow)).table(keyCheck.table.name));
+    		}
+    		long duplicateCount = key.duplicateCount;
+    		if (key.candidates.size() >= MAX_DUPLICATES)
+    		{
+    			// nur MAX_DUPLICATES Fingerprints wurden mit den Werten
+    			// verglichen, die brigen Wiederholungen zhlt der erste Durchgang
+    			duplicateCount = Math.max(duplicateCount, key.fingerprintDuplicateCount);
+    		}
+    		if (duplicateCount > key.reported.size())
+    		{
+    			getMessageService().log(finding(MessageService.ERROR, MESSAGE_MODULE_K, MESSAGE_MODULE_K_DUPLICATE_COUNT,
+    					keyCheck.table.name, key.name, String.valueOf(duplicateCount)).table(keyCheck.table.name));
+    		}
+    	}
+    	return valid;
+    }
+
+    private boolean report(ForeignKeyCheck foreignKeyCheck, String prefix)
+    {
+    	String name = foreignKeyCheck.table.name;
+    	if (foreignKeyCheck.error != null)
+    	{
+    		getMessageService().logError(prefix + name + ": " + foreignKeyCheck.error);
+    		return false;
+    	}
+    	getMessageService().log(finding(MessageService.INFO, MESSAGE_MODULE_K, MESSAGE_MODULE_K_FOREIGN_KEY,
+    			name, foreignKeyCheck.name, foreignKeyCheck.referenced.name, String.valueOf(foreignKeyCheck.rowCount)).table(name));
+    	if (foreignKeyCheck.runs > 0)
+    	{
+    		getMessageService().log(finding(MessageService.INFO, MESSAGE_MODULE_K, MESSAGE_MODULE_K_SPILL,
+    				name, foreignKeyCheck.name, String.valueOf(foreignKeyCheck.runs)).table(name));
+    	}
+    	for (KeyRowSorter.KeyRow missing : foreignKeyCheck.reported)
+    	{
+    		getMessageService().log(finding(MessageService.ERROR, MESSAGE_MODULE_K, MESSAGE_MODULE_K_MISSING_REFERENCE,
+    				name, foreignKeyCheck.name, missing.getKey().replace('\u0000', ','),
+    				String.valueOf(missing.getRow()), foreignKeyCheck.referenced.name).table(name));
+    	}
+    	if (foreignKeyCheck.missingCount > foreignKeyCheck.reported.size())
+    	{
+    		getMessageService().log(finding(MessageService.ERROR, MESSAGE_MODULE_K, MESSAGE_MODULE_K_MISSING_REFERENCE_COUNT,
+    				name, foreignKeyCheck.name, String.valueOf(foreignKeyCheck.missingCount), foreignKeyCheck.referenced.name).table(name));
+    	}
+    	return foreignKeyCheck.missingCount == 0;
+    }
+
+    /* wie getChildTextTrim() */
+    private static String trim(String text)
+    {
+    	return text == null ? null : text.trim();
+    }
+
+    /*
+     * Ein primaryKey oder candidateKey mit den Ergebnissen der Prfung.
+     */
+    private static class Key
+    {
+    	private final String name;
+    	private final boolean primary;
+    	private int[] columns;
+    	private String missingColumn;
+    	private int[] positions;
+    	private DuplicateFinder finder;
+    	private Set<KeyFingerprint> candidates;
+    	private Map<KeyFingerprint, List<Duplicate>> seen;
+    	private final List<Duplicate> reported = new ArrayList<Duplicate>();
+    	private long duplicateCount;
+    	/* Wiederholungen laut Fingerprints, auch ber MAX_DUPLICATES hinaus */
+    	private long fingerprintDuplicateCount;
+    	private long nullCount;
+    	private long firstNullRow;
+    	private int runs;
+
+    	Key(String name, boolean primary)
+    	{
+    		this.name = name;
+    		this.primary = primary;
+    	}
+
+    	/*
+    	 * Gibt den zusammengesetzten Schlssel zurck oder null, falls eine
+    	 * Spalte NULL ist. NULL in einem candidateKey wird nicht verglichen.
+    	 */
+    	String getKey(long row, String[] values)
+    	{
+    		String[] keyValues = new String[positions.length];
+    		for (int i = 0; i < positions.length; i++)
+    		{
+    			keyValues[i] = values[positions[i]];
+    			if (keyValues[i] == null)
+    			{
+    				// NULL wird nur im ersten Durchgang gezhlt
+    				if (primary && finder != null)
+    				{
+    					if (nullCount++ == 0)
+    					{
+    						firstNullRow = row;
+    					}
+    				}
+    				return null;
+    			}
+    		}
+    		return KeyFingerprint.encode(keyValues);
+    	}
+
+    	/*
+    	 * Zweiter Durchgang: vergleicht die Werte von Zeilen mit gleichem
+    	 * Fingerprint.
+    	 */
+    	void confirm(long row, String value, KeyFingerprint fingerprint)
+    	{
+    		List<Duplicate> values = seen.get(fingerprint);
+    		if (values == null)
+    		{
+    			values = new ArrayList<Duplicate>(2);
+    			seen.put(fingerprint, values);
+    		}
+    		for (Duplicate first : values)
+    		{
+    			if (first.value.equals(value))
+    			{
+    				duplicateCount++;
+    				if (reported.size() < MAX_REPORTED)
+    				{
+    					// mehrteilige Schlssel werden durch Komma getrennt ausgegeben
+    					reported.add(new Duplicate(row, value.replace('\u0000', ','), first.row));
+    				}
+    				return;
+    			}
+    		}
+    		// erster Wert oder echte Kollision der Fingerprints
+    		values.add(new Duplicate(row, value, 0));
+    	}
+    }
+
+    private static class Duplicate
+    {
+    	private final long row;
+    	private final String value;
+    	private final long firstRow;
+
+    	Duplicate(long row, String value, long firstRow)
+    	{
+    		this.row = row;
+    		this.value = value;
+    		this.firstRow = firstRow;
+    	}
+    }
+
+    /*
+     * Angaben zu einer Tabelle aus metadata.xml.
+     */
+    private static class TableInfo
+    {
+    	private final SiardArchiveIndex index;
+    	private final String name;
+    	private final int table;
+    	private final String xmlEntry;
+    	private final String pathToWorkDir;
+    	private final long rows;
+    	private final long size;
+    	private final Map<String, Integer> columnNumbers = new HashMap<String, Integer>();
+
+    	TableInfo(SiardArchiveIndex index, String name, int table, String xmlEntry, String pathToWorkDir, long rows)
+    	{
+    		this.index = index;
+    		this.name = name;
+    		this.table = table;
+    		this.xmlEntry = xmlEntry;
+    		this.pathToWorkDir = pathToWorkDir;
+    		this.rows = rows;
+    		if (pathToWorkDir != null)
+    		{
+    			this.size = new File(pathToWorkDir, xmlEntry).length();
+    		}
+    		else
+    		{
+    			SiardArchiveEntry entry = index.getEntry(xmlEntry);
+    			this.size = entry == null ? 0 : entry.getSize();
+    		}
+    	}
+
+    	InputStream open() throws IOException
+    	{
+    		if (pathToWorkDir != null)
+    		{
+    			return new BufferedInputStream(new FileInputStream(new File(pathToWorkDir, xmlEntry)), 64 * 1024);
+    		}
+    		return new BufferedInputStream(index.openEntryInputStream(xmlEntry), 64 * 1024);
+    	}
+    }
+
+    /*
+     * Schlsselprfung einer Tabelle. Die Ergebnisse werden gesammelt und
+     * erst nach Abschluss aller Tabellen ausgegeben.
+     */
+    private class KeyCheck implements TableTaskExecutor.TableTask
+    {
+    	private final TableInfo table;
+    	private final List<Key> keys;
+    	private final int[] columns;
+    	private long budget;
+    	private File spillDir;
+    	private long rowCount;
+    	private String error;
+
+    	KeyCheck(TableInfo table, List<Key> keys)
+    	{
+    		this.table = table;
+    		this.keys = keys;
+    		// alle Schlsselspalten werden in einem Durchgang gelesen
+    		List<Integer> union = new ArrayList<Integer>();
+    		for (Key key : keys)
+    		{
+    			key.positions = new int[key.columns.length];
+    			for (int i = 0; i < key.columns.length; i++)
+    			{
+    				Integer column = Integer.valueOf(key.columns[i]);
+    				if (!union.contains(column))
+    				{
+    					union.add(column);
+    				}
+    				key.positions[i] = union.indexOf(column);
+    			}
+    		}
+    		this.columns = new int[union.size()];
+    		for (int i = 0; i < columns.length; i++)
+    		{
+    			columns[i] = union.get(i).intValue();
+    		}
+    	}
+
+    	@Override
+    	public long getSize()
+    	{
+    		return table.size;
+    	}
+
+    	@Override
+    	public String getName()
+    	{
+    		return table.name;
+    	}
+
+    	@Override
+    	public void run()
+    	{
+    		try {
+    			findDuplicates();
+    			confirmDuplicates();
+    		}
+    		catch (IOException e)
+    		{
+    			error = "IOException " + e.getMessage();
+    		}
+    		catch (XMLStreamException e)
+    		{
+    			error = "XMLStreamException " + e.getMessage();
+    		}
+    		catch (RuntimeException e)
+    		{
+    			// als Befund von Modul K melden, TableTask.run darf nichts werfen
+    			error = e.getClass().getSimpleName() + " " + e.getMessage();
+    		}
+    		finally
+    		{
+    			for (Key key : keys)
+    			{
+    				if (key.finder != null)
+    				{
+    					key.finder.close();
+    					key.finder = null;
+    				}
+    			}
+    		}
+    	}
+
+    	/*
+    	 * Erster Durchgang: Fingerprints aller Schlsselwerte sammeln.
+    	 */
+    	private void findDuplicates() throws IOException, XMLStreamException
+    	{
+    		for (Key key : keys)
+    		{
+    			key.finder = new DuplicateFinder(budget / keys.size(), table.rows, spillDir, MAX_DUPLICATES);
+    		}
+    		InputStream in = table.open();
+    		try {
+    			rowCount = new TableRowReader(columns).read(in, new TableRowReader.RowHandler() {
+    				@Override
+    				public void row(long row, String[] values) throws IOException
+    				{
+    					for (Key key : keys)
+    					{
+    						String value = key.getKey(row, values);
+    						if (value != null)
+    						{
+    							key.finder.add(KeyFingerprint.of(value));
+    						}
+    					}
+    				}
+    			});
+    		}
+    		finally
+    		{
+    			in.close();
+    		}
+    		for (Key key : keys)
+    		{
+    			key.candidates = key.finder.finish();
+    			key.runs = key.finder.getRunCount();
+    			key.fingerprintDuplicateCount = key.finder.getDuplicateCount();
+    			key.finder.close();
+    			key.finder = null;
+    		}
+    	}
+
+    	/*
+    	 * Zweiter Durchgang, nur falls Fingerprints mehrfach vorkommen.
+    	 */
+    	private void confirmDuplicates() throws IOException, XMLStreamException
+    	{
+    		final List<Key> suspects = new ArrayList<Key>();
+    		for (Key key : keys)
+    		{
+    			if (!key.candidates.isEmpty())
+    			{
+    				key.seen = new HashMap<KeyFingerprint, List<Duplicate>>();
+    				suspects.add(key);
+    			}
+    		}
+    		if (suspects.isEmpty())
+    		{
+    			return;
+    		}
+    		InputStream in = table.open();
+    		try {
+    			new TableRowReader(columns).read(in, new TableRowReader.RowHandler() {
+    				@Override
+    				public void row(long row, String[] values) throws IOException
+    				{
+    					for (Key key : suspects)
+    					{
+    						String value = key.getKey(row, values);
+    						if (value != null)
+    						{
+    							KeyFingerprint fingerprint = KeyFingerprint.of(value);
+    							if (key.candidates.contains(fingerprint))
+    							{
+    								key.confirm(row, value, fingerprint);
+    							}
+    						}
+    					}
+    				}
+    			});
+    		}
+    		finally
+    		{
+    			in.close();
+    		}
+    		for (Key key : suspects)
+    		{
+    			key.seen = null;
+    		}
+    	}
+    }
+
+    /*
+     * Prfung eines Fremdschlssels. Die Werte der referenzierenden und der
+     * referenzierten Tabelle werden je extern sortiert und dann gemeinsam
+     * durchlaufen; der Speicherbedarf ist durch das Budget begrenzt.
+     */
+    private class ForeignKeyCheck implements TableTaskExecutor.TableTask
+    {
+    	private final String name;
+    	private final TableInfo table;
+    	private final int[] columns;
+    	private final TableInfo referenced;
+    	private final int[] referencedColumns;
+    	private long budget;
+    	private File spillDir;
+    	private long rowCount;
+    	private long missingCount;
+    	private int runs;
+    	private final List<KeyRowSorter.KeyRow> reported = new ArrayList<KeyRowSorter.KeyRow>();
+    	private String error;
+
+    	ForeignKeyCheck(String name, TableInfo table, int[] columns, TableInfo referenced, int[] referencedColumns)
+    	{
+    		this.name = name;
+    		this.table = table;
+    		this.columns = columns;
+    		this.referenced = referenced;
+    		this.referencedColumns = referencedColumns;
+    	}
+
+    	@Override
+    	public long getSize()
+    	{
+    		return table.size + referenced.size;
+    	}
+
+    	@Override
+    	public String getName()
+    	{
+    		return table.name + " " + name;
+    	}
+
+    	@Override
+    	public void run()
+    	{
+    		KeyRowSorter values = new KeyRowSorter(budget / 2, spillDir);
+    		KeyRowSorter referencedValues = new KeyRowSorter(budget / 2, spillDir);
+    		try {
+    			rowCount = sort(table, columns, values);
+    			sort(referenced, referencedColumns, referencedValues);
+    			runs = values.getRunCount() + referencedValues.getRunCount();
+    			KeyRowSorter.KeyRowIterator iterator = values.finish();
+    			try {
+    				ForeignKeyJoin join = new ForeignKeyJoin(MAX_REPORTED);
+    				join.join(iterator, referencedValues.finish());
+    				missingCount = join.getMissingCount();
+    				reported.addAll(join.getMissing());
+    			}
+    			finally
+    			{
+    				iterator.close();
+    			}
+    		}
+    		catch (IOException e)
+    		{
+    			error = "IOException " + e.getMessage();
+    		}
+    		catch (XMLStreamException e)
+    		{
+    			error = "XMLStreamException " + e.getMessage();
+    		}
+    		catch (RuntimeException e)
+    		{
+    			// als Befund von Modul K melden, TableTask.run darf nichts werfen
+    			error = e.getClass().getSimpleName() + " " + e.getMessage();
+    		}
+    		finally
+    		{
+    			values.close();
+    			referencedValues.close();
+    		}
+    	}
+
+    	/*
+    	 * Liest die Werte einer Tabelle in den Sorter. Zeilen mit NULL in
+    	 * einer der Spalten verweisen auf nichts und werden bergangen.
+    	 */
+    	private long sort(TableInfo tableInfo, int[] keyColumns, final KeyRowSorter sorter)
+    			throws IOException, XMLStreamException
+    	{
+    		InputStream in = tableInfo.open();
+    		try {
+    			return new TableRowReader(keyColumns).read(in, new TableRowReader.RowHandler() {
+    				@Override
+    				public void row(long row, String[] values) throws IOException
+    				{
+    					for (String value : values)
+    					{
+    						if (value == null)
+    						{
+    							return;
+    						}
+    					}
+    					sorter.add(KeyFingerprint.encode(values), row);
+    				}
+    			});
+    		}
+    		finally
+    		{
+    			in.close();
+    		}
+    	}
+    }
+}
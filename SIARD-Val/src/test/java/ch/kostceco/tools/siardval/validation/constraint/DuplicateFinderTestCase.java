@@ -0,0 +1,144 @@
+/*== SIARD-Val ==================================================================================
+The SIARD-Val application is used for validate SIARD-Files. 
+Copyright (C) 2012 Claire Rthlisberger (KOST-CECO), Martin Kaiser (KOST-CECO), XYZ (xyz)
+-----------------------------------------------------------------------------------------------
+SIARD-Val is a development of the KOST-CECO. All rights rest with the KOST-CECO. 
+This application is free software: you can redistribute it and/or modify it under the 
+terms of the GNU General Public License as published by the Free Software Foundation, 
+either version 3 of the License, or (at your option) any later version. 
+This application is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; 
+without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. 
+See the follow GNU General Public License for more details.
+You should have received a copy of the GNU General Public License along with this program; 
+if not, write to the Free Software Foundation, Inc., 51 Franklin Street, Fifth Floor, 
+Boston, MA 02110-1301 USA or see <http://www.gnu.org/licenses/>.
+==============================================================================================*/
+
+package ch.kostceco.tools.siardval.validation.constraint;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.HashSet;
+import java.util.Set;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class DuplicateFinderTestCase {
+
+    /* Fingerprints pro Zwischendatei bei kleinstem Budget */
+    private static final int RUN_SIZE = (int) ((1 << 12) * 0.7);
+
+    /* mehr Zwischendateien als in einem Durchgang gemischt werden */
+    private static final int MANY_RUNS = 70;
+
+    private File workDir;
+
+    @Before
+    public void createWorkDir() throws IOException {
+        workDir = File.createTempFile("siardval-test", "");
+        workDir.delete();
+        workDir.mkdir();
+    }
+
+    @After
+    public void deleteWorkDir() {
+        File[] files = workDir.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                file.delete();
+            }
+        }
+        workDir.delete();
+    }
+
+    private static KeyFingerprint fingerprint(long value) {
+        return KeyFingerprint.of(String.valueOf(value));
+    }
+
+    @Test
+    public void findsDuplicatesInMemory() throws IOException {
+        DuplicateFinder finder = new DuplicateFinder(1024 * 1024, 0, workDir, 100);
+        for (int i = 0; i < 1000; i++) {
+            finder.add(fingerprint(i));
+        }
+        finder.add(fingerprint(3));
+        finder.add(fingerprint(3));
+        finder.add(fingerprint(999));
+        Set<KeyFingerprint> duplicates = finder.finish();
+        assertEquals(2, duplicates.size());
+        assertTrue(duplicates.contains(fingerprint(3)));
+        assertTrue(duplicates.contains(fingerprint(999)));
+        assertEquals(3, finder.getDuplicateCount());
+        assertEquals(0, finder.getRunCount());
+    }
+
+    @Test
+    public void findsDuplicatesOnlyAcrossRuns() throws IOException {
+        DuplicateFinder finder = new DuplicateFinder(0, 0, workDir, 1000);
+        for (int i = 0; i < 3 * RUN_SIZE; i++) {
+            finder.add(fingerprint(i));
+        }
+        // jeder Wert kommt in seiner eigenen Zwischendatei nur einmal vor
+        Set<KeyFingerprint> expected = new HashSet<KeyFingerprint>();
+        for (int i = 0; i < 3 * RUN_SIZE; i += 97) {
+            finder.add(fingerprint(i));
+            expected.add(fingerprint(i));
+        }
+        assertEquals(0, finder.getDuplicateCount());
+        Set<KeyFingerprint> duplicates = finder.finish();
+        assertTrue(finder.getRunCount() > 1);
+        assertEquals(expected, duplicates);
+        assertEquals(expected.size(), finder.getDuplicateCount());
+        assertEquals(0, workDir.listFiles().length);
+    }
+
+    @Test
+    public void mergesWiderThanMergeWidth() throws IOException {
+        DuplicateFinder finder = new DuplicateFinder(0, 0, workDir, 1000);
+        for (int i = 0; i < MANY_RUNS * RUN_SIZE; i++) {
+            finder.add(fingerprint(i));
+        }
+        // erste und zweite Zwischendatei, gemischt erst im zweiten Durchgang
+        finder.add(fingerprint(5));
+        finder.add(fingerprint(RUN_SIZE + 5));
+        Set<KeyFingerprint> duplicates = finder.finish();
+        assertTrue(finder.getRunCount() > 64);
+        assertEquals(2, duplicates.size());
+        assertTrue(duplicates.contains(fingerprint(5)));
+        assertTrue(duplicates.contains(fingerprint(RUN_SIZE + 5)));
+        assertEquals(2, finder.getDuplicateCount());
+        assertEquals(0, workDir.listFiles().length);
+    }
+
+    @Test
+    public void countsBeyondMaxDuplicates() throws IOException {
+        DuplicateFinder finder = new DuplicateFinder(0, 0, workDir, 5);
+        for (int pass = 0; pass < 2; pass++) {
+            for (int i = 0; i < 2 * RUN_SIZE; i++) {
+                finder.add(fingerprint(i));
+            }
+        }
+        assertEquals(5, finder.finish().size());
+        assertEquals(2 * RUN_SIZE, finder.getDuplicateCount());
+    }
+
+    @Test
+    public void findsRemappedZeroAcrossRuns() throws IOException {
+        DuplicateFinder finder = new DuplicateFinder(0, 0, workDir, 10);
+        finder.add(KeyFingerprint.valueOf(0, 0));
+        for (int i = 0; i < RUN_SIZE; i++) {
+            finder.add(fingerprint(i));
+        }
+        finder.add(KeyFingerprint.valueOf(0, 0));
+        Set<KeyFingerprint> duplicates = finder.finish();
+        assertTrue(finder.getRunCount() > 1);
+        assertEquals(1, duplicates.size());
+        assertTrue(duplicates.contains(new KeyFingerprint(0, 1)));
+        assertEquals(1, finder.getDuplicateCount());
+    }
+}
@@ -0,0 +1,134 @@
+/*== SIARD-Val ==================================================================================
+The SIARD-Val application is used for validate SIARD-Files. 
+Copyright (C) 2012 Claire Rthlisberger (KOST-CECO), Martin Kaiser (KOST-CECO), XYZ (xyz)
+-----------------------------------------------------------------------------------------------
+SIARD-Val is a development of the KOST-CECO. All rights rest with the KOST-CECO. 
+This application is free software: you can redistribute it and/or modify it under the 
+terms of the GNU General Public License as published by the Free Software Foundation, 
+either version 3 of the License, or (at your option) any later version. 
+This application is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; 
+without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. 
+See the follow GNU General Public License for more details.
+You should have received a copy of the GNU General Public License along with this program; 
+if not, write to the Free Software Foundation, Inc., 51 Franklin Street, Fifth Floor, 
+Boston, MA 02110-1301 USA or see <http://www.gnu.org/licenses/>.
+==============================================================================================*/
+
+package ch.kostceco.tools.siardval.validation.constraint;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class ForeignKeyJoinTestCase {
+
+    private File workDir;
+
+    @Before
+    public void createWorkDir() throws IOException {
+        workDir = File.createTempFile("siardval-test", "");
+        workDir.delete();
+        workDir.mkdir();
+    }
+
+    @After
+    public void deleteWorkDir() {
+        File[] files = workDir.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                file.delete();
+            }
+        }
+        workDir.delete();
+    }
+
+    /*
+     * Sortiert die Werte in Zeilenfolge; ein kleines Budget erzwingt
+     * Zwischendateien.
+     */
+    private KeyRowSorter.KeyRowIterator sorted(long maxBytes, String... keys) throws IOException {
+        KeyRowSorter sorter = new KeyRowSorter(maxBytes, workDir);
+        for (int i = 0; i < keys.length; i++) {
+            sorter.add(keys[i], i + 1);
+        }
+        return sorter.finish();
+    }
+
+    private ForeignKeyJoin join(int maxReported, long maxBytes, String[] values, String[] referenced)
+            throws IOException {
+        ForeignKeyJoin join = new ForeignKeyJoin(maxReported);
+        join.join(sorted(maxBytes, values), sorted(maxBytes, referenced));
+        assertEquals(0, workDir.listFiles().length);
+        return join;
+    }
+
+    private static void assertMissing(ForeignKeyJoin join, long count, String... keyRows) {
+        assertEquals(count, join.getMissingCount());
+        List<KeyRowSorter.KeyRow> missing = join.getMissing();
+        assertEquals(keyRows.length, missing.size());
+        for (int i = 0; i < keyRows.length; i++) {
+            KeyRowSorter.KeyRow keyRow = missing.get(i);
+            assertEquals(keyRows[i], keyRow.getKey() + "@" + keyRow.getRow());
+        }
+    }
+
+    @Test
+    public void allReferencesPresent() throws IOException {
+        String[] values = { "b", "d", "b", "f" };
+        String[] referenced = { "f", "d", "b" };
+        assertMissing(join(10, 1024 * 1024, values, referenced), 0);
+    }
+
+    @Test
+    public void missingAtStartMiddleAndEnd() throws IOException {
+        // sortiert: a b c d d g gegen b d f
+        String[] values = { "d", "a", "g", "b", "c", "d" };
+        String[] referenced = { "f", "b", "d" };
+        assertMissing(join(10, 1024 * 1024, values, referenced), 3, "a@2", "g@3", "c@5");
+    }
+
+    @Test
+    public void missingWithSpills() throws IOException {
+        String[] values = { "d", "a", "g", "b", "c", "d" };
+        String[] referenced = { "f", "b", "d" };
+        assertMissing(join(10, 1, values, referenced), 3, "a@2", "g@3", "c@5");
+    }
+
+    @Test
+    public void comparesWholeValues() throws IOException {
+        // "1" und "100" sind Prfix bzw. Verlngerung von "10"
+        String[] values = { "100", "10", "1" };
+        String[] referenced = { "10" };
+        assertMissing(join(10, 1024 * 1024, values, referenced), 2, "100@1", "1@3");
+    }
+
+    @Test
+    public void emptyReferencedTable() throws IOException {
+        String[] values = { "b", "a" };
+        String[] referenced = {};
+        assertMissing(join(10, 1, values, referenced), 2, "b@1", "a@2");
+    }
+
+    @Test
+    public void keepsSmallestRows() throws IOException {
+        // jede Zeile mit x fehlt, gemeldet werden die ersten zwei
+        String[] values = { "y", "x", "x", "z", "x", "x" };
+        String[] referenced = { "y", "z" };
+        assertMissing(join(2, 1, values, referenced), 4, "x@2", "x@3");
+    }
+
+    @Test
+    public void compositeKeys() throws IOException {
+        String[] values = { KeyFingerprint.encode(new String[] { "1", "2" }),
+                KeyFingerprint.encode(new String[] { "1", "3" }) };
+        String[] referenced = { KeyFingerprint.encode(new String[] { "1", "2" }),
+                KeyFingerprint.encode(new String[] { "12", "3" }) };
+        assertMissing(join(10, 1024 * 1024, values, referenced), 1, "1\u00003@2");
+    }
+}
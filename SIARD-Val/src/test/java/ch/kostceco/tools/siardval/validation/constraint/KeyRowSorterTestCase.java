@@ -0,0 +1,135 @@
+/*== SIARD-Val ==================================================================================
+The SIARD-Val application is used for validate SIARD-Files. 
+Copyright (C) 2012 Claire Rthlisberger (KOST-CECO), Martin Kaiser (KOST-CECO), XYZ (xyz)
+-----------------------------------------------------------------------------------------------
+SIARD-Val is a development of the KOST-CECO. All rights rest with the KOST-CECO. 
+This application is free software: you can redistribute it and/or modify it under the 
+terms of the GNU General Public License as published by the Free Software Foundation, 
+either version 3 of the License, or (at your option) any later version. 
+This application is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; 
+without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. 
+See the follow GNU General Public License for more details.
+You should have received a copy of the GNU General Public License along with this program; 
+if not, write to the Free Software Foundation, Inc., 51 Franklin Street, Fifth Floor, 
+Boston, MA 02110-1301 USA or see <http://www.gnu.org/licenses/>.
+==============================================================================================*/
+
+package ch.kostceco.tools.siardval.validation.constraint;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class KeyRowSorterTestCase {
+
+    private File workDir;
+
+    @Before
+    public void createWorkDir() throws IOException {
+        workDir = File.createTempFile("siardval-test", "");
+        workDir.delete();
+        workDir.mkdir();
+    }
+
+    @After
+    public void deleteWorkDir() {
+        File[] files = workDir.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                file.delete();
+            }
+        }
+        workDir.delete();
+    }
+
+    /*
+     * Zufllige Werte mit Wiederholungen, Prfixen und Zeichen ausserhalb
+     * von ASCII.
+     */
+    private static List<KeyRowSorter.KeyRow> keyRows(int count) {
+        String[] suffixes = { "", "0", "\u00e4", "\u20ac", "\u0000x" };
+        Random random = new Random(1);
+        List<KeyRowSorter.KeyRow> keyRows = new ArrayList<KeyRowSorter.KeyRow>();
+        for (int row = 1; row <= count; row++) {
+            String key = random.nextInt(count / 3) + suffixes[random.nextInt(suffixes.length)];
+            keyRows.add(new KeyRowSorter.KeyRow(key, row));
+        }
+        return keyRows;
+    }
+
+    private static void assertSorted(List<KeyRowSorter.KeyRow> keyRows, KeyRowSorter.KeyRowIterator iterator)
+            throws IOException {
+        List<KeyRowSorter.KeyRow> expected = new ArrayList<KeyRowSorter.KeyRow>(keyRows);
+        Collections.sort(expected);
+        try {
+            for (KeyRowSorter.KeyRow keyRow : expected) {
+                KeyRowSorter.KeyRow next = iterator.next();
+                assertEquals(keyRow.getKey(), next.getKey());
+                assertEquals(keyRow.getRow(), next.getRow());
+            }
+            assertNull(iterator.next());
+        } finally {
+            iterator.close();
+        }
+    }
+
+    @Test
+    public void sortsInMemory() throws IOException {
+        List<KeyRowSorter.KeyRow> keyRows = keyRows(1000);
+        KeyRowSorter sorter = new KeyRowSorter(1024 * 1024, workDir);
+        for (KeyRowSorter.KeyRow keyRow : keyRows) {
+            sorter.add(keyRow.getKey(), keyRow.getRow());
+        }
+        assertSorted(keyRows, sorter.finish());
+        assertEquals(0, sorter.getRunCount());
+        assertEquals(0, workDir.listFiles().length);
+    }
+
+    @Test
+    public void sortsWithSpills() throws IOException {
+        List<KeyRowSorter.KeyRow> keyRows = keyRows(1000);
+        // etwa 50 Paare pro Zwischendatei
+        KeyRowSorter sorter = new KeyRowSorter(5000, workDir);
+        for (KeyRowSorter.KeyRow keyRow : keyRows) {
+            sorter.add(keyRow.getKey(), keyRow.getRow());
+        }
+        assertSorted(keyRows, sorter.finish());
+        assertTrue(sorter.getRunCount() > 1);
+        assertEquals(0, workDir.listFiles().length);
+    }
+
+    @Test
+    public void mergesWiderThanMergeWidth() throws IOException {
+        List<KeyRowSorter.KeyRow> keyRows = keyRows(300);
+        // jedes Paar in einer eigenen Zwischendatei
+        KeyRowSorter sorter = new KeyRowSorter(1, workDir);
+        for (KeyRowSorter.KeyRow keyRow : keyRows) {
+            sorter.add(keyRow.getKey(), keyRow.getRow());
+        }
+        assertSorted(keyRows, sorter.finish());
+        assertEquals(300, sorter.getRunCount());
+        assertEquals(0, workDir.listFiles().length);
+    }
+
+    @Test
+    public void closeDeletesRuns() throws IOException {
+        KeyRowSorter sorter = new KeyRowSorter(1, workDir);
+        for (KeyRowSorter.KeyRow keyRow : keyRows(10)) {
+            sorter.add(keyRow.getKey(), keyRow.getRow());
+        }
+        assertEquals(10, workDir.listFiles().length);
+        sorter.close();
+        assertEquals(0, workDir.listFiles().length);
+    }
+}
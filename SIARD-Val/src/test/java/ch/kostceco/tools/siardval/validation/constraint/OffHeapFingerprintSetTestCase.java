@@ -0,0 +1,128 @@
+/*== SIARD-Val ==================================================================================
+The SIARD-Val application is used for validate SIARD-Files. 
+Copyright (C) 2012 Claire Rthlisberger (KOST-CECO), Martin Kaiser (KOST-CECO), XYZ (xyz)
+-----------------------------------------------------------------------------------------------
+SIARD-Val is a development of the KOST-CECO. All rights rest with the KOST-CECO. 
+This application is free software: you can redistribute it and/or modify it under the 
+terms of the GNU General Public License as published by the Free Software Foundation, 
+either version 3 of the License, or (at your option) any later version. 
+This application is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; 
+without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. 
+See the follow GNU General Public License for more details.
+You should have received a copy of the GNU General Public License along with this program; 
+if not, write to the Free Software Foundation, Inc., 51 Franklin Street, Fifth Floor, 
+Boston, MA 02110-1301 USA or see <http://www.gnu.org/licenses/>.
+==============================================================================================*/
+
+package ch.kostceco.tools.siardval.validation.constraint;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.Random;
+
+import org.junit.Test;
+
+public class OffHeapFingerprintSetTestCase {
+
+    /* kleinste Tabelle: 4096 Pltze, voll bei 70 % */
+    private static final int MIN_THRESHOLD = (int) ((1 << 12) * 0.7);
+
+    @Test
+    public void addReportsRepeatedFingerprints() {
+        OffHeapFingerprintSet set = new OffHeapFingerprintSet(1024 * 1024, 0);
+        assertTrue(set.add(1, 2));
+        assertTrue(set.add(2, 1));
+        assertFalse(set.add(1, 2));
+        assertEquals(2, set.size());
+    }
+
+    @Test
+    public void growsWithinBudget() {
+        OffHeapFingerprintSet set = new OffHeapFingerprintSet(1024 * 1024, 0);
+        for (int i = 0; i < 20000; i++) {
+            assertFalse(set.isFull());
+            assertTrue(set.add(i + 1, i * 31L));
+        }
+        for (int i = 0; i < 20000; i++) {
+            assertFalse(set.add(i + 1, i * 31L));
+        }
+        assertEquals(20000, set.size());
+    }
+
+    @Test
+    public void isFullAtSmallBudget() {
+        OffHeapFingerprintSet set = new OffHeapFingerprintSet(0, 0);
+        int added = 0;
+        while (!set.isFull()) {
+            assertTrue(set.add(added + 1, added));
+            added++;
+        }
+        assertEquals(MIN_THRESHOLD, added);
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void addBeyondBudgetFails() {
+        OffHeapFingerprintSet set = new OffHeapFingerprintSet(0, 0);
+        for (int i = 0; i <= MIN_THRESHOLD; i++) {
+            set.add(i + 1, i);
+        }
+    }
+
+    @Test
+    public void drainSortedWritesAscendingAndClears() throws IOException {
+        OffHeapFingerprintSet set = new OffHeapFingerprintSet(0, 0);
+        Random random = new Random(1);
+        int count = 0;
+        while (!set.isFull()) {
+            // auch negative Werte, die Ordnung ist vorzeichenbehaftet
+            if (set.add(random.nextLong(), random.nextLong())) {
+                count++;
+            }
+        }
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        set.drainSorted(new DataOutputStream(bytes));
+        assertEquals(count * OffHeapFingerprintSet.ENTRY_SIZE, bytes.size());
+        assertEquals(0, set.size());
+        assertFalse(set.isFull());
+
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes.toByteArray()));
+        long lastHigh = in.readLong();
+        long lastLow = in.readLong();
+        for (int i = 1; i < count; i++) {
+            long high = in.readLong();
+            long low = in.readLong();
+            assertTrue(KeyFingerprint.compare(lastHigh, lastLow, high, low) < 0);
+            lastHigh = high;
+            lastLow = low;
+        }
+        // nach dem Leeren ist der letzte Wert wieder neu
+        assertTrue(set.add(lastHigh, lastLow));
+    }
+
+    @Test
+    public void zeroZeroIsRemapped() throws IOException {
+        KeyFingerprint fingerprint = KeyFingerprint.valueOf(0, 0);
+        assertEquals(new KeyFingerprint(0, 1), fingerprint);
+
+        OffHeapFingerprintSet set = new OffHeapFingerprintSet(0, 0);
+        assertTrue(set.add(fingerprint.getHigh(), fingerprint.getLow()));
+        assertFalse(set.add(fingerprint.getHigh(), fingerprint.getLow()));
+        assertTrue(set.add(1, 0));
+        assertEquals(2, set.size());
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        set.drainSorted(new DataOutputStream(bytes));
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes.toByteArray()));
+        assertEquals(0, in.readLong());
+        assertEquals(1, in.readLong());
+        assertEquals(1, in.readLong());
+        assertEquals(0, in.readLong());
+    }
+}